@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.fontbox.cff.CFFCharset;
+import org.apache.fontbox.cff.CFFFont;
+import org.apache.fontbox.ttf.OTFParser;
+import org.apache.fontbox.ttf.OpenTypeFont;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Interpretation of the Type 2 charstrings of a CJK OpenType font with CFF outlines, which
+ * dominates the first rendering of CJK text. Each benchmark gets the paths of {@link #GLYPHS}
+ * random glyphs, which are more than the charstrings which are cached per font.
+ */
+@State(Scope.Benchmark)
+public class CFFCharStrings {
+
+    static final String NOTO_SANS_SC = "target/pdfs/NotoSansSC-Regular.otf";
+    static final int GLYPHS = 5000;
+
+    private byte[] fontData;
+    private CFFFont sharedFont;
+    private final int[] ids = new int[GLYPHS];
+
+    static {
+        System.setProperty("org.apache.commons.logging.Log",
+                     "org.apache.commons.logging.impl.NoOpLog");
+        java.util.logging.Logger.getLogger("org.apache").setLevel(java.util.logging.Level.OFF);
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        fontData = Files.readAllBytes(new File(NOTO_SANS_SC).toPath());
+        sharedFont = parse();
+
+        CFFCharset charset = sharedFont.getCharset();
+        int numGlyphs = sharedFont.getNumCharStrings();
+        Random random = new Random(0);
+        for (int i = 0; i < GLYPHS; i++) {
+            int gid = 1 + random.nextInt(numGlyphs - 1);
+            ids[i] = charset.isCIDFont() ? charset.getCIDForGID(gid) : gid;
+        }
+    }
+
+    private CFFFont parse() throws IOException {
+        OpenTypeFont otf = new OTFParser().parse(new RandomAccessReadBuffer(fontData));
+        return otf.getCFF().getFont();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void firstRender(Blackhole blackhole) throws IOException {
+        CFFFont font = parse();
+        for (int id : ids) {
+            blackhole.consume(font.getType2CharString(id).getPath());
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    @Threads(4)
+    public void sharedFont(Blackhole blackhole) throws IOException {
+        for (int id : ids) {
+            blackhole.consume(sharedFont.getType2CharString(id).getPath());
+        }
+    }
+}
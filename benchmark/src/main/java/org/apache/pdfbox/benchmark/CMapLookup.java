@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.fontbox.cmap.CMap;
+import org.apache.fontbox.cmap.CMapParser;
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lookup throughput of the character code mappings which are used for every shown glyph: the CIDs
+ * of a predefined CMap, the Unicode values of a ToUnicode like CMap and the glyph ids of a
+ * TrueType "cmap" table. Each benchmark looks up {@link #CODES} random codes.
+ */
+@State(Scope.Benchmark)
+public class CMapLookup {
+
+    static final int CODES = 4096;
+
+    private CMap cidCMap;
+    private CMap unicodeCMap;
+    private CmapLookup cmapLookup;
+
+    private final int[] unicodes = new int[CODES];
+    private final int[] cids = new int[CODES];
+
+    static {
+        System.setProperty("org.apache.commons.logging.Log",
+                     "org.apache.commons.logging.impl.NoOpLog");
+        java.util.logging.Logger.getLogger("org.apache").setLevel(java.util.logging.Level.OFF);
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        // a Unicode to CID CMap with many ranges, and the reverse mapping
+        cidCMap = new CMapParser().parsePredefined("UniJIS-UCS2-H");
+        unicodeCMap = new CMapParser().parsePredefined("Adobe-Japan1-UCS2");
+
+        TrueTypeFont ttf = new TTFParser().parse(new RandomAccessReadBuffer(
+                CMapLookup.class.getResourceAsStream(
+                        "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf")));
+        cmapLookup = ttf.getUnicodeCmapLookup();
+
+        Random random = new Random(0);
+        for (int i = 0; i < CODES; i++) {
+            // mostly CJK ideographs, some Latin characters
+            unicodes[i] = i % 4 == 0 ? 0x20 + random.nextInt(0x160) : 0x4E00 + random.nextInt(0x5200);
+            cids[i] = random.nextInt(20000);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void toCID(Blackhole blackhole) {
+        for (int code : unicodes) {
+            blackhole.consume(cidCMap.toCID(code, 2));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void toUnicode(Blackhole blackhole) {
+        for (int code : cids) {
+            blackhole.consume(unicodeCMap.toUnicode(code));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void getGlyphId(Blackhole blackhole) {
+        for (int code : unicodes) {
+            blackhole.consume(cmapLookup.getGlyphId(code));
+        }
+    }
+}
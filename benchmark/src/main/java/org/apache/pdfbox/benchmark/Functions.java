@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.common.function.PDFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Evaluation throughput of the function types that are used by shadings and by the tint
+ * transforms of Separation and DeviceN colour spaces. Each benchmark evaluates the function for
+ * {@link #INPUTS} different input values.
+ */
+@State(Scope.Benchmark)
+public class Functions {
+
+    static final int INPUTS = 1024;
+
+    private PDFunction sampled1In;
+    private PDFunction sampled2In;
+    private PDFunction sampled4In;
+    private PDFunction exponential;
+    private PDFunction stitching;
+    private PDFunction postScript;
+
+    private final float[][] inputs1 = new float[INPUTS][];
+    private final float[][] inputs2 = new float[INPUTS][];
+    private final float[][] inputs4 = new float[INPUTS][];
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(0);
+        for (int i = 0; i < INPUTS; i++) {
+            inputs1[i] = new float[] { random.nextFloat() };
+            inputs2[i] = new float[] { random.nextFloat(), random.nextFloat() };
+            inputs4[i] = new float[] { random.nextFloat(), random.nextFloat(),
+                    random.nextFloat(), random.nextFloat() };
+        }
+
+        // a colour ramp with 256 RGB samples, like in axial shadings
+        sampled1In = createSampledFunction(new int[] { 256 }, 3, random);
+        // a 2D grid with 3 outputs, like in function based shadings
+        sampled2In = createSampledFunction(new int[] { 64, 64 }, 3, random);
+        // a DeviceN tint transform from 4 colourants to 3 components
+        sampled4In = createSampledFunction(new int[] { 8, 8, 8, 8 }, 3, random);
+        exponential = PDFunction.create(createExponentialFunction(1.5f));
+
+        COSDictionary dict = new COSDictionary();
+        dict.setInt(COSName.FUNCTION_TYPE, 3);
+        dict.setItem(COSName.DOMAIN, toArray(0, 1));
+        COSArray functions = new COSArray();
+        COSArray bounds = new COSArray();
+        COSArray encode = new COSArray();
+        for (int i = 0; i < 4; i++) {
+            functions.add(createExponentialFunction(1 + i / 2f));
+            if (i > 0) {
+                bounds.add(new COSFloat(i / 4f));
+            }
+            encode.add(COSInteger.ZERO);
+            encode.add(COSInteger.ONE);
+        }
+        dict.setItem(COSName.FUNCTIONS, functions);
+        dict.setItem(COSName.BOUNDS, bounds);
+        dict.setItem(COSName.ENCODE, encode);
+        stitching = PDFunction.create(dict);
+
+        // CMYK to RGB
+        COSStream stream = new COSStream();
+        stream.setInt(COSName.FUNCTION_TYPE, 4);
+        stream.setItem(COSName.DOMAIN, toArray(0, 1, 0, 1, 0, 1, 0, 1));
+        stream.setItem(COSName.RANGE, toArray(0, 1, 0, 1, 0, 1));
+        try (OutputStream out = stream.createOutputStream()) {
+            String component = "3 index add dup 1 gt { pop 1 } if 1 exch sub 3 1 roll ";
+            out.write(("{ 4 1 roll " + component + component + component + "4 -1 roll pop }")
+                    .getBytes(StandardCharsets.US_ASCII));
+        }
+        postScript = PDFunction.create(stream);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void evalType0OneInput(Blackhole blackhole) throws IOException {
+        eval(sampled1In, inputs1, blackhole);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void evalType0TwoInputs(Blackhole blackhole) throws IOException {
+        eval(sampled2In, inputs2, blackhole);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void evalType0FourInputs(Blackhole blackhole) throws IOException {
+        eval(sampled4In, inputs4, blackhole);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void evalType2(Blackhole blackhole) throws IOException {
+        eval(exponential, inputs1, blackhole);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void evalType3(Blackhole blackhole) throws IOException {
+        eval(stitching, inputs1, blackhole);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void evalType4(Blackhole blackhole) throws IOException {
+        eval(postScript, inputs4, blackhole);
+    }
+
+    private static void eval(PDFunction function, float[][] inputs, Blackhole blackhole)
+            throws IOException {
+        for (float[] input : inputs) {
+            blackhole.consume(function.eval(input));
+        }
+    }
+
+    private static PDFunction createSampledFunction(int[] size, int numberOfOutputs,
+            Random random) throws IOException {
+        COSStream stream = new COSStream();
+        stream.setInt(COSName.FUNCTION_TYPE, 0);
+        COSArray domain = new COSArray();
+        COSArray sizeArray = new COSArray();
+        int numberOfSamples = numberOfOutputs;
+        for (int value : size) {
+            domain.add(COSInteger.ZERO);
+            domain.add(COSInteger.ONE);
+            sizeArray.add(COSInteger.get(value));
+            numberOfSamples *= value;
+        }
+        COSArray range = new COSArray();
+        for (int i = 0; i < numberOfOutputs; i++) {
+            range.add(COSInteger.ZERO);
+            range.add(COSInteger.ONE);
+        }
+        stream.setItem(COSName.DOMAIN, domain);
+        stream.setItem(COSName.RANGE, range);
+        stream.setItem(COSName.SIZE, sizeArray);
+        stream.setInt(COSName.BITS_PER_SAMPLE, 8);
+        byte[] samples = new byte[numberOfSamples];
+        random.nextBytes(samples);
+        try (OutputStream out = stream.createOutputStream()) {
+            out.write(samples);
+        }
+        return PDFunction.create(stream);
+    }
+
+    private static COSDictionary createExponentialFunction(float exponent) {
+        COSDictionary dict = new COSDictionary();
+        dict.setInt(COSName.FUNCTION_TYPE, 2);
+        dict.setItem(COSName.DOMAIN, toArray(0, 1));
+        dict.setItem(COSName.C0, toArray(1, 0, 0));
+        dict.setItem(COSName.C1, toArray(0, 0.5f, 1));
+        dict.setFloat(COSName.N, exponent);
+        return dict;
+    }
+
+    private static COSArray toArray(float... values) {
+        COSArray array = new COSArray();
+        array.setFloatArray(values);
+        return array;
+    }
+}
@@ -115,6 +115,35 @@ public class Rendering {
         pdf.close();
     }
 
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void renderAltonaThumbnailsNoOutput(Blackhole blackhole) throws IOException {
+        PDDocument pdf = Loader.loadPDF(new File(ALTONA_TEST_SUITE));
+        PDFRenderer renderer = new PDFRenderer(pdf);
+        int numPages = pdf.getNumberOfPages();
+        for (int i = 0; i< numPages; i++)
+        {
+            blackhole.consume(renderer.renderImageWithDPI(i, 36));
+        }
+        pdf.close();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void renderAltonaThumbnailsSubsampledNoOutput(Blackhole blackhole) throws IOException {
+        PDDocument pdf = Loader.loadPDF(new File(ALTONA_TEST_SUITE));
+        PDFRenderer renderer = new PDFRenderer(pdf);
+        renderer.setSubsamplingAllowed(true);
+        int numPages = pdf.getNumberOfPages();
+        for (int i = 0; i< numPages; i++)
+        {
+            blackhole.consume(renderer.renderImageWithDPI(i, 36));
+        }
+        pdf.close();
+    }
+
     @Benchmark
     @OutputTimeUnit(TimeUnit.MILLISECONDS)
     @BenchmarkMode(Mode.AverageTime)
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TTFSubsetter;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Subsetting of a TrueType font as done when a font is embedded, for many documents which use the
+ * same font. Each subset has {@link #CHARACTERS} random characters of the font and is written
+ * with the tables which are kept for PDF files.
+ */
+@State(Scope.Benchmark)
+public class TTFSubsetting {
+
+    static final int CHARACTERS = 1000;
+
+    // the tables which are kept by TrueTypeEmbedder
+    private static final List<String> TABLES = Arrays.asList("head", "hhea", "loca", "maxp",
+            "cvt ", "prep", "glyf", "hmtx", "fpgm", "gasp");
+
+    private TrueTypeFont ttf;
+    private final Set<Integer> unicodes = new HashSet<>();
+
+    static {
+        System.setProperty("org.apache.commons.logging.Log",
+                     "org.apache.commons.logging.impl.NoOpLog");
+        java.util.logging.Logger.getLogger("org.apache").setLevel(java.util.logging.Level.OFF);
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        ttf = new TTFParser().parse(new RandomAccessReadBuffer(
+                TTFSubsetting.class.getResourceAsStream(
+                        "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf")));
+
+        Random random = new Random(0);
+        while (unicodes.size() < CHARACTERS) {
+            int unicode = random.nextInt(0x10000);
+            if (ttf.getUnicodeCmapLookup().getGlyphId(unicode) != 0) {
+                unicodes.add(unicode);
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void subset(Blackhole blackhole) throws IOException {
+        TTFSubsetter subsetter = new TTFSubsetter(ttf, TABLES);
+        subsetter.addAll(unicodes);
+        blackhole.consume(subsetter.getGIDMap());
+        subsetter.setPrefix("ABCDEF+");
+        subsetter.writeToStream(new NullOutputStream());
+    }
+}
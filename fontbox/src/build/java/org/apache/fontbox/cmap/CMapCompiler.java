@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.cmap;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+
+/**
+ * Compiles the bundled predefined CMaps into the binary form which is read by
+ * {@link CompiledCMapParser}. This is called when fontbox is built, with the directory of the
+ * CMap sources and the output directory as arguments. It is only needed for the build, so it is
+ * kept in a separate source directory and isn't part of the fontbox jar.
+ */
+public final class CMapCompiler
+{
+    private CMapCompiler()
+    {
+    }
+
+    /**
+     * Compiles all CMaps of a directory.
+     *
+     * @param args the source directory and the output directory
+     * @throws IOException if a CMap could not be compiled
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            throw new IllegalArgumentException(
+                    "usage: CMapCompiler <source directory> <output directory>");
+        }
+        File sourceDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+        File[] files = sourceDir.listFiles(File::isFile);
+        if (files == null)
+        {
+            throw new IOException("Could not list " + sourceDir);
+        }
+        Arrays.sort(files);
+        Files.createDirectories(outputDir.toPath());
+        for (File file : files)
+        {
+            File target = new File(outputDir, file.getName() + CompiledCMapParser.SUFFIX);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target.toPath())))
+            {
+                compile(file, out);
+            }
+        }
+    }
+
+    /**
+     * Compiles a CMap.
+     *
+     * @param file the PostScript source of the CMap
+     * @param out the stream to which the compiled CMap is written
+     * @throws IOException if the CMap could not be parsed
+     */
+    static void compile(File file, OutputStream out) throws IOException
+    {
+        try (RandomAccessRead source = new RandomAccessReadBufferedFile(file))
+        {
+            compile(source, out);
+        }
+    }
+
+    /**
+     * Compiles a CMap.
+     *
+     * @param source the PostScript source of the CMap
+     * @param out the stream to which the compiled CMap is written
+     * @throws IOException if the CMap could not be parsed
+     */
+    static void compile(RandomAccessRead source, OutputStream out) throws IOException
+    {
+        RecordingCMap recorder = new RecordingCMap();
+        new CMapParser().parse(source, recorder);
+        recorder.flush();
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(CompiledCMapParser.MAGIC);
+        data.writeByte(CompiledCMapParser.VERSION);
+        writeNullableString(data, recorder.getName());
+        writeNullableString(data, recorder.getVersion());
+        data.writeInt(recorder.getType());
+        writeNullableString(data, recorder.getRegistry());
+        writeNullableString(data, recorder.getOrdering());
+        data.writeInt(recorder.getSupplement());
+        data.writeInt(recorder.getWMode());
+        recorder.operations.writeTo(data);
+        data.writeByte(CompiledCMapParser.OP_END);
+        data.flush();
+    }
+
+    private static void writeNullableString(DataOutputStream data, String value)
+            throws IOException
+    {
+        data.writeBoolean(value != null);
+        if (value != null)
+        {
+            data.writeUTF(value);
+        }
+    }
+
+    private static void writeCode(DataOutputStream data, byte[] code) throws IOException
+    {
+        data.writeByte(code.length);
+        data.write(code);
+    }
+
+    // writes 7 bits per byte, the high bit tells whether more bytes follow
+    private static void writeVarInt(DataOutputStream data, int value) throws IOException
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            data.writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte(value);
+    }
+
+    /**
+     * A CMap which records the mappings that are added by the parser, instead of keeping them.
+     * Consecutive mappings are combined to runs.
+     */
+    private static final class RecordingCMap extends CMap
+    {
+        private final ByteArrayOutputStream operations = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(operations);
+
+        // the pending run of character mappings
+        private byte[] charRunCode;
+        private int charRunCount;
+        private String charRunUnicode;
+        private String charRunLastUnicode;
+
+        // the pending run of CID mappings
+        private byte[] cidRunCode;
+        private int cidRunCount;
+        private int cidRunCID;
+
+        @Override
+        void addCharMapping(byte[] codes, String unicode)
+        {
+            if (charRunCode != null && isNextCode(charRunCode, charRunCount, codes)
+                    && isNextUnicode(charRunLastUnicode, unicode))
+            {
+                charRunCount++;
+                charRunLastUnicode = unicode;
+                return;
+            }
+            flush();
+            charRunCode = codes.clone();
+            charRunCount = 1;
+            charRunUnicode = unicode;
+            charRunLastUnicode = unicode;
+        }
+
+        @Override
+        void addCIDMapping(byte[] code, int cid)
+        {
+            if (cidRunCode != null && isNextCode(cidRunCode, cidRunCount, code)
+                    && cid == cidRunCID + cidRunCount)
+            {
+                cidRunCount++;
+                return;
+            }
+            flush();
+            cidRunCode = code.clone();
+            cidRunCount = 1;
+            cidRunCID = cid;
+        }
+
+        @Override
+        void addCIDRange(byte[] from, byte[] to, int cid)
+        {
+            flush();
+            write(() ->
+            {
+                data.writeByte(CompiledCMapParser.OP_CID_RANGE);
+                writeCode(data, from);
+                writeCode(data, to);
+                writeVarInt(data, cid);
+            });
+        }
+
+        @Override
+        void addCodespaceRange(CodespaceRange range)
+        {
+            flush();
+            write(() ->
+            {
+                data.writeByte(CompiledCMapParser.OP_CODESPACE_RANGE);
+                writeCode(data, range.getStart());
+                writeCode(data, range.getEnd());
+            });
+        }
+
+        @Override
+        void useCmap(CMap cmap)
+        {
+            flush();
+            write(() ->
+            {
+                data.writeByte(CompiledCMapParser.OP_USECMAP);
+                // the names of the predefined CMaps are the names of their resources
+                data.writeUTF(cmap.getName());
+            });
+        }
+
+        /**
+         * Writes the pending runs.
+         */
+        void flush()
+        {
+            if (charRunCode != null)
+            {
+                write(() ->
+                {
+                    data.writeByte(CompiledCMapParser.OP_CHAR_MAPPINGS);
+                    writeCode(data, charRunCode);
+                    writeVarInt(data, charRunCount);
+                    data.writeUTF(charRunUnicode);
+                });
+                charRunCode = null;
+            }
+            if (cidRunCode != null)
+            {
+                write(() ->
+                {
+                    data.writeByte(CompiledCMapParser.OP_CID_MAPPINGS);
+                    writeCode(data, cidRunCode);
+                    writeVarInt(data, cidRunCount);
+                    writeVarInt(data, cidRunCID);
+                });
+                cidRunCode = null;
+            }
+        }
+
+        // tells whether the code follows the run, only codes which fit into an int are combined
+        private static boolean isNextCode(byte[] runCode, int runCount, byte[] code)
+        {
+            if (code.length != runCode.length || code.length > 4)
+            {
+                return false;
+            }
+            byte[] next = new byte[code.length];
+            CompiledCMapParser.toBytes(toInt(runCode) + runCount, next);
+            return toInt(next) == toInt(runCode) + runCount && Arrays.equals(next, code);
+        }
+
+        // tells whether the Unicode value only differs in the last character, which is incremented
+        private static boolean isNextUnicode(String last, String unicode)
+        {
+            int length = unicode.length();
+            return length > 0 && length == last.length()
+                    && unicode.regionMatches(0, last, 0, length - 1)
+                    && unicode.charAt(length - 1) == last.charAt(length - 1) + 1;
+        }
+
+        private void write(Operation operation)
+        {
+            try
+            {
+                operation.write();
+            }
+            catch (IOException ex)
+            {
+                // can't happen when writing into a byte array
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation
+    {
+        void write() throws IOException;
+    }
+}
@@ -21,9 +21,7 @@ import java.awt.geom.GeneralPath;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import org.apache.fontbox.type1.Type1CharStringReader;
 
 /**
@@ -43,8 +41,7 @@ public class CFFCIDFont extends CFFFont
     private FDSelect fdSelect;
 
     private final Map<Integer, CIDKeyedType2CharString> charStringCache =
-            new ConcurrentHashMap<>();
-    private Type2CharStringParser charStringParser = null;
+            createCharStringCache();
 
     private final PrivateType1CharStringReader reader = new PrivateType1CharStringReader();
 
@@ -205,7 +202,7 @@ public class CFFCIDFont extends CFFFont
      *
      * @param gid GID
      */
-    private byte[][] getLocalSubrIndex(int gid)
+    private CFFIndex getLocalSubrIndex(int gid)
     {
         int fdArrayIndex = this.fdSelect.getFDIndex(gid);
         if (fdArrayIndex == -1 || fdArrayIndex >= this.privateDictionaries.size())
@@ -213,7 +210,7 @@ public class CFFCIDFont extends CFFFont
             return null;
         }
         Map<String, Object> privDict = this.privateDictionaries.get(fdArrayIndex);
-        return (byte[][])privDict.get("Subrs");
+        return (CFFIndex) privDict.get("Subrs");
     }
 
     /**
@@ -230,29 +227,15 @@ public class CFFCIDFont extends CFFFont
         {
             int gid = getCharset().getGIDForCID(cid);
 
-            byte[] bytes = charStrings[gid];
-            if (bytes == null)
-            {
-                bytes = charStrings[0]; // .notdef
-            }
-            List<Object> type2seq = getParser().parse(bytes, globalSubrIndex,
-                    getLocalSubrIndex(gid), String.format(Locale.US, "%04x", cid));
-            type2 = new CIDKeyedType2CharString(reader, getName(), cid, gid, type2seq,
-                                                getDefaultWidthX(gid), getNominalWidthX(gid));
+            byte[] bytes = charStrings.get(gid);
+            type2 = new CIDKeyedType2CharString(reader, getName(), cid, gid, bytes,
+                    globalSubrIndex, getLocalSubrIndex(gid), getDefaultWidthX(gid),
+                    getNominalWidthX(gid));
             charStringCache.put(cid, type2);
         }
         return type2;
     }
 
-    private Type2CharStringParser getParser()
-    {
-        if (charStringParser == null)
-        {
-            charStringParser = new Type2CharStringParser(getName());
-        }
-        return charStringParser;
-    }
-
     @Override
     public GeneralPath getPath(String selector) throws IOException
     {
@@ -18,9 +18,11 @@ package org.apache.fontbox.cff;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.fontbox.FontBoxFont;
 import org.apache.fontbox.util.BoundingBox;
@@ -33,12 +35,18 @@ import org.apache.fontbox.util.BoundingBox;
  */
 public abstract class CFFFont implements FontBoxFont
 {
+    /**
+     * The maximum number of charstrings which are cached per font. The least recently used ones
+     * are removed, these are rendered again when they are needed.
+     */
+    static final int MAX_CACHED_CHARSTRINGS = 4096;
+
     private String fontName;
     private CFFCharset charset;
     private CFFParser.ByteSource source;
     protected final Map<String, Object> topDict = new LinkedHashMap<>();
-    protected byte[][] charStrings;
-    protected byte[][] globalSubrIndex;
+    CFFIndex charStrings;
+    CFFIndex globalSubrIndex;
 
     /**
      * The name of the font.
@@ -133,11 +141,12 @@ public abstract class CFFFont implements FontBoxFont
     /**
      * Returns the character strings dictionary. For expert users only.
      *
-     * @return the character strings dictionary as a list of byte arrays.
+     * @return the character strings dictionary as an unmodifiable list of byte arrays, which are
+     * copied from the font data when they are retrieved.
      */
     public final List<byte[]> getCharStringBytes()
     {
-        return Arrays.asList(charStrings);
+        return charStrings;
     }
 
     /**
@@ -167,7 +176,7 @@ public abstract class CFFFont implements FontBoxFont
      */
     public int getNumCharStrings()
     {
-        return charStrings.length;
+        return charStrings.size();
     }
 
     /**
@@ -175,7 +184,7 @@ public abstract class CFFFont implements FontBoxFont
      * 
      * @param globalSubrIndexValue a list of the global subroutines.
      */
-    void setGlobalSubrIndex(byte[][] globalSubrIndexValue)
+    void setGlobalSubrIndex(CFFIndex globalSubrIndexValue)
     {
         globalSubrIndex = globalSubrIndexValue;
     }
@@ -183,11 +192,12 @@ public abstract class CFFFont implements FontBoxFont
      /**
      * Returns the list containing the global subroutines.
      * 
-     * @return a list of the global subroutines.
+     * @return an unmodifiable list of the global subroutines, which are copied from the font data
+     * when they are retrieved.
      */
     public List<byte[]> getGlobalSubrIndex()
     {
-        return Arrays.asList(globalSubrIndex);
+        return globalSubrIndex;
     }
 
     /**
@@ -201,11 +211,32 @@ public abstract class CFFFont implements FontBoxFont
      */
     public abstract Type2CharString getType2CharString(int cidOrGid) throws IOException;
 
+    /**
+     * Creates a thread safe cache for the charstrings of a font, which keeps the
+     * {@value #MAX_CACHED_CHARSTRINGS} most recently used ones.
+     *
+     * @return the cache, with the CID or GID as key
+     */
+    static <T extends Type2CharString> Map<Integer, T> createCharStringCache()
+    {
+        return Collections.synchronizedMap(new LinkedHashMap<Integer, T>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest)
+            {
+                return size() > MAX_CACHED_CHARSTRINGS;
+            }
+        });
+    }
+
     @Override
     public String toString()
     {
         return getClass().getSimpleName() + "[name=" + fontName + ", topDict=" + topDict
-                + ", charset=" + charset + ", charStrings=" + Arrays.deepToString(charStrings)
+                + ", charset=" + charset + ", charStrings=" + charStrings.stream()
+                        .map(Arrays::toString).collect(Collectors.joining(", ", "[", "]"))
                 + "]";
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.cff;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * An INDEX of a CFF font, e.g. the CharStrings or a Subrs INDEX. Only the offsets of the elements
+ * are read when the font is parsed, the elements are sliced from the data of the font when they are
+ * used. A big CID font has tens of thousands of charstrings, of which a document usually uses only a
+ * few.
+ *
+ * <p>The list is unmodifiable, {@link #get(int)} returns a copy of the element.
+ */
+final class CFFIndex extends AbstractList<byte[]> implements RandomAccess
+{
+    private static final CFFIndex EMPTY = new CFFIndex(new byte[0], new int[] { 0 });
+
+    private final byte[] data;
+    // the start of each element in data, followed by the end of the last element
+    private final int[] offsets;
+
+    /**
+     * Constructor.
+     *
+     * @param data the data of the font, which must not be modified
+     * @param offsets the start of each element in data, followed by the end of the last element,
+     * must be ascending and within data
+     */
+    CFFIndex(byte[] data, int[] offsets)
+    {
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Creates an INDEX with a copy of the given elements.
+     *
+     * @param elements the elements
+     * @return the INDEX
+     */
+    static CFFIndex of(byte[]... elements)
+    {
+        if (elements.length == 0)
+        {
+            return EMPTY;
+        }
+        int[] offsets = new int[elements.length + 1];
+        for (int i = 0; i < elements.length; i++)
+        {
+            offsets[i + 1] = offsets[i] + elements[i].length;
+        }
+        byte[] data = new byte[offsets[elements.length]];
+        for (int i = 0; i < elements.length; i++)
+        {
+            System.arraycopy(elements[i], 0, data, offsets[i], elements[i].length);
+        }
+        return new CFFIndex(data, offsets);
+    }
+
+    @Override
+    public int size()
+    {
+        return offsets.length - 1;
+    }
+
+    @Override
+    public byte[] get(int index)
+    {
+        checkIndex(index);
+        return Arrays.copyOfRange(data, offsets[index], offsets[index + 1]);
+    }
+
+    /**
+     * Returns the data the elements are sliced from. It must not be modified.
+     */
+    byte[] getData()
+    {
+        return data;
+    }
+
+    /**
+     * Returns the start of the given element in the data.
+     *
+     * @param index the index of the element
+     */
+    int getStart(int index)
+    {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    /**
+     * Returns the end of the given element in the data, exclusive.
+     *
+     * @param index the index of the element
+     */
+    int getEnd(int index)
+    {
+        checkIndex(index);
+        return offsets[index + 1];
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= offsets.length - 1)
+        {
+            throw new ArrayIndexOutOfBoundsException(
+                    "Index " + index + " out of bounds for length " + (offsets.length - 1));
+        }
+    }
+}
@@ -102,17 +102,19 @@ public class CFFParser
         }
         randomAccessRead.seek(0);
         this.source = new CFFBytesource(bytes);
-        return parse(new DataInputRandomAccessRead(randomAccessRead));
+        return parse(new DataInputByteArray(bytes));
     }
 
     /**
-     * Parse CFF font using a DataInput as input.
+     * Parse CFF font using a DataInput as input. The CharStrings and Subrs INDEXes are read
+     * lazily, i.e. the charstrings and subroutines are sliced from the data of the input when they
+     * are used.
      * 
      * @param input the source to be parsed
      * @return the parsed CFF fonts
      * @throws IOException If there is an error reading from the stream
      */
-    private List<CFFFont> parse(DataInput input) throws IOException
+    private List<CFFFont> parse(DataInputByteArray input) throws IOException
     {
         String firstTag = readTagName(input);
         // try to determine which kind of font we have
@@ -144,7 +146,7 @@ public class CFFParser
         }
         
         stringIndex = readStringIndexData(input);
-        byte[][] globalSubrIndex = readIndexData(input);
+        CFFIndex globalSubrIndex = readIndex(input);
 
         List<CFFFont> fonts = new ArrayList<>(nameIndex.length);
         for (int i = 0; i < nameIndex.length; i++)
@@ -157,7 +159,7 @@ public class CFFParser
         return fonts;
     }
 
-    private DataInput createTaggedCFFDataInput(DataInput input) throws IOException
+    private DataInputByteArray createTaggedCFFDataInput(DataInput input) throws IOException
     {
         // this is OpenType font containing CFF data
         // so find CFF tag
@@ -254,6 +256,35 @@ public class CFFParser
         return indexDataValues;
     }
 
+    /**
+     * Reads an INDEX without copying its elements, they are sliced from the data of the input when
+     * they are used. The input isn't positioned behind the INDEX.
+     */
+    private static CFFIndex readIndex(DataInputByteArray input) throws IOException
+    {
+        int[] offsets = readIndexDataOffsets(input);
+        if (offsets.length == 0)
+        {
+            return CFFIndex.of();
+        }
+        // like in readIndexData, the first element starts at the current position
+        int start = input.getPosition() - offsets[0];
+        int dataLength = input.length();
+        for (int i = 0; i < offsets.length; i++)
+        {
+            offsets[i] += start;
+            if (i > 0 && offsets[i] < offsets[i - 1])
+            {
+                throw new IOException("length is negative");
+            }
+            if (offsets[i] > dataLength)
+            {
+                throw new IOException("Premature end of buffer reached");
+            }
+        }
+        return new CFFIndex(input.getBuffer(), offsets);
+    }
+
     private static String[] readStringIndexData(DataInput input) throws IOException
     {
         int[] offsets = readIndexDataOffsets(input);
@@ -463,7 +494,8 @@ public class CFFParser
         }
     }
 
-    private CFFFont parseFont(DataInput input, String name, byte[] topDictIndex) throws IOException
+    private CFFFont parseFont(DataInputByteArray input, String name, byte[] topDictIndex)
+            throws IOException
     {
         // top dict
         DataInputByteArray topDictInput = new DataInputByteArray(topDictIndex);
@@ -532,11 +564,7 @@ public class CFFParser
         }
         int charStringsOffset = charStringsEntry.getNumber(0).intValue();
         input.setPosition(charStringsOffset);
-        byte[][] charStringsIndex = readIndexData(input);
-        if (charStringsIndex == null)
-        {
-            throw new IOException("CharStringsIndex is missing");
-        }
+        CFFIndex charStringsIndex = readIndex(input);
         
         // charset
         DictData.Entry charsetEntry = topDict.getEntry("charset");
@@ -556,10 +584,10 @@ public class CFFParser
             {
                 charset = CFFExpertSubsetCharset.getInstance();
             }
-            else if (charStringsIndex.length > 0)
+            else if (charStringsIndex.size() > 0)
             {
                 input.setPosition(charsetId);
-                charset = readCharset(input, charStringsIndex.length, isCIDFont);
+                charset = readCharset(input, charStringsIndex.size(), isCIDFont);
             }
             // that should not happen
             else
@@ -573,7 +601,7 @@ public class CFFParser
             if (isCIDFont)
             {
                 // a CID font with no charset does not default to any predefined charset
-                charset = new EmptyCharsetCID(charStringsIndex.length);
+                charset = new EmptyCharsetCID(charStringsIndex.size());
             }
             else
             {
@@ -591,13 +619,13 @@ public class CFFParser
 
             // CharStrings index could be null if the index data couldn't be read
             int numEntries = 0;
-            if (charStringsIndex.length == 0)
+            if (charStringsIndex.size() == 0)
             {
                 LOG.debug("Couldn't read CharStrings index - parsing CIDFontDicts with number of char strings set to 0");
             }
             else
             {
-                numEntries = charStringsIndex.length;
+                numEntries = charStringsIndex.size();
             }
 
             parseCIDFontDicts(input, topDict, (CFFCIDFont) font, numEntries);
@@ -671,7 +699,7 @@ public class CFFParser
     /**
      * Parse dictionaries specific to a CIDFont.
      */
-    private void parseCIDFontDicts(DataInput input, DictData topDict, CFFCIDFont font,
+    private void parseCIDFontDicts(DataInputByteArray input, DictData topDict, CFFCIDFont font,
             int nrOfcharStrings)
             throws IOException
     {
@@ -729,7 +757,7 @@ public class CFFParser
             if (localSubrOffset instanceof Integer && ((int) localSubrOffset) > 0)
             {
                 input.setPosition(privateOffset + (int) localSubrOffset);
-                privDict.put("Subrs", readIndexData(input));
+                privDict.put("Subrs", readIndex(input));
             }
         }
 
@@ -778,7 +806,7 @@ public class CFFParser
     /**
      * Parse dictionaries specific to a Type 1-equivalent font.
      */
-    private void parseType1Dicts(DataInput input, DictData topDict, CFFType1Font font,
+    private void parseType1Dicts(DataInputByteArray input, DictData topDict, CFFType1Font font,
             CFFCharset charset)
             throws IOException
     {
@@ -821,7 +849,7 @@ public class CFFParser
         if (localSubrOffset instanceof Integer && ((int) localSubrOffset) > 0)
         {
             input.setPosition(privateOffset + (int) localSubrOffset);
-            font.addToPrivateDict("Subrs", readIndexData(input));
+            font.addToPrivateDict("Subrs", readIndex(input));
         }
     }
 
@@ -19,9 +19,7 @@ package org.apache.fontbox.cff;
 import java.awt.geom.GeneralPath;
 import java.io.IOException;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import org.apache.fontbox.EncodedFont;
 import org.apache.fontbox.type1.Type1CharStringReader;
 
@@ -36,15 +34,13 @@ public class CFFType1Font extends CFFFont implements EncodedFont
     private final Map<String, Object> privateDict = new LinkedHashMap<>();
     private CFFEncoding encoding;
 
-    private final Map<Integer, Type2CharString> charStringCache =
-            new ConcurrentHashMap<>();
+    private final Map<Integer, Type2CharString> charStringCache = createCharStringCache();
 
     private final PrivateType1CharStringReader reader = new PrivateType1CharStringReader();
-    private Type2CharStringParser charStringParser = null;
 
     private int defaultWidthX = Integer.MIN_VALUE;
     private int nominalWidthX = Integer.MIN_VALUE;
-    private byte[][] localSubrIndex;
+    private CFFIndex localSubrIndex;
 
     /**
      * Private implementation of Type1CharStringReader, because only CFFType1Font can
@@ -128,34 +124,15 @@ public class CFFType1Font extends CFFFont implements EncodedFont
         Type2CharString type2 = charStringCache.get(gid);
         if (type2 == null)
         {
-            byte[] bytes = null;
-            if (gid < charStrings.length)
-            {
-                bytes = charStrings[gid];
-            }
-            if (bytes == null)
-            {
-                // .notdef
-                bytes = charStrings[0];
-            }
-            List<Object> type2seq = getParser().parse(bytes, globalSubrIndex, getLocalSubrIndex(),
-                    name);
-            type2 = new Type2CharString(reader, getName(), name, gid, type2seq, getDefaultWidthX(),
-                    getNominalWidthX());
+            // .notdef for a GID beyond the charstrings
+            byte[] bytes = charStrings.get(gid < charStrings.size() ? gid : 0);
+            type2 = new Type2CharString(reader, getName(), name, gid, bytes, globalSubrIndex,
+                    getLocalSubrIndex(), getDefaultWidthX(), getNominalWidthX());
             charStringCache.put(gid, type2);
         }
         return type2;
     }
 
-    private Type2CharStringParser getParser()
-    {
-        if (charStringParser == null)
-        {
-            charStringParser = new Type2CharStringParser(getName());
-        }
-        return charStringParser;
-    }
-
     /**
      * Returns the private dictionary.
      *
@@ -201,11 +178,11 @@ public class CFFType1Font extends CFFFont implements EncodedFont
         this.encoding = encoding;
     }
 
-    private byte[][] getLocalSubrIndex()
+    private CFFIndex getLocalSubrIndex()
     {
         if (localSubrIndex == null)
         {
-            localSubrIndex = (byte[][]) privateDict.get("Subrs");
+            localSubrIndex = (CFFIndex) privateDict.get("Subrs");
         }
         return localSubrIndex;
     }
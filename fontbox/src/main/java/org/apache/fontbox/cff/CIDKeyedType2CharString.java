@@ -18,6 +18,7 @@ package org.apache.fontbox.cff;
 
 import org.apache.fontbox.type1.Type1CharStringReader;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
 
@@ -48,6 +49,30 @@ public class CIDKeyedType2CharString extends Type2CharString
         this.cid = cid;
     }
 
+    /**
+     * Constructor for a charstring of a font, which is rendered directly if possible.
+     *
+     * @param font Parent CFF font
+     * @param fontName font name
+     * @param cid CID
+     * @param gid GID
+     * @param bytes Type 2 char string
+     * @param globalSubrIndex INDEX containing all global subroutines
+     * @param localSubrIndex INDEX containing all local subroutines, may be null
+     * @param defaultWidthX default width
+     * @param nomWidthX nominal width
+     * @throws IOException if the charstring could not be read
+     */
+    CIDKeyedType2CharString(Type1CharStringReader font, String fontName, int cid, int gid,
+            byte[] bytes, CFFIndex globalSubrIndex, CFFIndex localSubrIndex, int defaultWidthX,
+            int nomWidthX) throws IOException
+    {
+        // glyph name is for debugging only
+        super(font, fontName, String.format(Locale.US, "%04x", cid), gid, bytes, globalSubrIndex,
+                localSubrIndex, defaultWidthX, nomWidthX);
+        this.cid = cid;
+    }
+
     /**
      * Returns the CID (character id) of this charstring.
      * 
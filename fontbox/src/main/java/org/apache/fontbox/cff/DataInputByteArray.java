@@ -159,4 +159,13 @@ public class DataInputByteArray implements DataInput
     {
         return inputBuffer.length;
     }
+
+    /**
+     * Returns the buffer which is read, for slicing data from it without copying it.
+     * @return the buffer, which must not be modified
+     */
+    byte[] getBuffer()
+    {
+        return inputBuffer;
+    }
 }
\ No newline at end of file
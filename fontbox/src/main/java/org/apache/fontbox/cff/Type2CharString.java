@@ -16,6 +16,9 @@
  */
 package org.apache.fontbox.cff;
 
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -27,6 +30,9 @@ import org.apache.fontbox.type1.Type1CharStringReader;
 
 /**
  * Represents a Type 2 CharString by converting it into an equivalent Type 1 CharString.
+ * CharStrings which are read from a font are rendered directly by the
+ * {@link Type2CharStringRenderer} instead, if it supports them. Their Type 1 CharString is only
+ * created for {@link #toString()}.
  * 
  * @author Villu Ruusmann
  * @author John Hewson
@@ -38,6 +44,13 @@ public class Type2CharString extends Type1CharString
     private int pathCount = 0;
     private final int gid;
 
+    // the path and the width of a directly rendered charstring, and what is needed to convert it
+    private final GeneralPath renderedPath;
+    private final int renderedWidth;
+    private final byte[] bytes;
+    private final CFFIndex globalSubrIndex;
+    private final CFFIndex localSubrIndex;
+
     /**
      * Constructor.
      * @param font Parent CFF font
@@ -56,6 +69,56 @@ public class Type2CharString extends Type1CharString
         defWidthX = defaultWidthX;
         nominalWidthX = nomWidthX;
         convertType1ToType2(sequence);
+        renderedPath = null;
+        renderedWidth = 0;
+        bytes = null;
+        globalSubrIndex = null;
+        localSubrIndex = null;
+    }
+
+    /**
+     * Constructor for a charstring of a font, which is rendered directly if possible.
+     * 
+     * @param font Parent CFF font
+     * @param fontName font name
+     * @param glyphName glyph name (or CID as hex string)
+     * @param gid GID
+     * @param bytes Type 2 char string
+     * @param globalSubrIndex INDEX containing all global subroutines
+     * @param localSubrIndex INDEX containing all local subroutines, may be null
+     * @param defaultWidthX default width
+     * @param nomWidthX nominal width
+     * @throws IOException if the charstring could not be read
+     */
+    Type2CharString(Type1CharStringReader font, String fontName, String glyphName, int gid,
+            byte[] bytes, CFFIndex globalSubrIndex, CFFIndex localSubrIndex, int defaultWidthX,
+            int nomWidthX) throws IOException
+    {
+        super(font, fontName, glyphName);
+        this.gid = gid;
+        defWidthX = defaultWidthX;
+        nominalWidthX = nomWidthX;
+        Type2CharStringRenderer renderer = new Type2CharStringRenderer(globalSubrIndex,
+                localSubrIndex, defaultWidthX, nomWidthX);
+        if (renderer.render(bytes))
+        {
+            renderedPath = renderer.getPath();
+            renderedWidth = renderer.getWidth();
+            this.bytes = bytes;
+            this.globalSubrIndex = globalSubrIndex;
+            this.localSubrIndex = localSubrIndex;
+        }
+        else
+        {
+            // the parser isn't thread safe, so each charstring gets its own one
+            convertType1ToType2(new Type2CharStringParser(fontName).parse(bytes, globalSubrIndex,
+                    localSubrIndex, glyphName));
+            renderedPath = null;
+            renderedWidth = 0;
+            this.bytes = null;
+            this.globalSubrIndex = null;
+            this.localSubrIndex = null;
+        }
     }
 
     /**
@@ -68,6 +131,49 @@ public class Type2CharString extends Type1CharString
         return gid;
     }
 
+    @Override
+    public Rectangle2D getBounds()
+    {
+        return renderedPath != null ? renderedPath.getBounds2D() : super.getBounds();
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return renderedPath != null ? renderedWidth : super.getWidth();
+    }
+
+    @Override
+    public GeneralPath getPath()
+    {
+        return renderedPath != null ? renderedPath : super.getPath();
+    }
+
+    @Override
+    public String toString()
+    {
+        if (bytes != null)
+        {
+            synchronized (this)
+            {
+                if (isSequenceEmpty())
+                {
+                    try
+                    {
+                        convertType1ToType2(new Type2CharStringParser(null).parse(bytes,
+                                globalSubrIndex, localSubrIndex, getName()));
+                    }
+                    catch (IOException ex)
+                    {
+                        // can't happen, the charstring has been read before
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            }
+        }
+        return super.toString();
+    }
+
     /**
      * Converts a sequence of Type 2 commands into a sequence of Type 1 commands.
      * @param sequence the Type 2 char string sequence
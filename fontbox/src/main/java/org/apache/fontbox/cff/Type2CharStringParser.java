@@ -18,6 +18,7 @@ package org.apache.fontbox.cff;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.fontbox.cff.CharStringCommand.Type2KeyWord;
@@ -61,6 +62,24 @@ public class Type2CharStringParser
      */
     public List<Object> parse(byte[] bytes, byte[][] globalSubrIndex, byte[][] localSubrIndex,
             String glyphName) throws IOException
+    {
+        return parse(bytes, globalSubrIndex != null ? Arrays.asList(globalSubrIndex) : null,
+                localSubrIndex != null ? Arrays.asList(localSubrIndex) : null, glyphName);
+    }
+
+    /**
+     * The given byte array will be parsed and converted to a Type2 sequence.
+     * 
+     * @param bytes the given mapping as byte array
+     * @param globalSubrIndex list containing all global subroutines
+     * @param localSubrIndex list containing all local subroutines
+     * @param glyphName the name of the current glyph
+     * 
+     * @return the Type2 sequence
+     * @throws IOException if an error occurs during reading
+     */
+    List<Object> parse(byte[] bytes, List<byte[]> globalSubrIndex, List<byte[]> localSubrIndex,
+            String glyphName) throws IOException
     {
         // reset values if the parser is used multiple times
         hstemCount = 0;
@@ -71,12 +90,12 @@ public class Type2CharStringParser
         return parseSequence(bytes, globalSubrIndex, localSubrIndex);
     }
 
-    private List<Object> parseSequence(byte[] bytes, byte[][] globalSubrIndex,
-            byte[][] localSubrIndex) throws IOException
+    private List<Object> parseSequence(byte[] bytes, List<byte[]> globalSubrIndex,
+            List<byte[]> localSubrIndex) throws IOException
     {
         DataInput input = new DataInputByteArray(bytes);
-        boolean localSubroutineIndexProvided = localSubrIndex != null && localSubrIndex.length > 0;
-        boolean globalSubroutineIndexProvided = globalSubrIndex != null && globalSubrIndex.length > 0;
+        boolean localSubroutineIndexProvided = localSubrIndex != null && localSubrIndex.size() > 0;
+        boolean globalSubroutineIndexProvided = globalSubrIndex != null && globalSubrIndex.size() > 0;
 
         while (input.hasRemaining())
         {
@@ -105,14 +124,14 @@ public class Type2CharStringParser
         return sequence;
     }
 
-    private void processCallSubr(byte[][] globalSubrIndex, byte[][] localSubrIndex)
+    private void processCallSubr(List<byte[]> globalSubrIndex, List<byte[]> localSubrIndex)
             throws IOException
     {
         int subrNumber = calculateSubrNumber((Integer) sequence.remove(sequence.size() - 1),
-                localSubrIndex.length);
-        if (subrNumber < localSubrIndex.length)
+                localSubrIndex.size());
+        if (subrNumber < localSubrIndex.size())
         {
-            byte[] subrBytes = localSubrIndex[subrNumber];
+            byte[] subrBytes = localSubrIndex.get(subrNumber);
             parseSequence(subrBytes, globalSubrIndex, localSubrIndex);
             Object lastItem = sequence.get(sequence.size() - 1);
             if (lastItem instanceof CharStringCommand
@@ -124,14 +143,14 @@ public class Type2CharStringParser
         }
     }
 
-    private void processCallGSubr(byte[][] globalSubrIndex, byte[][] localSubrIndex)
+    private void processCallGSubr(List<byte[]> globalSubrIndex, List<byte[]> localSubrIndex)
             throws IOException
     {
         int subrNumber = calculateSubrNumber((Integer) sequence.remove(sequence.size() - 1),
-                globalSubrIndex.length);
-        if (subrNumber < globalSubrIndex.length)
+                globalSubrIndex.size());
+        if (subrNumber < globalSubrIndex.size())
         {
-            byte[] subrBytes = globalSubrIndex[subrNumber];
+            byte[] subrBytes = globalSubrIndex.get(subrNumber);
             parseSequence(subrBytes, globalSubrIndex, localSubrIndex);
             Object lastItem = sequence.get(sequence.size() - 1);
             if (lastItem instanceof CharStringCommand
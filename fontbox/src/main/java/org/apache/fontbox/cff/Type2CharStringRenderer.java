@@ -0,0 +1,630 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.cff;
+
+import java.awt.geom.GeneralPath;
+import java.util.Arrays;
+
+/**
+ * Renders a Type 2 charstring directly to a path, without the Type 2 sequence of the
+ * {@link Type2CharStringParser} and the Type 1 sequence it is converted to by
+ * {@link Type2CharString}. The path and the width are the same as the ones of the converted
+ * charstring, the state of the Type 1 sequence which influences them is tracked instead of building
+ * the sequence.
+ *
+ * <p>Only the operators which are used by the fonts in the wild are supported. Charstrings with
+ * other operators, e.g. the arithmetic operators or the deprecated "seac" form of endchar, and
+ * malformed charstrings aren't rendered, these have to be converted as before.
+ */
+final class Type2CharStringRenderer
+{
+    // the subroutine nesting limit of the Type 2 charstring format
+    private static final int MAX_SUBR_DEPTH = 10;
+
+    // 1-byte commands
+    private static final int HSTEM = 1;
+    private static final int VSTEM = 3;
+    private static final int VMOVETO = 4;
+    private static final int RLINETO = 5;
+    private static final int HLINETO = 6;
+    private static final int VLINETO = 7;
+    private static final int RRCURVETO = 8;
+    private static final int CALLSUBR = 10;
+    private static final int RETURN = 11;
+    private static final int ESCAPE = 12;
+    private static final int ENDCHAR = 14;
+    private static final int HSTEMHM = 18;
+    private static final int HINTMASK = 19;
+    private static final int CNTRMASK = 20;
+    private static final int RMOVETO = 21;
+    private static final int HMOVETO = 22;
+    private static final int VSTEMHM = 23;
+    private static final int RCURVELINE = 24;
+    private static final int RLINECURVE = 25;
+    private static final int VVCURVETO = 26;
+    private static final int HHCURVETO = 27;
+    private static final int SHORTINT = 28;
+    private static final int CALLGSUBR = 29;
+    private static final int VHCURVETO = 30;
+    private static final int HVCURVETO = 31;
+
+    // 2-byte commands
+    private static final int HFLEX = 34;
+    private static final int FLEX = 35;
+    private static final int HFLEX1 = 36;
+    private static final int FLEX1 = 37;
+
+    private final CFFIndex globalSubrIndex;
+    private final CFFIndex localSubrIndex;
+    private final float defWidthX;
+    private final float nominalWidthX;
+
+    private final GeneralPath path = new GeneralPath();
+    private int width = 0;
+    private float currentX = 0;
+    private float currentY = 0;
+    private boolean hasCurrentPoint = false;
+    private boolean supported = true;
+
+    // the state of the Type 1 sequence
+    private boolean sequenceEmpty = true;
+    private boolean lastClosePath = false;
+    private int pathCount = 0;
+
+    private int hstemCount = 0;
+    private int vstemCount = 0;
+
+    // the operands, and whether they are integers, which is required for subroutine numbers
+    private double[] operands = new double[48];
+    private boolean[] integers = new boolean[48];
+    private int operandCount = 0;
+    // the index of the first argument, which is behind the width if there is one
+    private int first = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param globalSubrIndex the global subroutines
+     * @param localSubrIndex the local subroutines, may be null
+     * @param defWidthX default width
+     * @param nominalWidthX nominal width
+     */
+    Type2CharStringRenderer(CFFIndex globalSubrIndex, CFFIndex localSubrIndex, int defWidthX,
+            int nominalWidthX)
+    {
+        this.globalSubrIndex = globalSubrIndex;
+        this.localSubrIndex = localSubrIndex;
+        this.defWidthX = defWidthX;
+        this.nominalWidthX = nominalWidthX;
+    }
+
+    /**
+     * Renders the given charstring. This must only be called once.
+     *
+     * @param bytes the charstring
+     * @return true if the charstring was rendered, false if it isn't supported
+     */
+    boolean render(byte[] bytes)
+    {
+        return execute(bytes, 0, bytes.length, 0) && supported;
+    }
+
+    /**
+     * Returns the path of the rendered charstring.
+     */
+    GeneralPath getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Returns the width of the rendered charstring.
+     */
+    int getWidth()
+    {
+        return width;
+    }
+
+    // executes the charstring or subroutine between start and end in bytes
+    private boolean execute(byte[] bytes, int start, int end, int depth)
+    {
+        int pos = start;
+        while (pos < end)
+        {
+            int b0 = bytes[pos++] & 0xff;
+            if (b0 >= 32)
+            {
+                if (b0 <= 246)
+                {
+                    push(b0 - 139, true);
+                }
+                else if (b0 <= 254)
+                {
+                    if (pos >= end)
+                    {
+                        return false;
+                    }
+                    int b1 = bytes[pos++] & 0xff;
+                    push(b0 <= 250 ? (b0 - 247) * 256 + b1 + 108 : -(b0 - 251) * 256 - b1 - 108,
+                            true);
+                }
+                else
+                {
+                    // 16.16 fixed point number
+                    if (pos + 4 > end)
+                    {
+                        return false;
+                    }
+                    short value = (short) ((bytes[pos] & 0xff) << 8 | bytes[pos + 1] & 0xff);
+                    int fraction = (bytes[pos + 2] & 0xff) << 8 | bytes[pos + 3] & 0xff;
+                    push(value + fraction / 65535d, false);
+                    pos += 4;
+                }
+                continue;
+            }
+            switch (b0)
+            {
+            case SHORTINT:
+                if (pos + 2 > end)
+                {
+                    return false;
+                }
+                push((short) ((bytes[pos] & 0xff) << 8 | bytes[pos + 1] & 0xff), true);
+                pos += 2;
+                continue;
+            case CALLSUBR:
+            case CALLGSUBR:
+                if (!callSubr(b0 == CALLSUBR ? localSubrIndex : globalSubrIndex, depth))
+                {
+                    return false;
+                }
+                continue;
+            case RETURN:
+                // only the return at the end of a subroutine is dropped by the parser
+                if (depth == 0 || pos != end)
+                {
+                    return false;
+                }
+                continue;
+            case HSTEM:
+            case HSTEMHM:
+                hstemCount += operandCount / 2;
+                clearStack(operandCount % 2 != 0);
+                break;
+            case VSTEM:
+            case VSTEMHM:
+                vstemCount += operandCount / 2;
+                clearStack(operandCount % 2 != 0);
+                break;
+            case HINTMASK:
+            case CNTRMASK:
+            {
+                // the operands are an implicit vstem
+                vstemCount += operandCount / 2;
+                int maskLength = (hstemCount + vstemCount + 7) / 8;
+                if (pos + maskLength > end)
+                {
+                    return false;
+                }
+                pos += maskLength;
+                if (maskLength == 0)
+                {
+                    clearStack(operandCount % 2 != 0);
+                }
+                else
+                {
+                    // the parser creates an unknown command for a mask, which is ignored
+                    addCommand(false);
+                }
+                break;
+            }
+            case RMOVETO:
+                clearStack(operandCount > 2);
+                markPath();
+                addCommand(false);
+                if (argCount() >= 2)
+                {
+                    rmoveTo(arg(0), arg(1));
+                }
+                break;
+            case HMOVETO:
+                clearStack(operandCount > 1);
+                markPath();
+                addCommand(false);
+                if (argCount() >= 1)
+                {
+                    rmoveTo(arg(0), 0);
+                }
+                break;
+            case VMOVETO:
+                clearStack(operandCount > 1);
+                markPath();
+                addCommand(false);
+                if (argCount() >= 1)
+                {
+                    rmoveTo(0, arg(0));
+                }
+                break;
+            case RLINETO:
+                addLines(0, argCount() / 2);
+                break;
+            case HLINETO:
+            case VLINETO:
+                addAlternatingLine(b0 == HLINETO);
+                break;
+            case RRCURVETO:
+                addCurves(0, argCount() / 6);
+                break;
+            case HVCURVETO:
+            case VHCURVETO:
+                addAlternatingCurve(b0 == HVCURVETO);
+                break;
+            case HHCURVETO:
+            case VVCURVETO:
+                addCurve(b0 == HHCURVETO);
+                break;
+            case RCURVELINE:
+            {
+                int count = argCount();
+                if (count >= 2)
+                {
+                    addCurves(0, (count - 2) / 6);
+                    addCommand(false);
+                    rlineTo(arg(count - 2), arg(count - 1));
+                }
+                break;
+            }
+            case RLINECURVE:
+            {
+                int count = argCount();
+                if (count >= 6)
+                {
+                    addLines(0, (count - 6) / 2);
+                    addCurves(count - 6, 1);
+                }
+                break;
+            }
+            case ENDCHAR:
+                clearStack(operandCount == 5 || operandCount == 1);
+                closeCharString2Path();
+                if (argCount() == 4)
+                {
+                    // deprecated "seac" operator
+                    return false;
+                }
+                addCommand(false);
+                break;
+            case ESCAPE:
+                if (pos >= end || !executeEscape(bytes[pos++] & 0xff))
+                {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+            }
+            if (!supported)
+            {
+                return false;
+            }
+            operandCount = 0;
+            first = 0;
+        }
+        return true;
+    }
+
+    private boolean executeEscape(int b1)
+    {
+        int count = argCount();
+        switch (b1)
+        {
+        case HFLEX:
+            if (count >= 7)
+            {
+                addRRCurve(arg(0), 0, arg(1), arg(2), arg(3), 0);
+                addRRCurve(arg(4), 0, arg(5), -arg(2), arg(6), 0);
+            }
+            return true;
+        case FLEX:
+            if (count < 12)
+            {
+                return false;
+            }
+            addCurves(0, 2);
+            return true;
+        case HFLEX1:
+            if (count >= 9)
+            {
+                addRRCurve(arg(0), arg(1), arg(2), arg(3), arg(4), 0);
+                addRRCurve(arg(5), 0, arg(6), arg(7), arg(8), 0);
+            }
+            return true;
+        case FLEX1:
+        {
+            if (count < 11)
+            {
+                return false;
+            }
+            int dx = 0;
+            int dy = 0;
+            for (int i = 0; i < 5; i++)
+            {
+                dx += (int) operands[first + i * 2];
+                dy += (int) operands[first + i * 2 + 1];
+            }
+            addCurves(0, 1);
+            boolean dxIsBigger = Math.abs(dx) > Math.abs(dy);
+            addRRCurve(arg(6), arg(7), arg(8), arg(9), dxIsBigger ? arg(10) : -dx,
+                    dxIsBigger ? -dy : arg(10));
+            return true;
+        }
+        default:
+            return false;
+        }
+    }
+
+    private boolean callSubr(CFFIndex subrIndex, int depth)
+    {
+        if (subrIndex == null || subrIndex.isEmpty() || operandCount == 0
+                || !integers[operandCount - 1] || depth >= MAX_SUBR_DEPTH)
+        {
+            return false;
+        }
+        int subrNumber = calculateSubrNumber((int) operands[--operandCount], subrIndex.size());
+        if (subrNumber < 0)
+        {
+            return false;
+        }
+        if (subrNumber >= subrIndex.size())
+        {
+            // the parser ignores missing subroutines
+            return true;
+        }
+        // the subroutine is executed in place, without copying it
+        int start = subrIndex.getStart(subrNumber);
+        int end = subrIndex.getEnd(subrNumber);
+        return start < end && execute(subrIndex.getData(), start, end, depth + 1);
+    }
+
+    private static int calculateSubrNumber(int operand, int subrIndexLength)
+    {
+        if (subrIndexLength < 1240)
+        {
+            return 107 + operand;
+        }
+        if (subrIndexLength < 33900)
+        {
+            return 1131 + operand;
+        }
+        return 32768 + operand;
+    }
+
+    private void push(double value, boolean integer)
+    {
+        if (operandCount == operands.length)
+        {
+            operands = Arrays.copyOf(operands, operandCount * 2);
+            integers = Arrays.copyOf(integers, operandCount * 2);
+        }
+        operands[operandCount] = value;
+        integers[operandCount] = integer;
+        operandCount++;
+    }
+
+    private int argCount()
+    {
+        return operandCount - first;
+    }
+
+    private float arg(int index)
+    {
+        return (float) operands[first + index];
+    }
+
+    /**
+     * Reads the width from the operands if the Type 1 sequence is empty, see
+     * {@link Type2CharString}.
+     */
+    private void clearStack(boolean hasWidth)
+    {
+        if (sequenceEmpty)
+        {
+            if (hasWidth)
+            {
+                width = (int) (arg(0) + nominalWidthX);
+                first++;
+            }
+            else
+            {
+                width = (int) defWidthX;
+            }
+            // hsbw
+            addCommand(false);
+        }
+    }
+
+    private void markPath()
+    {
+        if (pathCount > 0)
+        {
+            closeCharString2Path();
+        }
+        pathCount++;
+    }
+
+    private void closeCharString2Path()
+    {
+        if (pathCount > 0 && !lastClosePath)
+        {
+            addCommand(true);
+            closePath();
+        }
+    }
+
+    /**
+     * Tracks a command which is added to the Type 1 sequence.
+     */
+    private void addCommand(boolean closePath)
+    {
+        sequenceEmpty = false;
+        lastClosePath = closePath;
+    }
+
+    private void addLines(int start, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            int index = start + i * 2;
+            addCommand(false);
+            rlineTo(arg(index), arg(index + 1));
+        }
+    }
+
+    private void addAlternatingLine(boolean horizontal)
+    {
+        int count = argCount();
+        for (int i = 0; i < count; i++)
+        {
+            addCommand(false);
+            if (horizontal)
+            {
+                rlineTo(arg(i), 0);
+            }
+            else
+            {
+                rlineTo(0, arg(i));
+            }
+            horizontal = !horizontal;
+        }
+    }
+
+    private void addCurves(int start, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            int index = start + i * 6;
+            addRRCurve(arg(index), arg(index + 1), arg(index + 2), arg(index + 3), arg(index + 4),
+                    arg(index + 5));
+        }
+    }
+
+    private void addAlternatingCurve(boolean horizontal)
+    {
+        int count = argCount();
+        int index = 0;
+        while (count - index >= 4)
+        {
+            boolean last = count - index == 5;
+            if (horizontal)
+            {
+                addRRCurve(arg(index), 0, arg(index + 1), arg(index + 2),
+                        last ? arg(index + 4) : 0, arg(index + 3));
+            }
+            else
+            {
+                addRRCurve(0, arg(index), arg(index + 1), arg(index + 2), arg(index + 3),
+                        last ? arg(index + 4) : 0);
+            }
+            index += last ? 5 : 4;
+            horizontal = !horizontal;
+        }
+    }
+
+    private void addCurve(boolean horizontal)
+    {
+        int count = argCount();
+        int index = 0;
+        while (count - index >= 4)
+        {
+            int d = (count - index) % 4 == 1 ? 1 : 0;
+            float d1 = d == 1 ? arg(index) : 0;
+            if (horizontal)
+            {
+                addRRCurve(arg(index + d), d1, arg(index + d + 1), arg(index + d + 2),
+                        arg(index + d + 3), 0);
+            }
+            else
+            {
+                addRRCurve(d1, arg(index + d), arg(index + d + 1), arg(index + d + 2), 0,
+                        arg(index + d + 3));
+            }
+            index += 4 + d;
+        }
+    }
+
+    private void addRRCurve(float dx1, float dy1, float dx2, float dy2, float dx3, float dy3)
+    {
+        addCommand(false);
+        rrcurveTo(dx1, dy1, dx2, dy2, dx3, dy3);
+    }
+
+    // the path operations are the same as the ones of the Type 1 charstring, the cases which log
+    // a warning aren't supported
+
+    private void rmoveTo(float dx, float dy)
+    {
+        float x = currentX + dx;
+        float y = currentY + dy;
+        path.moveTo(x, y);
+        hasCurrentPoint = true;
+        currentX = x;
+        currentY = y;
+    }
+
+    private void rlineTo(float dx, float dy)
+    {
+        if (!hasCurrentPoint)
+        {
+            supported = false;
+            return;
+        }
+        float x = currentX + dx;
+        float y = currentY + dy;
+        path.lineTo(x, y);
+        currentX = x;
+        currentY = y;
+    }
+
+    private void rrcurveTo(float dx1, float dy1, float dx2, float dy2, float dx3, float dy3)
+    {
+        if (!hasCurrentPoint)
+        {
+            supported = false;
+            return;
+        }
+        float x1 = currentX + dx1;
+        float y1 = currentY + dy1;
+        float x2 = x1 + dx2;
+        float y2 = y1 + dy2;
+        float x3 = x2 + dx3;
+        float y3 = y2 + dy3;
+        path.curveTo(x1, y1, x2, y2, x3, y3);
+        currentX = x3;
+        currentY = y3;
+    }
+
+    private void closePath()
+    {
+        if (!hasCurrentPoint)
+        {
+            supported = false;
+            return;
+        }
+        path.closePath();
+        path.moveTo(currentX, currentY);
+    }
+}
@@ -54,6 +54,36 @@ class CIDRange
         return codeLength;
     }
 
+    /**
+     * Returns the first code of the CID range.
+     *
+     * @return the first code
+     */
+    int getFrom()
+    {
+        return from;
+    }
+
+    /**
+     * Returns the last code of the CID range.
+     *
+     * @return the last code
+     */
+    int getTo()
+    {
+        return to;
+    }
+
+    /**
+     * Returns the CID of the first code of the CID range.
+     *
+     * @return the first CID
+     */
+    int getCID()
+    {
+        return unicode;
+    }
+
     /**
      * Maps the given Unicode character to the corresponding CID in this range.
      *
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.cmap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable lookup table for a list of CID ranges. The ranges of each code length are kept in
+ * primitive arrays which are sorted by their first code, so that a code is found with a binary
+ * search instead of testing all ranges. Overlapping ranges are allowed, the range which comes
+ * first in the list wins like in a linear search.
+ */
+final class CIDRangeIndex
+{
+    // indexed by the code length
+    private final int[][] fromCodes;
+    private final int[][] toCodes;
+    private final int[][] cids;
+    private final int[][] orders;
+    // the maximum last code of all ranges up to the index, which ends the search to the left
+    private final int[][] maxToCodes;
+
+    /**
+     * Constructor.
+     *
+     * @param ranges the CID ranges, in the order of their priority
+     */
+    CIDRangeIndex(List<CIDRange> ranges)
+    {
+        int maxLength = 0;
+        for (CIDRange range : ranges)
+        {
+            maxLength = Math.max(maxLength, range.getCodeLength());
+        }
+        fromCodes = new int[maxLength + 1][];
+        toCodes = new int[maxLength + 1][];
+        cids = new int[maxLength + 1][];
+        orders = new int[maxLength + 1][];
+        maxToCodes = new int[maxLength + 1][];
+        for (int length = 1; length <= maxLength; length++)
+        {
+            build(ranges, length);
+        }
+    }
+
+    private void build(List<CIDRange> ranges, int length)
+    {
+        int count = 0;
+        for (CIDRange range : ranges)
+        {
+            if (range.getCodeLength() == length)
+            {
+                count++;
+            }
+        }
+        if (count == 0)
+        {
+            return;
+        }
+        // sort the ranges by their first code, keeping the list order for equal codes
+        long[] sortKeys = new long[count];
+        CIDRange[] selected = new CIDRange[count];
+        int n = 0;
+        for (CIDRange range : ranges)
+        {
+            if (range.getCodeLength() == length)
+            {
+                selected[n] = range;
+                sortKeys[n] = (long) range.getFrom() << 32 | n;
+                n++;
+            }
+        }
+        Arrays.sort(sortKeys);
+
+        int[] from = new int[count];
+        int[] to = new int[count];
+        int[] cid = new int[count];
+        int[] order = new int[count];
+        int[] maxTo = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            int index = (int) sortKeys[i];
+            CIDRange range = selected[index];
+            from[i] = range.getFrom();
+            to[i] = range.getTo();
+            cid[i] = range.getCID();
+            order[i] = index;
+            maxTo[i] = i == 0 ? to[i] : Math.max(maxTo[i - 1], to[i]);
+        }
+        fromCodes[length] = from;
+        toCodes[length] = to;
+        cids[length] = cid;
+        orders[length] = order;
+        maxToCodes[length] = maxTo;
+    }
+
+    /**
+     * Maps the given character code to the corresponding CID.
+     *
+     * @param code character code
+     * @param length origin byte length of the code
+     * @return corresponding CID, or -1 if the code isn't part of any range
+     */
+    int map(int code, int length)
+    {
+        if (length <= 0 || length >= fromCodes.length || fromCodes[length] == null)
+        {
+            return -1;
+        }
+        int[] from = fromCodes[length];
+        int[] to = toCodes[length];
+        int[] order = orders[length];
+        int[] maxTo = maxToCodes[length];
+
+        // the last range starting at or before the code
+        int low = 0;
+        int high = from.length - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            if (from[mid] <= code)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        int found = -1;
+        for (int i = high; i >= 0 && maxTo[i] >= code; i--)
+        {
+            if (to[i] >= code && (found == -1 || order[i] < order[found]))
+            {
+                found = i;
+            }
+        }
+        return found == -1 ? -1 : cids[length][found] + (code - from[found]);
+    }
+}
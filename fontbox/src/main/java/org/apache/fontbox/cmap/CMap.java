@@ -19,12 +19,14 @@ package org.apache.fontbox.cmap;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.fontbox.util.IntIntMap;
 
 /**
  * This class represents a CMap file.
@@ -54,15 +56,20 @@ public class CMap
     private final List<CodespaceRange> codespaceRanges = new ArrayList<>();
 
     // Unicode mappings
-    // one byte input values
-    private final Map<Integer, String> charToUnicodeOneByte = new HashMap<>();
-    // two byte input values
-    private final Map<Integer, String> charToUnicodeTwoBytes = new HashMap<>();
+    // one byte input values, allocated with the first mapping
+    private String[] charToUnicodeOneByte;
+    // two byte input values, in pages of 256 codes with the same high byte which are
+    // allocated with the first mapping of the page
+    private final String[][] charToUnicodeTwoBytes = new String[256][];
+    private int unicodeMappingCount = 0;
 
     // CID mappings
-    // map with all code to cid mappings organized by the origin byte length of the input value
-    private final Map<Integer, Map<Integer, Integer>> codeToCid = new HashMap<>();
+    // maps with all code to cid mappings indexed by the origin byte length of the input value
+    private IntIntMap[] codeToCid = new IntIntMap[5];
+    private int cidMappingCount = 0;
     private final List<CIDRange> codeToCidRanges = new ArrayList<>();
+    // lookup table for the ranges, built with the first lookup after the ranges have changed
+    private volatile CIDRangeIndex codeToCidRangeIndex;
 
     // inverted map
     private final Map <String, byte[]> unicodeToByteCodes = new HashMap<>();
@@ -84,7 +91,7 @@ public class CMap
      */
     public boolean hasCIDMappings()
     {
-        return !codeToCid.isEmpty() || !codeToCidRanges.isEmpty();
+        return cidMappingCount > 0 || !codeToCidRanges.isEmpty();
     }
 
     /**
@@ -94,7 +101,7 @@ public class CMap
      */
     public boolean hasUnicodeMappings()
     {
-        return !charToUnicodeOneByte.isEmpty() || !charToUnicodeTwoBytes.isEmpty();
+        return unicodeMappingCount > 0;
     }
 
     /**
@@ -130,11 +137,17 @@ public class CMap
     {
         if (length == 1)
         {
-            return charToUnicodeOneByte.get(code);
+            return charToUnicodeOneByte != null && code >= 0 && code < 256 ?
+                    charToUnicodeOneByte[code] : null;
         }
         if (length == 2)
         {
-            return charToUnicodeTwoBytes.get(code);
+            if (code < 0 || code > 0xFFFF)
+            {
+                return null;
+            }
+            String[] page = charToUnicodeTwoBytes[code >> 8];
+            return page != null ? page[code & 0xFF] : null;
         }
         LOG.warn("Mappings with more than 2 bytes aren't supported");
         return null;
@@ -233,16 +246,7 @@ public class CMap
         {
             return 0;
         }
-        Integer cid = null;
-        if (codeToCid.containsKey(code.length))
-        {
-            cid = codeToCid.get(code.length).get(toInt(code));
-        }
-        if (cid == null)
-        {
-            cid = toCIDFromRanges(code);
-        }
-        return cid;
+        return toCID(toInt(code), code.length);
     }
 
     /**
@@ -285,12 +289,17 @@ public class CMap
         {
             return 0;
         }
-        Integer cid = null;
-        if (codeToCid.containsKey(length))
+        IntIntMap codeToCidMap = length < codeToCid.length ? codeToCid[length] : null;
+        if (codeToCidMap != null)
         {
-            cid = codeToCid.get(length).get(code);
+            // CIDs aren't negative, so -1 marks a missing mapping
+            int cid = codeToCidMap.get(code, -1);
+            if (cid != -1)
+            {
+                return cid;
+            }
         }
-        return cid != null ? cid : toCIDFromRanges(code, length);
+        return toCIDFromRanges(code, length);
     }
 
     /**
@@ -299,38 +308,21 @@ public class CMap
      * @param code character code
      * @return CID
      */
-
     private int toCIDFromRanges(int code, int length)
     {
-        for (CIDRange range : codeToCidRanges)
+        if (codeToCidRanges.isEmpty())
         {
-            int ch = range.map(code, length);
-            if (ch != -1)
-            {
-                return ch;
-            }
+            return 0;
         }
-        return 0;
-    }
-
-    /**
-     * Returns the CID for the given character code.
-     *
-     * @param code character code
-     * @return CID
-     */
-
-    private int toCIDFromRanges(byte[] code)
-    {
-        for (CIDRange range : codeToCidRanges)
+        CIDRangeIndex index = codeToCidRangeIndex;
+        if (index == null)
         {
-            int ch = range.map(code);
-            if (ch != -1)
-            {
-                return ch;
-            }
+            // the index is immutable, so it doesn't matter if several threads build it
+            index = new CIDRangeIndex(codeToCidRanges);
+            codeToCidRangeIndex = index;
         }
-        return 0;
+        int cid = index.map(code, length);
+        return cid != -1 ? cid : 0;
     }
 
     /**
@@ -362,13 +354,9 @@ public class CMap
     {
         unicodeToByteCodes.put(unicode, codes.clone()); // clone needed, bytes is modified later
         int code = getCodeFromArray(codes, 0, codes.length);
-        if (codes.length == 1)
-        {
-            charToUnicodeOneByte.put(code, unicode);
-        }
-        else if (codes.length == 2)
+        if (codes.length == 1 || codes.length == 2)
         {
-            charToUnicodeTwoBytes.put(code, unicode);
+            putUnicode(code, codes.length, unicode);
         }
         else
         {
@@ -381,6 +369,33 @@ public class CMap
         }
     }
 
+    private void putUnicode(int code, int length, String unicode)
+    {
+        String[] page;
+        if (length == 1)
+        {
+            if (charToUnicodeOneByte == null)
+            {
+                charToUnicodeOneByte = new String[256];
+            }
+            page = charToUnicodeOneByte;
+        }
+        else
+        {
+            page = charToUnicodeTwoBytes[code >> 8];
+            if (page == null)
+            {
+                page = new String[256];
+                charToUnicodeTwoBytes[code >> 8] = page;
+            }
+        }
+        if (page[code & 0xFF] == null)
+        {
+            unicodeMappingCount++;
+        }
+        page[code & 0xFF] = unicode;
+    }
+
     /**
      * Get the code bytes for an unicode string.
      *
@@ -400,15 +415,27 @@ public class CMap
      */
     void addCIDMapping(byte[] code, int cid)
     {
-        Map<Integer, Integer> codeToCidMap = codeToCid.get(code.length);
+        IntIntMap codeToCidMap = getCodeToCidMap(code.length);
+        int size = codeToCidMap.size();
+        codeToCidMap.put(toInt(code), cid);
+        cidMappingCount += codeToCidMap.size() - size;
+    }
+
+    private IntIntMap getCodeToCidMap(int length)
+    {
+        if (length >= codeToCid.length)
+        {
+            codeToCid = Arrays.copyOf(codeToCid, length + 1);
+        }
+        IntIntMap codeToCidMap = codeToCid[length];
         if (codeToCidMap == null)
         {
-            codeToCidMap = new HashMap<>();
-            codeToCid.put(code.length, codeToCidMap);
-            minCidLength = Math.min(minCidLength, code.length);
-            maxCidLength = Math.max(maxCidLength, code.length);
+            codeToCidMap = new IntIntMap();
+            codeToCid[length] = codeToCidMap;
+            minCidLength = Math.min(minCidLength, length);
+            maxCidLength = Math.max(maxCidLength, length);
         }
-        codeToCidMap.put(toInt(code), cid);
+        return codeToCidMap;
     }
 
     /**
@@ -431,6 +458,7 @@ public class CMap
         {
             lastRange = cidRanges.get(cidRanges.size() - 1);
         }
+        codeToCidRangeIndex = null;
         if (lastRange == null || !lastRange.extend(from, to, cid, length))
         {
             cidRanges.add(new CIDRange(from, to, cid, length));
@@ -460,21 +488,49 @@ public class CMap
     void useCmap(CMap cmap)
     {
         cmap.codespaceRanges.forEach(this::addCodespaceRange);
-        charToUnicodeOneByte.putAll(cmap.charToUnicodeOneByte);
-        charToUnicodeTwoBytes.putAll(cmap.charToUnicodeTwoBytes);
-        cmap.charToUnicodeOneByte.forEach((k, v) -> unicodeToByteCodes.put(v, new byte[]{(byte) (k % 0xFF)}));
-        cmap.charToUnicodeTwoBytes.forEach((k, v) -> unicodeToByteCodes.put(v,
-                new byte[]{(byte) ((k >>> 8) & 0xFF), (byte) (k & 0xFF)})
-        );
-        cmap.codeToCid.forEach((key, value) ->
+        if (cmap.charToUnicodeOneByte != null)
+        {
+            for (int k = 0; k < 256; k++)
+            {
+                String v = cmap.charToUnicodeOneByte[k];
+                if (v != null)
+                {
+                    putUnicode(k, 1, v);
+                    unicodeToByteCodes.put(v, new byte[]{(byte) (k % 0xFF)});
+                }
+            }
+        }
+        for (int k = 0; k <= 0xFFFF; k++)
         {
-            Map<Integer, Integer> existingMapping = codeToCid.putIfAbsent(key, value);
-            if (existingMapping!=null)
+            String[] page = cmap.charToUnicodeTwoBytes[k >> 8];
+            if (page == null)
             {
-                existingMapping.putAll(value);
+                // skip the page
+                k |= 0xFF;
+                continue;
             }
-        });
-        codeToCidRanges.addAll(cmap.codeToCidRanges);
+            String v = page[k & 0xFF];
+            if (v != null)
+            {
+                putUnicode(k, 2, v);
+                unicodeToByteCodes.put(v, new byte[]{(byte) ((k >>> 8) & 0xFF), (byte) (k & 0xFF)});
+            }
+        }
+        for (int length = 0; length < cmap.codeToCid.length; length++)
+        {
+            IntIntMap codeToCidMap = cmap.codeToCid[length];
+            if (codeToCidMap != null)
+            {
+                IntIntMap existingMapping = getCodeToCidMap(length);
+                int size = existingMapping.size();
+                existingMapping.putAll(codeToCidMap);
+                cidMappingCount += existingMapping.size() - size;
+            }
+        }
+        // copies of the ranges, the last one may be extended by this CMap
+        cmap.codeToCidRanges.forEach(range -> codeToCidRanges.add(new CIDRange(range.getFrom(),
+                range.getTo(), range.getCID(), range.getCodeLength())));
+        codeToCidRangeIndex = null;
         maxCodeLength = Math.max(maxCodeLength, cmap.maxCodeLength);
         minCodeLength = Math.min(minCodeLength, cmap.minCodeLength);
         maxCidLength = Math.max(maxCidLength, cmap.maxCidLength);
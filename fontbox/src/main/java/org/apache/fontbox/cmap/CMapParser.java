@@ -25,6 +25,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.io.RandomAccessReadBuffer;
 
@@ -35,6 +37,8 @@ import org.apache.pdfbox.io.RandomAccessReadBuffer;
  */
 public class CMapParser
 {
+    private static final Log LOG = LogFactory.getLog(CMapParser.class);
+
     private static final String MARK_END_OF_DICTIONARY = ">>";
     private static final String MARK_END_OF_ARRAY = "]";
 
@@ -60,13 +64,39 @@ public class CMapParser
     }
 
     /**
-     * Parses a predefined CMap.
+     * Parses a predefined CMap. The compiled form of the CMap is used if it is available, see
+     * CMapCompiler, the PostScript source of the CMap is parsed otherwise.
      *
      * @param name CMap name.
      * @return The parsed predefined CMap as a java object, never null.
      * @throws IOException If the CMap could not be parsed.
      */
     public CMap parsePredefined(String name) throws IOException
+    {
+        try
+        {
+            CMap cmap = CompiledCMapParser.parsePredefined(name);
+            if (cmap != null)
+            {
+                return cmap;
+            }
+        }
+        catch (IOException ex)
+        {
+            LOG.warn("Could not read the compiled CMap " + name + ", the source will be parsed",
+                    ex);
+        }
+        return parsePredefinedSource(name);
+    }
+
+    /**
+     * Parses the PostScript source of a predefined CMap.
+     *
+     * @param name CMap name.
+     * @return The parsed predefined CMap as a java object, never null.
+     * @throws IOException If the CMap could not be parsed.
+     */
+    CMap parsePredefinedSource(String name) throws IOException
     {
         try (RandomAccessRead randomAccessRead = getExternalCMap(name))
         {
@@ -77,7 +107,8 @@ public class CMapParser
     }
 
     /**
-     * This will parse the stream and create a cmap object.
+     * This will parse the stream and create a cmap object. Most CMaps are read by the
+     * {@link SimpleCMapParser}, the others are parsed by this parser.
      *
      * @param randomAcccessRead the source of the CMap to be parsed.
      * @return The parsed source as a java object, never null.
@@ -85,7 +116,38 @@ public class CMapParser
      */
     public CMap parse(RandomAccessRead randomAcccessRead) throws IOException
     {
-        CMap result = new CMap();
+        long start = randomAcccessRead.getPosition();
+        byte[] data = new byte[randomAcccessRead.available()];
+        int length = 0;
+        int read;
+        while (length < data.length
+                && (read = randomAcccessRead.read(data, length, data.length - length)) > 0)
+        {
+            length += read;
+        }
+        try
+        {
+            return new SimpleCMapParser(data, length, strictMode).parse();
+        }
+        catch (IOException ex)
+        {
+            // the CMap uses more than the simple subset, or it is malformed
+            LOG.debug("CMap is read by the generic parser: " + ex.getMessage());
+        }
+        randomAcccessRead.seek(start);
+        return parse(randomAcccessRead, new CMap());
+    }
+
+    /**
+     * This will parse the stream into the given cmap object.
+     *
+     * @param randomAcccessRead the source of the CMap to be parsed.
+     * @param result the CMap to which the mappings are added.
+     * @return The given CMap.
+     * @throws IOException If there is an error parsing the data.
+     */
+    CMap parse(RandomAccessRead randomAcccessRead, CMap result) throws IOException
+    {
         Object previousToken = null;
         Object token = parseNextToken(randomAcccessRead);
         while (token != null)
@@ -412,36 +474,45 @@ public class CMapParser
             // PDFBOX-3807: ignore null
             else if (nextToken instanceof byte[])
             {
-                byte[] tokenBytes = (byte[]) nextToken;
-                // PDFBOX-3450: ignore <>
-                if (tokenBytes.length > 0)
+                addMappingFrombfrange(result, startCode, start, end, (byte[]) nextToken,
+                        strictMode);
+            }
+        }
+    }
+
+    /**
+     * Adds the mappings of a bfrange with a single destination string.
+     */
+    static void addMappingFrombfrange(CMap cmap, byte[] startCode, int start, int end,
+            byte[] tokenBytes, boolean strictMode)
+    {
+        // PDFBOX-3450: ignore <>
+        if (tokenBytes.length > 0)
+        {
+            // PDFBOX-4720:
+            // some pdfs use the malformed bfrange <0000> <FFFF> <0000>. Add support by adding a identity
+            // mapping for the whole range instead of cutting it after 255 entries
+            // TODO find a more efficient method to represent all values for a identity mapping
+            if (tokenBytes.length == 2 && start == 0 && end == 0xffff
+                    && tokenBytes[0] == 0 && tokenBytes[1] == 0)
+            {
+                for (int i = 0; i < 256; i++)
                 {
-                    // PDFBOX-4720:
-                    // some pdfs use the malformed bfrange <0000> <FFFF> <0000>. Add support by adding a identity
-                    // mapping for the whole range instead of cutting it after 255 entries
-                    // TODO find a more efficient method to represent all values for a identity mapping
-                    if (tokenBytes.length == 2 && start == 0 && end == 0xffff
-                            && tokenBytes[0] == 0 && tokenBytes[1] == 0)
-                    {
-                        for (int i = 0; i < 256; i++)
-                        {
-                            startCode[0] = (byte) i;
-                            startCode[1] = 0;
-                            tokenBytes[0] = (byte) i;
-                            tokenBytes[1] = 0;
-                            addMappingFrombfrange(result, startCode, 256, tokenBytes);
-                        }
-                    }
-                    else
-                    {
-                        addMappingFrombfrange(result, startCode, end - start + 1, tokenBytes);
-                    }
+                    startCode[0] = (byte) i;
+                    startCode[1] = 0;
+                    tokenBytes[0] = (byte) i;
+                    tokenBytes[1] = 0;
+                    addMappingFrombfrange(cmap, startCode, 256, tokenBytes, strictMode);
                 }
             }
+            else
+            {
+                addMappingFrombfrange(cmap, startCode, end - start + 1, tokenBytes, strictMode);
+            }
         }
     }
 
-    private void addMappingFrombfrange(CMap cmap, byte[] startCode, List<byte[]> tokenBytesList)
+    static void addMappingFrombfrange(CMap cmap, byte[] startCode, List<byte[]> tokenBytesList)
     {
         for (byte[] tokenBytes : tokenBytesList)
         {
@@ -451,8 +522,8 @@ public class CMapParser
         }
     }
 
-    private void addMappingFrombfrange(CMap cmap, byte[] startCode, int values,
-            byte[] tokenBytes)
+    private static void addMappingFrombfrange(CMap cmap, byte[] startCode, int values,
+            byte[] tokenBytes, boolean strictMode)
     {
         for (int i = 0; i < values; i++)
         {
@@ -782,7 +853,7 @@ public class CMapParser
         }
     }
 
-    private boolean increment(byte[] data, int position, boolean useStrictMode)
+    private static boolean increment(byte[] data, int position, boolean useStrictMode)
     {
         if (position > 0 && (data[position] & 0xFF) == 255)
         {
@@ -802,9 +873,29 @@ public class CMapParser
         return true;
     }
 
-    private String createStringFromBytes(byte[] bytes)
+    static String createStringFromBytes(byte[] bytes)
     {
-        return new String(bytes, bytes.length == 1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_16BE);
+        if (bytes.length == 1)
+        {
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        if (bytes.length % 2 == 0)
+        {
+            // decode UTF-16BE without the charset decoder, which is slow for short strings
+            char[] chars = new char[bytes.length / 2];
+            for (int i = 0; i < chars.length; i++)
+            {
+                char c = (char) ((bytes[2 * i] & 0xFF) << 8 | bytes[2 * i + 1] & 0xFF);
+                if (Character.isSurrogate(c))
+                {
+                    // let the decoder handle surrogate pairs and replace malformed values
+                    return new String(bytes, StandardCharsets.UTF_16BE);
+                }
+                chars[i] = c;
+            }
+            return new String(chars);
+        }
+        return new String(bytes, StandardCharsets.UTF_16BE);
     }
 
     /**
@@ -60,6 +60,36 @@ public class CodespaceRange
         codeLength = endBytes.length;
     }
 
+    /**
+     * Returns the first code of the codespace.
+     *
+     * @return the bytes of the first code
+     */
+    byte[] getStart()
+    {
+        return toBytes(start);
+    }
+
+    /**
+     * Returns the last code of the codespace.
+     *
+     * @return the bytes of the last code
+     */
+    byte[] getEnd()
+    {
+        return toBytes(end);
+    }
+
+    private static byte[] toBytes(int[] values)
+    {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
     /**
      * Returns the length of the codes of the codespace.
      * 
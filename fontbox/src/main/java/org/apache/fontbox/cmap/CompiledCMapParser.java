@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.cmap;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.pdfbox.io.IOUtils;
+
+/**
+ * Reads the compiled form of a predefined CMap, which is written by CMapCompiler when
+ * fontbox is built. The compiled CMap is a list of the mappings in the order in which they were
+ * added by the {@link CMapParser}, so the mappings are added to the CMap in the same way without
+ * parsing the PostScript source. Consecutive character and CID mappings are stored as runs, the
+ * numbers of the runs and the CIDs are stored with a variable length.
+ */
+final class CompiledCMapParser
+{
+    /**
+     * The suffix of the resource names of the compiled CMaps.
+     */
+    static final String SUFFIX = ".bin";
+
+    static final int MAGIC = 0x50434D50; // "PCMP"
+    static final int VERSION = 1;
+
+    static final int OP_END = 0;
+    static final int OP_USECMAP = 1;
+    static final int OP_CODESPACE_RANGE = 2;
+    static final int OP_CHAR_MAPPINGS = 3;
+    static final int OP_CID_MAPPINGS = 4;
+    static final int OP_CID_RANGE = 5;
+
+    private CompiledCMapParser()
+    {
+    }
+
+    /**
+     * Reads a compiled predefined CMap.
+     *
+     * @param name CMap name
+     * @return the CMap, or null if there is no compiled form of the CMap
+     * @throws IOException if the compiled CMap is broken or has an unsupported version
+     */
+    static CMap parsePredefined(String name) throws IOException
+    {
+        byte[] data;
+        try (InputStream is = CompiledCMapParser.class.getResourceAsStream(name + SUFFIX))
+        {
+            if (is == null)
+            {
+                return null;
+            }
+            // read the resource at once, it is decoded from memory
+            data = IOUtils.toByteArray(is);
+        }
+        return parse(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    /**
+     * Reads a compiled CMap.
+     *
+     * @param in the compiled CMap
+     * @return the CMap
+     * @throws IOException if the compiled CMap is broken or has an unsupported version
+     */
+    static CMap parse(DataInputStream in) throws IOException
+    {
+        if (in.readInt() != MAGIC)
+        {
+            throw new IOException("Not a compiled CMap");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported version " + version + " of the compiled CMap");
+        }
+        CMap cmap = new CMap();
+        cmap.setName(readNullableString(in));
+        cmap.setVersion(readNullableString(in));
+        cmap.setType(in.readInt());
+        cmap.setRegistry(readNullableString(in));
+        cmap.setOrdering(readNullableString(in));
+        cmap.setSupplement(in.readInt());
+        cmap.setWMode(in.readInt());
+
+        int op = in.readUnsignedByte();
+        while (op != OP_END)
+        {
+            switch (op)
+            {
+                case OP_USECMAP:
+                    cmap.useCmap(new CMapParser().parsePredefined(in.readUTF()));
+                    break;
+                case OP_CODESPACE_RANGE:
+                    cmap.addCodespaceRange(new CodespaceRange(readCode(in), readCode(in)));
+                    break;
+                case OP_CHAR_MAPPINGS:
+                    readCharMappings(in, cmap);
+                    break;
+                case OP_CID_MAPPINGS:
+                    readCIDMappings(in, cmap);
+                    break;
+                case OP_CID_RANGE:
+                    cmap.addCIDRange(readCode(in), readCode(in), readVarInt(in));
+                    break;
+                default:
+                    throw new IOException("Unknown operation " + op + " in compiled CMap");
+            }
+            op = in.readUnsignedByte();
+        }
+        return cmap;
+    }
+
+    private static void readCharMappings(DataInputStream in, CMap cmap) throws IOException
+    {
+        byte[] code = readCode(in);
+        int count = readVarInt(in);
+        char[] unicode = in.readUTF().toCharArray();
+        int last = unicode.length - 1;
+        int firstCode = CMap.toInt(code);
+        for (int i = 0; i < count; i++)
+        {
+            if (i > 0)
+            {
+                // a run of codes mapped to Unicode values which only differ in the last character
+                toBytes(firstCode + i, code);
+                unicode[last]++;
+            }
+            cmap.addCharMapping(code, new String(unicode));
+        }
+    }
+
+    private static void readCIDMappings(DataInputStream in, CMap cmap) throws IOException
+    {
+        byte[] code = readCode(in);
+        int count = readVarInt(in);
+        int cid = readVarInt(in);
+        int firstCode = CMap.toInt(code);
+        for (int i = 0; i < count; i++)
+        {
+            if (i > 0)
+            {
+                toBytes(firstCode + i, code);
+            }
+            cmap.addCIDMapping(code, cid + i);
+        }
+    }
+
+    private static byte[] readCode(DataInputStream in) throws IOException
+    {
+        byte[] code = new byte[in.readUnsignedByte()];
+        in.readFully(code);
+        return code;
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IOException("Invalid number in compiled CMap");
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Writes the given code into the given array, with the length of the array.
+     */
+    static void toBytes(int code, byte[] bytes)
+    {
+        for (int i = bytes.length - 1; i >= 0; i--)
+        {
+            bytes[i] = (byte) code;
+            code >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,735 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.cmap;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses the subset of the CMap syntax which is used by the ToUnicode and encoding CMaps that are
+ * embedded in PDFs: the header entries, codespacerange, bfchar, bfrange, cidchar and cidrange.
+ * The CMap is scanned in memory and the tokens are kept in fields instead of being created as
+ * objects, the mappings are added to the CMap in the same way as by {@link CMapParser}.
+ *
+ * <p>An IOException is thrown for CMaps which use anything else, e.g. usecmap, and for malformed
+ * CMaps. Those are parsed by the {@link CMapParser} which handles them as before.
+ */
+final class SimpleCMapParser
+{
+    // token types
+    private static final int EOF = 0;
+    private static final int NUMBER = 1;
+    private static final int HEX_STRING = 2;
+    private static final int NAME = 3;
+    private static final int OPERATOR = 4;
+    private static final int STRING = 5;
+    private static final int COMMENT = 6;
+    private static final int ARRAY = 7;
+    private static final int DICTIONARY = 8;
+    private static final int END_OF_DICTIONARY = 9;
+    private static final int END_OF_ARRAY = 10;
+    private static final int REAL = 11;
+
+    private static final byte[] ENDCMAP = bytes("endcmap");
+    private static final byte[] USECMAP = bytes("usecmap");
+    private static final byte[] BEGINCODESPACERANGE = bytes("begincodespacerange");
+    private static final byte[] ENDCODESPACERANGE = bytes("endcodespacerange");
+    private static final byte[] BEGINBFCHAR = bytes("beginbfchar");
+    private static final byte[] ENDBFCHAR = bytes("endbfchar");
+    private static final byte[] BEGINBFRANGE = bytes("beginbfrange");
+    private static final byte[] ENDBFRANGE = bytes("endbfrange");
+    private static final byte[] BEGINCIDCHAR = bytes("begincidchar");
+    private static final byte[] ENDCIDCHAR = bytes("endcidchar");
+    private static final byte[] BEGINCIDRANGE = bytes("begincidrange");
+    private static final byte[] ENDCIDRANGE = bytes("endcidrange");
+
+    private static final byte[] WMODE = bytes("WMode");
+    private static final byte[] CMAP_NAME = bytes("CMapName");
+    private static final byte[] CMAP_VERSION = bytes("CMapVersion");
+    private static final byte[] CMAP_TYPE = bytes("CMapType");
+    private static final byte[] REGISTRY = bytes("Registry");
+    private static final byte[] ORDERING = bytes("Ordering");
+    private static final byte[] SUPPLEMENT = bytes("Supplement");
+
+    private final byte[] data;
+    private final int length;
+    private final boolean strictMode;
+    private final byte[] hexBuffer = new byte[512];
+    private int position;
+
+    // the current token, names, operators, strings and comments are kept as offsets into the data
+    private int tokenType;
+    private int tokenStart;
+    private int tokenEnd;
+    private int intValue;
+    private double realValue;
+    private byte[] bytesValue;
+    private int arraySize;
+    private List<byte[]> arrayValue;
+
+    /**
+     * Creates a parser.
+     *
+     * @param data the data of the CMap
+     * @param length the length of the data
+     * @param strictMode the strict mode used for inline CMaps, see {@link CMapParser}
+     */
+    SimpleCMapParser(byte[] data, int length, boolean strictMode)
+    {
+        this.data = data;
+        this.length = length;
+        this.strictMode = strictMode;
+    }
+
+    /**
+     * Parses the CMap.
+     *
+     * @return the CMap
+     * @throws IOException if the CMap is malformed or uses more than the supported subset
+     */
+    CMap parse() throws IOException
+    {
+        CMap result = new CMap();
+        int previousType = EOF;
+        int previousValue = 0;
+        nextToken();
+        while (tokenType != EOF)
+        {
+            int type = tokenType;
+            int value = type == REAL ? (int) realValue : intValue;
+            if (type == OPERATOR)
+            {
+                if (isToken(ENDCMAP))
+                {
+                    // end of CMap reached, stop reading as there isn't any interesting info anymore
+                    break;
+                }
+                if (isToken(USECMAP) && previousType == NAME)
+                {
+                    throw new IOException("usecmap isn't supported");
+                }
+                else if (previousType == NUMBER || previousType == REAL)
+                {
+                    if (isToken(BEGINCODESPACERANGE))
+                    {
+                        parseCodespaceRanges(previousValue, result);
+                    }
+                    else if (isToken(BEGINBFCHAR))
+                    {
+                        parseBfchars(previousValue, result);
+                    }
+                    else if (isToken(BEGINBFRANGE))
+                    {
+                        parseBfranges(previousValue, result);
+                    }
+                    else if (isToken(BEGINCIDCHAR))
+                    {
+                        parseCidchars(previousValue, result);
+                    }
+                    else if (isToken(BEGINCIDRANGE) && previousType == NUMBER)
+                    {
+                        parseCidranges(previousValue, result);
+                    }
+                }
+            }
+            else if (type == NAME)
+            {
+                parseLiteralName(result);
+            }
+            previousType = type;
+            previousValue = value;
+            nextToken();
+        }
+        return result;
+    }
+
+    private void parseLiteralName(CMap result) throws IOException
+    {
+        if (isToken(WMODE))
+        {
+            nextToken();
+            if (tokenType == NUMBER)
+            {
+                result.setWMode(intValue);
+            }
+        }
+        else if (isToken(CMAP_NAME))
+        {
+            nextToken();
+            if (tokenType == NAME)
+            {
+                result.setName(tokenString());
+            }
+        }
+        else if (isToken(CMAP_VERSION))
+        {
+            nextToken();
+            if (tokenType == NUMBER)
+            {
+                result.setVersion(Integer.toString(intValue));
+            }
+            else if (tokenType == REAL)
+            {
+                result.setVersion(Double.toString(realValue));
+            }
+            else if (isStringToken())
+            {
+                result.setVersion(tokenString());
+            }
+        }
+        else if (isToken(CMAP_TYPE))
+        {
+            nextToken();
+            if (tokenType == NUMBER)
+            {
+                result.setType(intValue);
+            }
+        }
+        else if (isToken(REGISTRY))
+        {
+            nextToken();
+            if (isStringToken())
+            {
+                result.setRegistry(tokenString());
+            }
+        }
+        else if (isToken(ORDERING))
+        {
+            nextToken();
+            if (isStringToken())
+            {
+                result.setOrdering(tokenString());
+            }
+        }
+        else if (isToken(SUPPLEMENT))
+        {
+            nextToken();
+            if (tokenType == NUMBER)
+            {
+                result.setSupplement(intValue);
+            }
+        }
+    }
+
+    private void parseCodespaceRanges(int count, CMap result) throws IOException
+    {
+        for (int j = 0; j < count; j++)
+        {
+            nextToken();
+            if (tokenType == OPERATOR)
+            {
+                checkExpectedOperator(ENDCODESPACERANGE);
+                break;
+            }
+            byte[] startRange = hexString();
+            nextToken();
+            byte[] endRange = hexString();
+            try
+            {
+                result.addCodespaceRange(new CodespaceRange(startRange, endRange));
+            }
+            catch (IllegalArgumentException ex)
+            {
+                throw new IOException(ex);
+            }
+        }
+    }
+
+    private void parseBfchars(int count, CMap result) throws IOException
+    {
+        for (int j = 0; j < count; j++)
+        {
+            nextToken();
+            if (tokenType == OPERATOR)
+            {
+                checkExpectedOperator(ENDBFCHAR);
+                break;
+            }
+            byte[] inputCode = hexString();
+            nextToken();
+            if (tokenType == HEX_STRING)
+            {
+                result.addCharMapping(inputCode, CMapParser.createStringFromBytes(bytesValue));
+            }
+            else if (tokenType == NAME)
+            {
+                result.addCharMapping(inputCode, tokenString());
+            }
+            else
+            {
+                throw new IOException("bfchar without destination");
+            }
+        }
+    }
+
+    private void parseBfranges(int count, CMap result) throws IOException
+    {
+        for (int j = 0; j < count; j++)
+        {
+            nextToken();
+            if (tokenType == OPERATOR)
+            {
+                checkExpectedOperator(ENDBFRANGE);
+                break;
+            }
+            byte[] startCode = hexString();
+            nextToken();
+            if (tokenType == OPERATOR)
+            {
+                checkExpectedOperator(ENDBFRANGE);
+                break;
+            }
+            byte[] endCode = hexString();
+            int start = CMap.toInt(startCode);
+            int end = CMap.toInt(endCode);
+            // end has to be bigger than start or equal
+            if (end < start)
+            {
+                // PDFBOX-4550: likely corrupt stream
+                break;
+            }
+            nextToken();
+            if (tokenType == ARRAY)
+            {
+                // ignore empty and malformed arrays
+                if (arraySize > 0 && arraySize >= end - start)
+                {
+                    if (arrayValue == null)
+                    {
+                        throw new IOException("bfrange array with other values than strings");
+                    }
+                    CMapParser.addMappingFrombfrange(result, startCode, arrayValue);
+                }
+            }
+            // PDFBOX-3807: ignore null
+            else if (tokenType == HEX_STRING)
+            {
+                CMapParser.addMappingFrombfrange(result, startCode, start, end, bytesValue,
+                        strictMode);
+            }
+        }
+    }
+
+    private void parseCidchars(int count, CMap result) throws IOException
+    {
+        for (int j = 0; j < count; j++)
+        {
+            nextToken();
+            if (tokenType == OPERATOR)
+            {
+                checkExpectedOperator(ENDCIDCHAR);
+                break;
+            }
+            byte[] inputCode = hexString();
+            nextToken();
+            result.addCIDMapping(inputCode, integer());
+        }
+    }
+
+    private void parseCidranges(int count, CMap result) throws IOException
+    {
+        for (int n = 0; n < count; n++)
+        {
+            nextToken();
+            if (tokenType == OPERATOR)
+            {
+                checkExpectedOperator(ENDCIDRANGE);
+                break;
+            }
+            byte[] startCode = hexString();
+            nextToken();
+            byte[] endCode = hexString();
+            nextToken();
+            int mappedCode = integer();
+            if (startCode.length != endCode.length)
+            {
+                throw new IOException("cidrange values with different byte lengths");
+            }
+            // some CMaps are using CID ranges to map single values
+            if (Arrays.equals(startCode, endCode))
+            {
+                result.addCIDMapping(startCode, mappedCode);
+            }
+            else
+            {
+                result.addCIDRange(startCode, endCode, mappedCode);
+            }
+        }
+    }
+
+    private void checkExpectedOperator(byte[] expected) throws IOException
+    {
+        if (!isToken(expected))
+        {
+            throw new IOException("Unexpected operator " + tokenString());
+        }
+    }
+
+    private byte[] hexString() throws IOException
+    {
+        if (tokenType != HEX_STRING)
+        {
+            throw new IOException("Expected a hex string");
+        }
+        return bytesValue;
+    }
+
+    private int integer() throws IOException
+    {
+        if (tokenType != NUMBER)
+        {
+            throw new IOException("Expected an integer");
+        }
+        return intValue;
+    }
+
+    /**
+     * Reads the next token, with the same rules as {@link CMapParser}.
+     */
+    private void nextToken() throws IOException
+    {
+        int nextByte = read();
+        // skip whitespace
+        while (nextByte == 0x09 || nextByte == 0x20 || nextByte == 0x0D || nextByte == 0x0A)
+        {
+            nextByte = read();
+        }
+        switch (nextByte)
+        {
+            case -1:
+                tokenType = EOF;
+                break;
+            case '%':
+                readComment();
+                break;
+            case '(':
+                readString();
+                break;
+            case '>':
+                if (read() != '>')
+                {
+                    throw new IOException("Expected the end of a dictionary");
+                }
+                tokenType = END_OF_DICTIONARY;
+                break;
+            case ']':
+                tokenType = END_OF_ARRAY;
+                break;
+            case '[':
+                readArray();
+                break;
+            case '<':
+                readHexStringOrDictionary();
+                break;
+            case '/':
+                readName();
+                break;
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+                readNumber(nextByte);
+                break;
+            default:
+                readOperator();
+                break;
+        }
+    }
+
+    private int read()
+    {
+        return position < length ? data[position++] & 0xFF : -1;
+    }
+
+    private void readComment()
+    {
+        // the comment is a string token including the '%'
+        tokenStart = position - 1;
+        int nextByte = read();
+        while (nextByte != -1 && nextByte != 0x0D && nextByte != 0x0A)
+        {
+            nextByte = read();
+        }
+        tokenEnd = nextByte == -1 ? position : position - 1;
+        tokenType = COMMENT;
+    }
+
+    private void readString()
+    {
+        tokenStart = position;
+        int nextByte = read();
+        while (nextByte != -1 && nextByte != ')')
+        {
+            nextByte = read();
+        }
+        tokenEnd = nextByte == -1 ? position : position - 1;
+        tokenType = STRING;
+    }
+
+    private void readArray() throws IOException
+    {
+        List<byte[]> values = new ArrayList<>();
+        boolean onlyHexStrings = true;
+        int size = 0;
+        nextToken();
+        while (tokenType != EOF && tokenType != END_OF_ARRAY
+                && !(tokenType == STRING && tokenEnd - tokenStart == 1 && data[tokenStart] == ']'))
+        {
+            if (tokenType == HEX_STRING)
+            {
+                values.add(bytesValue);
+            }
+            else
+            {
+                onlyHexStrings = false;
+            }
+            size++;
+            nextToken();
+        }
+        arraySize = size;
+        arrayValue = onlyHexStrings ? values : null;
+        tokenType = ARRAY;
+    }
+
+    private void readHexStringOrDictionary() throws IOException
+    {
+        int nextByte = read();
+        if (nextByte == '<')
+        {
+            // the dictionaries, e.g. CIDSystemInfo, aren't used
+            nextToken();
+            while (tokenType == NAME)
+            {
+                nextToken();
+                nextToken();
+            }
+            tokenType = DICTIONARY;
+            return;
+        }
+        int multiplier = 16;
+        int bufferIndex = -1;
+        while (nextByte != -1 && nextByte != '>')
+        {
+            if (isWhitespaceOrEOF(nextByte))
+            {
+                nextByte = read();
+                continue;
+            }
+            int digit;
+            if (nextByte >= '0' && nextByte <= '9')
+            {
+                digit = nextByte - '0';
+            }
+            else if (nextByte >= 'A' && nextByte <= 'F')
+            {
+                digit = 10 + nextByte - 'A';
+            }
+            else if (nextByte >= 'a' && nextByte <= 'f')
+            {
+                digit = 10 + nextByte - 'a';
+            }
+            else
+            {
+                throw new IOException("Expected a hex character");
+            }
+            if (multiplier == 16)
+            {
+                bufferIndex++;
+                if (bufferIndex >= hexBuffer.length)
+                {
+                    throw new IOException("Hex string is too long");
+                }
+                hexBuffer[bufferIndex] = (byte) (digit * 16);
+                multiplier = 1;
+            }
+            else
+            {
+                hexBuffer[bufferIndex] += digit;
+                multiplier = 16;
+            }
+            nextByte = read();
+        }
+        bytesValue = Arrays.copyOf(hexBuffer, bufferIndex + 1);
+        tokenType = HEX_STRING;
+    }
+
+    private void readName()
+    {
+        tokenStart = position;
+        int nextByte = read();
+        while (!isWhitespaceOrEOF(nextByte) && !isDelimiter(nextByte))
+        {
+            nextByte = read();
+        }
+        if (isDelimiter(nextByte))
+        {
+            position--;
+        }
+        tokenEnd = isWhitespaceOrEOF(nextByte) && nextByte != -1 ? position - 1 : position;
+        tokenType = NAME;
+    }
+
+    private void readOperator()
+    {
+        tokenStart = position - 1;
+        int nextByte = read();
+        // newline separator may be missing in malformed CMap files
+        // see PDFBOX-2035
+        while (!isWhitespaceOrEOF(nextByte) && !isDelimiter(nextByte) && !isDigit(nextByte))
+        {
+            nextByte = read();
+        }
+        if (isDelimiter(nextByte) || isDigit(nextByte))
+        {
+            position--;
+        }
+        tokenEnd = isWhitespaceOrEOF(nextByte) && nextByte != -1 ? position - 1 : position;
+        tokenType = OPERATOR;
+    }
+
+    private void readNumber(int firstByte) throws IOException
+    {
+        int start = position - 1;
+        long value = firstByte - '0';
+        boolean isReal = false;
+        int nextByte = read();
+        while (isDigit(nextByte) || nextByte == '.')
+        {
+            if (nextByte == '.')
+            {
+                isReal = true;
+            }
+            else if (!isReal)
+            {
+                value = value * 10 + nextByte - '0';
+                if (value > Integer.MAX_VALUE)
+                {
+                    throw new IOException("Number is too large");
+                }
+            }
+            nextByte = read();
+        }
+        if (nextByte == -1)
+        {
+            throw new IOException("Number at the end of the CMap");
+        }
+        // the byte after the number is read again
+        position--;
+        if (isReal)
+        {
+            String number = new String(data, start, position - start, StandardCharsets.ISO_8859_1);
+            try
+            {
+                realValue = Double.parseDouble(number);
+            }
+            catch (NumberFormatException ex)
+            {
+                throw new IOException("Invalid number " + number, ex);
+            }
+            tokenType = REAL;
+        }
+        else
+        {
+            intValue = (int) value;
+            tokenType = NUMBER;
+        }
+    }
+
+    /**
+     * Tells whether the current token is one of the tokens which the {@link CMapParser} returns as
+     * string.
+     */
+    private boolean isStringToken()
+    {
+        return tokenType == STRING || tokenType == COMMENT || tokenType == END_OF_DICTIONARY
+                || tokenType == END_OF_ARRAY;
+    }
+
+    private String tokenString()
+    {
+        switch (tokenType)
+        {
+            case END_OF_DICTIONARY:
+                return ">>";
+            case END_OF_ARRAY:
+                return "]";
+            default:
+                return new String(data, tokenStart, tokenEnd - tokenStart,
+                        StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private boolean isToken(byte[] expected)
+    {
+        if (tokenEnd - tokenStart != expected.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++)
+        {
+            if (data[tokenStart + i] != expected[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespaceOrEOF(int aByte)
+    {
+        return aByte == -1 || aByte == 0x20 || aByte == 0x0D || aByte == 0x0A;
+    }
+
+    private static boolean isDigit(int aByte)
+    {
+        return aByte >= '0' && aByte <= '9';
+    }
+
+    private static boolean isDelimiter(int aByte)
+    {
+        switch (aByte)
+        {
+            case '(':
+            case ')':
+            case '<':
+            case '>':
+            case '[':
+            case ']':
+            case '{':
+            case '}':
+            case '/':
+            case '%':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static byte[] bytes(String token)
+    {
+        return token.getBytes(StandardCharsets.US_ASCII);
+    }
+}
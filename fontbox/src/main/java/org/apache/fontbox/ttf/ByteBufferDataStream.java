@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.ttf;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A TTFDataStream over a ByteBuffer, e.g. a memory-mapped font file or a read-only view of a part of
+ * the font data, see {@link TTFDataStream#createView(int)}. The stream only has its own position
+ * and reads the buffer with absolute indexes, so several streams can read the same buffer
+ * concurrently.
+ */
+final class ByteBufferDataStream extends TTFDataStream
+{
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer the data, the stream reads from index 0 to the limit of the buffer
+     */
+    ByteBufferDataStream(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (position >= limit)
+        {
+            return -1;
+        }
+        return buffer.get(position++) & 0xff;
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException
+    {
+        if (position + 2 > limit)
+        {
+            position = limit;
+            throw new EOFException();
+        }
+        int value = (buffer.get(position) & 0xff) << 8 | buffer.get(position + 1) & 0xff;
+        position += 2;
+        return value;
+    }
+
+    @Override
+    public long readLong() throws IOException
+    {
+        if (position + 8 > limit)
+        {
+            position = limit;
+            throw new EOFException();
+        }
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+        {
+            value = value << 8 | buffer.get(position + i) & 0xff;
+        }
+        position += 8;
+        return value;
+    }
+
+    @Override
+    public void seek(long pos) throws IOException
+    {
+        if (pos < 0)
+        {
+            throw new IOException("Invalid position " + pos);
+        }
+        position = (int) Math.min(pos, limit);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (position >= limit)
+        {
+            return -1;
+        }
+        int count = Math.min(len, limit - position);
+        // bulk get on a duplicate, which has its own position
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position);
+        duplicate.get(b, off, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The view shares the data of the buffer.
+     */
+    @Override
+    ByteBuffer createView(int length) throws IOException
+    {
+        if (length < 0 || position + length > limit)
+        {
+            throw new IOException("Unexpected end of TTF stream reached");
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.limit(position + length);
+        position += length;
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public long getCurrentPosition() throws IOException
+    {
+        return position;
+    }
+
+    @Override
+    public InputStream getOriginalData() throws IOException
+    {
+        ByteBuffer data = buffer.duplicate();
+        data.rewind();
+        return new ByteBufferInputStream(data);
+    }
+
+    @Override
+    public long getOriginalDataSize()
+    {
+        return limit;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        // nothing to close, the buffer is shared, a mapped buffer is released when it is
+        // garbage collected
+    }
+
+    /**
+     * An input stream reading the remaining bytes of a buffer, without copying them.
+     */
+    private static final class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer data;
+
+        ByteBufferInputStream(ByteBuffer data)
+        {
+            this.data = data;
+        }
+
+        @Override
+        public int read()
+        {
+            return data.hasRemaining() ? data.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            if (!data.hasRemaining())
+            {
+                return -1;
+            }
+            int count = Math.min(len, data.remaining());
+            data.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n)
+        {
+            int count = (int) Math.max(0, Math.min(n, data.remaining()));
+            data.position(data.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available()
+        {
+            return data.remaining();
+        }
+    }
+}
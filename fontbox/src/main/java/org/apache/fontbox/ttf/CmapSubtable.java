@@ -20,12 +20,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.fontbox.util.IntIntMap;
 
 /**
  * A "cmap" subtable.
@@ -43,8 +42,10 @@ public class CmapSubtable implements CmapLookup
     private int platformEncodingId;
     private long subTableOffset;
     private int[] glyphIdToCharacterCode;
-    private final Map<Integer, List<Integer>> glyphIdToCharacterCodeMultiple = new HashMap<>();
-    private Map<Integer, Integer> characterCodeToGlyphId = Collections.emptyMap();
+    // the sorted character codes of the glyphs with several codes, indexed by the glyph id,
+    // null if there are no such glyphs
+    private int[][] glyphIdToCharacterCodeMultiple;
+    private IntIntMap characterCodeToGlyphId = new IntIntMap(0);
 
     /**
      * This will read the required data from the stream.
@@ -140,7 +141,7 @@ public class CmapSubtable implements CmapLookup
         }
 
         glyphIdToCharacterCode = newGlyphIdToCharacterCode(numGlyphs);
-        characterCodeToGlyphId = new HashMap<>(numGlyphs);
+        characterCodeToGlyphId = new IntIntMap(numGlyphs);
         if (numGlyphs == 0)
         {
             LOG.warn("subtable has no glyphs");
@@ -240,7 +241,7 @@ public class CmapSubtable implements CmapLookup
         int maxGlyphId = 0;
         long nbGroups = data.readUnsignedInt();
         glyphIdToCharacterCode = newGlyphIdToCharacterCode(numGlyphs);
-        characterCodeToGlyphId = new HashMap<>(numGlyphs);
+        characterCodeToGlyphId = new IntIntMap(numGlyphs);
         if (numGlyphs == 0)
         {
             LOG.warn("subtable has no glyphs");
@@ -297,7 +298,7 @@ public class CmapSubtable implements CmapLookup
     {
         long nbGroups = data.readUnsignedInt();
         glyphIdToCharacterCode = newGlyphIdToCharacterCode(numGlyphs);
-        characterCodeToGlyphId = new HashMap<>(numGlyphs);
+        characterCodeToGlyphId = new IntIntMap(numGlyphs);
         if (numGlyphs == 0)
         {
             LOG.warn("subtable has no glyphs");
@@ -374,7 +375,7 @@ public class CmapSubtable implements CmapLookup
         {
             return;
         }
-        characterCodeToGlyphId = new HashMap<>(numGlyphs);
+        characterCodeToGlyphId = new IntIntMap(entryCount);
         int[] glyphIdArray = data.readUnsignedShortArray(entryCount);
         int maxGlyphId = 0;
         for (int i = 0; i < entryCount; i++)
@@ -406,7 +407,7 @@ public class CmapSubtable implements CmapLookup
         long idRangeOffsetPosition = data.getCurrentPosition();
         int[] idRangeOffset = data.readUnsignedShortArray(segCount);
 
-        characterCodeToGlyphId = new HashMap<>(numGlyphs);
+        characterCodeToGlyphId = new IntIntMap(numGlyphs);
         int maxGlyphId = 0;
 
         for (int i = 0; i < segCount; i++)
@@ -457,28 +458,53 @@ public class CmapSubtable implements CmapLookup
     private void buildGlyphIdToCharacterCodeLookup(int maxGlyphId)
     {
         glyphIdToCharacterCode = newGlyphIdToCharacterCode(maxGlyphId + 1);
+        int[] codeCounts = new int[maxGlyphId + 1];
         characterCodeToGlyphId.forEach((key, value) ->
         {
-            if (glyphIdToCharacterCode[value] == -1)
+            if (codeCounts[value]++ == 0)
             {
                 // add new value to the array
                 glyphIdToCharacterCode[value] = key;
             }
             else
             {
-                // there is already a mapping for the given glyphId
-                List<Integer> mappedValues = glyphIdToCharacterCodeMultiple.get(value);
-                if (mappedValues == null)
+                // there is already a mapping for the given glyphId, mark value as multiple mapping
+                glyphIdToCharacterCode[value] = Integer.MIN_VALUE;
+            }
+        });
+        int[][] multiple = null;
+        for (int gid = 0; gid <= maxGlyphId; gid++)
+        {
+            if (codeCounts[gid] > 1)
+            {
+                if (multiple == null)
                 {
-                    mappedValues = new ArrayList<>(2);
-                    glyphIdToCharacterCodeMultiple.put(value, mappedValues);
-                    mappedValues.add(glyphIdToCharacterCode[value]);
-                    // mark value as multiple mapping
-                    glyphIdToCharacterCode[value] = Integer.MIN_VALUE;
+                    multiple = new int[maxGlyphId + 1][];
                 }
-                mappedValues.add(key);
+                multiple[gid] = new int[codeCounts[gid]];
+                codeCounts[gid] = 0;
             }
-        });
+        }
+        if (multiple != null)
+        {
+            int[][] codes = multiple;
+            characterCodeToGlyphId.forEach((key, value) ->
+            {
+                if (codes[value] != null)
+                {
+                    codes[value][codeCounts[value]++] = key;
+                }
+            });
+            for (int[] gidCodes : codes)
+            {
+                if (gidCodes != null)
+                {
+                    // sort the codes to provide a reliable order
+                    Arrays.sort(gidCodes);
+                }
+            }
+        }
+        glyphIdToCharacterCodeMultiple = multiple;
     }
 
     /**
@@ -511,7 +537,7 @@ public class CmapSubtable implements CmapLookup
         }
         long startGlyphIndexOffset = data.getCurrentPosition();
         glyphIdToCharacterCode = newGlyphIdToCharacterCode(numGlyphs);
-        characterCodeToGlyphId = new HashMap<>(numGlyphs);
+        characterCodeToGlyphId = new IntIntMap(numGlyphs);
         if (numGlyphs == 0)
         {
             LOG.warn("subtable has no glyphs");
@@ -568,7 +594,7 @@ public class CmapSubtable implements CmapLookup
     {
         byte[] glyphMapping = data.read(256);
         glyphIdToCharacterCode = newGlyphIdToCharacterCode(256);
-        characterCodeToGlyphId = new HashMap<>(glyphMapping.length);
+        characterCodeToGlyphId = new IntIntMap(glyphMapping.length);
         for (int i = 0; i < glyphMapping.length; i++)
         {
             int glyphIndex = glyphMapping[i] & 0xFF;
@@ -629,8 +655,7 @@ public class CmapSubtable implements CmapLookup
     @Override
     public int getGlyphId(int characterCode)
     {
-        Integer glyphId = characterCodeToGlyphId.get(characterCode);
-        return glyphId == null ? 0 : glyphId;
+        return characterCodeToGlyphId.get(characterCode, 0);
     }
 
     private int getCharCode(int gid)
@@ -660,12 +685,15 @@ public class CmapSubtable implements CmapLookup
         List<Integer> codes = null;
         if (code == Integer.MIN_VALUE)
         {
-            List<Integer> mappedValues = glyphIdToCharacterCodeMultiple.get(gid);
+            int[] mappedValues = glyphIdToCharacterCodeMultiple != null ?
+                    glyphIdToCharacterCodeMultiple[gid] : null;
             if (mappedValues != null)
             {
-                codes = new ArrayList<>(mappedValues);
-                // sort the list to provide a reliable order
-                Collections.sort(codes);
+                codes = new ArrayList<>(mappedValues.length);
+                for (int mappedValue : mappedValues)
+                {
+                    codes.add(mappedValue);
+                }
             }
         }
         else
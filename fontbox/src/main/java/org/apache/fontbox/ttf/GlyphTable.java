@@ -17,8 +17,9 @@
 package org.apache.fontbox.ttf;
 
 import java.io.IOException;
-
-import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A table in a true type font.
@@ -35,23 +36,28 @@ public class GlyphTable extends TTFTable
     private GlyphData[] glyphs;
 
     // lazy table reading
-    private TTFDataStream data;
+    private ByteBuffer glyfData;
     private IndexToLocationTable loca;
     private int numGlyphs;
-    
-    private int cached = 0;
-    
+
+    // the recently used glyphs, guarded by itself
+    private final Map<Integer, GlyphData> cache = new LinkedHashMap<Integer, GlyphData>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, GlyphData> eldest)
+        {
+            return size() > MAX_CACHED_GLYPHS;
+        }
+    };
+
     private HorizontalMetricsTable hmt = null;
     
     /**
-     * Don't even bother to cache huge fonts.
+     * Don't cache more glyphs than this, fonts with fewer glyphs are cached completely.
      */
-    private static final int MAX_CACHE_SIZE = 5000;
-    
-    /**
-     * Don't cache more glyphs than this.
-     */
-    private static final int MAX_CACHED_GLYPHS = 100;
+    private static final int MAX_CACHED_GLYPHS = 512;
 
     GlyphTable()
     {
@@ -71,27 +77,26 @@ public class GlyphTable extends TTFTable
         loca = ttf.getIndexToLocation();
         numGlyphs = ttf.getNumberOfGlyphs();
 
-        if (numGlyphs < MAX_CACHE_SIZE)
-        {
-            // don't cache the huge fonts to save memory
-            glyphs = new GlyphData[numGlyphs];
-        }
-
         // we don't actually read the complete table here because it can contain tens of thousands of glyphs
-        // cache the relevant part of the font data so that the data stream can be closed if it is no longer needed
-        byte[] dataBytes = data.read((int) getLength());
-        this.data = new RandomAccessReadDataStream(new RandomAccessReadBuffer(dataBytes));
+        // keep a view of the relevant part of the font data so that the data stream can be closed
+        // if it is no longer needed, and so that glyphs can be read concurrently without locking
+        glyfData = data.createView((int) getLength());
 
         // PDFBOX-5460: read hmtx table early to avoid deadlock if getGlyph() locks "data"
         // and then locks TrueTypeFont to read this table, while another thread
-        // locks TrueTypeFont and then tries to lock "data"
+        // locks TrueTypeFont and then tries to lock "data". The glyphs are read without
+        // locking now, but the table is still needed for each glyph.
         hmt = ttf.getHorizontalMetrics();
 
         initialized = true;
     }
 
     /**
-     * @param glyphsValue The glyphs to set.
+     * Sets glyphs which {@link #getGlyph(int)} returns instead of reading them from the font, e.g.
+     * for a font that is built in memory. The glyphs which are null in the array are read from the
+     * font as usual. This isn't used when a font is parsed.
+     *
+     * @param glyphsValue The glyphs to set, indexed by GID, or null.
      */
     public void setGlyphs(GlyphData[] glyphsValue)
     {
@@ -99,7 +104,8 @@ public class GlyphTable extends TTFTable
     }
 
     /**
-     * Returns the data for the glyph with the given GID.
+     * Returns the data for the glyph with the given GID. This method can be called by several
+     * threads concurrently.
      *
      * @param gid GID
      * 
@@ -120,46 +126,56 @@ public class GlyphTable extends TTFTable
         }
 
         GlyphData glyph;
+        synchronized (cache)
+        {
+            glyph = cache.get(gid);
+        }
+        if (glyph != null)
+        {
+            return glyph;
+        }
 
-        // PDFBOX-4219: synchronize on data because it is accessed by several threads
-        // when PDFBox is accessing a standard 14 font for the first time
-        synchronized (data)
+        // read a single glyph
+        long[] offsets = loca.getOffsets();
+
+        if (offsets[gid] == offsets[gid + 1])
         {
-            // read a single glyph
-            long[] offsets = loca.getOffsets();
-
-            if (offsets[gid] == offsets[gid + 1])
-            {
-                // no outline
-                // PDFBOX-5135: can't return null, must return an empty glyph because
-                // sometimes this is used in a composite glyph.
-                glyph = new GlyphData();
-                glyph.initEmptyData();
-            }
-            else
-            {
-                // save
-                long currentPosition = data.getCurrentPosition();
-
-                data.seek(offsets[gid]);
-
-                glyph = getGlyphData(gid);
-
-                // restore
-                data.seek(currentPosition);
-            }
-
-            if (glyphs != null && glyphs[gid] == null && cached < MAX_CACHED_GLYPHS)
-            {
-                glyphs[gid] = glyph;
-                ++cached;
-            }
+            // no outline
+            // PDFBOX-5135: can't return null, must return an empty glyph because
+            // sometimes this is used in a composite glyph.
+            glyph = new GlyphData();
+            glyph.initEmptyData();
+        }
+        else
+        {
+            // each call reads with its own stream, so no synchronization is needed (PDFBOX-4219)
+            TTFDataStream data = new ByteBufferDataStream(glyfData);
+            data.seek(offsets[gid]);
+            glyph = getGlyphData(gid, data);
+        }
 
-            return glyph;
+        // the glyph is completely resolved and isn't modified anymore, so it can be shared;
+        // the lock isn't held while reading, because composite glyphs read their components
+        synchronized (cache)
+        {
+            cache.put(gid, glyph);
         }
+
+        return glyph;
+    }
+
+    /**
+     * Returns the read-only view of the glyf table, which is shared by all readers. It must only be
+     * read with absolute indexes or through a duplicate.
+     *
+     * @return the view, or null if the table wasn't read from a font
+     */
+    ByteBuffer getGlyfData()
+    {
+        return glyfData;
     }
 
-    private GlyphData getGlyphData(int gid) throws IOException
+    private GlyphData getGlyphData(int gid, TTFDataStream data) throws IOException
     {
         GlyphData glyph = new GlyphData();
         int leftSideBearing = hmt == null ? 0 : hmt.getLeftSideBearing(gid);
@@ -18,6 +18,7 @@
 package org.apache.fontbox.ttf;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.pdfbox.io.RandomAccessRead;
 
@@ -50,6 +51,12 @@ public final class OTFParser extends TTFParser
         return (OpenTypeFont) super.parse(randomAccessRead);
     }
 
+    @Override
+    public OpenTypeFont parse(ByteBuffer buffer) throws IOException
+    {
+        return (OpenTypeFont) super.parse(buffer);
+    }
+
     @Override
     OpenTypeFont parse(TTFDataStream raf) throws IOException
     {
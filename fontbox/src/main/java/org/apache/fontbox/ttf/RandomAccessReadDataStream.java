@@ -19,6 +19,7 @@ package org.apache.fontbox.ttf;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.io.RandomAccessRead;
@@ -157,6 +158,23 @@ class RandomAccessReadDataStream extends TTFDataStream
         return randomAccessRead.read(b, off, len);
     }
     
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The view shares the data of this stream, which is completely in memory.
+     */
+    @Override
+    ByteBuffer createView(int length) throws IOException
+    {
+        long position = getCurrentPosition();
+        if (length < 0 || position + length > data.length)
+        {
+            throw new IOException("Unexpected end of TTF stream reached");
+        }
+        seek(position + length);
+        return ByteBuffer.wrap(data, (int) position, length).slice().asReadOnlyBuffer();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -19,6 +19,7 @@ package org.apache.fontbox.ttf;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A wrapper for a TTF stream inside a TTC file, does not close the underlying shared stream.
@@ -71,6 +72,12 @@ class TTCDataStream extends TTFDataStream
         return stream.getCurrentPosition();
     }
 
+    @Override
+    ByteBuffer createView(int length) throws IOException
+    {
+        return stream.createView(length);
+    }
+
     @Override
     public InputStream getOriginalData() throws IOException
     {
@@ -20,6 +20,7 @@ import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
@@ -262,6 +263,22 @@ abstract class TTFDataStream implements Closeable
         }
     }
 
+    /**
+     * Returns a read-only view of the given number of bytes from the current position on and moves
+     * the position behind them. The view doesn't depend on the position of this stream and stays
+     * valid when this stream is closed, so it can be read concurrently and lazily, see
+     * {@link ByteBufferDataStream}. This implementation copies the bytes; streams that have the font
+     * data in memory return a view of it instead.
+     *
+     * @param length the number of bytes.
+     * @return a buffer with the bytes from index 0 to its limit.
+     * @throws IOException If there is an error while reading.
+     */
+    ByteBuffer createView(int length) throws IOException
+    {
+        return ByteBuffer.wrap(read(length)).asReadOnlyBuffer();
+    }
+
     /**
      * @see java.io.InputStream#read(byte[], int, int )
      * 
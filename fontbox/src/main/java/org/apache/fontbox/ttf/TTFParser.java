@@ -18,6 +18,7 @@ package org.apache.fontbox.ttf;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.io.RandomAccessRead;
@@ -77,6 +78,20 @@ public class TTFParser
         }
     }
 
+    /**
+     * Parse a buffer and return a TrueType font. The font reads the buffer from its current position
+     * to its limit without copying it, e.g. the glyphs are read directly from a memory-mapped file.
+     * The content of the buffer must not be changed while the font is in use.
+     *
+     * @param buffer The buffer to be read from, its position isn't changed.
+     * @return A TrueType font.
+     * @throws IOException If there is an error parsing the TrueType font.
+     */
+    public TrueTypeFont parse(ByteBuffer buffer) throws IOException
+    {
+        return parse(new ByteBufferDataStream(buffer.slice().asReadOnlyBuffer()));
+    }
+
     /**
      * Parse an input stream and return a TrueType font that is to be embedded.
      *
@@ -16,29 +16,25 @@
  */
 package org.apache.fontbox.ttf;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.SortedSet;
 import java.util.TimeZone;
 import java.util.TreeMap;
-import java.util.TreeSet;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.fontbox.util.IntIntMap;
 
 /**
  * Subsetter for TrueType (TTF) fonts.
@@ -46,20 +42,24 @@ import org.apache.commons.logging.LogFactory;
  * <p>Originally developed by Wolfgang Glas for
  * <a href="https://clazzes.org/display/SKETCH/Clazzes.org+Sketch+Home">Sketch</a>.
  *
+ * <p>The data which is copied from the font, e.g. the glyphs and the components of the composite
+ * glyphs, is read only once per font and shared by all subsetters of the font, so creating many
+ * subsets of a big font is cheap.
+ *
  * @author Wolfgang Glas
  */
 public final class TTFSubsetter
 {
     private static final Log LOG = LogFactory.getLog(TTFSubsetter.class);
-    
-    private static final byte[] PAD_BUF = new byte[] { 0, 0, 0 };
 
     private final TrueTypeFont ttf;
     private final CmapLookup unicodeCmap;
-    private final SortedMap<Integer, Integer> uniToGID;
+    // the character codes of the subset, and their GIDs
+    private final BitSet unicodes = new BitSet();
+    private final IntIntMap uniToGID = new IntIntMap();
 
     private final List<String> keepTables;
-    private final SortedSet<Integer> glyphIds; // new glyph ids
+    private final BitSet glyphIds = new BitSet(); // old glyph ids
     private String prefix;
     private boolean hasAddedCompoundReferences;
 
@@ -67,7 +67,7 @@ public final class TTFSubsetter
      * Creates a subsetter for the given font.
      *
      * @param ttf the font to be subset
-     * 
+     *
      * @throws IOException if there is an error reading the font data
      */
     public TTFSubsetter(TrueTypeFont ttf) throws IOException
@@ -77,10 +77,10 @@ public final class TTFSubsetter
 
     /**
      * Creates a subsetter for the given font.
-     * 
+     *
      * @param ttf the font to be subset
      * @param tables optional tables to keep if present
-     * 
+     *
      * @throws IOException if there is an error reading the font data
      */
     public TTFSubsetter(TrueTypeFont ttf, List<String> tables) throws IOException
@@ -88,14 +88,11 @@ public final class TTFSubsetter
         this.ttf = ttf;
         this.keepTables = tables;
 
-        uniToGID = new TreeMap<>();
-        glyphIds = new TreeSet<>();
-
         // find the best Unicode cmap
         this.unicodeCmap = ttf.getUnicodeCmapLookup();
 
         // always copy GID 0
-        glyphIds.add(0);
+        glyphIds.set(0);
     }
 
     /**
@@ -107,10 +104,10 @@ public final class TTFSubsetter
     {
         this.prefix = prefix;
     }
-    
+
     /**
      * Add the given character code to the subset.
-     * 
+     *
      * @param unicode character code
      */
     public void add(int unicode)
@@ -118,8 +115,9 @@ public final class TTFSubsetter
         int gid = unicodeCmap.getGlyphId(unicode);
         if (gid != 0)
         {
+            unicodes.set(unicode);
             uniToGID.put(unicode, gid);
-            glyphIds.add(gid);
+            addGlyphId(gid);
         }
     }
 
@@ -133,11 +131,20 @@ public final class TTFSubsetter
         unicodeSet.forEach(this::add);
     }
 
+    private void addGlyphId(int gid)
+    {
+        if (!glyphIds.get(gid))
+        {
+            glyphIds.set(gid);
+            hasAddedCompoundReferences = false;
+        }
+    }
+
     /**
      * Returns the map of new -&gt; old GIDs.
-     * 
+     *
      * @return the GID map
-     * 
+     *
      * @throws IOException if the font data could not be read
      */
     public Map<Integer, Integer> getGIDMap() throws IOException
@@ -146,7 +153,7 @@ public final class TTFSubsetter
 
         Map<Integer, Integer> newToOld = new HashMap<>();
         int newGID = 0;
-        for (int oldGID : glyphIds)
+        for (int oldGID = glyphIds.nextSetBit(0); oldGID >= 0; oldGID = glyphIds.nextSetBit(oldGID + 1))
         {
             newToOld.put(newGID, oldGID);
             newGID++;
@@ -155,67 +162,42 @@ public final class TTFSubsetter
     }
 
     /**
-     * @param out The data output stream.
+     * @param out The buffer of the font.
      * @param nTables The number of table.
-     * @return The file offset of the first TTF table to write.
-     * @throws IOException Upon errors.
      */
-    private long writeFileHeader(DataOutputStream out, int nTables) throws IOException
+    private void writeFileHeader(FontBuffer out, int nTables)
     {
         out.writeInt(0x00010000);
         out.writeShort(nTables);
-        
+
         int mask = Integer.highestOneBit(nTables);
         int searchRange = mask * 16;
         out.writeShort(searchRange);
-        
+
         int entrySelector = log2(mask);
-    
+
         out.writeShort(entrySelector);
-        
+
         // numTables * 16 - searchRange
         int last = 16 * nTables - searchRange;
         out.writeShort(last);
-        
-        return 0x00010000L + toUInt32(nTables, searchRange) + toUInt32(entrySelector, last);
     }
-        
-    private long writeTableHeader(DataOutputStream out, String tag, long offset, byte[] bytes)
-            throws IOException 
+
+    private void writeTableHeader(FontBuffer out, int entry, String tag, int offset, int length)
     {
-        long checksum = 0;
-        for (int nup = 0, n = bytes.length; nup < n; nup++)
-        {
-            checksum += (bytes[nup] & 0xffL) << 24 - nup % 4 * 8;
-        }
-        checksum &= 0xffffffffL;
+        // the table is padded with zeros, which don't change the checksum
+        long checksum = out.checksum(offset, offset + (length + 3) / 4 * 4);
 
         byte[] tagbytes = tag.getBytes(StandardCharsets.US_ASCII);
 
-        out.write(tagbytes, 0, 4);
-        out.writeInt((int)checksum);
-        out.writeInt((int)offset);
-        out.writeInt(bytes.length);
-
-        // account for the checksum twice, once for the header field, once for the content itself
-        return toUInt32(tagbytes) + checksum + checksum + offset + bytes.length;
+        out.setInt(entry, (int) toUInt32(tagbytes));
+        out.setInt(entry + 4, (int) checksum);
+        out.setInt(entry + 8, offset);
+        out.setInt(entry + 12, length);
     }
 
-    private void writeTableBody(OutputStream os, byte[] bytes) throws IOException
+    private void writeHeadTable(FontBuffer out) throws IOException
     {
-        int n = bytes.length;
-        os.write(bytes);
-        if (n % 4 != 0)
-        {
-            os.write(PAD_BUF, 0, 4 - n % 4);
-        }
-    }
-
-    private byte[] buildHeadTable() throws IOException
-    {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bos);
-
         HeaderTable h = ttf.getHeader();
         writeFixed(out, h.getVersion());
         writeFixed(out, h.getFontRevision());
@@ -235,16 +217,10 @@ public final class TTFSubsetter
         // force long format of 'loca' table
         writeSInt16(out, (short)1); // h.getIndexToLocFormat()
         writeSInt16(out, h.getGlyphDataFormat());
-        out.flush();
-
-        return bos.toByteArray();
     }
 
-    private byte[] buildHheaTable() throws IOException
+    private void writeHheaTable(FontBuffer out) throws IOException
     {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bos);
-
         HorizontalHeaderTable h = ttf.getHorizontalHeader();
         writeFixed(out, h.getVersion());
         writeSInt16(out, h.getAscender());
@@ -264,16 +240,15 @@ public final class TTFSubsetter
         writeSInt16(out, h.getMetricDataFormat());
 
         // is there a GID >= numberOfHMetrics ? Then keep the last entry of original hmtx table,
-        // (add if it isn't in our set of GIDs), see also in buildHmtxTable()
-        int hmetrics = glyphIds.subSet(0, h.getNumberOfHMetrics()).size();
-        if (glyphIds.last() >= h.getNumberOfHMetrics() && !glyphIds.contains(h.getNumberOfHMetrics()-1))
+        // (add if it isn't in our set of GIDs), see also in writeHmtxTable()
+        int numberOfHMetrics = h.getNumberOfHMetrics();
+        int hmetrics = glyphIds.get(0, numberOfHMetrics).cardinality();
+        if (glyphIds.length() - 1 >= numberOfHMetrics
+                && (numberOfHMetrics == 0 || !glyphIds.get(numberOfHMetrics - 1)))
         {
             ++hmetrics;
         }
         writeUint16(out, hmetrics);
-
-        out.flush();
-        return bos.toByteArray();
     }
 
     private boolean shouldCopyNameRecord(NameRecord nr)
@@ -284,28 +259,26 @@ public final class TTFSubsetter
                 && nr.getNameId() >= 0 && nr.getNameId() < 7;
     }
 
-    private byte[] buildNameTable() throws IOException
+    private boolean shouldKeepTable(String tag)
     {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bos);
+        return keepTables == null || keepTables.contains(tag);
+    }
 
+    private boolean hasNameTable() throws IOException
+    {
         NamingTable name = ttf.getNaming();
-        if (name == null || keepTables != null && !keepTables.contains(NamingTable.TAG))
-        {
-            return null;
-        }
+        return name != null && shouldKeepTable(NamingTable.TAG)
+                && name.getNameRecords().stream().anyMatch(this::shouldCopyNameRecord);
+    }
 
-        List<NameRecord> nameRecords = name.getNameRecords();
+    private void writeNameTable(FontBuffer out) throws IOException
+    {
+        List<NameRecord> nameRecords = ttf.getNaming().getNameRecords();
         int numRecords = (int) nameRecords.stream().filter(this::shouldCopyNameRecord).count();
         writeUint16(out, 0);
         writeUint16(out, numRecords);
         writeUint16(out, 2*3 + 2*6 * numRecords);
 
-        if (numRecords == 0)
-        {
-            return null;
-        }
-
         byte[][] names = new byte[numRecords][];
         int j = 0;
         for (NameRecord nameRecord : nameRecords)
@@ -364,19 +337,13 @@ public final class TTFSubsetter
         {
             out.write(names[i]);
         }
-
-        out.flush();
-        return bos.toByteArray();
     }
 
-    private byte[] buildMaxpTable() throws IOException
+    private void writeMaxpTable(FontBuffer out, int numGlyphs) throws IOException
     {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bos);
-
         MaximumProfileTable p = ttf.getMaximumProfile();
         writeFixed(out, 1.0);
-        writeUint16(out, glyphIds.size());
+        writeUint16(out, numGlyphs);
         writeUint16(out, p.getMaxPoints());
         writeUint16(out, p.getMaxContours());
         writeUint16(out, p.getMaxCompositePoints());
@@ -390,22 +357,11 @@ public final class TTFSubsetter
         writeUint16(out, p.getMaxSizeOfInstructions());
         writeUint16(out, p.getMaxComponentElements());
         writeUint16(out, p.getMaxComponentDepth());
-
-        out.flush();
-        return bos.toByteArray();
     }
 
-    private byte[] buildOS2Table() throws IOException
+    private void writeOS2Table(FontBuffer out) throws IOException
     {
         OS2WindowsMetricsTable os2 = ttf.getOS2Windows();
-        if (os2 == null || uniToGID.isEmpty()
-                || keepTables != null && !keepTables.contains(OS2WindowsMetricsTable.TAG))
-        {
-            return null;
-        }
-
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bos);
 
         writeUint16(out, os2.getVersion());
         writeSInt16(out, os2.getAverageCharWidth());
@@ -437,31 +393,21 @@ public final class TTFSubsetter
         out.write(os2.getAchVendId().getBytes(StandardCharsets.US_ASCII));
 
         writeUint16(out, os2.getFsSelection());
-        writeUint16(out, uniToGID.firstKey());
-        writeUint16(out, uniToGID.lastKey());
+        writeUint16(out, unicodes.nextSetBit(0));
+        writeUint16(out, unicodes.length() - 1);
         writeUint16(out, os2.getTypoAscender());
         writeUint16(out, os2.getTypoDescender());
         writeUint16(out, os2.getTypoLineGap());
         writeUint16(out, os2.getWinAscent());
         writeUint16(out, os2.getWinDescent());
-
-        out.flush();
-        return bos.toByteArray();
     }
 
-    // never returns null
-    private byte[] buildLocaTable(long[] newOffsets) throws IOException
+    private void writeLocaTable(FontBuffer out, long[] newOffsets)
     {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bos);
-
         for (long offset : newOffsets)
         {
             writeUint32(out, offset);
         }
-
-        out.flush();
-        return bos.toByteArray();
     }
 
     /**
@@ -475,248 +421,88 @@ public final class TTFSubsetter
         }
         hasAddedCompoundReferences = true;
 
-        boolean hasNested;
-        GlyphTable g = ttf.getGlyph();
-        long[] offsets = ttf.getIndexToLocation().getOffsets();
-        do
-        {
-            Set<Integer> glyphIdsToAdd = null;
-            try (InputStream is = ttf.getOriginalData())
-            {
-                long isResult = is.skip(g.getOffset());
-
-                if (Long.compare(isResult, g.getOffset()) != 0)
-                {
-                    LOG.debug("Tried skipping " + g.getOffset() + " bytes but skipped only " + isResult + " bytes");
-                }
-
-                long lastOff = 0L;
-                for (Integer glyphId : glyphIds)
-                {
-                    long offset = offsets[glyphId];
-                    long len = offsets[glyphId + 1] - offset;
-                    isResult = is.skip(offset - lastOff);
-                    
-                    if (Long.compare(isResult, offset - lastOff) != 0)
-                    {
-                        LOG.debug("Tried skipping " + (offset - lastOff) + " bytes but skipped only " + isResult + " bytes");
-                    }
-
-                    byte[] buf = new byte[(int)len];
-                    isResult = is.read(buf);
-
-                    if (Long.compare(isResult, len) != 0)
-                    {
-                        LOG.debug("Tried reading " + len + " bytes but only " + isResult + " bytes read");
-                    }
-                    
-                    // rewrite glyphIds for compound glyphs
-                    if (buf.length >= 2 && buf[0] == -1 && buf[1] == -1)
-                    {
-                        int off = 2*5;
-                        int flags;
-                        do
-                        {
-                            flags = (buf[off] & 0xff) << 8 | buf[off + 1] & 0xff;
-                            off +=2;
-                            int ogid = (buf[off] & 0xff) << 8 | buf[off + 1] & 0xff;
-                            if (!glyphIds.contains(ogid))
-                            {
-                                if (glyphIdsToAdd == null)
-                                {
-                                    glyphIdsToAdd = new TreeSet<>();
-                                }
-                                glyphIdsToAdd.add(ogid);
-                            }
-                            off += 2;
-                            // ARG_1_AND_2_ARE_WORDS
-                            if ((flags & 1 << 0) != 0)
-                            {
-                                off += 2 * 2;
-                            }
-                            else
-                            {
-                                off += 2;
-                            }
-                            // WE_HAVE_A_TWO_BY_TWO
-                            if ((flags & 1 << 7) != 0)
-                            {
-                                off += 2 * 4;
-                            }
-                            // WE_HAVE_AN_X_AND_Y_SCALE
-                            else if ((flags & 1 << 6) != 0)
-                            {
-                                off += 2 * 2;
-                            }
-                            // WE_HAVE_A_SCALE
-                            else if ((flags & 1 << 3) != 0)
-                            {
-                                off += 2;
-                            }
-                        }
-                        while ((flags & 1 << 5) != 0); // MORE_COMPONENTS
+        ttf.getSubsetterSource().addComponents(glyphIds);
+    }
 
-                    }
-                    lastOff = offsets[glyphId + 1];
-                }
-            }
-            hasNested = glyphIdsToAdd != null;
-            if (hasNested)
-            {
-                glyphIds.addAll(glyphIdsToAdd);
-            }
+    /**
+     * Returns the new GID of each old GID of the subset, which is its index in the ordered subset.
+     */
+    private int[] getNewGlyphIds()
+    {
+        int[] newGIDs = new int[glyphIds.length()];
+        int newGID = 0;
+        for (int gid = glyphIds.nextSetBit(0); gid >= 0; gid = glyphIds.nextSetBit(gid + 1))
+        {
+            newGIDs[gid] = newGID++;
         }
-        while (hasNested);
+        return newGIDs;
     }
 
-    // never returns null
-    private byte[] buildGlyfTable(long[] newOffsets) throws IOException
+    private void writeGlyfTable(FontBuffer out, TTFSubsetterSource source, int[] newGIDs,
+            long[] newOffsets) throws IOException
     {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ByteBuffer glyf = source.createGlyfView();
+        int start = out.size();
+        int newGid = 0;      // new GID in subset font
 
-        GlyphTable g = ttf.getGlyph();
-        long[] offsets = ttf.getIndexToLocation().getOffsets();
-        try (InputStream is = ttf.getOriginalData())
+        // for each glyph in the subset
+        for (int gid = glyphIds.nextSetBit(0); gid >= 0; gid = glyphIds.nextSetBit(gid + 1))
         {
-            long isResult = is.skip(g.getOffset());
-
-            if (Long.compare(isResult, g.getOffset()) != 0)
-            {
-                LOG.debug("Tried skipping " + g.getOffset() + " bytes but skipped only " + isResult + " bytes");
-            }
+            // new offset for the glyph in the subset font
+            newOffsets[newGid++] = out.size() - start;
 
-            long prevEnd = 0;    // previously read glyph offset
-            long newOffset = 0;  // new offset for the glyph in the subset font
-            int newGid = 0;      // new GID in subset font
+            int length = source.getGlyphLength(gid);
+            int offset = out.skip(length);
+            byte[] buf = out.array();
+            source.copyGlyph(glyf, gid, buf, offset);
+            int end = offset + length;
 
-            // for each glyph in the subset
-            for (Integer gid : glyphIds)
+            // detect glyph type
+            if (length >= 2 && buf[offset] == -1 && buf[offset + 1] == -1)
             {
-                long offset = offsets[gid];
-                long length = offsets[gid + 1] - offset;
-
-                newOffsets[newGid++] = newOffset;
-                isResult = is.skip(offset - prevEnd);
-
-                if (Long.compare(isResult, offset - prevEnd) != 0)
-                {
-                    LOG.debug("Tried skipping " + (offset - prevEnd) + " bytes but skipped only " + isResult + " bytes");
-                }
-
-                byte[] buf = new byte[(int)length];
-                isResult = is.read(buf);
-
-                if (Long.compare(isResult, length) != 0)
-                {
-                    LOG.debug("Tried reading " + length + " bytes but only " + isResult + " bytes read");
-                }
-
-                // detect glyph type
-                if (buf.length >= 2 && buf[0] == -1 && buf[1] == -1)
+                // compound glyph
+                int off = offset + 2*5;
+                int flags;
+                do
                 {
-                    // compound glyph
-                    int off = 2*5;
-                    int flags;
-                    do
-                    {
-                        // flags
-                        flags = (buf[off] & 0xff) << 8 | buf[off + 1] & 0xff;
-                        off += 2;
-
-                        // glyphIndex
-                        int componentGid = (buf[off] & 0xff) << 8 | buf[off + 1] & 0xff;
-                        glyphIds.add(componentGid);
-
-                        int newComponentGid = getNewGlyphId(componentGid);
-                        buf[off]   = (byte)(newComponentGid >>> 8);
-                        buf[off + 1] = (byte)newComponentGid;
-                        off += 2;
-
-                        // ARG_1_AND_2_ARE_WORDS
-                        if ((flags & 1 << 0) != 0)
-                        {
-                            off += 2 * 2;
-                        }
-                        else
-                        {
-                            off += 2;
-                        }
-                        // WE_HAVE_A_TWO_BY_TWO
-                        if ((flags & 1 << 7) != 0)
-                        {
-                            off += 2 * 4;
-                        }
-                        // WE_HAVE_AN_X_AND_Y_SCALE
-                        else if ((flags & 1 << 6) != 0)
-                        {
-                            off += 2 * 2;
-                        }
-                        // WE_HAVE_A_SCALE
-                        else if ((flags & 1 << 3) != 0)
-                        {
-                            off += 2;
-                        }
-                    }
-                    while ((flags & 1 << 5) != 0); // MORE_COMPONENTS
-
-                    // WE_HAVE_INSTRUCTIONS
-                    if ((flags & 0x0100) == 0x0100)
+                    if (off + 4 > end)
                     {
-                        // USHORT numInstr
-                        int numInstr = (buf[off] & 0xff) << 8 | buf[off + 1] & 0xff;
-                        off += 2;
-
-                        // BYTE instr[numInstr]
-                        off += numInstr;
+                        throw new IOException("Composite glyph " + gid + " is truncated");
                     }
+                    // flags
+                    flags = readUint16(buf, off);
 
-                    // write the compound glyph
-                    bos.write(buf, 0, off);
+                    // glyphIndex
+                    int newComponentGid = newGIDs[readUint16(buf, off + 2)];
+                    buf[off + 2] = (byte)(newComponentGid >>> 8);
+                    buf[off + 3] = (byte)newComponentGid;
 
-                    // offset to start next glyph
-                    newOffset += off;
+                    off += TTFSubsetterSource.getComponentLength(flags);
                 }
-                else if (buf.length > 0)
-                {
-                    // copy the entire glyph
-                    bos.write(buf, 0, buf.length);
+                while ((flags & TTFSubsetterSource.MORE_COMPONENTS) != 0);
 
-                    // offset to start next glyph
-                    newOffset += buf.length;
+                if ((flags & TTFSubsetterSource.WE_HAVE_INSTRUCTIONS) != 0)
+                {
+                    // USHORT numInstr, BYTE instr[numInstr]
+                    off += off + 2 <= end ? 2 + readUint16(buf, off) : 2;
                 }
-
-                // 4-byte alignment
-                if (newOffset % 4 != 0)
+                if (off > end)
                 {
-                    int len = 4 - (int)(newOffset % 4);
-                    bos.write(PAD_BUF, 0, len);
-                    newOffset += len;
+                    throw new IOException("Composite glyph " + gid + " is truncated");
                 }
 
-                prevEnd = offset + length;
+                // drop anything after the instructions
+                out.truncate(off);
             }
-            newOffsets[newGid++] = newOffset;
-        }
 
-        return bos.toByteArray();
-    }
-
-    private int getNewGlyphId(Integer oldGid)
-    {
-        return glyphIds.headSet(oldGid).size();
+            // 4-byte alignment
+            out.pad();
+        }
+        newOffsets[newGid] = out.size() - start;
     }
 
-    private byte[] buildCmapTable() throws IOException
+    private void writeCmapTable(FontBuffer out, int[] newGIDs)
     {
-        if (ttf.getCmap() == null || uniToGID.isEmpty()
-                || keepTables != null && !keepTables.contains(CmapTable.TAG))
-        {
-            return null;
-        }
-
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bos);
-
         // cmap header
         writeUint16(out, 0); // version
         writeUint16(out, 1); // numberSubtables
@@ -727,57 +513,56 @@ public final class TTFSubsetter
         writeUint32(out, 12); // offset 4 * 2 + 4
 
         // build Format 4 subtable (Unicode BMP)
-        Iterator<Entry<Integer, Integer>> it = uniToGID.entrySet().iterator();
-        Entry<Integer, Integer> lastChar = it.next();
-        Entry<Integer, Integer> prevChar = lastChar;
-        int lastGid = getNewGlyphId(lastChar.getValue());
+        int lastChar = unicodes.nextSetBit(0);
+        int prevChar = lastChar;
+        int lastGid = newGIDs[uniToGID.get(lastChar, 0)];
 
         // +1 because .notdef is missing in uniToGID
         int[] startCode = new int[uniToGID.size()+1];
         int[] endCode = new int[startCode.length];
         int[] idDelta = new int[startCode.length];
         int segCount = 0;
-        while(it.hasNext())
+        for (int curChar = unicodes.nextSetBit(lastChar + 1); curChar >= 0;
+                curChar = unicodes.nextSetBit(curChar + 1))
         {
-            Entry<Integer, Integer> curChar2Gid = it.next();
-            int curGid = getNewGlyphId(curChar2Gid.getValue());
+            int curGid = newGIDs[uniToGID.get(curChar, 0)];
 
             // todo: need format Format 12 for non-BMP
-            if (curChar2Gid.getKey() > 0xFFFF)
+            if (curChar > 0xFFFF)
             {
                 throw new UnsupportedOperationException("non-BMP Unicode character");
             }
 
-            if (curChar2Gid.getKey() != prevChar.getKey()+1 ||
-                curGid - lastGid != curChar2Gid.getKey() - lastChar.getKey())
+            if (curChar != prevChar+1 ||
+                curGid - lastGid != curChar - lastChar)
             {
                 if (lastGid != 0)
                 {
                     // don't emit ranges, which map to GID 0, the
                     // undef glyph is emitted a the very last segment
-                    startCode[segCount] = lastChar.getKey();
-                    endCode[segCount] = prevChar.getKey();
-                    idDelta[segCount] = lastGid - lastChar.getKey();
+                    startCode[segCount] = lastChar;
+                    endCode[segCount] = prevChar;
+                    idDelta[segCount] = lastGid - lastChar;
                     segCount++;
                 }
-                else if (!lastChar.getKey().equals(prevChar.getKey()))
+                else if (lastChar != prevChar)
                 {
                     // shorten ranges which start with GID 0 by one
-                    startCode[segCount] = lastChar.getKey() + 1;
-                    endCode[segCount] = prevChar.getKey();
-                    idDelta[segCount] = lastGid - lastChar.getKey();
+                    startCode[segCount] = lastChar + 1;
+                    endCode[segCount] = prevChar;
+                    idDelta[segCount] = lastGid - lastChar;
                     segCount++;
                 }
                 lastGid = curGid;
-                lastChar = curChar2Gid;
+                lastChar = curChar;
             }
-            prevChar = curChar2Gid;
+            prevChar = curChar;
         }
 
         // trailing segment
-        startCode[segCount] = lastChar.getKey();
-        endCode[segCount] = prevChar.getKey();
-        idDelta[segCount] = lastGid -lastChar.getKey();
+        startCode[segCount] = lastChar;
+        endCode[segCount] = prevChar;
+        idDelta[segCount] = lastGid -lastChar;
         segCount++;
 
         // GID 0
@@ -821,20 +606,11 @@ public final class TTFSubsetter
         {
             writeUint16(out, 0);
         }
-
-        return bos.toByteArray();
     }
 
-    private byte[] buildPostTable() throws IOException
+    private void writePostTable(FontBuffer out, int numGlyphs) throws IOException
     {
         PostScriptTable post = ttf.getPostScript();
-        if (post == null || keepTables != null && !keepTables.contains(PostScriptTable.TAG))
-        {
-            return null;
-        }
-
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bos);
 
         writeFixed(out, 2.0); // version
         writeFixed(out, post.getItalicAngle());
@@ -849,11 +625,11 @@ public final class TTFSubsetter
         // version 2.0
 
         // numberOfGlyphs
-        writeUint16(out, glyphIds.size());
+        writeUint16(out, numGlyphs);
 
         // glyphNameIndex[numGlyphs]
         Map<String, Integer> names = new LinkedHashMap<>();
-        for (int gid : glyphIds)
+        for (int gid = glyphIds.nextSetBit(0); gid >= 0; gid = glyphIds.nextSetBit(gid + 1))
         {
             String name = post.getName(gid);
             Integer macId = WGL4Names.getGlyphIndex(name);
@@ -877,87 +653,52 @@ public final class TTFSubsetter
             writeUint8(out, buf.length);
             out.write(buf);
         }
-
-        out.flush();
-        return bos.toByteArray();
     }
 
-    private byte[] buildHmtxTable() throws IOException
+    private void writeHmtxTable(FontBuffer out, byte[] hmtx) throws IOException
     {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-
         HorizontalHeaderTable h = ttf.getHorizontalHeader();
-        HorizontalMetricsTable hm = ttf.getHorizontalMetrics();
-        InputStream is = ttf.getOriginalData();
-        
+
         // more info: https://developer.apple.com/fonts/TrueType-Reference-Manual/RM06/Chap6hmtx.html
-        int lastgid = h.getNumberOfHMetrics() - 1;
+        int numberOfHMetrics = h.getNumberOfHMetrics();
+        int lastgid = numberOfHMetrics - 1;
         // true if lastgid is not in the set: we'll need its width (but not its left side bearing) later
-        boolean needLastGidWidth = glyphIds.last() > lastgid && !glyphIds.contains(lastgid);
+        boolean needLastGidWidth = glyphIds.length() - 1 > lastgid
+                && (lastgid < 0 || !glyphIds.get(lastgid));
 
-        try
+        for (int glyphId = glyphIds.nextSetBit(0); glyphId >= 0;
+                glyphId = glyphIds.nextSetBit(glyphId + 1))
         {
-            long isResult = is.skip(hm.getOffset());
-
-            if (Long.compare(isResult, hm.getOffset()) != 0)
+            if (glyphId <= lastgid)
             {
-                LOG.debug("Tried skipping " + hm.getOffset() + " bytes but only " + isResult + " bytes skipped");
+                // copy width and lsb
+                copyBytes(hmtx, out, glyphId * 4, 4);
             }
-
-            long lastOffset = 0;
-            for (Integer glyphId : glyphIds)
+            else
             {
-                // offset in original file
-                long offset;
-                if (glyphId <= lastgid)
-                {
-                    // copy width and lsb
-                    offset = glyphId * 4l;
-                    lastOffset = copyBytes(is, bos, offset, lastOffset, 4);
-                }
-                else 
+                if (needLastGidWidth)
                 {
-                    if (needLastGidWidth)
-                    {
-                        // one time only: copy width from lastgid, whose width applies
-                        // to all later glyphs
-                        needLastGidWidth = false;
-                        offset = lastgid * 4l;
-                        lastOffset = copyBytes(is, bos, offset, lastOffset, 2);
-
-                        // then go on with lsb from actual glyph (lsb are individual even in monotype fonts)
-                    }
+                    // one time only: copy width from lastgid, whose width applies
+                    // to all later glyphs
+                    needLastGidWidth = false;
+                    copyBytes(hmtx, out, lastgid * 4, 2);
 
-                    // copy lsb only, as we are beyond numOfHMetrics
-                    offset = h.getNumberOfHMetrics() * 4l + (glyphId - h.getNumberOfHMetrics()) * 2l;
-                    lastOffset = copyBytes(is, bos, offset, lastOffset, 2);
+                    // then go on with lsb from actual glyph (lsb are individual even in monotype fonts)
                 }
-            }
 
-            return bos.toByteArray();
-        }
-        finally
-        {
-            is.close();
+                // copy lsb only, as we are beyond numOfHMetrics
+                copyBytes(hmtx, out, numberOfHMetrics * 4 + (glyphId - numberOfHMetrics) * 2, 2);
+            }
         }
     }
 
-    private long copyBytes(InputStream is, OutputStream os, long newOffset, long lastOffset, int count)
-            throws IOException
+    private void copyBytes(byte[] hmtx, FontBuffer out, int offset, int count) throws EOFException
     {
-        // skip over from last original offset
-        long nskip = newOffset - lastOffset;
-        if (nskip != is.skip(nskip))
+        if (offset < 0 || offset + count > hmtx.length)
         {
             throw new EOFException("Unexpected EOF exception parsing glyphId of hmtx table.");
         }
-        byte[] buf = new byte[count];
-        if (count != is.read(buf, 0, count))
-        {
-            throw new EOFException("Unexpected EOF exception parsing glyphId of hmtx table.");
-        }
-        os.write(buf, 0, count);
-        return newOffset + count; 
+        out.write(hmtx, offset, count);
     }
 
     /**
@@ -969,89 +710,124 @@ public final class TTFSubsetter
      */
     public void writeToStream(OutputStream os) throws IOException
     {
-        if (glyphIds.isEmpty() && uniToGID.isEmpty())
+        if (glyphIds.isEmpty() && unicodes.isEmpty())
         {
             LOG.info("font subset is empty");
         }
-        
+
         addCompoundReferences();
 
-        try (DataOutputStream out = new DataOutputStream(os))
+        try (OutputStream out = os)
         {
-            long[] newLoca = new long[glyphIds.size() + 1];
-
-            // generate tables in dependency order
-            byte[] head = buildHeadTable();
-            byte[] hhea = buildHheaTable();
-            byte[] maxp = buildMaxpTable();
-            byte[] name = buildNameTable();
-            byte[] os2  = buildOS2Table();
-            byte[] glyf = buildGlyfTable(newLoca);
-            byte[] loca = buildLocaTable(newLoca);
-            byte[] cmap = buildCmapTable();
-            byte[] hmtx = buildHmtxTable();
-            byte[] post = buildPostTable();
-
-            // save to TTF in optimized order
-            Map<String, byte[]> tables = new TreeMap<>();
-            if (os2 != null)
+            TTFSubsetterSource source = ttf.getSubsetterSource();
+
+            // the tables in the order of their tags, null for the tables built for the subset
+            Map<String, TTFTable> tables = new TreeMap<>();
+            if (ttf.getOS2Windows() != null && !unicodes.isEmpty()
+                    && shouldKeepTable(OS2WindowsMetricsTable.TAG))
             {
-                tables.put(OS2WindowsMetricsTable.TAG, os2);
+                tables.put(OS2WindowsMetricsTable.TAG, null);
             }
-            if (cmap != null)
+            if (ttf.getCmap() != null && !unicodes.isEmpty() && shouldKeepTable(CmapTable.TAG))
             {
-                tables.put(CmapTable.TAG, cmap);
+                tables.put(CmapTable.TAG, null);
             }
-            tables.put(GlyphTable.TAG, glyf);
-            tables.put(HeaderTable.TAG, head);
-            tables.put(HorizontalHeaderTable.TAG, hhea);
-            tables.put(HorizontalMetricsTable.TAG, hmtx);
-            tables.put(IndexToLocationTable.TAG, loca);
-            tables.put(MaximumProfileTable.TAG, maxp);
-            if (name != null)
+            tables.put(GlyphTable.TAG, null);
+            tables.put(HeaderTable.TAG, null);
+            tables.put(HorizontalHeaderTable.TAG, null);
+            tables.put(HorizontalMetricsTable.TAG, null);
+            tables.put(IndexToLocationTable.TAG, null);
+            tables.put(MaximumProfileTable.TAG, null);
+            if (hasNameTable())
             {
-                tables.put(NamingTable.TAG, name);
+                tables.put(NamingTable.TAG, null);
             }
-            if (post != null)
+            if (ttf.getPostScript() != null && shouldKeepTable(PostScriptTable.TAG))
             {
-                tables.put(PostScriptTable.TAG, post);
+                tables.put(PostScriptTable.TAG, null);
             }
 
             // copy all other tables
             for (Map.Entry<String, TTFTable> entry : ttf.getTableMap().entrySet())
             {
                 String tag = entry.getKey();
-                TTFTable table = entry.getValue();
-
-                if (!tables.containsKey(tag) && (keepTables == null || keepTables.contains(tag)))
+                if (!tables.containsKey(tag) && shouldKeepTable(tag))
                 {
-                    tables.put(tag, ttf.getTableBytes(table));
+                    tables.put(tag, entry.getValue());
                 }
             }
 
-            // calculate checksum
-            long checksum = writeFileHeader(out, tables.size());
-            long offset = 12L + 16L * tables.size();
-            for (Map.Entry<String, byte[]> entry : tables.entrySet())
+            int[] newGIDs = getNewGlyphIds();
+            int numGlyphs = glyphIds.cardinality();
+            long[] newLoca = new long[numGlyphs + 1];
+
+            // the tables are written in a single pass in the order of their tags,
+            // which puts glyf before loca, which needs the new offsets of the glyphs
+            FontBuffer buffer = new FontBuffer();
+            writeFileHeader(buffer, tables.size());
+            int entry = buffer.skip(16 * tables.size());
+            int headOffset = 0;
+            for (Map.Entry<String, TTFTable> table : tables.entrySet())
             {
-                checksum += writeTableHeader(out, entry.getKey(), offset, entry.getValue());
-                offset += (entry.getValue().length + 3L) / 4 * 4;
+                String tag = table.getKey();
+                int offset = buffer.size();
+                if (table.getValue() != null)
+                {
+                    buffer.write(source.getTableBytes(table.getValue()));
+                }
+                else
+                {
+                    switch (tag)
+                    {
+                        case OS2WindowsMetricsTable.TAG:
+                            writeOS2Table(buffer);
+                            break;
+                        case CmapTable.TAG:
+                            writeCmapTable(buffer, newGIDs);
+                            break;
+                        case GlyphTable.TAG:
+                            writeGlyfTable(buffer, source, newGIDs, newLoca);
+                            break;
+                        case HeaderTable.TAG:
+                            headOffset = offset;
+                            writeHeadTable(buffer);
+                            break;
+                        case HorizontalHeaderTable.TAG:
+                            writeHheaTable(buffer);
+                            break;
+                        case HorizontalMetricsTable.TAG:
+                            writeHmtxTable(buffer, source.getHorizontalMetrics());
+                            break;
+                        case IndexToLocationTable.TAG:
+                            writeLocaTable(buffer, newLoca);
+                            break;
+                        case MaximumProfileTable.TAG:
+                            writeMaxpTable(buffer, numGlyphs);
+                            break;
+                        case NamingTable.TAG:
+                            writeNameTable(buffer);
+                            break;
+                        case PostScriptTable.TAG:
+                            writePostTable(buffer, numGlyphs);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                int length = buffer.size() - offset;
+                buffer.pad();
+                writeTableHeader(buffer, entry, tag, offset, length);
+                entry += 16;
             }
-            checksum = 0xB1B0AFBAL - (checksum & 0xffffffffL);
 
             // update checksumAdjustment in 'head' table
-            head[8] = (byte)(checksum >>> 24);
-            head[9] = (byte)(checksum >>> 16);
-            head[10] = (byte)(checksum >>> 8);
-            head[11] = (byte)checksum;
-            for (byte[] bytes : tables.values())
-            {
-                writeTableBody(out, bytes);
-            }
+            long checksum = 0xB1B0AFBAL - buffer.checksum(0, buffer.size());
+            buffer.setInt(headOffset + 8, (int) checksum);
+            buffer.writeTo(out);
         }
     }
 
-    private void writeFixed(DataOutputStream out, double f) throws IOException
+    private void writeFixed(FontBuffer out, double f)
     {
         double ip = Math.floor(f);
         double fp = (f-ip) * 65536.0;
@@ -1059,27 +835,27 @@ public final class TTFSubsetter
         out.writeShort((int)fp);
     }
 
-    private void writeUint32(DataOutputStream out, long l) throws IOException
+    private void writeUint32(FontBuffer out, long l)
     {
         out.writeInt((int)l);
     }
 
-    private void writeUint16(DataOutputStream out, int i) throws IOException
+    private void writeUint16(FontBuffer out, int i)
     {
         out.writeShort(i);
     }
 
-    private void writeSInt16(DataOutputStream out, short i) throws IOException
+    private void writeSInt16(FontBuffer out, short i)
     {
         out.writeShort(i);
     }
 
-    private void writeUint8(DataOutputStream out, int i) throws IOException
+    private void writeUint8(FontBuffer out, int i)
     {
         out.writeByte(i);
     }
 
-    private void writeLongDateTime(DataOutputStream out, Calendar calendar) throws IOException
+    private void writeLongDateTime(FontBuffer out, Calendar calendar)
     {
         // inverse operation of TTFDataStream.readInternationalDate()
         Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
@@ -1090,11 +866,6 @@ public final class TTFSubsetter
         out.writeLong(secondsSince1904);
     }
 
-    private long toUInt32(int high, int low)
-    {
-        return (high & 0xffffL) << 16 | low & 0xffffL;
-    }
-
     private long toUInt32(byte[] bytes)
     {
         return (bytes[0] & 0xffL) << 24
@@ -1103,6 +874,11 @@ public final class TTFSubsetter
                 | bytes[3] & 0xffL;
     }
 
+    private static int readUint16(byte[] bytes, int index)
+    {
+        return (bytes[index] & 0xff) << 8 | bytes[index + 1] & 0xff;
+    }
+
     private int log2(int num)
     {
         return (int) Math.floor(Math.log(num) / Math.log(2));
@@ -1110,7 +886,130 @@ public final class TTFSubsetter
 
     public void addGlyphIds(Set<Integer> allGlyphIds)
     {
-        glyphIds.addAll(allGlyphIds);
+        allGlyphIds.forEach(this::addGlyphId);
     }
 
+    /**
+     * The subset font, which is written into a single growing buffer, so that the table directory
+     * and the checksums can be filled in after the tables were written.
+     */
+    private static final class FontBuffer
+    {
+        private byte[] data = new byte[1 << 16];
+        private int size;
+
+        int size()
+        {
+            return size;
+        }
+
+        /**
+         * Returns the data, which is replaced when the buffer grows.
+         */
+        byte[] array()
+        {
+            return data;
+        }
+
+        /**
+         * Appends the given number of zeros.
+         *
+         * @return the offset of the zeros
+         */
+        int skip(int count)
+        {
+            ensureCapacity(count);
+            int offset = size;
+            size += count;
+            return offset;
+        }
+
+        void truncate(int newSize)
+        {
+            // keep the unused part zero for skip()
+            Arrays.fill(data, newSize, size, (byte) 0);
+            size = newSize;
+        }
+
+        /**
+         * Appends zeros up to the next multiple of 4 bytes.
+         */
+        void pad()
+        {
+            skip(-size & 3);
+        }
+
+        void writeByte(int b)
+        {
+            ensureCapacity(1);
+            data[size++] = (byte) b;
+        }
+
+        void writeShort(int s)
+        {
+            ensureCapacity(2);
+            data[size++] = (byte) (s >>> 8);
+            data[size++] = (byte) s;
+        }
+
+        void writeInt(int i)
+        {
+            ensureCapacity(4);
+            setInt(size, i);
+            size += 4;
+        }
+
+        void writeLong(long l)
+        {
+            writeInt((int) (l >>> 32));
+            writeInt((int) l);
+        }
+
+        void write(byte[] bytes)
+        {
+            write(bytes, 0, bytes.length);
+        }
+
+        void write(byte[] bytes, int offset, int length)
+        {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, data, size, length);
+            size += length;
+        }
+
+        void setInt(int offset, int i)
+        {
+            data[offset] = (byte) (i >>> 24);
+            data[offset + 1] = (byte) (i >>> 16);
+            data[offset + 2] = (byte) (i >>> 8);
+            data[offset + 3] = (byte) i;
+        }
+
+        /**
+         * Returns the sum of the uint32 values from start to end, which must be multiples of 4.
+         */
+        long checksum(int start, int end)
+        {
+            long checksum = 0;
+            for (int i = start; i < end; i += 4)
+            {
+                checksum += (data[i] & 0xffL) << 24 | (data[i + 1] & 0xff) << 16
+                        | (data[i + 2] & 0xff) << 8 | data[i + 3] & 0xff;
+            }
+            return checksum & 0xffffffffL;
+        }
+
+        void writeTo(OutputStream os) throws IOException
+        {
+            os.write(data, 0, size);
+        }
+
+        private void ensureCapacity(int count)
+        {
+            if (count > data.length - size)
+            {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + count));
+            }
+        }
+    }
 }
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.ttf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The data of a TrueType font which the {@link TTFSubsetter} copies into the subsets: the glyf
+ * table, the loca offsets, the hmtx table, the components of the composite glyphs and the tables
+ * which are copied unchanged. It is read once per font and shared by all subsets of the font, see
+ * {@link TrueTypeFont#getSubsetterSource()}.
+ *
+ * <p>Apart from the copied tables, which are read on first use, the data is immutable, so it can be
+ * used by several threads.
+ */
+final class TTFSubsetterSource
+{
+    // flags of a component of a composite glyph
+    static final int ARG_1_AND_2_ARE_WORDS = 1 << 0;
+    static final int WE_HAVE_A_SCALE = 1 << 3;
+    static final int MORE_COMPONENTS = 1 << 5;
+    static final int WE_HAVE_AN_X_AND_Y_SCALE = 1 << 6;
+    static final int WE_HAVE_A_TWO_BY_TWO = 1 << 7;
+    static final int WE_HAVE_INSTRUCTIONS = 1 << 8;
+
+    private final TrueTypeFont ttf;
+    private final ByteBuffer glyf;
+    private final long[] loca;
+    private final byte[] hmtx;
+    // the components of glyph i are components[componentStarts[i]] to
+    // components[componentStarts[i + 1] - 1]
+    private final int[] componentStarts;
+    private final int[] components;
+    private final Map<String, byte[]> tableBytes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param ttf the font
+     * @throws IOException if the font could not be read
+     */
+    TTFSubsetterSource(TrueTypeFont ttf) throws IOException
+    {
+        this.ttf = ttf;
+        GlyphTable glyphTable = ttf.getGlyph();
+        HorizontalMetricsTable hm = ttf.getHorizontalMetrics();
+        if (glyphTable == null || hm == null)
+        {
+            throw new IOException("glyf or hmtx table is missing in font " + ttf.getName());
+        }
+        // the view of the glyf table is shared with the GlyphTable
+        ByteBuffer glyfData = glyphTable.getGlyfData();
+        glyf = glyfData != null ? glyfData
+                : ByteBuffer.wrap(ttf.getTableBytes(glyphTable)).asReadOnlyBuffer();
+        loca = ttf.getIndexToLocation().getOffsets();
+        hmtx = ttf.getTableBytes(hm);
+
+        int numGlyphs = loca.length - 1;
+        componentStarts = new int[numGlyphs + 1];
+        int[] gids = new int[16];
+        int count = 0;
+        for (int gid = 0; gid < numGlyphs; gid++)
+        {
+            componentStarts[gid] = count;
+            int start = (int) loca[gid];
+            int end = Math.min((int) loca[gid + 1], glyf.limit());
+            if (end - start < 2 || glyf.get(start) != -1 || glyf.get(start + 1) != -1)
+            {
+                continue;
+            }
+            // composite glyph
+            int off = start + 2 * 5;
+            int flags;
+            do
+            {
+                if (off + 4 > end)
+                {
+                    // malformed, this is reported when the glyph is copied
+                    break;
+                }
+                flags = readUint16(glyf, off);
+                if (count == gids.length)
+                {
+                    gids = Arrays.copyOf(gids, count * 2);
+                }
+                gids[count++] = readUint16(glyf, off + 2);
+                off += getComponentLength(flags);
+            }
+            while ((flags & MORE_COMPONENTS) != 0);
+        }
+        componentStarts[numGlyphs] = count;
+        components = Arrays.copyOf(gids, count);
+    }
+
+    /**
+     * Returns the length of a component of a composite glyph, including its flags and its glyph
+     * index.
+     *
+     * @param flags the flags of the component
+     * @return the length of the component
+     */
+    static int getComponentLength(int flags)
+    {
+        int length = 2 * 2;
+        length += (flags & ARG_1_AND_2_ARE_WORDS) != 0 ? 2 * 2 : 2;
+        if ((flags & WE_HAVE_A_TWO_BY_TWO) != 0)
+        {
+            length += 2 * 4;
+        }
+        else if ((flags & WE_HAVE_AN_X_AND_Y_SCALE) != 0)
+        {
+            length += 2 * 2;
+        }
+        else if ((flags & WE_HAVE_A_SCALE) != 0)
+        {
+            length += 2;
+        }
+        return length;
+    }
+
+    /**
+     * Adds the components of the composite glyphs of the given glyphs, recursively.
+     *
+     * @param glyphIds the GIDs of the glyphs
+     */
+    void addComponents(BitSet glyphIds)
+    {
+        int numGlyphs = loca.length - 1;
+        int[] stack = new int[Math.max(16, glyphIds.cardinality())];
+        int size = 0;
+        for (int gid = glyphIds.nextSetBit(0); gid >= 0; gid = glyphIds.nextSetBit(gid + 1))
+        {
+            stack[size++] = gid;
+        }
+        while (size > 0)
+        {
+            int gid = stack[--size];
+            if (gid >= numGlyphs)
+            {
+                // reported when the glyph is copied
+                continue;
+            }
+            for (int i = componentStarts[gid]; i < componentStarts[gid + 1]; i++)
+            {
+                int component = components[i];
+                if (!glyphIds.get(component))
+                {
+                    glyphIds.set(component);
+                    if (size == stack.length)
+                    {
+                        stack = Arrays.copyOf(stack, size * 2);
+                    }
+                    stack[size++] = component;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a view of the glyf table for {@link #copyGlyph(ByteBuffer, int, byte[], int)}. Each
+     * reader needs its own view.
+     */
+    ByteBuffer createGlyfView()
+    {
+        return glyf.duplicate();
+    }
+
+    /**
+     * Returns the length of the data of the given glyph.
+     *
+     * @param gid GID
+     */
+    int getGlyphLength(int gid)
+    {
+        return (int) Math.max(0, loca[gid + 1] - loca[gid]);
+    }
+
+    /**
+     * Copies the data of the given glyph. The data beyond the end of the glyf table of a malformed
+     * font is left zero.
+     *
+     * @param glyfView a view from {@link #createGlyfView()}
+     * @param gid GID
+     * @param dest the destination of the data, which has {@link #getGlyphLength(int)} bytes
+     * @param destOffset the offset of the data in the destination
+     */
+    void copyGlyph(ByteBuffer glyfView, int gid, byte[] dest, int destOffset)
+    {
+        int start = (int) loca[gid];
+        int length = Math.min(getGlyphLength(gid), glyfView.limit() - start);
+        if (length > 0)
+        {
+            glyfView.position(start);
+            glyfView.get(dest, destOffset, length);
+        }
+    }
+
+    /**
+     * Returns the hmtx table, which must not be modified.
+     */
+    byte[] getHorizontalMetrics()
+    {
+        return hmtx;
+    }
+
+    /**
+     * Returns the bytes of a table which is copied unchanged. They must not be modified.
+     *
+     * @param table the table
+     * @return the bytes of the table
+     * @throws IOException if the table could not be read
+     */
+    byte[] getTableBytes(TTFTable table) throws IOException
+    {
+        byte[] bytes = tableBytes.get(table.getTag());
+        if (bytes == null)
+        {
+            bytes = ttf.getTableBytes(table);
+            tableBytes.put(table.getTag(), bytes);
+        }
+        return bytes;
+    }
+
+    private static int readUint16(ByteBuffer buffer, int index)
+    {
+        return (buffer.get(index) & 0xff) << 8 | buffer.get(index + 1) & 0xff;
+    }
+}
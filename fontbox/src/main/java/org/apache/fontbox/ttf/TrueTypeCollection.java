@@ -21,6 +21,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.pdfbox.io.RandomAccessRead;
 import org.apache.pdfbox.io.RandomAccessReadBuffer;
@@ -60,6 +61,19 @@ public class TrueTypeCollection implements Closeable
         this(new RandomAccessReadBuffer(stream));
     }
 
+    /**
+     * Creates a new TrueTypeCollection from a buffer, e.g. a memory-mapped .ttc file. The fonts read
+     * the buffer from its current position to its limit without copying it. The content of the
+     * buffer must not be changed while the fonts are in use.
+     *
+     * @param buffer The TTC data, its position isn't changed.
+     * @throws IOException If the font could not be parsed.
+     */
+    public TrueTypeCollection(ByteBuffer buffer) throws IOException
+    {
+        this(new ByteBufferDataStream(buffer.slice().asReadOnlyBuffer()));
+    }
+
     /**
      * Creates a new TrueTypeCollection from a RandomAccessRead.
      *
@@ -68,7 +82,12 @@ public class TrueTypeCollection implements Closeable
      */
     TrueTypeCollection(RandomAccessRead randomAccessRead) throws IOException
     {
-        this.stream = new RandomAccessReadDataStream(randomAccessRead);
+        this(new RandomAccessReadDataStream(randomAccessRead));
+    }
+
+    private TrueTypeCollection(TTFDataStream stream) throws IOException
+    {
+        this.stream = stream;
 
         // TTC header
         String tag = stream.readTag();
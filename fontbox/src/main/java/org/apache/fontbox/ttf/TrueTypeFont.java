@@ -50,9 +50,11 @@ public class TrueTypeFont implements FontBoxFont, Closeable
     protected final Map<String,TTFTable> tables = new HashMap<>();
     private final TTFDataStream data;
     private volatile Map<String, Integer> postScriptNames;
+    private volatile TTFSubsetterSource subsetterSource;
     
     private final Object lockReadtable = new Object();
     private final Object lockPSNames = new Object();
+    private final Object lockSubsetterSource = new Object();
     private final List<String> enabledGsubFeatures = new ArrayList<>();
 
     /**
@@ -510,6 +512,31 @@ public class TrueTypeFont implements FontBoxFont, Closeable
         }
     }
 
+    /**
+     * Returns the data of this font which is copied into subsets. It is read once and shared by all
+     * {@link TTFSubsetter}s of this font.
+     *
+     * @return the data for the subsetter
+     * @throws IOException if the font could not be read
+     */
+    TTFSubsetterSource getSubsetterSource() throws IOException
+    {
+        TTFSubsetterSource source = subsetterSource;
+        if (source == null)
+        {
+            synchronized (lockSubsetterSource)
+            {
+                source = subsetterSource;
+                if (source == null)
+                {
+                    source = new TTFSubsetterSource(this);
+                    subsetterSource = source;
+                }
+            }
+        }
+        return source;
+    }
+
     /**
      * Returns the best Unicode from the font (the most general). The PDF spec says that "The means by which this is
      * accomplished are implementation-dependent."
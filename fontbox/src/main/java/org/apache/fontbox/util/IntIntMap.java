@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from int keys to int values with open addressing and linear probing. The keys and the
+ * values are kept in primitive arrays, so there are neither boxed Integers nor entry objects,
+ * which is much more compact than a HashMap&lt;Integer, Integer&gt; for the large character code
+ * mappings of fonts and CMaps.
+ *
+ * <p>This class isn't thread safe when it is modified.
+ */
+public final class IntIntMap
+{
+    // the key 0 marks a free slot, its value is kept separately
+    private static final int FREE_KEY = 0;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    /**
+     * Consumer of the entries of the map.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer
+    {
+        /**
+         * Performs the action for an entry.
+         *
+         * @param key the key of the entry
+         * @param value the value of the entry
+         */
+        void accept(int key, int value);
+    }
+
+    /**
+     * Creates an empty map.
+     */
+    public IntIntMap()
+    {
+        this(8);
+    }
+
+    /**
+     * Creates an empty map which can hold the given number of entries without being resized.
+     *
+     * @param expectedSize the expected number of entries
+     */
+    public IntIntMap(int expectedSize)
+    {
+        allocate(capacityFor(Math.max(expectedSize, 4)));
+    }
+
+    /**
+     * Returns the value for the given key.
+     *
+     * @param key the key
+     * @param defaultValue the value to be returned if there is no mapping for the key
+     * @return the value or the given default value
+     */
+    public int get(int key, int defaultValue)
+    {
+        if (key == FREE_KEY)
+        {
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        }
+        int[] k = keys;
+        int index = hash(key) & mask;
+        while (true)
+        {
+            int current = k[index];
+            if (current == key)
+            {
+                return values[index];
+            }
+            if (current == FREE_KEY)
+            {
+                return defaultValue;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Tells whether there is a mapping for the given key.
+     *
+     * @param key the key
+     * @return true if there is a mapping
+     */
+    public boolean containsKey(int key)
+    {
+        if (key == FREE_KEY)
+        {
+            return hasFreeKey;
+        }
+        int index = hash(key) & mask;
+        while (true)
+        {
+            int current = keys[index];
+            if (current == key)
+            {
+                return true;
+            }
+            if (current == FREE_KEY)
+            {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds a mapping, an existing mapping of the key is replaced.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void put(int key, int value)
+    {
+        if (key == FREE_KEY)
+        {
+            if (!hasFreeKey)
+            {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return;
+        }
+        int index = hash(key) & mask;
+        while (true)
+        {
+            int current = keys[index];
+            if (current == key)
+            {
+                values[index] = value;
+                return;
+            }
+            if (current == FREE_KEY)
+            {
+                keys[index] = key;
+                values[index] = value;
+                if (++size > threshold)
+                {
+                    rehash(keys.length * 2);
+                }
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds all mappings of the given map, existing mappings are replaced.
+     *
+     * @param map the mappings to be added
+     */
+    public void putAll(IntIntMap map)
+    {
+        map.forEach(this::put);
+    }
+
+    /**
+     * Returns the number of mappings.
+     *
+     * @return the number of mappings
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Tells whether the map is empty.
+     *
+     * @return true if there are no mappings
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Performs the given action for all entries, in no particular order.
+     *
+     * @param action the action
+     */
+    public void forEach(EntryConsumer action)
+    {
+        if (hasFreeKey)
+        {
+            action.accept(FREE_KEY, freeKeyValue);
+        }
+        int[] k = keys;
+        int[] v = values;
+        for (int i = 0; i < k.length; i++)
+        {
+            if (k[i] != FREE_KEY)
+            {
+                action.accept(k[i], v[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns all keys, in ascending order.
+     *
+     * @return the sorted keys
+     */
+    public int[] keys()
+    {
+        int[] result = new int[size];
+        int count = 0;
+        if (hasFreeKey)
+        {
+            result[count++] = FREE_KEY;
+        }
+        for (int key : keys)
+        {
+            if (key != FREE_KEY)
+            {
+                result[count++] = key;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void rehash(int newCapacity)
+    {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            int key = oldKeys[i];
+            if (key != FREE_KEY)
+            {
+                int index = hash(key) & mask;
+                while (keys[index] != FREE_KEY)
+                {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        // the table is at most half full, to keep the probe sequences short
+        threshold = capacity == MAX_CAPACITY ? Integer.MAX_VALUE : capacity / 2;
+    }
+
+    private static int capacityFor(int expectedSize)
+    {
+        long capacity = Long.highestOneBit(Math.max(1L, expectedSize * 2L - 1)) << 1;
+        return (int) Math.min(capacity, MAX_CAPACITY);
+    }
+
+    // spreads consecutive keys, which are typical for character codes, over the table
+    private static int hash(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((key, value) ->
+        {
+            if (sb.length() > 1)
+            {
+                sb.append(", ");
+            }
+            sb.append(key).append('=').append(value);
+        });
+        return sb.append('}').toString();
+    }
+}
@@ -18,6 +18,7 @@ package org.apache.fontbox.cff;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -158,6 +159,20 @@ class CFFParserTest
                 "Other global subr index values than expected");
     }
 
+    @Test
+    void testLocalSubrIndex()
+    {
+        @SuppressWarnings("unchecked")
+        List<byte[]> localSubrIndex = (List<byte[]>) testCFFType1Font.getPrivateDict().get("Subrs");
+        assertFalse(localSubrIndex.isEmpty());
+        // the subroutines are copied from the font data, which can't be modified
+        byte[] subr = localSubrIndex.get(0);
+        byte first = subr[0];
+        subr[0]++;
+        assertEquals(first, localSubrIndex.get(0)[0]);
+        assertThrows(UnsupportedOperationException.class, () -> localSubrIndex.set(0, subr));
+    }
+
     /**
      * PDFBOX-4038: Test whether BlueValues and other delta encoded lists are read correctly. The
      * test file is from FOP-2432.
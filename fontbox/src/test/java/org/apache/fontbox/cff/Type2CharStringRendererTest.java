@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.cff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.geom.PathIterator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.fontbox.type1.Type1CharStringReader;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the direct rendering of Type 2 charstrings, which must give the same results as the
+ * conversion to Type 1 charstrings.
+ */
+class Type2CharStringRendererTest
+{
+    private static final int DEFAULT_WIDTH_X = 500;
+    private static final int NOMINAL_WIDTH_X = 600;
+
+    private static final Map<String, Integer> OPERATORS = new HashMap<>();
+
+    // the operators of the random charstrings, two byte operators are 1200 + the second byte
+    private static final int[] RANDOM_OPERATORS = { 1, 3, 4, 5, 6, 7, 8, 14, 18, 19, 20, 21, 22,
+            23, 24, 25, 26, 27, 30, 31, 1234, 1235, 1236, 1237 };
+
+    // the glyphs of "seac"
+    private static final Type1CharStringReader READER = name -> new Type2CharString(null, "Test",
+            name, 0, charString("100 rmoveto 10 hlineto endchar"), null, null, 0, 0);
+
+    static
+    {
+        String[] names = { null, "hstem", null, "vstem", "vmoveto", "rlineto", "hlineto",
+                "vlineto", "rrcurveto", null, "callsubr", "return", null, null, "endchar", null,
+                null, null, "hstemhm", "hintmask", "cntrmask", "rmoveto", "hmoveto", "vstemhm",
+                "rcurveline", "rlinecurve", "vvcurveto", "hhcurveto", null, "callgsubr",
+                "vhcurveto", "hvcurveto" };
+        for (int i = 0; i < names.length; i++)
+        {
+            if (names[i] != null)
+            {
+                OPERATORS.put(names[i], i);
+            }
+        }
+        OPERATORS.put("add", 1210);
+        OPERATORS.put("hflex", 1234);
+        OPERATORS.put("flex", 1235);
+        OPERATORS.put("hflex1", 1236);
+        OPERATORS.put("flex1", 1237);
+    }
+
+    @Test
+    void testOperators() throws IOException
+    {
+        Type2CharString charString = assertSameAsConverted(charString("-20 30 50 40 60 hstemhm "
+                + "10 20 vstem 100 200 rmoveto 10 20 30 40 rlineto 10 20 30 hlineto 10 20 vlineto "
+                + "1 2 3 4 5 6 rrcurveto 1 2 3 4 5 6 7 8 9 hvcurveto 1 2 3 4 5 vhcurveto "
+                + "1 2 3 4 5 hhcurveto 1 2 3 4 5 6 7 8 vvcurveto 1 2 3 4 5 6 7 8 rcurveline "
+                + "1 2 3 4 5 6 7 8 rlinecurve 50 hmoveto 1 2 3 4 5 6 7 hflex "
+                + "1 2 3 4 5 6 7 8 9 10 11 12 50 flex 1 2 3 4 5 6 7 8 9 hflex1 "
+                + "1 2 3 4 5 6 7 8 9 10 11 flex1 -50 vmoveto 10.5 20 rlineto endchar"), null, null);
+        assertEquals(NOMINAL_WIDTH_X - 20, charString.getWidth());
+
+        // the default width is used if there is no width
+        charString = assertSameAsConverted(charString("100 200 rmoveto 10 hlineto endchar"),
+                null, null);
+        assertEquals(DEFAULT_WIDTH_X, charString.getWidth());
+    }
+
+    @Test
+    void testHintMasks() throws IOException
+    {
+        // the mask is read after the implicit vstem
+        assertSameAsConverted(charString("10 20 30 40 hstemhm 50 60 hintmask #ff 100 rmoveto "
+                + "10 hlineto cntrmask #ff endchar"), null, null);
+        // a mask without any hints
+        assertSameAsConverted(charString("30 hintmask 100 rmoveto 10 hlineto endchar"), null,
+                null);
+        // a hintmask before the first moveto doesn't give the width
+        assertSameAsConverted(charString("30 10 20 hintmask #ff 100 rmoveto 10 hlineto endchar"),
+                null, null);
+    }
+
+    @Test
+    void testSubroutines() throws IOException
+    {
+        byte[][] globalSubrs = { charString("10 20 rlineto return"), charString("30 hlineto") };
+        byte[][] localSubrs = { charString("-107 callgsubr 40 vlineto return"),
+                charString("0 20 30 return") };
+        // the operands of a subroutine are kept
+        Type2CharString charString = assertSameAsConverted(charString(
+                "100 rmoveto -107 callsubr -106 callsubr rlineto -106 callgsubr endchar"),
+                globalSubrs, localSubrs);
+        assertEquals(DEFAULT_WIDTH_X, charString.getWidth());
+
+        // a missing subroutine is ignored
+        assertSameAsConverted(charString("100 rmoveto 50 callgsubr 10 hlineto endchar"),
+                globalSubrs, localSubrs);
+    }
+
+    @Test
+    void testUnsupported() throws IOException
+    {
+        // seac, arithmetic operators, a return outside of a subroutine, a lineto without moveto
+        // and a missing local subroutine index
+        String[] sources = { "0 10 20 30 endchar", "1 2 add 5 rmoveto endchar",
+                "100 rmoveto return endchar", "10 hlineto endchar", "0 callsubr endchar" };
+        for (String source : sources)
+        {
+            byte[] bytes = charString(source);
+            assertFalse(new Type2CharStringRenderer(null, null, DEFAULT_WIDTH_X, NOMINAL_WIDTH_X)
+                    .render(bytes), source);
+            assertSameAsConverted(bytes, null, null);
+        }
+    }
+
+    @Test
+    void testRandomCharStrings() throws IOException
+    {
+        Random random = new Random(4711);
+        byte[][] localSubrs = new byte[10][];
+        for (int i = 0; i < localSubrs.length; i++)
+        {
+            localSubrs[i] = randomCharString(random, null, true);
+        }
+        byte[][] globalSubrs = new byte[10][];
+        for (int i = 0; i < globalSubrs.length; i++)
+        {
+            globalSubrs[i] = randomCharString(random, localSubrs, true);
+        }
+        int rendered = 0;
+        for (int i = 0; i < 2000; i++)
+        {
+            byte[] bytes = randomCharString(random, globalSubrs, false);
+            assertSameAsConverted(bytes, globalSubrs, localSubrs);
+            if (new Type2CharStringRenderer(CFFIndex.of(globalSubrs), CFFIndex.of(localSubrs),
+                    DEFAULT_WIDTH_X, NOMINAL_WIDTH_X).render(bytes))
+            {
+                rendered++;
+            }
+        }
+        assertTrue(rendered > 500, "only " + rendered + " charstrings were rendered directly");
+    }
+
+    @Test
+    void testCharStringCache() throws IOException
+    {
+        Map<Integer, Type2CharString> cache = CFFFont.createCharStringCache();
+        byte[] bytes = charString("100 rmoveto 10 hlineto endchar");
+        for (int i = 0; i <= CFFFont.MAX_CACHED_CHARSTRINGS; i++)
+        {
+            cache.put(i, new Type2CharString(null, "Test", "GID+" + i, i, bytes, null, null, 0,
+                    0));
+            // keep the first one
+            cache.get(0);
+        }
+        assertEquals(CFFFont.MAX_CACHED_CHARSTRINGS, cache.size());
+        assertTrue(cache.containsKey(0));
+        assertFalse(cache.containsKey(1));
+    }
+
+    private static Type2CharString assertSameAsConverted(byte[] bytes, byte[][] globalSubrs,
+            byte[][] localSubrs) throws IOException
+    {
+        // the subroutines are executed in place in the data of the INDEX
+        CFFIndex globalSubrIndex = globalSubrs != null ? CFFIndex.of(globalSubrs) : null;
+        CFFIndex localSubrIndex = localSubrs != null ? CFFIndex.of(localSubrs) : null;
+        Type2CharString expected;
+        try
+        {
+            expected = new Type2CharString(READER, "Test", "Glyph", 1,
+                    new Type2CharStringParser("Test").parse(bytes, globalSubrs, localSubrs,
+                            "Glyph"), DEFAULT_WIDTH_X, NOMINAL_WIDTH_X);
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            // malformed charstrings give the same exception
+            assertThrows(ex.getClass(), () -> new Type2CharString(READER, "Test", "Glyph", 1,
+                    bytes, globalSubrIndex, localSubrIndex, DEFAULT_WIDTH_X, NOMINAL_WIDTH_X));
+            return null;
+        }
+        Type2CharString charString = new Type2CharString(READER, "Test", "Glyph", 1, bytes,
+                globalSubrIndex, localSubrIndex, DEFAULT_WIDTH_X, NOMINAL_WIDTH_X);
+        assertEquals(render(expected), render(charString));
+        assertEquals(expected.toString(), charString.toString());
+        return charString;
+    }
+
+    private static String render(Type2CharString charString)
+    {
+        try
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(charString.getWidth()).append(' ').append(charString.getBounds());
+            float[] coords = new float[6];
+            for (PathIterator it = charString.getPath().getPathIterator(null); !it.isDone();
+                    it.next())
+            {
+                int type = it.currentSegment(coords);
+                sb.append(' ').append(type).append(Arrays.toString(coords));
+                Arrays.fill(coords, 0);
+            }
+            return sb.toString();
+        }
+        catch (RuntimeException ex)
+        {
+            return ex.toString();
+        }
+    }
+
+    private static byte[] randomCharString(Random random, byte[][] subrs, boolean subr)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!subr)
+        {
+            int count = random.nextInt(4);
+            for (int i = 0; i < count; i++)
+            {
+                writeNumber(out, random.nextInt(200) - 100, random.nextInt(10) == 0);
+            }
+            writeOperator(out, random.nextBoolean() ? 21 : 22);
+        }
+        int commands = 1 + random.nextInt(subr ? 3 : 12);
+        for (int i = 0; i < commands; i++)
+        {
+            int count = random.nextInt(14);
+            for (int j = 0; j < count; j++)
+            {
+                writeNumber(out, random.nextInt(2000) - 1000, random.nextInt(10) == 0);
+            }
+            if (subrs != null && random.nextInt(5) == 0)
+            {
+                writeNumber(out, random.nextInt(subrs.length + 1) - 107, false);
+                writeOperator(out, subr ? 10 : 29);
+                continue;
+            }
+            int operator = RANDOM_OPERATORS[random.nextInt(RANDOM_OPERATORS.length)];
+            writeOperator(out, operator);
+            if (operator == 19 || operator == 20)
+            {
+                out.write(random.nextInt(256));
+            }
+        }
+        writeOperator(out, subr ? 11 : 14);
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates a charstring from numbers and operator names, the bytes of a mask are given as #hex.
+     */
+    private static byte[] charString(String source)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String[] tokens = source.split(" ");
+        for (String token : tokens)
+        {
+            Integer operator = OPERATORS.get(token);
+            if (operator != null)
+            {
+                writeOperator(out, operator);
+            }
+            else if (token.startsWith("#"))
+            {
+                out.write(Integer.parseInt(token.substring(1), 16));
+            }
+            else if (token.contains("."))
+            {
+                writeNumber(out, (int) Float.parseFloat(token), true);
+            }
+            else
+            {
+                writeNumber(out, Integer.parseInt(token), false);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeNumber(ByteArrayOutputStream out, int value, boolean fixed)
+    {
+        if (fixed)
+        {
+            out.write(255);
+            out.write(value >> 8);
+            out.write(value);
+            // the fraction
+            out.write(0x80);
+            out.write(0);
+        }
+        else if (value >= -107 && value <= 107)
+        {
+            out.write(value + 139);
+        }
+        else if (value >= 108 && value <= 1131)
+        {
+            value -= 108;
+            out.write((value >> 8) + 247);
+            out.write(value);
+        }
+        else if (value >= -1131 && value <= -108)
+        {
+            value = -value - 108;
+            out.write((value >> 8) + 251);
+            out.write(value);
+        }
+        else
+        {
+            out.write(28);
+            out.write(value >> 8);
+            out.write(value);
+        }
+    }
+
+    private static void writeOperator(ByteArrayOutputStream out, int operator)
+    {
+        if (operator >= 1200)
+        {
+            out.write(12);
+            out.write(operator - 1200);
+        }
+        else
+        {
+            out.write(operator);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.cmap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test of the compiled form of the predefined CMaps, which is written by the build.
+ */
+class CMapCompilerTest
+{
+    @ParameterizedTest
+    @ValueSource(strings = { "Identity-V", "UniJIS-UCS2-H", "UniJIS-UCS2-HW-V", "90ms-RKSJ-V",
+            "Adobe-Japan1-UCS2", "Adobe-Korea1-UCS2", "UniGB-UTF16-H" })
+    void testCompiledCMap(String name) throws IOException
+    {
+        CMap expected = new CMapParser().parsePredefinedSource(name);
+        CMap cmap = CompiledCMapParser.parse(new DataInputStream(
+                new ByteArrayInputStream(readCompiled(name))));
+
+        assertEquals(expected.getName(), cmap.getName());
+        assertEquals(expected.getVersion(), cmap.getVersion());
+        assertEquals(expected.getType(), cmap.getType());
+        assertEquals(expected.getRegistry(), cmap.getRegistry());
+        assertEquals(expected.getOrdering(), cmap.getOrdering());
+        assertEquals(expected.getSupplement(), cmap.getSupplement());
+        assertEquals(expected.getWMode(), cmap.getWMode());
+        assertEquals(expected.getSpaceMapping(), cmap.getSpaceMapping());
+        assertEquals(expected.hasCIDMappings(), cmap.hasCIDMappings());
+        assertEquals(expected.hasUnicodeMappings(), cmap.hasUnicodeMappings());
+        for (int code = 0; code <= 0xFFFF; code++)
+        {
+            assertEquals(expected.toCID(code, 1), cmap.toCID(code, 1));
+            assertEquals(expected.toCID(code, 2), cmap.toCID(code, 2));
+            String unicode = expected.toUnicode(code);
+            assertEquals(unicode, cmap.toUnicode(code));
+            if (unicode != null)
+            {
+                assertArrayEquals(expected.getCodesFromUnicode(unicode),
+                        cmap.getCodesFromUnicode(unicode));
+            }
+        }
+        byte[] codes = { (byte) 0x81, 0x40, 0x20, (byte) 0xE0, 0x40 };
+        assertEquals(readCodes(expected, codes), readCodes(cmap, codes));
+    }
+
+    @Test
+    void testBrokenCompiledCMap() throws IOException
+    {
+        byte[] data = readCompiled("Identity-H");
+        byte[] truncated = Arrays.copyOf(data, data.length - 10);
+        assertThrows(IOException.class, () -> CompiledCMapParser.parse(new DataInputStream(
+                new ByteArrayInputStream(truncated))));
+        data[4] = 42;
+        assertThrows(IOException.class, () -> CompiledCMapParser.parse(new DataInputStream(
+                new ByteArrayInputStream(data))));
+    }
+
+    private static byte[] readCompiled(String name) throws IOException
+    {
+        try (InputStream is = CompiledCMapParser.class.getResourceAsStream(
+                name + CompiledCMapParser.SUFFIX))
+        {
+            assertNotNull(is, "compiled CMap " + name + " is missing");
+            return IOUtils.toByteArray(is);
+        }
+    }
+
+    private static String readCodes(CMap cmap, byte[] codes) throws IOException
+    {
+        ByteArrayInputStream in = new ByteArrayInputStream(codes);
+        StringBuilder sb = new StringBuilder();
+        while (in.available() > 0)
+        {
+            sb.append(cmap.readCode(in)).append(' ');
+        }
+        return sb.toString();
+    }
+}
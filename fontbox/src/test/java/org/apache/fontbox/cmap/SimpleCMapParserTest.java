@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.cmap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test of the parser for the simple CMaps, which must give the same results as the CMapParser.
+ */
+class SimpleCMapParserTest
+{
+    @ParameterizedTest
+    @ValueSource(strings = { "CMapMalformedbfrange1", "CMapMalformedbfrange2", "CMapNoWhitespace",
+            "CMapTest", "Identitybfrange" })
+    void testSameAsCMapParser(String name) throws IOException
+    {
+        byte[] data = Files.readAllBytes(new File("src/test/resources/cmap", name).toPath());
+        assertSameCMap(data, false);
+        assertSameCMap(data, true);
+    }
+
+    @Test
+    void testPredefinedCMapSource() throws IOException
+    {
+        byte[] data = Files.readAllBytes(
+                new File("src/main/resources/org/apache/fontbox/cmap", "UniJIS-UCS2-H").toPath());
+        assertSameCMap(data, false);
+    }
+
+    @Test
+    void testHeaderAndCIDMappings() throws IOException
+    {
+        String source = "%!PS-Adobe-3.0 Resource-CMap\n"
+                + "/CIDInit /ProcSet findresource begin 12 dict begin begincmap\n"
+                + "/CIDSystemInfo << /Registry (Adobe) /Ordering (Japan1) /Supplement 6 >> def\n"
+                + "/CMapName /Test-H def /CMapVersion 10.005 def /CMapType 1 def\n"
+                + "/XUID [1 10 25404 9999] def /WMode 1 def\n"
+                + "1 begincodespacerange <0000> <FFFF> endcodespacerange\n"
+                + "2 begincidchar <0020> 1 <3000> 633 endcidchar\n"
+                + "2 begincidrange <0021> <007E> 2 <3001> <3001> 634 endcidrange\n"
+                + "1 beginbfchar <0041> /A endbfchar\n"
+                + "2 beginbfrange <0100> <0102> [<0030> <D83DDE00> <0032>]\n"
+                + "<0200> <0201> <00410042> endbfrange\n"
+                + "endcmap CMapName currentdict /CMap defineresource pop end end\n";
+        byte[] data = source.getBytes(StandardCharsets.ISO_8859_1);
+        CMap cmap = new SimpleCMapParser(data, data.length, true).parse();
+        assertEquals("Test-H", cmap.getName());
+        assertEquals("10.005", cmap.getVersion());
+        assertEquals(1, cmap.getType());
+        assertEquals(1, cmap.getWMode());
+        // the entries of the CIDSystemInfo dictionary aren't used
+        assertEquals(null, cmap.getRegistry());
+        assertEquals(1, cmap.toCID(0x20, 2));
+        assertEquals(2 + 0x40 - 0x21, cmap.toCID(0x40, 2));
+        assertEquals(634, cmap.toCID(0x3001, 2));
+        assertEquals("A", cmap.toUnicode(0x41, 2));
+        assertEquals("\uD83D\uDE00", cmap.toUnicode(0x101, 2));
+        assertEquals("AC", cmap.toUnicode(0x201, 2));
+        assertSameCMap(data, true);
+    }
+
+    @Test
+    void testUnsupported() throws IOException
+    {
+        byte[] data = ("/CMapName /Test def /Identity-H usecmap\n"
+                + "1 begincidchar <0020> 1 endcidchar").getBytes(StandardCharsets.ISO_8859_1);
+        assertThrows(IOException.class,
+                () -> new SimpleCMapParser(data, data.length, true).parse());
+        // the CMap is parsed by the CMapParser instead
+        CMap cmap = new CMapParser(true).parse(new RandomAccessReadBuffer(data));
+        assertEquals("Test", cmap.getName());
+        assertEquals(1, cmap.toCID(0x20, 2));
+        assertEquals(0x41, cmap.toCID(0x41, 2));
+    }
+
+    @Test
+    void testCreateStringFromBytes()
+    {
+        byte[][] values = { { 0x41 }, { 0, 0x41, 0x30, 0x42 }, { (byte) 0xD8, 0x3D, (byte) 0xDE, 0 },
+                { (byte) 0xD8, 0x3D }, { 0, 0x41, 0x42 }, { (byte) 0xFE, (byte) 0xFF, 0, 0x41 } };
+        for (byte[] value : values)
+        {
+            String expected = new String(value, value.length == 1 ? StandardCharsets.ISO_8859_1
+                    : StandardCharsets.UTF_16BE);
+            assertEquals(expected, CMapParser.createStringFromBytes(value));
+        }
+    }
+
+    private static void assertSameCMap(byte[] data, boolean strictMode) throws IOException
+    {
+        CMap expected = new CMapParser(strictMode).parse(new RandomAccessReadBuffer(data),
+                new CMap());
+        CMap cmap = new SimpleCMapParser(data, data.length, strictMode).parse();
+
+        assertEquals(expected.getName(), cmap.getName());
+        assertEquals(expected.getVersion(), cmap.getVersion());
+        assertEquals(expected.getType(), cmap.getType());
+        assertEquals(expected.getRegistry(), cmap.getRegistry());
+        assertEquals(expected.getOrdering(), cmap.getOrdering());
+        assertEquals(expected.getSupplement(), cmap.getSupplement());
+        assertEquals(expected.getWMode(), cmap.getWMode());
+        assertEquals(expected.getSpaceMapping(), cmap.getSpaceMapping());
+        assertEquals(expected.hasCIDMappings(), cmap.hasCIDMappings());
+        assertEquals(expected.hasUnicodeMappings(), cmap.hasUnicodeMappings());
+        for (int code = 0; code <= 0xFFFF; code++)
+        {
+            assertEquals(expected.toCID(code, 1), cmap.toCID(code, 1));
+            assertEquals(expected.toCID(code, 2), cmap.toCID(code, 2));
+            String unicode = expected.toUnicode(code);
+            assertEquals(unicode, cmap.toUnicode(code));
+            if (unicode != null)
+            {
+                assertArrayEquals(expected.getCodesFromUnicode(unicode),
+                        cmap.getCodesFromUnicode(unicode));
+            }
+        }
+    }
+}
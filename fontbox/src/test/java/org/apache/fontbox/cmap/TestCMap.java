@@ -17,6 +17,9 @@
 package org.apache.fontbox.cmap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
@@ -47,6 +50,65 @@ class TestCMap
         assertEquals("a", cMap.toUnicode(bs));
     }
 
+    /**
+     * Check the mappings of one and two byte codes, which are kept in pages.
+     */
+    @Test
+    void testUnicodeMappings()
+    {
+        CMap cMap = new CMap();
+        assertFalse(cMap.hasUnicodeMappings());
+        cMap.addCharMapping(new byte[] { 0x41 }, "A");
+        cMap.addCharMapping(new byte[] { 0x30, 0x41 }, "\u30A2");
+        cMap.addCharMapping(new byte[] { (byte) 0xFF, (byte) 0xFF }, "z");
+        assertTrue(cMap.hasUnicodeMappings());
+        assertEquals("A", cMap.toUnicode(0x41));
+        assertEquals("A", cMap.toUnicode(0x41, 1));
+        assertNull(cMap.toUnicode(0x41, 2));
+        assertEquals("\u30A2", cMap.toUnicode(0x3041));
+        assertEquals("z", cMap.toUnicode(new byte[] { (byte) 0xFF, (byte) 0xFF }));
+        assertNull(cMap.toUnicode(0x3042));
+        assertNull(cMap.toUnicode(0x10000));
+        assertNull(cMap.toUnicode(-1, 2));
+    }
+
+    /**
+     * Check the lookup of CIDs in mappings and in ranges, where the first matching range wins.
+     */
+    @Test
+    void testCIDLookup()
+    {
+        CMap cMap = new CMap();
+        assertFalse(cMap.hasCIDMappings());
+        cMap.addCIDRange(new byte[] { 0x20, 0x00 }, new byte[] { 0x20, (byte) 0xFF }, 100);
+        cMap.addCIDRange(new byte[] { 0x10, 0x00 }, new byte[] { 0x30, (byte) 0xFF }, 1000);
+        cMap.addCIDRange(new byte[] { 0x20, 0x10 }, new byte[] { 0x20, 0x20 }, 5000);
+        cMap.addCIDRange(new byte[] { 0x20 }, new byte[] { 0x30 }, 7);
+        cMap.addCIDMapping(new byte[] { 0x20, 0x05 }, 0);
+        cMap.addCIDMapping(new byte[] { (byte) 0x80, 0x00, 0x00, 0x01 }, 42);
+        assertTrue(cMap.hasCIDMappings());
+
+        assertEquals(100 + 0x15, cMap.toCID(0x2015, 2));
+        assertEquals(1000 + 0x1FF, cMap.toCID(new byte[] { 0x11, (byte) 0xFF }));
+        assertEquals(1000 + 0x2000, cMap.toCID(0x3000, 2));
+        // an explicit mapping to CID 0 hides the range
+        assertEquals(0, cMap.toCID(0x2005, 2));
+        assertEquals(7 + 0x10, cMap.toCID(0x30, 1));
+        assertEquals(0, cMap.toCID(0x31, 1));
+        assertEquals(0, cMap.toCID(0x0FFF, 2));
+        assertEquals(42, cMap.toCID(0x80000001, 4));
+        assertEquals(0, cMap.toCID(0x80000001, 3));
+
+        // the ranges are copied, so extending them doesn't change the used CMap
+        CMap derived = new CMap();
+        derived.useCmap(cMap);
+        derived.addCIDRange(new byte[] { 0x31 }, new byte[] { 0x40 }, 7 + 0x11);
+        assertEquals(7 + 0x20, derived.toCID(0x40, 1));
+        assertEquals(0, cMap.toCID(0x40, 1));
+        assertEquals(100 + 0x15, derived.toCID(0x2015, 2));
+        assertEquals(0, derived.toCID(0x2005, 2));
+    }
+
     /**
      * PDFBOX-3997: test unicode that is above the basic multilingual plane, here: helicopter
      * symbol, or D83D DE81 in the Noto Emoji font.
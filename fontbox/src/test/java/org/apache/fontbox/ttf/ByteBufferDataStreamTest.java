@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.ttf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the data stream for buffers and of fonts that are parsed from a memory-mapped file.
+ */
+class ByteBufferDataStreamTest
+{
+    private static final File FONT_FILE = new File("src/test/resources/ttf/LiberationSans-Regular.ttf");
+
+    @Test
+    void testRead() throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7 });
+        try (ByteBufferDataStream dataStream = new ByteBufferDataStream(buffer))
+        {
+            assertEquals(0x0102, dataStream.readUnsignedShort());
+            ByteBuffer view = dataStream.createView(3);
+            assertEquals(5, dataStream.getCurrentPosition());
+            assertEquals(3, view.remaining());
+            assertEquals(3, view.get(0));
+            assertTrue(view.isReadOnly());
+
+            byte[] bytes = new byte[4];
+            assertEquals(2, dataStream.read(bytes, 0, 4));
+            assertEquals(-1, dataStream.read());
+            assertThrows(IOException.class, () -> dataStream.createView(1));
+            dataStream.seek(6);
+            assertThrows(EOFException.class, () -> dataStream.readUnsignedShort());
+        }
+        // the position of the buffer is never changed
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void testMemoryMappedFont() throws IOException
+    {
+        TrueTypeFont expected;
+        try (RandomAccessReadBufferedFile fontFile = new RandomAccessReadBufferedFile(FONT_FILE))
+        {
+            expected = new TTFParser().parse(fontFile);
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(FONT_FILE.toPath(), StandardOpenOption.READ))
+        {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        TrueTypeFont font = new TTFParser().parse(buffer);
+
+        assertEquals(expected.getName(), font.getName());
+        assertEquals(expected.getNumberOfGlyphs(), font.getNumberOfGlyphs());
+        assertEquals(expected.getOriginalDataSize(), font.getOriginalDataSize());
+        assertArrayEquals(Files.readAllBytes(FONT_FILE.toPath()),
+                IOUtils.toByteArray(font.getOriginalData()));
+        GlyphTable expectedGlyphs = expected.getGlyph();
+        GlyphTable glyphs = font.getGlyph();
+        for (int gid = 0; gid < font.getNumberOfGlyphs(); gid++)
+        {
+            assertEquals(expectedGlyphs.getGlyph(gid).getPath().getBounds2D(),
+                    glyphs.getGlyph(gid).getPath().getBounds2D());
+        }
+        assertEquals(expected.getUnicodeCmapLookup().getGlyphId('A'),
+                font.getUnicodeCmapLookup().getGlyphId('A'));
+    }
+}
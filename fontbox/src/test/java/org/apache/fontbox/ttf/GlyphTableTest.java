@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.ttf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the glyph table, which is read lazily and concurrently.
+ */
+class GlyphTableTest
+{
+    private static final String FONT_PATH = "src/test/resources/ttf/LiberationSans-Regular.ttf";
+
+    @Test
+    void testCache() throws IOException
+    {
+        GlyphTable glyphTable = parse().getGlyph();
+        // A acute, a composite glyph
+        GlyphData aacute = glyphTable.getGlyph(131);
+        assertSame(aacute, glyphTable.getGlyph(131));
+
+        // the recently used glyphs stay in the cache
+        for (int gid = 1000; gid < 1000 + 200; gid++)
+        {
+            glyphTable.getGlyph(gid);
+        }
+        assertSame(aacute, glyphTable.getGlyph(131));
+
+        // the least recently used glyph is dropped when the cache is full
+        for (int gid = 1511; gid < 1511 + 512; gid++)
+        {
+            glyphTable.getGlyph(gid);
+        }
+        assertNotSame(aacute, glyphTable.getGlyph(131));
+        assertEquals(aacute.getPath().getBounds2D(), glyphTable.getGlyph(131).getPath().getBounds2D());
+
+        assertNull(glyphTable.getGlyph(-1));
+        assertNull(glyphTable.getGlyph(2620));
+    }
+
+    @Test
+    void testConcurrentAccess() throws Exception
+    {
+        TrueTypeFont font = parse();
+        int numGlyphs = font.getNumberOfGlyphs();
+        List<Rectangle2D> expected = getBounds(parse().getGlyph(), 0, 1);
+
+        GlyphTable glyphTable = font.getGlyph();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<List<Rectangle2D>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+            {
+                // each thread reads all glyphs, starting at different glyphs
+                int start = i * numGlyphs / 4;
+                futures.add(executor.submit(() -> getBounds(glyphTable, start, 7)));
+            }
+            for (Future<List<Rectangle2D>> future : futures)
+            {
+                assertEquals(expected, future.get());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    // returns the bounds of the paths of all glyphs, in the order of the GIDs
+    private static List<Rectangle2D> getBounds(GlyphTable glyphTable, int start, int step)
+            throws IOException
+    {
+        int numGlyphs = 2620;
+        Rectangle2D[] bounds = new Rectangle2D[numGlyphs];
+        for (int i = 0; i < numGlyphs; i++)
+        {
+            int gid = (start + i * step) % numGlyphs;
+            bounds[gid] = glyphTable.getGlyph(gid).getPath().getBounds2D();
+        }
+        List<Rectangle2D> list = new ArrayList<>();
+        for (Rectangle2D rect : bounds)
+        {
+            list.add(rect);
+        }
+        return list;
+    }
+
+    private static TrueTypeFont parse() throws IOException
+    {
+        try (RandomAccessRead fontFile = new RandomAccessReadBufferedFile(FONT_PATH))
+        {
+            return new TTFParser().parse(fontFile);
+        }
+    }
+}
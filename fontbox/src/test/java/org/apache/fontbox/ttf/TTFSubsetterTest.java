@@ -22,11 +22,13 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Map.Entry;
 import org.apache.fontbox.util.autodetect.FontFileFinder;
 import org.apache.pdfbox.io.RandomAccessReadBuffer;
 import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -273,4 +275,43 @@ class TTFSubsetterTest
                     "UC dieresis path should not be empty");
         }
     }
+
+    /**
+     * Several subsets of the same font share the data read from the font, the composite glyphs
+     * of glyphs added after a subset was used must still be resolved.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    void testSubsetsOfSameFont() throws IOException
+    {
+        final File testFile = new File("src/test/resources/ttf/LiberationSans-Regular.ttf");
+        TrueTypeFont ttf = new TTFParser().parse(new RandomAccessReadBufferedFile(testFile));
+
+        TTFSubsetter ttfSubsetter = new TTFSubsetter(ttf);
+        ttfSubsetter.add('a');
+        assertEquals(2, ttfSubsetter.getGIDMap().size());
+        ttfSubsetter.add('\u00D6');
+        Map<Integer, Integer> gidMap = ttfSubsetter.getGIDMap();
+        assertEquals(5, gidMap.size());
+        assertEquals(ttf.nameToGID("dieresis.uc"), gidMap.get(4));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ttfSubsetter.writeToStream(baos);
+
+        TTFSubsetter ttfSubsetter2 = new TTFSubsetter(ttf);
+        ttfSubsetter2.add('\u00D6');
+        ttfSubsetter2.add('a');
+        ByteArrayOutputStream baos2 = new ByteArrayOutputStream();
+        ttfSubsetter2.writeToStream(baos2);
+        assertArrayEquals(baos.toByteArray(), baos2.toByteArray());
+
+        try (TrueTypeFont subset = new TTFParser(true)
+                .parse(new RandomAccessReadBuffer(baos.toByteArray())))
+        {
+            assertEquals(5, subset.getNumberOfGlyphs());
+            assertEquals(ttf.getAdvanceWidth(ttf.nameToGID("Odieresis")),
+                    subset.getAdvanceWidth(subset.nameToGID("Odieresis")));
+            assertFalse(subset.getPath("Odieresis").getBounds2D().isEmpty());
+        }
+    }
 }
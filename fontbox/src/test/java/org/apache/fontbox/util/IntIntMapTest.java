@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.fontbox.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the map with primitive int keys and values.
+ */
+class IntIntMapTest
+{
+    @Test
+    void testPutAndGet()
+    {
+        IntIntMap map = new IntIntMap();
+        assertTrue(map.isEmpty());
+        map.put(0, 5);
+        map.put(-1, 6);
+        map.put(Integer.MIN_VALUE, 7);
+        map.put(65, 8);
+        map.put(65, 9);
+        assertEquals(4, map.size());
+        assertEquals(5, map.get(0, -1));
+        assertEquals(6, map.get(-1, 0));
+        assertEquals(7, map.get(Integer.MIN_VALUE, -1));
+        assertEquals(9, map.get(65, -1));
+        assertEquals(-1, map.get(66, -1));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(1));
+        assertArrayEquals(new int[] { Integer.MIN_VALUE, -1, 0, 65 }, map.keys());
+    }
+
+    @Test
+    void testCompareWithHashMap()
+    {
+        Random random = new Random(42);
+        IntIntMap map = new IntIntMap(0);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++)
+        {
+            // consecutive codes and random codes
+            int key = i % 2 == 0 ? i / 2 : random.nextInt();
+            int value = random.nextInt();
+            map.put(key, value);
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value.intValue(), map.get(key, 0)));
+
+        Map<Integer, Integer> entries = new HashMap<>();
+        map.forEach(entries::put);
+        assertEquals(expected, entries);
+
+        IntIntMap copy = new IntIntMap();
+        copy.putAll(map);
+        assertArrayEquals(map.keys(), copy.keys());
+    }
+}
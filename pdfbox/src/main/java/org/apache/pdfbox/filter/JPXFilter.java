@@ -15,6 +15,7 @@
  * limitations under the License.
  */
 package org.apache.pdfbox.filter;
+import java.awt.Rectangle;
 import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
@@ -26,10 +27,14 @@ import java.awt.image.Raster;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.MemoryCacheImageInputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.graphics.color.PDJPXColorSpace;
@@ -51,6 +56,18 @@ import org.apache.pdfbox.pdmodel.graphics.color.PDJPXColorSpace;
  */
 public final class JPXFilter extends Filter
 {
+    private static final Log LOG = LogFactory.getLog(JPXFilter.class);
+
+    // JPEG 2000 codestream markers
+    private static final int SOC = 0xFF4F;
+    private static final int SIZ = 0xFF51;
+    private static final int COD = 0xFF52;
+    private static final int COC = 0xFF53;
+    private static final int SOT = 0xFF90;
+
+    // JP2 box type of the contiguous codestream box
+    private static final int JP2C = 0x6A703263;
+
     /**
      * {@inheritDoc}
      */
@@ -115,10 +132,20 @@ public final class JPXFilter extends Filter
         // PDFBOX-4121: ImageIO.createImageInputStream() is much slower
         try (ImageInputStream iis = new MemoryCacheImageInputStream(input))
         {
+            int[] levels = getResolutionLevels(iis, options);
             reader.setInput(iis, true, true);
             ImageReadParam irp = reader.getDefaultReadParam();
             irp.setSourceRegion(options.getSourceRegion());
-            irp.setSourceSubsampling(options.getSubsamplingX(), options.getSubsamplingY(),
+            int reduction = 0;
+            if (levels != null && setResolution(irp, levels[0] - levels[1]))
+            {
+                // the source region covers the whole image
+                irp.setSourceRegion(null);
+                reduction = levels[1];
+            }
+            // the subsampling that remains after decoding at a lower resolution level
+            irp.setSourceSubsampling(options.getSubsamplingX() >> reduction,
+                    options.getSubsamplingY() >> reduction,
                     options.getSubsamplingOffsetX(), options.getSubsamplingOffsetY());
             options.setFilterSubsampled(true);
 
@@ -180,6 +207,181 @@ public final class JPXFilter extends Filter
         }
     }
 
+    /**
+     * Finds out by how many resolution levels the image can be reduced to honor the subsampling of
+     * the decode options. JPEG 2000 images are made of several resolution levels, each one half
+     * the size of the next one, so an image that is subsampled by 2<sup>n</sup> can be decoded at
+     * a lower resolution level, which is much faster than decoding the full image and skipping
+     * samples. This is only done when the whole image is decoded and when the size of the reduced
+     * image is exactly the size of the subsampled image.
+     *
+     * @param iis the image input stream, its position is kept.
+     * @param options the decode options.
+     * @return an array with the number of resolution levels below the full resolution and the
+     * number of levels to skip, or null if the image should be decoded at full resolution.
+     */
+    private static int[] getResolutionLevels(ImageInputStream iis, DecodeOptions options)
+    {
+        int subsamplingX = options.getSubsamplingX();
+        int subsamplingY = options.getSubsamplingY();
+        if (options.getSubsamplingOffsetX() != 0 || options.getSubsamplingOffsetY() != 0 ||
+            subsamplingX < 2 || subsamplingY < 2)
+        {
+            return null;
+        }
+        int reduction = Math.min(Integer.numberOfTrailingZeros(subsamplingX),
+                Integer.numberOfTrailingZeros(subsamplingY));
+        try
+        {
+            iis.mark();
+            long[] header = readCodestreamHeader(iis);
+            Rectangle region = options.getSourceRegion();
+            if (header == null || region != null &&
+                    !region.contains(0, 0, header[2] - header[0], header[3] - header[1]))
+            {
+                return null;
+            }
+            reduction = (int) Math.min(reduction, header[4]);
+            while (reduction > 0 &&
+                    (!isSameSize(header[0], header[2], reduction, subsamplingX) ||
+                     !isSameSize(header[1], header[3], reduction, subsamplingY)))
+            {
+                reduction--;
+            }
+            return reduction > 0 ? new int[] { (int) header[4], reduction } : null;
+        }
+        catch (IOException ex)
+        {
+            LOG.debug("Couldn't read JPEG 2000 header, image will be decoded at full resolution", ex);
+            return null;
+        }
+        finally
+        {
+            try
+            {
+                iis.reset();
+            }
+            catch (IOException ex)
+            {
+                LOG.debug("Couldn't reset JPEG 2000 stream", ex);
+            }
+        }
+    }
+
+    /**
+     * Tells whether reducing the image by the given number of resolution levels and then
+     * subsampling the remaining factor gives the same size as subsampling the full image.
+     */
+    private static boolean isSameSize(long offset, long end, int reduction, int subsampling)
+    {
+        long reducedSize = ceilDiv(end, 1L << reduction) - ceilDiv(offset, 1L << reduction);
+        return ceilDiv(reducedSize, subsampling >> reduction) == ceilDiv(end - offset, subsampling);
+    }
+
+    private static long ceilDiv(long x, long y)
+    {
+        return (x + y - 1) / y;
+    }
+
+    /**
+     * Reads the main header of a JPEG 2000 codestream, which may be wrapped in a JP2 file.
+     *
+     * @return an array with XOsiz, YOsiz, Xsiz, Ysiz and the lowest number of decomposition
+     * levels, or null if the header couldn't be found.
+     */
+    private static long[] readCodestreamHeader(ImageInputStream iis) throws IOException
+    {
+        if (iis.readUnsignedShort() != SOC)
+        {
+            // JP2 file, find the codestream box
+            iis.seek(0);
+            while (true)
+            {
+                long boxStart = iis.getStreamPosition();
+                long length = iis.readUnsignedInt();
+                int type = iis.readInt();
+                if (length == 1)
+                {
+                    length = iis.readLong();
+                }
+                if (type == JP2C)
+                {
+                    break;
+                }
+                if (length < 8)
+                {
+                    return null;
+                }
+                iis.seek(boxStart + length);
+            }
+            if (iis.readUnsignedShort() != SOC)
+            {
+                return null;
+            }
+        }
+        long[] header = null;
+        int numComponents = 0;
+        int levels = Integer.MAX_VALUE;
+        int marker = iis.readUnsignedShort();
+        while (marker != SOT)
+        {
+            int length = iis.readUnsignedShort();
+            long segmentEnd = iis.getStreamPosition() + length - 2;
+            switch (marker)
+            {
+                case SIZ:
+                    iis.skipBytes(2);
+                    long xsiz = iis.readUnsignedInt();
+                    long ysiz = iis.readUnsignedInt();
+                    header = new long[] { iis.readUnsignedInt(), iis.readUnsignedInt(), xsiz, ysiz, 0 };
+                    iis.skipBytes(16);
+                    numComponents = iis.readUnsignedShort();
+                    break;
+                case COD:
+                    iis.skipBytes(5);
+                    levels = Math.min(levels, iis.readUnsignedByte());
+                    break;
+                case COC:
+                    iis.skipBytes(numComponents < 257 ? 2 : 3);
+                    levels = Math.min(levels, iis.readUnsignedByte());
+                    break;
+                default:
+                    break;
+            }
+            iis.seek(segmentEnd);
+            marker = iis.readUnsignedShort();
+        }
+        if (header == null || levels == Integer.MAX_VALUE)
+        {
+            return null;
+        }
+        header[4] = levels;
+        return header;
+    }
+
+    /**
+     * Sets the resolution level to decode, if the image reader supports it. This is done by
+     * reflection because the JAI Image I/O Tools are an optional dependency.
+     *
+     * @param irp the read parameters.
+     * @param resolution the resolution level, 0 being the lowest one.
+     * @return true if the resolution level was set.
+     */
+    private static boolean setResolution(ImageReadParam irp, int resolution)
+    {
+        try
+        {
+            Method setResolution = irp.getClass().getMethod("setResolution", int.class);
+            setResolution.invoke(irp, resolution);
+            return true;
+        }
+        catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex)
+        {
+            LOG.debug("The JPEG 2000 reader doesn't support resolution levels", ex);
+            return false;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
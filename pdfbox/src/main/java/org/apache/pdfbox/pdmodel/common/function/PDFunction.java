@@ -27,6 +27,7 @@ import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.pdmodel.common.COSObjectable;
 import org.apache.pdfbox.pdmodel.common.PDRange;
 import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.common.function.type4.OperandStack;
 
 /**
  * This class represents a function in a PDF document.
@@ -255,6 +256,25 @@ public abstract class PDFunction implements COSObjectable
      * @throws IOException if something went wrong processing the function.  
      */
     public abstract float[] eval(float[] input) throws IOException;
+
+    /**
+     * Evaluates the function like {@link #eval(float[])}, but with state that the caller reuses
+     * for many evaluations, e.g. for every pixel of a shading. Type 4 functions store the result
+     * in the given output array and execute on the given operand stack, so that they don't create
+     * objects; other functions return a new array.
+     *
+     * @param input The array of input values for the function.
+     * @param output The array for the output values, which is used if it has as many elements as
+     * the function has outputs, or null.
+     * @param stack The operand stack for Type 4 functions, which must not be used by another
+     * thread at the same time, or null.
+     * @return The output values, either in the given array or in a new array.
+     * @throws IOException an IOExcpetion is thrown if something went wrong processing the function.
+     */
+    public float[] eval(float[] input, float[] output, OperandStack stack) throws IOException
+    {
+        return eval(input);
+    }
     
     /**
      * Returns all ranges for the output values as COSArray .
@@ -63,9 +63,10 @@ public class PDFunctionType0 extends PDFunction
      */
     private COSArray size = null;
     /**
-     * The samples of the function.
+     * The samples of the function and the values to interpolate them, created when the function
+     * is evaluated for the first time.
      */
-    private int[][] samples = null;
+    private volatile SampleTable sampleTable = null;
     
     /**
      * Constructor.
@@ -134,6 +135,7 @@ public class PDFunctionType0 extends PDFunction
     public void setBitsPerSample(int bps)
     {
         getCOSObject().setInt(COSName.BITS_PER_SAMPLE, bps);
+        sampleTable = null;
     }
     
     /**
@@ -208,6 +210,7 @@ public class PDFunctionType0 extends PDFunction
     {
         encode = encodeValues;
         getCOSObject().setItem(COSName.ENCODE, encodeValues);
+        sampleTable = null;
     }
 
     /**
@@ -237,184 +240,119 @@ public class PDFunctionType0 extends PDFunction
     {
         decode = decodeValues;
         getCOSObject().setItem(COSName.DECODE, decodeValues);
+        sampleTable = null;
     }
 
     /**
-     * Inner class do to an interpolation in the Nth dimension by comparing the
-     * content size of N-1 dimensional objects. This is done with the help of
-     * recursive calls. To understand the algorithm without recursion, here is a
-     * <a
-     * href="http://harmoniccode.blogspot.de/2011/04/bilinear-color-interpolation.html">bilinear
-     * interpolation</a> and here's a <a
-     * href="https://en.wikipedia.org/wiki/Trilinear_interpolation">trilinear
-     * interpolation</a> (external links).
+     * {@inheritDoc}
      */
-    private class Rinterpol
+    @Override
+    public void setDomainValues(COSArray domainValues)
     {
-        // coordinate that is to be interpolated
-        private final float[] in;
-        // coordinate of the "ceil" point
-        private final int[] inPrev;
-        // coordinate of the "floor" point
-        private final int[] inNext;
-        private final int numberOfInputValues;
-        private final int numberOfOutputValues = getNumberOfOutputParameters();
+        super.setDomainValues(domainValues);
+        sampleTable = null;
+    }
 
-        /**
-         * Constructor.
-         *
-         * @param input the input coordinates
-         * @param inputPrev coordinate of the "ceil" point
-         * @param inputNext coordinate of the "floor" point
-         *
-         */
-        Rinterpol(float[] input, int[] inputPrev, int[] inputNext)
-        {
-            in = input;
-            inPrev = inputPrev;
-            inNext = inputNext;
-            numberOfInputValues = input.length;
-        }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setRangeValues(COSArray rangeValues)
+    {
+        super.setRangeValues(rangeValues);
+        sampleTable = null;
+    }
 
-        /**
-         * Calculate the interpolation.
-         *
-         * @return interpolated result sample
-         */
-        float[] rinterpolate()
-        {
-            return rinterpol(new int[numberOfInputValues], 0);
-        }
 
-        /**
-         * Do a linear interpolation if the two coordinates can be known, or
-         * call itself recursively twice.
-         *
-         * @param coord coord partially set coordinate (not set from step
-         * upwards); gets fully filled in the last call ("leaf"), where it is
-         * used to get the correct sample
-         * @param step between 0 (first call) and dimension - 1
-         * @return interpolated result sample
-         */
-        private float[] rinterpol(int[] coord, int step)
+    /**
+     * Returns the sample table of this function, which is created when it is needed for the first
+     * time.
+     *
+     * @return the sample table.
+     */
+    private SampleTable getSampleTable()
+    {
+        SampleTable table = sampleTable;
+        if (table == null)
         {
-            float[] resultSample = new float[numberOfOutputValues];
-            if (step == in.length - 1)
-            {
-                // leaf
-                if (inPrev[step] == inNext[step])
-                {
-                    coord[step] = inPrev[step];
-                    int[] tmpSample = getSamples()[calcSampleIndex(coord)];
-                    for (int i = 0; i < numberOfOutputValues; ++i)
-                    {
-                        resultSample[i] = tmpSample[i];
-                    }
-                    return resultSample;
-                }
-                coord[step] = inPrev[step];
-                int[] sample1 = getSamples()[calcSampleIndex(coord)];
-                coord[step] = inNext[step];
-                int[] sample2 = getSamples()[calcSampleIndex(coord)];
-                for (int i = 0; i < numberOfOutputValues; ++i)
-                {
-                    resultSample[i] = interpolate(in[step], inPrev[step], inNext[step], sample1[i], sample2[i]);
-                }
-                return resultSample;
-            }
-            else
-            {
-                // branch
-                if (inPrev[step] == inNext[step])
-                {
-                    coord[step] = inPrev[step];
-                    return rinterpol(coord, step + 1);
-                }
-                coord[step] = inPrev[step];
-                float[] sample1 = rinterpol(coord, step + 1);
-                coord[step] = inNext[step];
-                float[] sample2 = rinterpol(coord, step + 1);
-                for (int i = 0; i < numberOfOutputValues; ++i)
-                {
-                    resultSample[i] = interpolate(in[step], inPrev[step], inNext[step], sample1[i], sample2[i]);
-                }
-                return resultSample;
-            }
+            table = new SampleTable();
+            sampleTable = table;
         }
+        return table;
+    }
 
-        /**
-         * calculate array index (structure described in p.171 PDF spec 1.7) in multiple dimensions.
-         *
-         * @param vector with coordinates
-         * @return index in flat array
-         */
-        private int calcSampleIndex(int[] vector)
+    /**
+     * The samples of the function in one flat array, with all values that are needed for the
+     * interpolation. The samples are stored like in the stream (p.171 PDF spec 1.7): the output
+     * values of a sample are adjacent and the first input dimension varies fastest, so that the
+     * index of a sample is the sum of its coordinates multiplied with the strides.
+     */
+    private final class SampleTable
+    {
+        private final float[] samples;
+        private final int[] sizes;
+        // distance in the samples array between adjacent samples of each input dimension
+        private final int[] strides;
+        private final float[] domainValues;
+        private final float[] encodeValues;
+        private final float[] decodeValues;
+        private final float[] rangeValues;
+        private final int numberOfOutputValues;
+        private final float maxSample;
+
+        SampleTable()
         {
-            // inspiration: http://stackoverflow.com/a/12113479/535646
-            // but used in reverse
-            float[] sizeValues = getSize().toFloatArray();
-            int index = 0;
-            int sizeProduct = 1;
-            int dimension = vector.length;
-            for (int i = dimension - 2; i >= 0; --i)
+            COSArray sizeValues = getSize();
+            int numberOfInputValues = sizeValues.size();
+            numberOfOutputValues = getNumberOfOutputParameters();
+            sizes = new int[numberOfInputValues];
+            strides = new int[numberOfInputValues];
+            int stride = numberOfOutputValues;
+            for (int i = 0; i < numberOfInputValues; i++)
             {
-                sizeProduct *= sizeValues[i];
+                sizes[i] = sizeValues.getInt(i);
+                strides[i] = stride;
+                stride *= sizes[i];
             }
-            for (int i = dimension - 1; i >= 0; --i)
-            {
-                index += sizeProduct * vector[i];
-                if (i - 1 >= 0)
-                {
-                    sizeProduct /= sizeValues[i - 1];
-                }
-            }
-            return index;
+            samples = readSamples(stride);
+            COSArray domain = getCOSObject().getCOSArray(COSName.DOMAIN);
+            domainValues = domain != null ? domain.toFloatArray() : new float[0];
+            encodeValues = getEncodeValues().toFloatArray();
+            COSArray decode = getDecodeValues();
+            decodeValues = decode != null ? decode.toFloatArray() : new float[0];
+            COSArray range = getRangeValues();
+            rangeValues = range != null ? range.toFloatArray() : new float[0];
+            maxSample = (float) (Math.pow(2, getBitsPerSample()) - 1.0);
         }
 
         /**
-         * Get all sample values of this function.
+         * Reads all sample values of this function.
          *
-         * @return an array with all samples.
+         * @param length the number of sample values
+         * @return an array with all sample values.
          */
-        private int[][] getSamples()
+        private float[] readSamples(int length)
         {
-            if (samples == null)
+            float[] values = new float[length];
+            int bitsPerSample = getBitsPerSample();
+            try (InputStream is = getPDStream().createInputStream())
             {
-                int arraySize = 1;
-                int nIn = getNumberOfInputParameters();
-                int nOut = getNumberOfOutputParameters();
-                COSArray sizes = getSize();
-                for (int i = 0; i < nIn; i++)
-                {
-                    arraySize *= sizes.getInt(i);
-                }
-                samples = new int[arraySize][nOut];
-                int bitsPerSample = getBitsPerSample();
-                int index = 0;
-                try (InputStream is = getPDStream().createInputStream())
+                // PDF spec 1.7 p.171:
+                // Each sample value is represented as a sequence of BitsPerSample bits. 
+                // Successive values are adjacent in the bit stream; there is no padding at byte boundaries.
+                try (ImageInputStream mciis = new MemoryCacheImageInputStream(is))
                 {
-                    // PDF spec 1.7 p.171:
-                    // Each sample value is represented as a sequence of BitsPerSample bits. 
-                    // Successive values are adjacent in the bit stream; there is no padding at byte boundaries.
-                    try (ImageInputStream mciis = new MemoryCacheImageInputStream(is))
+                    for (int i = 0; i < length; i++)
                     {
-                        for (int i = 0; i < arraySize; i++)
-                        {
-                            for (int k = 0; k < nOut; k++)
-                            {
-                                // TODO will this cast work properly for 32 bitsPerSample or should we use long[]?
-                                samples[index][k] = (int) mciis.readBits(bitsPerSample);
-                            }
-                            index++;
-                        }
+                        values[i] = mciis.readBits(bitsPerSample);
                     }
                 }
-                catch (IOException exception)
-                {
-                    LOG.error("IOException while reading the sample values of this function.", exception);
-                }
             }
-            return samples;
+            catch (IOException exception)
+            {
+                LOG.error("IOException while reading the sample values of this function.", exception);
+            }
+            return values;
         }
     }
 
@@ -427,42 +365,171 @@ public class PDFunctionType0 extends PDFunction
         //This involves linear interpolation based on a set of sample points.
         //Theoretically it's not that difficult ... see section 3.9.1 of the PDF Reference.
 
-        float[] sizeValues = getSize().toFloatArray();
-        int bitsPerSample = getBitsPerSample();
-        float maxSample = (float) (Math.pow(2, bitsPerSample) - 1.0);
-        int numberOfInputValues = input.length;
-        int numberOfOutputValues = getNumberOfOutputParameters();
+        SampleTable table = getSampleTable();
+        int numberOfOutputValues = table.numberOfOutputValues;
+        if (table.decodeValues.length < numberOfOutputValues * 2)
+        {
+            throw new IOException("Range missing in function /Decode entry");
+        }
+
+        float[] outputValues = new float[numberOfOutputValues];
+        switch (input.length)
+        {
+            case 1:
+                interpolate1(table, input, outputValues);
+                break;
+            case 2:
+                interpolate2(table, input, outputValues);
+                break;
+            default:
+                interpolateN(table, input, outputValues);
+                break;
+        }
+
+        float[] decodeValues = table.decodeValues;
+        float[] rangeValues = table.rangeValues;
+        for (int i = 0; i < numberOfOutputValues; i++)
+        {
+            float value = interpolate(outputValues[i], 0, table.maxSample, decodeValues[i * 2],
+                    decodeValues[i * 2 + 1]);
+            outputValues[i] = clipToRange(value, rangeValues[i * 2], rangeValues[i * 2 + 1]);
+        }
+        return outputValues;
+    }
 
-        int[] inputPrev = new int[numberOfInputValues];
-        int[] inputNext = new int[numberOfInputValues];
-        input = input.clone(); // PDFBOX-4461
+    /**
+     * Maps an input value into the domain of the sample table.
+     *
+     * @param table the sample table
+     * @param i the number of the input value
+     * @param x the input value
+     * @return the coordinate in the sample table
+     */
+    private float encodeInput(SampleTable table, int i, float x)
+    {
+        float domainMin = table.domainValues[i * 2];
+        float domainMax = table.domainValues[i * 2 + 1];
+        x = clipToRange(x, domainMin, domainMax);
+        x = interpolate(x, domainMin, domainMax, table.encodeValues[i * 2],
+                table.encodeValues[i * 2 + 1]);
+        return clipToRange(x, 0, table.sizes[i] - 1);
+    }
 
+    /**
+     * Linear interpolation for functions with one input value. The other interpolation methods do
+     * the same in more dimensions: along the last dimension first, then along the others.
+     */
+    private void interpolate1(SampleTable table, float[] input, float[] outputValues)
+    {
+        float[] samples = table.samples;
+        int numberOfOutputValues = outputValues.length;
+        float x = encodeInput(table, 0, input[0]);
+        int prev = (int) Math.floor(x);
+        int step = getStep(table, 0, prev, x);
+        int offset = prev * table.strides[0];
+        if (step == 0)
+        {
+            System.arraycopy(samples, offset, outputValues, 0, numberOfOutputValues);
+            return;
+        }
+        float t = x - prev;
+        int next = offset + step;
+        for (int k = 0; k < numberOfOutputValues; k++)
+        {
+            float sample1 = samples[offset + k];
+            outputValues[k] = sample1 + t * (samples[next + k] - sample1);
+        }
+    }
+
+    /**
+     * Bilinear interpolation for functions with two input values.
+     */
+    private void interpolate2(SampleTable table, float[] input, float[] outputValues)
+    {
+        float[] samples = table.samples;
+        int numberOfOutputValues = outputValues.length;
+        float x0 = encodeInput(table, 0, input[0]);
+        float x1 = encodeInput(table, 1, input[1]);
+        int prev0 = (int) Math.floor(x0);
+        int prev1 = (int) Math.floor(x1);
+        int step0 = getStep(table, 0, prev0, x0);
+        int step1 = getStep(table, 1, prev1, x1);
+        float t0 = step0 != 0 ? x0 - prev0 : 0;
+        float t1 = step1 != 0 ? x1 - prev1 : 0;
+        int offset0 = prev0 * table.strides[0] + prev1 * table.strides[1];
+        int offset1 = offset0 + step0;
+        for (int k = 0; k < numberOfOutputValues; k++)
+        {
+            float sample00 = samples[offset0 + k];
+            float sample10 = samples[offset1 + k];
+            float value0 = sample00 + t1 * (samples[offset0 + step1 + k] - sample00);
+            float value1 = sample10 + t1 * (samples[offset1 + step1 + k] - sample10);
+            outputValues[k] = value0 + t0 * (value1 - value0);
+        }
+    }
+
+    /**
+     * Multilinear interpolation for functions with any number of input values. The values of all
+     * corners of the surrounding cell are collected and then interpolated pairwise along one
+     * dimension after the other.
+     */
+    private void interpolateN(SampleTable table, float[] input, float[] outputValues)
+    {
+        float[] samples = table.samples;
+        int numberOfInputValues = input.length;
+        int numberOfOutputValues = outputValues.length;
+        float[] t = new float[numberOfInputValues];
+        int[] steps = new int[numberOfInputValues];
+        int offset = 0;
         for (int i = 0; i < numberOfInputValues; i++)
         {
-            PDRange domain = getDomainForInput(i);
-            PDRange encodeValues = getEncodeForParameter(i);
-            input[i] = clipToRange(input[i], domain.getMin(), domain.getMax());
-            input[i] = interpolate(input[i], domain.getMin(), domain.getMax(), 
-                    encodeValues.getMin(), encodeValues.getMax());
-            input[i] = clipToRange(input[i], 0, sizeValues[i] - 1);
-            inputPrev[i] = (int) Math.floor(input[i]);
-            inputNext[i] = (int) Math.ceil(input[i]);
+            float x = encodeInput(table, i, input[i]);
+            int prev = (int) Math.floor(x);
+            steps[i] = getStep(table, i, prev, x);
+            t[i] = steps[i] != 0 ? x - prev : 0;
+            offset += prev * table.strides[i];
         }
-        
-        float[] outputValues = new Rinterpol(input, inputPrev, inputNext).rinterpolate();
 
-        for (int i = 0; i < numberOfOutputValues; i++)
+        // the bit (numberOfInputValues - 1 - i) of a corner is set for the next sample in dimension i
+        int corners = 1 << numberOfInputValues;
+        float[] values = new float[corners * numberOfOutputValues];
+        for (int corner = 0; corner < corners; corner++)
         {
-            PDRange range = getRangeForOutput(i);
-            PDRange decodeValues = getDecodeForParameter(i);
-            if (decodeValues == null)
+            int cornerOffset = offset;
+            for (int i = 0; i < numberOfInputValues; i++)
             {
-                throw new IOException("Range missing in function /Decode entry");
+                if ((corner >> (numberOfInputValues - 1 - i) & 1) != 0)
+                {
+                    cornerOffset += steps[i];
+                }
             }
-            outputValues[i] = interpolate(outputValues[i], 0, maxSample, decodeValues.getMin(), decodeValues.getMax());
-            outputValues[i] = clipToRange(outputValues[i], range.getMin(), range.getMax());
+            System.arraycopy(samples, cornerOffset, values, corner * numberOfOutputValues,
+                    numberOfOutputValues);
         }
+        for (int i = numberOfInputValues - 1; i >= 0; i--)
+        {
+            corners >>= 1;
+            for (int corner = 0; corner < corners; corner++)
+            {
+                int index0 = corner * 2 * numberOfOutputValues;
+                int index1 = index0 + numberOfOutputValues;
+                for (int k = 0; k < numberOfOutputValues; k++)
+                {
+                    float value0 = values[index0 + k];
+                    values[corner * numberOfOutputValues + k] =
+                            value0 + t[i] * (values[index1 + k] - value0);
+                }
+            }
+        }
+        System.arraycopy(values, 0, outputValues, 0, numberOfOutputValues);
+    }
 
-        return outputValues;
+    /**
+     * Returns the distance to the next sample in the given dimension that is used for the
+     * interpolation, or 0 if the coordinate is exactly on a sample or on the last sample.
+     */
+    private static int getStep(SampleTable table, int i, int prev, float x)
+    {
+        return x > prev && prev < table.sizes[i] - 1 ? table.strides[i] : 0;
     }
 }
@@ -16,11 +16,16 @@
  */
 package org.apache.pdfbox.pdmodel.common.function;
 
+import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.pdmodel.common.PDRange;
+import org.apache.pdfbox.pdmodel.common.function.type4.CompiledInstructionSequence;
 import org.apache.pdfbox.pdmodel.common.function.type4.ExecutionContext;
 import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequence;
 import org.apache.pdfbox.pdmodel.common.function.type4.InstructionSequenceBuilder;
+import org.apache.pdfbox.pdmodel.common.function.type4.OperandStack;
 import org.apache.pdfbox.pdmodel.common.function.type4.Operators;
 
 import java.io.IOException;
@@ -39,6 +44,12 @@ public class PDFunctionType4 extends PDFunction
 
     private final InstructionSequence instructions;
 
+    // null if the instructions can't be compiled
+    private final CompiledInstructionSequence compiledInstructions;
+
+    private float[] domainValues;
+    private float[] rangeValues;
+
     /**
      * Constructor.
      *
@@ -51,6 +62,52 @@ public class PDFunctionType4 extends PDFunction
         byte[] bytes = getPDStream().toByteArray();
         String string = new String(bytes, StandardCharsets.ISO_8859_1);
         this.instructions = InstructionSequenceBuilder.parse(string);
+        this.compiledInstructions = CompiledInstructionSequence.compile(instructions);
+        this.domainValues = toFloatArray(getCOSObject().getCOSArray(COSName.DOMAIN));
+        this.rangeValues = toFloatArray(getRangeValues());
+    }
+
+    /**
+     * Returns the values of the given array, or null if it is missing or contains other objects
+     * than numbers.
+     */
+    private static float[] toFloatArray(COSArray array)
+    {
+        if (array == null)
+        {
+            return null;
+        }
+        float[] values = new float[array.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            COSBase base = array.getObject(i);
+            if (!(base instanceof COSNumber))
+            {
+                return null;
+            }
+            values[i] = ((COSNumber) base).floatValue();
+        }
+        return values;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setDomainValues(COSArray domainValues)
+    {
+        super.setDomainValues(domainValues);
+        this.domainValues = toFloatArray(domainValues);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setRangeValues(COSArray rangeValues)
+    {
+        super.setRangeValues(rangeValues);
+        this.rangeValues = toFloatArray(rangeValues);
     }
     
     /**
@@ -68,6 +125,28 @@ public class PDFunctionType4 extends PDFunction
     @Override
     public float[] eval(float[] input) throws IOException
     {
+        return eval(input, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Functions that can be compiled are evaluated in the given array on the given stack, so
+     * that the evaluation doesn't create objects.
+     */
+    @Override
+    public float[] eval(float[] input, float[] output, OperandStack stack) throws IOException
+    {
+        int numberOfOutputValues = getNumberOfOutputParameters();
+        if (compiledInstructions != null && domainValues != null && rangeValues != null &&
+                domainValues.length >= input.length * 2 &&
+                rangeValues.length >= numberOfOutputValues * 2)
+        {
+            float[] outputValues = output != null && output.length == numberOfOutputValues ?
+                    output : new float[numberOfOutputValues];
+            return evalCompiled(input, outputValues, stack != null ? stack : new OperandStack());
+        }
+
         //Setup the input values
         ExecutionContext context = new ExecutionContext(OPERATORS);
         for (int i = 0; i < input.length; i++)
@@ -81,15 +160,8 @@ public class PDFunctionType4 extends PDFunction
         instructions.execute(context);
 
         //Extract the output values
-        int numberOfOutputValues = getNumberOfOutputParameters();
         int numberOfActualOutputValues = context.getStack().size();
-        if (numberOfActualOutputValues < numberOfOutputValues)
-        {
-            throw new IllegalStateException("The type 4 function returned "
-                    + numberOfActualOutputValues
-                    + " values but the Range entry indicates that "
-                    + numberOfOutputValues + " values be returned.");
-        }
+        checkNumberOfOutputValues(numberOfActualOutputValues, numberOfOutputValues);
         float[] outputValues = new float[numberOfOutputValues];
         for (int i = numberOfOutputValues - 1; i >= 0; i--)
         {
@@ -101,4 +173,30 @@ public class PDFunctionType4 extends PDFunction
         //Return the resulting array
         return outputValues;
     }
+
+    private float[] evalCompiled(float[] input, float[] outputValues, OperandStack stack)
+    {
+        int numberOfOutputValues = outputValues.length;
+        int numberOfActualOutputValues = compiledInstructions.execute(input, domainValues,
+                outputValues, stack);
+        checkNumberOfOutputValues(numberOfActualOutputValues, numberOfOutputValues);
+        for (int i = 0; i < numberOfOutputValues; i++)
+        {
+            outputValues[i] = clipToRange(outputValues[i], rangeValues[i * 2],
+                    rangeValues[i * 2 + 1]);
+        }
+        return outputValues;
+    }
+
+    private static void checkNumberOfOutputValues(int numberOfActualOutputValues,
+            int numberOfOutputValues)
+    {
+        if (numberOfActualOutputValues < numberOfOutputValues)
+        {
+            throw new IllegalStateException("The type 4 function returned "
+                    + numberOfActualOutputValues
+                    + " values but the Range entry indicates that "
+                    + numberOfOutputValues + " values be returned.");
+        }
+    }
 }
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link InstructionSequence} that has been compiled into a tree of instructions working on a
+ * primitive operand stack. The names are resolved and the procs of "if" and "ifelse" are bound
+ * once, and the execution doesn't box the values, so that evaluating a Type 4 function for every
+ * pixel of a shading or image doesn't create garbage.
+ *
+ * <p>The results are the same as those of {@link InstructionSequence#execute(ExecutionContext)}.
+ * Sequences that use procs in other ways than as operands of "if" and "ifelse", or unknown names,
+ * can't be compiled and must be interpreted.
+ *
+ * <p>Instances of this class are immutable and can be executed by several threads at the same
+ * time, each with its own operand stack.
+ */
+public final class CompiledInstructionSequence
+{
+    private final Instruction[] instructions;
+
+    private CompiledInstructionSequence(Instruction[] instructions)
+    {
+        this.instructions = instructions;
+    }
+
+    /**
+     * Compiles an instruction sequence.
+     *
+     * @param sequence the instruction sequence
+     * @return the compiled sequence, or null if the sequence can't be compiled
+     */
+    public static CompiledInstructionSequence compile(InstructionSequence sequence)
+    {
+        Instruction[] instructions = compileProc(sequence);
+        return instructions != null ? new CompiledInstructionSequence(instructions) : null;
+    }
+
+    /**
+     * Executes the compiled sequence. The input values are clipped to the domain and pushed on an
+     * empty stack as real values, the output values are popped from the stack after the execution.
+     *
+     * @param input the input values
+     * @param domain the minimum and maximum of each input value
+     * @param output the array to store the output values in, the topmost value of the stack is
+     * stored in the last element
+     * @return the number of values on the stack after the execution; if it is less than the length
+     * of the output array, the output values have not been set
+     */
+    public int execute(float[] input, float[] domain, float[] output)
+    {
+        return execute(input, domain, output, new OperandStack());
+    }
+
+    /**
+     * Executes the compiled sequence on the given operand stack, which is cleared first. Callers
+     * which execute the sequence many times should reuse a stack, so that no objects are created
+     * during the execution.
+     *
+     * @param input the input values
+     * @param domain the minimum and maximum of each input value
+     * @param output the array to store the output values in, the topmost value of the stack is
+     * stored in the last element
+     * @param stack the operand stack, which must not be used by another thread at the same time
+     * @return the number of values on the stack after the execution; if it is less than the length
+     * of the output array, the output values have not been set
+     */
+    public int execute(float[] input, float[] domain, float[] output, OperandStack stack)
+    {
+        stack.clear();
+        for (int i = 0; i < input.length; i++)
+        {
+            float value = input[i];
+            float min = domain[i * 2];
+            float max = domain[i * 2 + 1];
+            stack.pushReal(value < min ? min : value > max ? max : value);
+        }
+        execute(instructions, stack);
+        int size = stack.size();
+        if (size >= output.length)
+        {
+            for (int i = output.length - 1; i >= 0; i--)
+            {
+                output[i] = stack.popReal();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Executes the compiled sequence on the given stack.
+     *
+     * @param stack the operand stack
+     */
+    void execute(OperandStack stack)
+    {
+        execute(instructions, stack);
+    }
+
+    private static void execute(Instruction[] proc, OperandStack stack)
+    {
+        for (Instruction instruction : proc)
+        {
+            instruction.execute(stack);
+        }
+    }
+
+    private static Instruction[] compileProc(InstructionSequence sequence)
+    {
+        List<Object> sequenceInstructions = sequence.getInstructions();
+        List<Instruction> compiled = new ArrayList<>(sequenceInstructions.size());
+        int count = sequenceInstructions.size();
+        int i = 0;
+        while (i < count)
+        {
+            Object o = sequenceInstructions.get(i);
+            if (o instanceof InstructionSequence)
+            {
+                Instruction[] proc1 = compileProc((InstructionSequence) o);
+                Object next = i + 1 < count ? sequenceInstructions.get(i + 1) : null;
+                if (proc1 == null)
+                {
+                    return null;
+                }
+                if ("if".equals(next))
+                {
+                    compiled.add(stack ->
+                    {
+                        if (stack.popBoolean())
+                        {
+                            execute(proc1, stack);
+                        }
+                    });
+                    i += 2;
+                }
+                else if (next instanceof InstructionSequence && i + 2 < count &&
+                        "ifelse".equals(sequenceInstructions.get(i + 2)))
+                {
+                    Instruction[] proc2 = compileProc((InstructionSequence) next);
+                    if (proc2 == null)
+                    {
+                        return null;
+                    }
+                    compiled.add(stack -> execute(stack.popBoolean() ? proc1 : proc2, stack));
+                    i += 3;
+                }
+                else if (next == null)
+                {
+                    // a proc at the end of a sequence is executed, e.g. the outermost braces
+                    // of a function
+                    compiled.add(stack -> execute(proc1, stack));
+                    i++;
+                }
+                else
+                {
+                    return null;
+                }
+            }
+            else
+            {
+                Instruction instruction = compileOperand(o);
+                if (instruction == null)
+                {
+                    return null;
+                }
+                compiled.add(instruction);
+                i++;
+            }
+        }
+        return compiled.toArray(new Instruction[0]);
+    }
+
+    private static Instruction compileOperand(Object o)
+    {
+        if (o instanceof Integer)
+        {
+            int value = (Integer) o;
+            return stack -> stack.pushInt(value);
+        }
+        if (o instanceof Float)
+        {
+            float value = (Float) o;
+            return stack -> stack.pushReal(value);
+        }
+        if (o instanceof Boolean)
+        {
+            boolean value = (Boolean) o;
+            return stack -> stack.pushBoolean(value);
+        }
+        return getOperator((String) o);
+    }
+
+    /**
+     * Returns the compiled operator for a name, or null for unknown names and for "if" and
+     * "ifelse" whose procs aren't known at compile time.
+     */
+    private static Instruction getOperator(String name)
+    {
+        switch (name)
+        {
+            case "abs":
+                return OperandStack::abs;
+            case "add":
+                return OperandStack::add;
+            case "atan":
+                return OperandStack::atan;
+            case "ceiling":
+                return OperandStack::ceiling;
+            case "cos":
+                return OperandStack::cos;
+            case "cvi":
+                return OperandStack::cvi;
+            case "cvr":
+                return OperandStack::cvr;
+            case "div":
+                return OperandStack::div;
+            case "exp":
+                return OperandStack::exp;
+            case "floor":
+                return OperandStack::floor;
+            case "idiv":
+                return OperandStack::idiv;
+            case "ln":
+                return OperandStack::ln;
+            case "log":
+                return OperandStack::log;
+            case "mod":
+                return OperandStack::mod;
+            case "mul":
+                return OperandStack::mul;
+            case "neg":
+                return OperandStack::neg;
+            case "round":
+                return OperandStack::round;
+            case "sin":
+                return OperandStack::sin;
+            case "sqrt":
+                return OperandStack::sqrt;
+            case "sub":
+                return OperandStack::sub;
+            case "truncate":
+                return OperandStack::truncate;
+            case "and":
+                return OperandStack::and;
+            case "bitshift":
+                return OperandStack::bitshift;
+            case "eq":
+                return OperandStack::eq;
+            case "false":
+                return stack -> stack.pushBoolean(false);
+            case "ge":
+                return OperandStack::ge;
+            case "gt":
+                return OperandStack::gt;
+            case "le":
+                return OperandStack::le;
+            case "lt":
+                return OperandStack::lt;
+            case "ne":
+                return OperandStack::ne;
+            case "not":
+                return OperandStack::not;
+            case "or":
+                return OperandStack::or;
+            case "true":
+                return stack -> stack.pushBoolean(true);
+            case "xor":
+                return OperandStack::xor;
+            case "copy":
+                return OperandStack::copy;
+            case "dup":
+                return OperandStack::dup;
+            case "exch":
+                return OperandStack::exch;
+            case "index":
+                return OperandStack::index;
+            case "pop":
+                return OperandStack::pop;
+            case "roll":
+                return OperandStack::roll;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * A compiled instruction.
+     */
+    @FunctionalInterface
+    private interface Instruction
+    {
+        void execute(OperandStack stack);
+    }
+}
@@ -0,0 +1,660 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Operand stack of a {@link CompiledInstructionSequence}. The values are kept in primitive arrays
+ * together with their type, so that no objects are created during the execution.
+ *
+ * <p>The operators have the same semantics as the operators in {@link Operators} that work on the
+ * {@link ExecutionContext}, including the distinction between int and real results and the
+ * exceptions that are thrown for invalid operands.
+ *
+ * <p>A stack can be reused for many executions, e.g. by a shading that evaluates a function for
+ * every pixel, it is cleared at the start of every execution. It is not thread safe, each thread
+ * needs its own stack.
+ */
+public final class OperandStack
+{
+    static final byte INT = 0;
+    static final byte REAL = 1;
+    static final byte BOOLEAN = 2;
+
+    // ints and floats can both be stored in a double without loss; the stack starts small and
+    // grows when needed
+    private double[] values = new double[16];
+    private byte[] types = new byte[16];
+    private int size;
+
+    /**
+     * Removes all values from the stack.
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Returns the number of values on the stack.
+     *
+     * @return the size of the stack
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the type of a value on the stack.
+     *
+     * @param index the index of the value, 0 is the bottom of the stack
+     * @return the type, one of {@link #INT}, {@link #REAL} or {@link #BOOLEAN}
+     */
+    byte getType(int index)
+    {
+        return types[index];
+    }
+
+    /**
+     * Returns a value on the stack. Bool values are returned as 1 or 0.
+     *
+     * @param index the index of the value, 0 is the bottom of the stack
+     * @return the value
+     */
+    double getValue(int index)
+    {
+        return values[index];
+    }
+
+    void pushInt(int value)
+    {
+        push(value, INT);
+    }
+
+    void pushReal(float value)
+    {
+        push(value, REAL);
+    }
+
+    void pushBoolean(boolean value)
+    {
+        push(value ? 1 : 0, BOOLEAN);
+    }
+
+    /**
+     * Pops a number from the stack and returns it as a real value.
+     *
+     * @return the real value
+     */
+    float popReal()
+    {
+        int index = require(1);
+        float value = real(index);
+        size = index;
+        return value;
+    }
+
+    /**
+     * Pops a bool value from the stack.
+     *
+     * @return the bool value
+     */
+    boolean popBoolean()
+    {
+        int index = require(1);
+        if (types[index] != BOOLEAN)
+        {
+            throw new ClassCastException("Operand must be bool");
+        }
+        size = index;
+        return values[index] != 0;
+    }
+
+    private void push(double value, byte type)
+    {
+        if (size == values.length)
+        {
+            values = Arrays.copyOf(values, size * 2);
+            types = Arrays.copyOf(types, size * 2);
+        }
+        values[size] = value;
+        types[size] = type;
+        size++;
+    }
+
+    /**
+     * Checks that the stack contains the given number of operands.
+     *
+     * @return the index of the lowest operand
+     */
+    private int require(int count)
+    {
+        if (size < count)
+        {
+            throw new EmptyStackException();
+        }
+        return size - count;
+    }
+
+    private float real(int index)
+    {
+        if (types[index] == BOOLEAN)
+        {
+            throw new ClassCastException("Operand must be a number");
+        }
+        return (float) values[index];
+    }
+
+    private int integer(int index)
+    {
+        if (types[index] != INT)
+        {
+            throw new ClassCastException("Operand must be an int");
+        }
+        return (int) values[index];
+    }
+
+    /**
+     * Returns the int value of a number, reals are truncated.
+     */
+    private int intValue(int index)
+    {
+        return types[index] == INT ? (int) values[index] : (int) real(index);
+    }
+
+    private void setInt(int index, int value)
+    {
+        values[index] = value;
+        types[index] = INT;
+    }
+
+    private void setReal(int index, float value)
+    {
+        values[index] = value;
+        types[index] = REAL;
+    }
+
+    private void setBoolean(int index, boolean value)
+    {
+        values[index] = value ? 1 : 0;
+        types[index] = BOOLEAN;
+    }
+
+    private void setIntOrReal(int index, long value)
+    {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+        {
+            setReal(index, value);
+        }
+        else
+        {
+            setInt(index, (int) value);
+        }
+    }
+
+    private boolean isInts(int index)
+    {
+        return types[index] == INT && types[index + 1] == INT;
+    }
+
+    //Arithmetic operators
+
+    void abs()
+    {
+        int index = require(1);
+        if (types[index] == INT)
+        {
+            setInt(index, Math.abs((int) values[index]));
+        }
+        else
+        {
+            setReal(index, Math.abs(real(index)));
+        }
+    }
+
+    void add()
+    {
+        int index = require(2);
+        if (isInts(index))
+        {
+            setIntOrReal(index, (long) values[index] + (long) values[index + 1]);
+        }
+        else
+        {
+            setReal(index, real(index) + real(index + 1));
+        }
+        size = index + 1;
+    }
+
+    void atan()
+    {
+        int index = require(2);
+        float den = real(index + 1);
+        float num = real(index);
+        float atan = (float) Math.atan2(num, den);
+        atan = (float) Math.toDegrees(atan) % 360;
+        if (atan < 0)
+        {
+            atan = atan + 360;
+        }
+        setReal(index, atan);
+        size = index + 1;
+    }
+
+    void ceiling()
+    {
+        int index = require(1);
+        if (types[index] != INT)
+        {
+            setReal(index, (float) Math.ceil(real(index)));
+        }
+    }
+
+    void cos()
+    {
+        int index = require(1);
+        setReal(index, (float) Math.cos(Math.toRadians(real(index))));
+    }
+
+    void cvi()
+    {
+        int index = require(1);
+        setInt(index, intValue(index));
+    }
+
+    void cvr()
+    {
+        int index = require(1);
+        setReal(index, real(index));
+    }
+
+    void div()
+    {
+        int index = require(2);
+        setReal(index, real(index) / real(index + 1));
+        size = index + 1;
+    }
+
+    void exp()
+    {
+        int index = require(2);
+        real(index);
+        real(index + 1);
+        setReal(index, (float) Math.pow(values[index], values[index + 1]));
+        size = index + 1;
+    }
+
+    void floor()
+    {
+        int index = require(1);
+        if (types[index] != INT)
+        {
+            setReal(index, (float) Math.floor(real(index)));
+        }
+    }
+
+    void idiv()
+    {
+        int index = require(2);
+        int num2 = integer(index + 1);
+        int num1 = integer(index);
+        setInt(index, num1 / num2);
+        size = index + 1;
+    }
+
+    void ln()
+    {
+        int index = require(1);
+        real(index);
+        setReal(index, (float) Math.log(values[index]));
+    }
+
+    void log()
+    {
+        int index = require(1);
+        real(index);
+        setReal(index, (float) Math.log10(values[index]));
+    }
+
+    void mod()
+    {
+        int index = require(2);
+        int int2 = integer(index + 1);
+        int int1 = integer(index);
+        setInt(index, int1 % int2);
+        size = index + 1;
+    }
+
+    void mul()
+    {
+        int index = require(2);
+        if (isInts(index))
+        {
+            setIntOrReal(index, (long) values[index] * (long) values[index + 1]);
+        }
+        else
+        {
+            real(index);
+            real(index + 1);
+            setReal(index, (float) (values[index] * values[index + 1]));
+        }
+        size = index + 1;
+    }
+
+    void neg()
+    {
+        int index = require(1);
+        if (types[index] == INT && (int) values[index] != Integer.MIN_VALUE)
+        {
+            setInt(index, -(int) values[index]);
+        }
+        else
+        {
+            setReal(index, -real(index));
+        }
+    }
+
+    void round()
+    {
+        int index = require(1);
+        if (types[index] != INT)
+        {
+            real(index);
+            setReal(index, Math.round(values[index]));
+        }
+    }
+
+    void sin()
+    {
+        int index = require(1);
+        setReal(index, (float) Math.sin(Math.toRadians(real(index))));
+    }
+
+    void sqrt()
+    {
+        int index = require(1);
+        float num = real(index);
+        if (num < 0)
+        {
+            throw new IllegalArgumentException("argument must be nonnegative");
+        }
+        setReal(index, (float) Math.sqrt(num));
+    }
+
+    void sub()
+    {
+        int index = require(2);
+        if (isInts(index))
+        {
+            setIntOrReal(index, (long) values[index] - (long) values[index + 1]);
+        }
+        else
+        {
+            setReal(index, real(index) - real(index + 1));
+        }
+        size = index + 1;
+    }
+
+    void truncate()
+    {
+        int index = require(1);
+        if (types[index] != INT)
+        {
+            setReal(index, (int) real(index));
+        }
+    }
+
+    //Relational, boolean and bitwise operators
+
+    void and()
+    {
+        int index = require(2);
+        if (isInts(index))
+        {
+            setInt(index, (int) values[index] & (int) values[index + 1]);
+        }
+        else
+        {
+            setBoolean(index, booleans(index) && values[index] != 0 && values[index + 1] != 0);
+        }
+        size = index + 1;
+    }
+
+    void or()
+    {
+        int index = require(2);
+        if (isInts(index))
+        {
+            setInt(index, (int) values[index] | (int) values[index + 1]);
+        }
+        else
+        {
+            setBoolean(index, booleans(index) && (values[index] != 0 || values[index + 1] != 0));
+        }
+        size = index + 1;
+    }
+
+    void xor()
+    {
+        int index = require(2);
+        if (isInts(index))
+        {
+            setInt(index, (int) values[index] ^ (int) values[index + 1]);
+        }
+        else
+        {
+            setBoolean(index, booleans(index) && (values[index] != values[index + 1]));
+        }
+        size = index + 1;
+    }
+
+    /**
+     * Checks that both operands of a logical operator that aren't two ints are bool values.
+     */
+    private boolean booleans(int index)
+    {
+        if (types[index] != BOOLEAN || types[index + 1] != BOOLEAN)
+        {
+            throw new ClassCastException("Operands must be bool/bool or int/int");
+        }
+        return true;
+    }
+
+    void bitshift()
+    {
+        int index = require(2);
+        int shift = integer(index + 1);
+        int int1 = integer(index);
+        setInt(index, shift < 0 ? int1 >> Math.abs(shift) : int1 << shift);
+        size = index + 1;
+    }
+
+    void not()
+    {
+        int index = require(1);
+        if (types[index] == BOOLEAN)
+        {
+            setBoolean(index, values[index] == 0);
+        }
+        else if (types[index] == INT)
+        {
+            setInt(index, -(int) values[index]);
+        }
+        else
+        {
+            throw new ClassCastException("Operand must be bool or int");
+        }
+    }
+
+    void eq()
+    {
+        int index = require(2);
+        setBoolean(index, isEqual(index));
+        size = index + 1;
+    }
+
+    void ne()
+    {
+        int index = require(2);
+        setBoolean(index, !isEqual(index));
+        size = index + 1;
+    }
+
+    private boolean isEqual(int index)
+    {
+        if (types[index] != BOOLEAN && types[index + 1] != BOOLEAN)
+        {
+            return Float.compare(real(index), real(index + 1)) == 0;
+        }
+        return types[index] == types[index + 1] && values[index] == values[index + 1];
+    }
+
+    void ge()
+    {
+        int index = require(2);
+        setBoolean(index, real(index) >= real(index + 1));
+        size = index + 1;
+    }
+
+    void gt()
+    {
+        int index = require(2);
+        setBoolean(index, real(index) > real(index + 1));
+        size = index + 1;
+    }
+
+    void le()
+    {
+        int index = require(2);
+        setBoolean(index, real(index) <= real(index + 1));
+        size = index + 1;
+    }
+
+    void lt()
+    {
+        int index = require(2);
+        setBoolean(index, real(index) < real(index + 1));
+        size = index + 1;
+    }
+
+    //Stack operators
+
+    void copy()
+    {
+        int index = require(1);
+        int n = intValue(index);
+        size = index;
+        if (n > 0)
+        {
+            if (n > size)
+            {
+                throw new IndexOutOfBoundsException("copy: " + n);
+            }
+            int start = size - n;
+            for (int i = 0; i < n; i++)
+            {
+                push(values[start + i], types[start + i]);
+            }
+        }
+    }
+
+    void dup()
+    {
+        int index = require(1);
+        push(values[index], types[index]);
+    }
+
+    void exch()
+    {
+        int index = require(2);
+        double value = values[index];
+        byte type = types[index];
+        values[index] = values[index + 1];
+        types[index] = types[index + 1];
+        values[index + 1] = value;
+        types[index + 1] = type;
+    }
+
+    void index()
+    {
+        int index = require(1);
+        int n = intValue(index);
+        if (n < 0)
+        {
+            throw new IllegalArgumentException("rangecheck: " + n);
+        }
+        size = index;
+        int source = size - n - 1;
+        if (source < 0)
+        {
+            throw new ArrayIndexOutOfBoundsException(source);
+        }
+        push(values[source], types[source]);
+    }
+
+    void pop()
+    {
+        size = require(1);
+    }
+
+    void roll()
+    {
+        int index = require(2);
+        int j = intValue(index + 1);
+        int n = intValue(index);
+        size = index;
+        if (j == 0)
+        {
+            return; //Nothing to do
+        }
+        if (n < 0)
+        {
+            throw new IllegalArgumentException("rangecheck: " + n);
+        }
+        // like the interpreter, which pops max(n, |j|) values, a roll with |j| >= n
+        // leaves the stack unchanged
+        require(Math.max(n, Math.abs(j)));
+        if (Math.abs(j) >= n)
+        {
+            return;
+        }
+        int start = size - n;
+        int shift = j > 0 ? j : n + j;
+        // rotate the top n values by "shift" positions upwards
+        reverse(start, size - 1);
+        reverse(start, start + shift - 1);
+        reverse(start + shift, size - 1);
+    }
+
+    private void reverse(int from, int to)
+    {
+        while (from < to)
+        {
+            double value = values[from];
+            byte type = types[from];
+            values[from] = values[to];
+            types[from] = types[to];
+            values[to] = value;
+            types[to] = type;
+            from++;
+            to--;
+        }
+    }
+}
@@ -19,19 +19,43 @@ package org.apache.pdfbox.pdmodel.font;
 import org.apache.fontbox.cmap.CMap;
 import org.apache.fontbox.cmap.CMapParser;
 import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.util.Hex;
 
 import java.io.IOException;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * CMap resource loader and cache.
+ *
+ * <p>Embedded CMaps, e.g. ToUnicode CMaps, are cached as well, because PDF producers write the
+ * same CMaps into many documents. They are keyed by the SHA-256 digest of their data, and the
+ * least recently used ones are removed when there are more than {@value #MAX_EMBEDDED_CMAPS}.
  */
 final class CMapManager
 {
     private static final Map<String, CMap> CMAP_CACHE = new ConcurrentHashMap<>();
 
+    private static final int MAX_EMBEDDED_CMAPS = 100;
+
+    private static final Map<String, CMap> EMBEDDED_CMAP_CACHE =
+            new LinkedHashMap<String, CMap>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CMap> eldest)
+        {
+            return size() > MAX_EMBEDDED_CMAPS;
+        }
+    };
+
     private CMapManager()
     {
     }
@@ -59,19 +83,57 @@ final class CMapManager
     }
 
     /**
-     * Parse the given CMap.
+     * Parse the given CMap, or return the cached CMap if the same CMap has been parsed before.
      *
      * @param randomAccessRead the source of the CMap to be read
      * @return the parsed CMap
      */
     public static CMap parseCMap(RandomAccessRead randomAccessRead) throws IOException
     {
-        CMap targetCmap = null;
-        if (randomAccessRead != null)
+        if (randomAccessRead == null)
+        {
+            return null;
+        }
+        byte[] data = new byte[randomAccessRead.available()];
+        int length = 0;
+        int read;
+        while (length < data.length
+                && (read = randomAccessRead.read(data, length, data.length - length)) > 0)
+        {
+            length += read;
+        }
+        if (length < data.length)
+        {
+            data = Arrays.copyOf(data, length);
+        }
+        String key = getKey(data);
+        CMap targetCmap;
+        synchronized (EMBEDDED_CMAP_CACHE)
+        {
+            targetCmap = EMBEDDED_CMAP_CACHE.get(key);
+        }
+        if (targetCmap == null)
         {
             // parse CMap using strict mode
-            targetCmap = new CMapParser(true).parse(randomAccessRead);
+            targetCmap = new CMapParser(true).parse(new RandomAccessReadBuffer(data));
+            synchronized (EMBEDDED_CMAP_CACHE)
+            {
+                EMBEDDED_CMAP_CACHE.put(key, targetCmap);
+            }
         }
         return targetCmap;
     }
+
+    private static String getKey(byte[] data)
+    {
+        try
+        {
+            return Hex.getString(MessageDigest.getInstance("SHA-256").digest(data));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen
+            throw new RuntimeException(e);
+        }
+    }
 }
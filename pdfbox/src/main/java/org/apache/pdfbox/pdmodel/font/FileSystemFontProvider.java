@@ -16,21 +16,34 @@
  */
 package org.apache.pdfbox.pdmodel.font;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.AccessControlException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.fontbox.FontBoxFont;
@@ -50,12 +63,23 @@ import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 /**
  * A FontProvider which searches for fonts on the local filesystem.
  *
+ * <p>The metadata of the fonts is kept in a binary disk cache, with an entry for each font file.
+ * At startup only the font files which are new or have been changed since the cache was written
+ * are parsed, in parallel, and the cache is updated.
+ *
  * @author John Hewson
  */
 final class FileSystemFontProvider extends FontProvider
 {
     private static final Log LOG = LogFactory.getLog(FileSystemFontProvider.class);
-    
+
+    // "PDFC" and the version of the disk cache format
+    private static final int CACHE_MAGIC = 0x50444643;
+    private static final int CACHE_VERSION = 1;
+
+    private static final int FLAG_CID_SYSTEM_INFO = 1;
+    private static final int FLAG_PANOSE = 2;
+
     private final List<FSFontInfo> fontInfoList = new ArrayList<>();
     private final FontCache cache;
 
@@ -63,35 +87,60 @@ final class FileSystemFontProvider extends FontProvider
     {
         private final String postScriptName;
         private final FontFormat format;
-        private final CIDSystemInfo cidSystemInfo;
-        private final int usWeightClass;
-        private final int sFamilyClass;
-        private final int ulCodePageRange1;
-        private final int ulCodePageRange2;
-        private final int macStyle;
-        private final PDPanoseClassification panose;
         private final File file;
         private final FileSystemFontProvider parent;
 
+        // the details are only read from the disk cache data when they are needed
+        private final byte[] cacheData;
+        private final int detailsOffset;
+        private final int detailsLength;
+        private volatile FontDetails details;
+
         private FSFontInfo(File file, FontFormat format, String postScriptName,
                            CIDSystemInfo cidSystemInfo, int usWeightClass, int sFamilyClass,
                            int ulCodePageRange1, int ulCodePageRange2, int macStyle, byte[] panose,
                            FileSystemFontProvider parent)
+        {
+            this(file, format, postScriptName, null, 0, 0, parent);
+            this.details = new FontDetails(cidSystemInfo, usWeightClass, sFamilyClass,
+                    ulCodePageRange1, ulCodePageRange2, macStyle,
+                    panose != null && panose.length >= PDPanoseClassification.LENGTH ?
+                    new PDPanoseClassification(panose) : null);
+        }
+
+        private FSFontInfo(File file, FontFormat format, String postScriptName, byte[] cacheData,
+                           int detailsOffset, int detailsLength, FileSystemFontProvider parent)
         {
             this.file = file;
             this.format = format;
             this.postScriptName = postScriptName;
-            this.cidSystemInfo = cidSystemInfo;
-            this.usWeightClass = usWeightClass;
-            this.sFamilyClass = sFamilyClass;
-            this.ulCodePageRange1 = ulCodePageRange1;
-            this.ulCodePageRange2 = ulCodePageRange2;
-            this.macStyle = macStyle;
-            this.panose = panose != null && panose.length >= PDPanoseClassification.LENGTH ?
-                    new PDPanoseClassification(panose) : null;
+            this.cacheData = cacheData;
+            this.detailsOffset = detailsOffset;
+            this.detailsLength = detailsLength;
             this.parent = parent;
         }
 
+        private FontDetails getDetails()
+        {
+            FontDetails result = details;
+            if (result == null)
+            {
+                // may be done by several threads, with the same result
+                try
+                {
+                    result = FontDetails.read(
+                            ByteBuffer.wrap(cacheData, detailsOffset, detailsLength));
+                }
+                catch (BufferUnderflowException | IllegalArgumentException e)
+                {
+                    LOG.warn("Incorrect entry for " + postScriptName + " in font disk cache", e);
+                    result = new FontDetails(null, -1, -1, 0, 0, -1, null);
+                }
+                details = result;
+            }
+            return result;
+        }
+
         @Override
         public String getPostScriptName()
         {
@@ -107,7 +156,7 @@ final class FileSystemFontProvider extends FontProvider
         @Override
         public CIDSystemInfo getCIDSystemInfo()
         {
-            return cidSystemInfo;
+            return getDetails().cidSystemInfo;
         }
 
         /**
@@ -147,37 +196,37 @@ final class FileSystemFontProvider extends FontProvider
         @Override
         public int getFamilyClass()
         {
-            return sFamilyClass;
+            return getDetails().sFamilyClass;
         }
 
         @Override
         public int getWeightClass()
         {
-            return usWeightClass;
+            return getDetails().usWeightClass;
         }
 
         @Override
         public int getCodePageRange1()
         {
-            return ulCodePageRange1;
+            return getDetails().ulCodePageRange1;
         }
 
         @Override
         public int getCodePageRange2()
         {
-            return ulCodePageRange2;
+            return getDetails().ulCodePageRange2;
         }
 
         @Override
         public int getMacStyle()
         {
-            return macStyle;
+            return getDetails().macStyle;
         }
 
         @Override
         public PDPanoseClassification getPanose()
         {
-            return panose;
+            return getDetails().panose;
         }
 
         @Override
@@ -212,7 +261,7 @@ final class FileSystemFontProvider extends FontProvider
                 @SuppressWarnings("squid:S2095")
                 // ttc not closed here because it is needed later when ttf is accessed,
                 // e.g. rendering PDF with non-embedded font which is in ttc file in our font directory
-                TrueTypeCollection ttc = new TrueTypeCollection(file);
+                TrueTypeCollection ttc = new TrueTypeCollection(mapFile(file));
                 TrueTypeFont ttf;
                 try
                 {
@@ -233,7 +282,7 @@ final class FileSystemFontProvider extends FontProvider
             else
             {
                 TTFParser ttfParser = new TTFParser(false);
-                return ttfParser.parse(new RandomAccessReadBufferedFile(file));
+                return ttfParser.parse(mapFile(file));
             }
         }
 
@@ -246,7 +295,7 @@ final class FileSystemFontProvider extends FontProvider
                     @SuppressWarnings("squid:S2095")
                     // ttc not closed here because it is needed later when ttf is accessed,
                     // e.g. rendering PDF with non-embedded font which is in ttc file in our font directory
-                    TrueTypeCollection ttc = new TrueTypeCollection(file);
+                    TrueTypeCollection ttc = new TrueTypeCollection(mapFile(file));
                     TrueTypeFont ttf;
                     try
                     {
@@ -267,7 +316,7 @@ final class FileSystemFontProvider extends FontProvider
                 }
 
                 OTFParser parser = new OTFParser(false);
-                OpenTypeFont otf = parser.parse(new RandomAccessReadBufferedFile(file));
+                OpenTypeFont otf = parser.parse(mapFile(file));
 
                 if (LOG.isDebugEnabled())
                 {
@@ -313,6 +362,122 @@ final class FileSystemFontProvider extends FontProvider
         }
     }
 
+    /**
+     * The metadata of a font which is only needed for the matching of substitutes.
+     */
+    private static final class FontDetails
+    {
+        private final CIDSystemInfo cidSystemInfo;
+        private final int usWeightClass;
+        private final int sFamilyClass;
+        private final int ulCodePageRange1;
+        private final int ulCodePageRange2;
+        private final int macStyle;
+        private final PDPanoseClassification panose;
+
+        private FontDetails(CIDSystemInfo cidSystemInfo, int usWeightClass, int sFamilyClass,
+                            int ulCodePageRange1, int ulCodePageRange2, int macStyle,
+                            PDPanoseClassification panose)
+        {
+            this.cidSystemInfo = cidSystemInfo;
+            this.usWeightClass = usWeightClass;
+            this.sFamilyClass = sFamilyClass;
+            this.ulCodePageRange1 = ulCodePageRange1;
+            this.ulCodePageRange2 = ulCodePageRange2;
+            this.macStyle = macStyle;
+            this.panose = panose;
+        }
+
+        private static FontDetails read(ByteBuffer buffer)
+        {
+            int flags = buffer.get();
+            CIDSystemInfo cidSystemInfo = null;
+            if ((flags & FLAG_CID_SYSTEM_INFO) != 0)
+            {
+                String registry = readString(buffer);
+                String ordering = readString(buffer);
+                cidSystemInfo = new CIDSystemInfo(registry, ordering, buffer.getInt());
+            }
+            int usWeightClass = buffer.getInt();
+            int sFamilyClass = buffer.getInt();
+            int ulCodePageRange1 = buffer.getInt();
+            int ulCodePageRange2 = buffer.getInt();
+            int macStyle = buffer.getInt();
+            PDPanoseClassification panose = null;
+            if ((flags & FLAG_PANOSE) != 0)
+            {
+                byte[] bytes = new byte[PDPanoseClassification.LENGTH];
+                buffer.get(bytes);
+                panose = new PDPanoseClassification(bytes);
+            }
+            return new FontDetails(cidSystemInfo, usWeightClass, sFamilyClass, ulCodePageRange1,
+                    ulCodePageRange2, macStyle, panose);
+        }
+
+        private void write(DataOutputStream output) throws IOException
+        {
+            int flags = (cidSystemInfo != null ? FLAG_CID_SYSTEM_INFO : 0) |
+                        (panose != null ? FLAG_PANOSE : 0);
+            output.writeByte(flags);
+            if (cidSystemInfo != null)
+            {
+                writeString(output, cidSystemInfo.getRegistry());
+                writeString(output, cidSystemInfo.getOrdering());
+                output.writeInt(cidSystemInfo.getSupplement());
+            }
+            output.writeInt(usWeightClass);
+            output.writeInt(sFamilyClass);
+            output.writeInt(ulCodePageRange1);
+            output.writeInt(ulCodePageRange2);
+            output.writeInt(macStyle);
+            if (panose != null)
+            {
+                output.write(panose.getBytes(), 0, PDPanoseClassification.LENGTH);
+            }
+        }
+    }
+
+    /**
+     * A font file with the fonts found in it.
+     */
+    private static final class FontFile
+    {
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private List<FSFontInfo> fonts;
+
+        private FontFile(File file, long lastModified, long length)
+        {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        private static FontFile create(File file)
+        {
+            try
+            {
+                BasicFileAttributes attributes = Files.readAttributes(file.toPath(),
+                        BasicFileAttributes.class);
+                return new FontFile(file, attributes.lastModifiedTime().toMillis(),
+                        attributes.size());
+            }
+            catch (IOException | SecurityException e)
+            {
+                LOG.debug("Could not read the attributes of " + file, e);
+                // an entry that never matches, so that the file is checked again next time
+                return new FontFile(file, -1, -1);
+            }
+        }
+
+        private boolean isUpToDate(FontFile current)
+        {
+            return current.lastModified != -1 && lastModified == current.lastModified &&
+                   length == current.length;
+        }
+    }
+
     /**
      * Constructor.
      */
@@ -342,20 +507,7 @@ final class FileSystemFontProvider extends FontProvider
 
             if (!files.isEmpty())
             {
-                // load cached FontInfo objects
-                List<FSFontInfo> cachedInfos = loadDiskCache(files);
-                if (cachedInfos != null && !cachedInfos.isEmpty())
-                {
-                    fontInfoList.addAll(cachedInfos);
-                }
-                else
-                {
-                    LOG.warn("Building on-disk font cache, this may take a while");
-                    scanFonts(files);
-                    saveDiskCache();
-                    LOG.warn("Finished building on-disk font cache, found " + fontInfoList.size()
-                            + " fonts");
-                }
+                loadFonts(files, getDiskCacheFile());
             }
         }
         catch (AccessControlException e)
@@ -363,35 +515,154 @@ final class FileSystemFontProvider extends FontProvider
             LOG.error("Error accessing the file system", e);
         }
     }
-    
-    private void scanFonts(List<File> files)
+
+    /**
+     * Constructor for the given font files and disk cache, for testing.
+     */
+    FileSystemFontProvider(FontCache cache, List<File> files, File diskCacheFile)
     {
-        // to force a specific font for debug, add code like this here:
-        // files = Collections.singletonList(new File("font filename"))
+        this.cache = cache;
+        loadFonts(files, diskCacheFile);
+    }
+
+    private void loadFonts(List<File> files, File diskCacheFile)
+    {
+        Map<String, FontFile> cachedFiles = loadDiskCache(diskCacheFile);
+        boolean isNewCache = cachedFiles.isEmpty();
 
+        // take the entries of unchanged files from the cache, parse only new and changed files
+        List<FontFile> fontFiles = new ArrayList<>(files.size());
+        List<FontFile> pending = new ArrayList<>();
         for (File file : files)
         {
-            try
+            FontFile current = FontFile.create(file);
+            FontFile cached = cachedFiles.remove(file.getAbsolutePath());
+            if (cached != null && cached.isUpToDate(current))
             {
-                String filePath = file.getPath().toLowerCase();
-                if (filePath.endsWith(".ttf") || filePath.endsWith(".otf"))
-                {
-                    addTrueTypeFont(file);
-                }
-                else if (filePath.endsWith(".ttc") || filePath.endsWith(".otc"))
+                fontFiles.add(cached);
+            }
+            else
+            {
+                fontFiles.add(current);
+                pending.add(current);
+            }
+        }
+        // the remaining cache entries are of removed files
+        boolean changed = !pending.isEmpty() || !cachedFiles.isEmpty();
+
+        if (isNewCache)
+        {
+            LOG.warn("Building on-disk font cache, this may take a while");
+        }
+        else if (!pending.isEmpty())
+        {
+            LOG.info("Updating on-disk font cache, " + pending.size() +
+                     " new or changed font files found");
+        }
+        boolean complete = scanFonts(pending);
+
+        for (FontFile fontFile : fontFiles)
+        {
+            if (fontFile.fonts != null)
+            {
+                fontInfoList.addAll(fontFile.fonts);
+            }
+        }
+        if (changed && complete)
+        {
+            saveDiskCache(diskCacheFile, fontFiles);
+        }
+        if (isNewCache)
+        {
+            LOG.warn("Finished building on-disk font cache, found " + fontInfoList.size()
+                    + " fonts");
+        }
+    }
+
+    /**
+     * Parses the given font files, in parallel if there are several processors.
+     *
+     * @return false if the scan was interrupted.
+     */
+    private boolean scanFonts(List<FontFile> fontFiles)
+    {
+        // to force a specific font for debug, add code like this here:
+        // fontFiles = Collections.singletonList(FontFile.create(new File("font filename")))
+
+        int threads = Math.min(fontFiles.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1)
+        {
+            for (FontFile fontFile : fontFiles)
+            {
+                fontFile.fonts = scanFont(fontFile.file);
+            }
+            return true;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable ->
+        {
+            Thread thread = new Thread(runnable, "PDFBox font scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try
+        {
+            List<Future<List<FSFontInfo>>> futures = new ArrayList<>(fontFiles.size());
+            for (FontFile fontFile : fontFiles)
+            {
+                futures.add(executor.submit(() -> scanFont(fontFile.file)));
+            }
+            for (int i = 0; i < fontFiles.size(); i++)
+            {
+                FontFile fontFile = fontFiles.get(i);
+                try
                 {
-                    addTrueTypeCollection(file);
+                    fontFile.fonts = futures.get(i).get();
                 }
-                else if (filePath.endsWith(".pfb"))
+                catch (ExecutionException e)
                 {
-                    addType1Font(file);
+                    LOG.warn("Error parsing font " + fontFile.file.getPath(), e.getCause());
+                    fontFile.fonts = Collections.emptyList();
                 }
             }
-            catch (IOException e)
+            return true;
+        }
+        catch (InterruptedException e)
+        {
+            LOG.warn("Interrupted while scanning the fonts", e);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<FSFontInfo> scanFont(File file)
+    {
+        List<FSFontInfo> fontInfos = new ArrayList<>(1);
+        try
+        {
+            String filePath = file.getPath().toLowerCase();
+            if (filePath.endsWith(".ttf") || filePath.endsWith(".otf"))
+            {
+                addTrueTypeFont(file, fontInfos);
+            }
+            else if (filePath.endsWith(".ttc") || filePath.endsWith(".otc"))
             {
-                LOG.warn("Error parsing font " + file.getPath(), e);
+                addTrueTypeCollection(file, fontInfos);
+            }
+            else if (filePath.endsWith(".pfb"))
+            {
+                addType1Font(file, fontInfos);
             }
         }
+        catch (IOException e)
+        {
+            LOG.warn("Error parsing font " + file.getPath(), e);
+        }
+        return fontInfos;
     }
 
     private File getDiskCacheFile()
@@ -405,7 +676,7 @@ final class FileSystemFontProvider extends FontProvider
                 path = System.getProperty("java.io.tmpdir");
             }
         }
-        return new File(path, ".pdfbox.cache");
+        return new File(path, ".pdfbox.cache.bin");
     }
 
     private static boolean isBadPath(String path)
@@ -414,206 +685,191 @@ final class FileSystemFontProvider extends FontProvider
     }
 
     /**
-     * Saves the font metadata cache to disk.
+     * Saves the font metadata cache to disk. The cache is written to a temporary file first,
+     * which then replaces the cache, so that other processes never read a partial cache.
      */
-    private void saveDiskCache()
+    private void saveDiskCache(File file, List<FontFile> fontFiles)
     {
+        File tempFile = null;
         try
         {
-            File file = getDiskCacheFile();
-
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(file)))
+            tempFile = File.createTempFile(".pdfbox", ".tmp", file.getAbsoluteFile().getParentFile());
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile))))
             {
-                for (FSFontInfo fontInfo : fontInfoList)
+                output.writeInt(CACHE_MAGIC);
+                output.writeInt(CACHE_VERSION);
+                output.writeInt(fontFiles.size());
+                for (FontFile fontFile : fontFiles)
                 {
-                    writeFontInfo(writer, fontInfo);
+                    writeFontFile(output, fontFile);
                 }
             }
-            catch (IOException e)
+            try
+            {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
             {
-                LOG.warn("Could not write to font cache", e);
-                LOG.warn("Installed fonts information will have to be reloaded for each start");
-                LOG.warn("You can assign a directory to the 'pdfbox.fontcache' property");
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
             }
         }
+        catch (IOException e)
+        {
+            LOG.warn("Could not write to font cache", e);
+            LOG.warn("Installed fonts information will have to be reloaded for each start");
+            LOG.warn("You can assign a directory to the 'pdfbox.fontcache' property");
+        }
         catch (SecurityException e)
         {
             LOG.debug("Couldn't create writer for font cache file", e);
         }
+        finally
+        {
+            if (tempFile != null && tempFile.exists() && !tempFile.delete())
+            {
+                LOG.debug("Could not delete " + tempFile);
+            }
+        }
     }
 
-    private void writeFontInfo(BufferedWriter writer, FSFontInfo fontInfo) throws IOException
+    private void writeFontFile(DataOutputStream output, FontFile fontFile) throws IOException
     {
-        writer.write(fontInfo.postScriptName.trim());
-        writer.write("|");
-        writer.write(fontInfo.format.toString());
-        writer.write("|");
-        if (fontInfo.cidSystemInfo != null)
+        writeString(output, fontFile.file.getAbsolutePath());
+        output.writeLong(fontFile.lastModified);
+        output.writeLong(fontFile.length);
+        List<FSFontInfo> fonts = fontFile.fonts != null ? fontFile.fonts : Collections.emptyList();
+        output.writeInt(fonts.size());
+        for (FSFontInfo fontInfo : fonts)
         {
-            writer.write(fontInfo.cidSystemInfo.getRegistry() + '-' +
-                            fontInfo.cidSystemInfo.getOrdering() + '-' +
-                            fontInfo.cidSystemInfo.getSupplement());
-        }
-        writer.write("|");
-        if (fontInfo.usWeightClass > -1)
-        {
-            writer.write(Integer.toHexString(fontInfo.usWeightClass));
-        }
-        writer.write("|");
-        if (fontInfo.sFamilyClass > -1)
-        {
-            writer.write(Integer.toHexString(fontInfo.sFamilyClass));
-        }
-        writer.write("|");
-        writer.write(Integer.toHexString(fontInfo.ulCodePageRange1));
-        writer.write("|");
-        writer.write(Integer.toHexString(fontInfo.ulCodePageRange2));
-        writer.write("|");
-        if (fontInfo.macStyle > -1)
-        {
-            writer.write(Integer.toHexString(fontInfo.macStyle));
-        }
-        writer.write("|");
-        if (fontInfo.panose != null)
-        {
-            byte[] bytes = fontInfo.panose.getBytes();
-            for (int i = 0; i < 10; i ++)
+            writeString(output, fontInfo.postScriptName.trim());
+            output.writeByte(fontInfo.format.ordinal());
+            if (fontInfo.details == null)
             {
-                String str = Integer.toHexString(bytes[i]);
-                if (str.length() == 1)
-                {
-                    writer.write('0');
-                }
-                writer.write(str);
+                // unchanged entry from the cache, the details haven't been read
+                output.writeShort(fontInfo.detailsLength);
+                output.write(fontInfo.cacheData, fontInfo.detailsOffset, fontInfo.detailsLength);
+            }
+            else
+            {
+                ByteArrayOutputStream details = new ByteArrayOutputStream(64);
+                fontInfo.details.write(new DataOutputStream(details));
+                output.writeShort(details.size());
+                details.writeTo(output);
             }
         }
-        writer.write("|");
-        writer.write(fontInfo.file.getAbsolutePath());
-        writer.newLine();
     }
 
     /**
      * Loads the font metadata cache from disk.
+     *
+     * @return the cached font files by their absolute path, empty if there is no valid cache.
      */
-    private List<FSFontInfo> loadDiskCache(List<File> files)
+    private Map<String, FontFile> loadDiskCache(File file)
     {
-        Set<String> pending = new HashSet<>(files.size());
-        for (File file : files)
-        {
-            pending.add(file.getAbsolutePath());
-        }
-        
-        List<FSFontInfo> results = new ArrayList<>();
-        
-        // Get the disk cache
-        File file = null;
-        boolean fileExists = false;
+        Map<String, FontFile> results = new HashMap<>();
+        byte[] data;
         try
         {
-            file = getDiskCacheFile();
-            fileExists = file.exists();
+            if (!file.exists())
+            {
+                return results;
+            }
+            data = Files.readAllBytes(file.toPath());
         }
-        catch (SecurityException e)
+        catch (IOException | SecurityException e)
         {
-            LOG.debug("Error checking for file existence", e);
+            LOG.debug("Error reading the font cache", e);
+            return results;
         }
 
-        if (fileExists)
+        try
         {
-            try (BufferedReader reader = new BufferedReader(new FileReader(file)))
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            if (buffer.getInt() != CACHE_MAGIC || buffer.getInt() != CACHE_VERSION)
             {
-                String line;
-                while ((line = reader.readLine()) != null)
-                {
-                    String[] parts = line.split("\\|", 10);
-                    if (parts.length < 10)
-                    {
-                        LOG.warn("Incorrect line '" + line + "' in font disk cache is skipped");
-                        continue;
-                    }
-
-                    String postScriptName;
-                    FontFormat format;
-                    CIDSystemInfo cidSystemInfo = null;
-                    int usWeightClass = -1;
-                    int sFamilyClass = -1;
-                    int ulCodePageRange1;
-                    int ulCodePageRange2;
-                    int macStyle = -1;
-                    byte[] panose = null;
-                    File fontFile;
-                    
-                    postScriptName = parts[0];
-                    format = FontFormat.valueOf(parts[1]);
-                    if (parts[2].length() > 0)
-                    {
-                        String[] ros = parts[2].split("-");
-                        cidSystemInfo = new CIDSystemInfo(ros[0], ros[1], Integer.parseInt(ros[2]));
-                    }
-                    if (parts[3].length() > 0)
-                    {
-                        usWeightClass = (int)Long.parseLong(parts[3], 16);
-                    }
-                    if (parts[4].length() > 0)
-                    {
-                        sFamilyClass = (int)Long.parseLong(parts[4], 16);
-                    }
-                    ulCodePageRange1 = (int)Long.parseLong(parts[5], 16);
-                    ulCodePageRange2 = (int)Long.parseLong(parts[6], 16);
-                    if (parts[7].length() > 0)
-                    {
-                        macStyle = (int)Long.parseLong(parts[7], 16);
-                    }
-                    if (parts[8].length() > 0)
-                    {
-                        panose = new byte[10];
-                        for (int i = 0; i < 10; i ++)
-                        {
-                            String str = parts[8].substring(i * 2, i * 2 + 2);
-                            int b = Integer.parseInt(str, 16);
-                            panose[i] = (byte)(b & 0xff);
-                        }
-                    }
-                    fontFile = new File(parts[9]);
-                    if (fontFile.exists())
-                    {
-                        FSFontInfo info = new FSFontInfo(fontFile, format, postScriptName,
-                                cidSystemInfo, usWeightClass, sFamilyClass, ulCodePageRange1,
-                                ulCodePageRange2, macStyle, panose, this);
-                        results.add(info);
-                    }
-                    else
-                    {
-                        LOG.debug("Font file " + fontFile.getAbsolutePath() + " not found, skipped");
-                    }
-                    pending.remove(fontFile.getAbsolutePath());
-                }
+                LOG.warn("Font cache has an unknown format, will be re-built");
+                return results;
             }
-            catch (IOException e)
+            int numFiles = buffer.getInt();
+            for (int i = 0; i < numFiles; i++)
             {
-                LOG.warn("Error loading font cache, will be re-built", e);
-                return null;
+                File fontFile = new File(readString(buffer));
+                FontFile entry = new FontFile(fontFile, buffer.getLong(), buffer.getLong());
+                int numFonts = buffer.getInt();
+                entry.fonts = new ArrayList<>(numFonts);
+                for (int j = 0; j < numFonts; j++)
+                {
+                    String postScriptName = readString(buffer);
+                    FontFormat format = FontFormat.values()[buffer.get()];
+                    int detailsLength = buffer.getShort() & 0xffff;
+                    int detailsOffset = buffer.position();
+                    buffer.position(detailsOffset + detailsLength);
+                    entry.fonts.add(new FSFontInfo(fontFile, format, postScriptName, data,
+                            detailsOffset, detailsLength, this));
+                }
+                results.put(fontFile.getAbsolutePath(), entry);
             }
         }
-        
-        if (!pending.isEmpty())
+        catch (BufferUnderflowException | IllegalArgumentException |
+               IndexOutOfBoundsException e)
         {
-            // re-build the entire cache if we encounter un-cached fonts (could be optimised)
-            LOG.warn("New fonts found, font cache will be re-built");
-            return null;
+            LOG.warn("Error loading font cache, will be re-built", e);
+            results.clear();
         }
-        
         return results;
     }
 
+    private static String readString(ByteBuffer buffer)
+    {
+        int length = buffer.getShort() & 0xffff;
+        if (length > buffer.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+        String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException
+    {
+        byte[] bytes = string != null ? string.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Maps a TTF, OTF or TTC file into memory for a font that is loaded. The font reads its tables
+     * directly from the mapped file, so the font data isn't copied into the heap and the pages are
+     * shared with other processes which use the same font. Closing the font doesn't release the
+     * mapping, it stays alive until the buffer is garbage collected. Thus the fonts are only read
+     * from the file when the cache is built, as that parses every font on the system.
+     */
+    private static ByteBuffer mapFile(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException("Font file too large: " + size + " bytes");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
     /**
      * Adds a TTC or OTC to the file cache. To reduce memory, the parsed font is not cached.
      */
-    private void addTrueTypeCollection(final File ttcFile) throws IOException
+    private void addTrueTypeCollection(final File ttcFile, List<FSFontInfo> fontInfos)
+            throws IOException
     {
         try (TrueTypeCollection ttc = new TrueTypeCollection(ttcFile))
         {
-            ttc.processAllFonts(ttf -> addTrueTypeFontImpl(ttf, ttcFile));
+            ttc.processAllFonts(ttf -> addTrueTypeFontImpl(ttf, ttcFile, fontInfos));
         }
         catch (IOException e)
         {
@@ -624,7 +880,7 @@ final class FileSystemFontProvider extends FontProvider
     /**
      * Adds an OTF or TTF font to the file cache. To reduce memory, the parsed font is not cached.
      */
-    private void addTrueTypeFont(File ttfFile) throws IOException
+    private void addTrueTypeFont(File ttfFile, List<FSFontInfo> fontInfos) throws IOException
     {
         try
         {
@@ -632,13 +888,13 @@ final class FileSystemFontProvider extends FontProvider
             {
                 OTFParser parser = new OTFParser(false);
                 OpenTypeFont otf = parser.parse(new RandomAccessReadBufferedFile(ttfFile));
-                addTrueTypeFontImpl(otf, ttfFile);
+                addTrueTypeFontImpl(otf, ttfFile, fontInfos);
             }
             else
             {
                 TTFParser parser = new TTFParser(false);
                 TrueTypeFont ttf = parser.parse(new RandomAccessReadBufferedFile(ttfFile));
-                addTrueTypeFontImpl(ttf, ttfFile);
+                addTrueTypeFontImpl(ttf, ttfFile, fontInfos);
             }
         }
         catch (IOException e)
@@ -650,14 +906,15 @@ final class FileSystemFontProvider extends FontProvider
     /**
      * Adds an OTF or TTF font to the file cache. To reduce memory, the parsed font is not cached.
      */
-    private void addTrueTypeFontImpl(TrueTypeFont ttf, File file) throws IOException
+    private void addTrueTypeFontImpl(TrueTypeFont ttf, File file, List<FSFontInfo> fontInfos)
+            throws IOException
     {
         try
         {
             // read PostScript name, if any
             if (ttf.getName() != null && ttf.getName().contains("|"))
             {
-                fontInfoList.add(new FSIgnored(file, FontFormat.TTF, "*skippipeinname*"));
+                fontInfos.add(new FSIgnored(file, FontFormat.TTF, "*skippipeinname*"));
                 LOG.warn("Skipping font with '|' in name " + ttf.getName() + " in file " + file);
             }
             else if (ttf.getName() != null)
@@ -665,7 +922,7 @@ final class FileSystemFontProvider extends FontProvider
                 // ignore bitmap fonts
                 if (ttf.getHeader() == null)
                 {
-                    fontInfoList.add(new FSIgnored(file, FontFormat.TTF, ttf.getName()));
+                    fontInfos.add(new FSIgnored(file, FontFormat.TTF, ttf.getName()));
                     return;
                 }
                 int macStyle = ttf.getHeader().getMacStyle();
@@ -700,7 +957,7 @@ final class FileSystemFontProvider extends FontProvider
                         int supplement = cidFont.getSupplement();
                         ros = new CIDSystemInfo(registry, ordering, supplement);
                     }
-                    fontInfoList.add(new FSFontInfo(file, FontFormat.OTF, ttf.getName(), ros,
+                    fontInfos.add(new FSFontInfo(file, FontFormat.OTF, ttf.getName(), ros,
                             usWeightClass, sFamilyClass, ulCodePageRange1, ulCodePageRange2,
                             macStyle, panose, this));
                 }
@@ -720,7 +977,7 @@ final class FileSystemFontProvider extends FontProvider
                     }
                     
                     format = "TTF";
-                    fontInfoList.add(new FSFontInfo(file, FontFormat.TTF, ttf.getName(), ros,
+                    fontInfos.add(new FSFontInfo(file, FontFormat.TTF, ttf.getName(), ros,
                             usWeightClass, sFamilyClass, ulCodePageRange1, ulCodePageRange2,
                             macStyle, panose, this));
                 }
@@ -738,13 +995,13 @@ final class FileSystemFontProvider extends FontProvider
             }
             else
             {
-                fontInfoList.add(new FSIgnored(file, FontFormat.TTF, "*skipnoname*"));
+                fontInfos.add(new FSIgnored(file, FontFormat.TTF, "*skipnoname*"));
                 LOG.warn("Missing 'name' entry for PostScript name in font " + file);
             }
         }
         catch (IOException e)
         {
-            fontInfoList.add(new FSIgnored(file, FontFormat.TTF, "*skipexception*"));
+            fontInfos.add(new FSIgnored(file, FontFormat.TTF, "*skipexception*"));
             LOG.warn("Could not load font file: " + file, e);
         }
         finally
@@ -756,24 +1013,24 @@ final class FileSystemFontProvider extends FontProvider
     /**
      * Adds a Type 1 font to the file cache. To reduce memory, the parsed font is not cached.
      */
-    private void addType1Font(File pfbFile) throws IOException
+    private void addType1Font(File pfbFile, List<FSFontInfo> fontInfos) throws IOException
     {
         try (InputStream input = new FileInputStream(pfbFile))
         {
             Type1Font type1 = Type1Font.createWithPFB(input);
             if (type1.getName() == null)
             {
-                fontInfoList.add(new FSIgnored(pfbFile, FontFormat.PFB, "*skipnoname*"));
+                fontInfos.add(new FSIgnored(pfbFile, FontFormat.PFB, "*skipnoname*"));
                 LOG.warn("Missing 'name' entry for PostScript name in font " + pfbFile);
                 return;
             }
             if (type1.getName().contains("|"))
             {
-                fontInfoList.add(new FSIgnored(pfbFile, FontFormat.PFB, "*skippipeinname*"));
+                fontInfos.add(new FSIgnored(pfbFile, FontFormat.PFB, "*skippipeinname*"));
                 LOG.warn("Skipping font with '|' in name " + type1.getName() + " in file " + pfbFile);
                 return;
             }
-            fontInfoList.add(new FSFontInfo(pfbFile, FontFormat.PFB, type1.getName(),
+            fontInfos.add(new FSFontInfo(pfbFile, FontFormat.PFB, type1.getName(),
                                             null, -1, -1, 0, 0, -1, null, this));
 
             if (LOG.isTraceEnabled())
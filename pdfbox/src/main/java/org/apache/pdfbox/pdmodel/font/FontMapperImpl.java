@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,6 +30,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.fontbox.FontBoxFont;
@@ -42,6 +44,10 @@ import org.apache.pdfbox.pdmodel.font.Standard14Fonts.FontName;
 /**
  * Font mapper, locates non-embedded fonts via a pluggable FontProvider.
  *
+ * <p>The results of the lookups are kept in a bounded cache which is shared by all documents, so
+ * the substitutes of a font are searched only once. The candidates for the substitution of CJK
+ * fonts are indexed by their character collection.
+ *
  * @author John Hewson
  */
 final class FontMapperImpl implements FontMapper
@@ -56,6 +62,28 @@ final class FontMapperImpl implements FontMapper
     /** Map of PostScript name substitutes, in priority order. */
     private final Map<String, List<String>> substitutes = new HashMap<>();
 
+    private static final int MAX_RESOLVED_FONTS = 1000;
+
+    /** Results of the lookups by format and name, or by character collection and style. */
+    private final Map<String, FontInfo> resolvedFonts =
+            new LinkedHashMap<String, FontInfo>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FontInfo> eldest)
+        {
+            return size() > MAX_RESOLVED_FONTS;
+        }
+    };
+
+    /** Fonts which support a character collection, e.g. "Adobe-Japan1". */
+    private final Map<String, List<FontInfo>> fontInfoByCollection = new HashMap<>();
+
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong lookupTime = new AtomicLong();
+
     FontMapperImpl()
     {
         // substitutes for standard 14 fonts
@@ -146,6 +174,40 @@ final class FontMapperImpl implements FontMapper
     {
         fontInfoByName = createFontInfoByName(fontProvider.getFontInfo());
         this.fontProvider = fontProvider;
+        clearResolvedFonts();
+    }
+
+    private void clearResolvedFonts()
+    {
+        synchronized (resolvedFonts)
+        {
+            resolvedFonts.clear();
+            fontInfoByCollection.clear();
+        }
+    }
+
+    /**
+     * Returns the number of font lookups, for monitoring.
+     */
+    long getLookupCount()
+    {
+        return lookupCount.get();
+    }
+
+    /**
+     * Returns the number of font lookups which were answered from the cache, for monitoring.
+     */
+    long getCacheHitCount()
+    {
+        return cacheHitCount.get();
+    }
+
+    /**
+     * Returns the time spent in the font lookups which were not cached, in nanoseconds.
+     */
+    long getLookupTime()
+    {
+        return lookupTime.get();
     }
 
     /**
@@ -208,6 +270,7 @@ final class FontMapperImpl implements FontMapper
     {
         String lowerCaseMatch = match.toLowerCase(Locale.ENGLISH);
         substitutes.computeIfAbsent(lowerCaseMatch, key -> new ArrayList<>()).add(replace);
+        clearResolvedFonts();
     }
 
     private void addSubstitutes(String match, List<String> replacements)
@@ -416,18 +479,56 @@ final class FontMapperImpl implements FontMapper
             getProvider();
         }
 
+        String key = format + "/" + postScriptName;
+        lookupCount.incrementAndGet();
+        synchronized (resolvedFonts)
+        {
+            if (resolvedFonts.containsKey(key))
+            {
+                cacheHitCount.incrementAndGet();
+                FontInfo info = resolvedFonts.get(key);
+                return info != null ? info.getFont() : null;
+            }
+        }
+        long start = System.nanoTime();
+        FontInfo info = findFontInfo(format, postScriptName);
+        addLookupTime(start, key, info);
+        synchronized (resolvedFonts)
+        {
+            resolvedFonts.put(key, info);
+        }
+        return info != null ? info.getFont() : null;
+    }
+
+    private void addLookupTime(long start, String key, FontInfo info)
+    {
+        long time = System.nanoTime() - start;
+        lookupTime.addAndGet(time);
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Lookup of '" + key + "' took " + time / 1000 + " microseconds, found " +
+                      info);
+        }
+    }
+
+    /**
+     * Finds the info of a font with the given PostScript name, or of a suitable substitute, or
+     * null.
+     */
+    private FontInfo findFontInfo(FontFormat format, String postScriptName)
+    {
         // first try to match the PostScript name
         FontInfo info = getFont(format, postScriptName);
         if (info != null)
         {
-            return info.getFont();
+            return info;
         }
 
         // remove hyphens (e.g. Arial-Black -> ArialBlack)
         info = getFont(format, postScriptName.replace("-", ""));
         if (info != null)
         {
-            return info.getFont();
+            return info;
         }
 
         // then try named substitutes
@@ -436,7 +537,7 @@ final class FontMapperImpl implements FontMapper
             info = getFont(format, substituteName);
             if (info != null)
             {
-                return info.getFont();
+                return info;
             }
         }
 
@@ -444,17 +545,11 @@ final class FontMapperImpl implements FontMapper
         info = getFont(format, postScriptName.replace(",", "-"));
         if (info != null)
         {
-            return info.getFont();
+            return info;
         }
 
         // try appending "-Regular", works for Wingdings on windows
-        info = getFont(format, postScriptName + "-Regular");
-        if (info != null)
-        {
-            return info.getFont();
-        }
-        // no matches
-        return null;
+        return getFont(format, postScriptName + "-Regular");
     }
 
     /**
@@ -518,15 +613,14 @@ final class FontMapperImpl implements FontMapper
                 collection.equals("Adobe-Japan1") || collection.equals("Adobe-Korea1"))
             {
                 // try automatic substitutes via character collection
-                PriorityQueue<FontMatch> queue = getFontMatches(fontDescriptor, cidSystemInfo);
-                FontMatch bestMatch = queue.poll();
+                FontInfo bestMatch = findBestMatch(fontDescriptor, cidSystemInfo);
                 if (bestMatch != null)
                 {
                     if (LOG.isDebugEnabled())
                     {
-                        LOG.debug("Best match for '" + baseFont + "': " + bestMatch.info);
+                        LOG.debug("Best match for '" + baseFont + "': " + bestMatch);
                     }
-                    FontBoxFont font = bestMatch.info.getFont();
+                    FontBoxFont font = bestMatch.getFont();
                     if (font instanceof OpenTypeFont)
                     {
                         return new CIDFontMapping((OpenTypeFont)font, null, true);
@@ -543,6 +637,78 @@ final class FontMapperImpl implements FontMapper
         return new CIDFontMapping(null, lastResortFont, true);
     }
 
+    /**
+     * Returns the best match for the given font descriptor and character collection. The result
+     * depends only on the attributes of the font descriptor used for the scoring, so it is
+     * cached for these attributes.
+     */
+    private FontInfo findBestMatch(PDFontDescriptor fontDescriptor, PDCIDSystemInfo cidSystemInfo)
+    {
+        if (fontProvider == null)
+        {
+            getProvider();
+        }
+
+        // the weight is used for the fonts without panose
+        StringBuilder key = new StringBuilder();
+        key.append(cidSystemInfo.getRegistry()).append('-').append(cidSystemInfo.getOrdering());
+        key.append("/weight ").append(fontDescriptor.getFontWeight());
+        if (fontDescriptor.getPanose() != null)
+        {
+            PDPanoseClassification panose = fontDescriptor.getPanose().getPanose();
+            key.append("/panose ").append(panose.getFamilyKind()).append(' ')
+                    .append(panose.getSerifStyle()).append(' ').append(panose.getWeight());
+            if (panose.getFamilyKind() == 0)
+            {
+                key.append(' ').append(probablyBarcodeFont(fontDescriptor));
+            }
+        }
+        String matchKey = key.toString();
+
+        lookupCount.incrementAndGet();
+        synchronized (resolvedFonts)
+        {
+            if (resolvedFonts.containsKey(matchKey))
+            {
+                cacheHitCount.incrementAndGet();
+                return resolvedFonts.get(matchKey);
+            }
+        }
+        long start = System.nanoTime();
+        FontMatch bestMatch = getFontMatches(fontDescriptor, cidSystemInfo).poll();
+        FontInfo info = bestMatch != null ? bestMatch.info : null;
+        addLookupTime(start, matchKey, info);
+        synchronized (resolvedFonts)
+        {
+            resolvedFonts.put(matchKey, info);
+        }
+        return info;
+    }
+
+    /**
+     * Returns the fonts which support the given character collection.
+     */
+    private List<FontInfo> getFontInfoByCollection(PDCIDSystemInfo cidSystemInfo)
+    {
+        String registry = cidSystemInfo.getRegistry();
+        String ordering = cidSystemInfo.getOrdering();
+        synchronized (resolvedFonts)
+        {
+            return fontInfoByCollection.computeIfAbsent(registry + "-" + ordering, collection ->
+            {
+                List<FontInfo> infos = new ArrayList<>();
+                for (FontInfo info : fontInfoByName.values())
+                {
+                    if (isCharSetMatch(registry, ordering, info))
+                    {
+                        infos.add(info);
+                    }
+                }
+                return infos;
+            });
+        }
+    }
+
     /**
      * Returns a list of matching fonts, scored by suitability. Positive scores indicate matches
      * for certain attributes, while negative scores indicate mismatches. Zero scores are neutral.
@@ -554,15 +720,12 @@ final class FontMapperImpl implements FontMapper
                                                            PDCIDSystemInfo cidSystemInfo)
     {
         PriorityQueue<FontMatch> queue = new PriorityQueue<>(20);
-        
-        for (FontInfo info : fontInfoByName.values())
-        {
-            // filter by CIDSystemInfo, if given
-            if (cidSystemInfo != null && !isCharSetMatch(cidSystemInfo, info))
-            {
-                continue;
-            }
 
+        // filter by CIDSystemInfo, if given
+        Collection<FontInfo> infos = cidSystemInfo != null ?
+                getFontInfoByCollection(cidSystemInfo) : fontInfoByName.values();
+        for (FontInfo info : infos)
+        {
             FontMatch match = new FontMatch(info);
 
             // Panose is the most reliable
@@ -663,12 +826,12 @@ final class FontMapperImpl implements FontMapper
      * Returns true if the character set described by CIDSystemInfo is present in the given font.
      * Only applies to Adobe-GB1, Adobe-CNS1, Adobe-Japan1, Adobe-Korea1, as per the PDF spec.
      */
-    private boolean isCharSetMatch(PDCIDSystemInfo cidSystemInfo, FontInfo info)
+    private boolean isCharSetMatch(String registry, String ordering, FontInfo info)
     {
         if (info.getCIDSystemInfo() != null)
         {
-            return info.getCIDSystemInfo().getRegistry().equals(cidSystemInfo.getRegistry()) &&
-                   info.getCIDSystemInfo().getOrdering().equals(cidSystemInfo.getOrdering());
+            return info.getCIDSystemInfo().getRegistry().equals(registry) &&
+                   info.getCIDSystemInfo().getOrdering().equals(ordering);
         }
         else
         {
@@ -685,24 +848,24 @@ final class FontMapperImpl implements FontMapper
                 // PDFBOX-4793 and PDF.js 10699: This font has only Korean, but has bits 17-21 set.
                 codePageRange &= ~(JIS_JAPAN | CHINESE_SIMPLIFIED | CHINESE_TRADITIONAL);
             }
-            if (cidSystemInfo.getOrdering().equals("GB1") &&
+            if (ordering.equals("GB1") &&
                     (codePageRange & CHINESE_SIMPLIFIED) == CHINESE_SIMPLIFIED)
             {
                 return true;
             }
-            else if (cidSystemInfo.getOrdering().equals("CNS1") && 
+            else if (ordering.equals("CNS1") && 
                     (codePageRange & CHINESE_TRADITIONAL) == CHINESE_TRADITIONAL)
             {
                 return true;
             }
-            else if (cidSystemInfo.getOrdering().equals("Japan1") &&
+            else if (ordering.equals("Japan1") &&
                     (codePageRange & JIS_JAPAN) == JIS_JAPAN)
             {
                 return true;
             }
             else
             {
-                return cidSystemInfo.getOrdering().equals("Korea1") &&
+                return ordering.equals("Korea1") &&
                         ((codePageRange & KOREAN_WANSUNG) == KOREAN_WANSUNG ||
                          (codePageRange & KOREAN_JOHAB) == KOREAN_JOHAB);
             }
@@ -33,7 +33,7 @@ public final class FontMappers
     // lazy thread safe singleton
     private static class DefaultFontMapper
     {
-        private static final FontMapper INSTANCE = new FontMapperImpl();
+        private static final FontMapperImpl INSTANCE = new FontMapperImpl();
     }
     
     /**
@@ -59,4 +59,38 @@ public final class FontMappers
     {
         instance = fontMapper;
     }
+
+    /**
+     * Returns the number of font lookups of the default FontMapper, which is shared by all
+     * documents unless it has been replaced with {@link #set(FontMapper)}. This is meant for
+     * monitoring, e.g. together with {@link #getCacheHitCount()} to see how well the lookups
+     * are cached.
+     *
+     * @return the number of lookups since the start
+     */
+    public static long getLookupCount()
+    {
+        return DefaultFontMapper.INSTANCE.getLookupCount();
+    }
+
+    /**
+     * Returns the number of font lookups of the default FontMapper which were answered from its
+     * cache.
+     *
+     * @return the number of cached lookups since the start
+     */
+    public static long getCacheHitCount()
+    {
+        return DefaultFontMapper.INSTANCE.getCacheHitCount();
+    }
+
+    /**
+     * Returns the time the default FontMapper spent in the font lookups which were not cached.
+     *
+     * @return the time in nanoseconds
+     */
+    public static long getLookupTime()
+    {
+        return DefaultFontMapper.INSTANCE.getLookupTime();
+    }
 }
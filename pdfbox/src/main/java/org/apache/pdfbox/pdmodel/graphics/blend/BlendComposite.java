@@ -22,7 +22,11 @@ import java.awt.CompositeContext;
 import java.awt.RenderingHints;
 import java.awt.color.ColorSpace;
 import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
 import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -83,6 +87,60 @@ public final class BlendComposite implements Composite
         this.constantAlpha = constantAlpha;
     }
 
+    /**
+     * Returns true if the pixels of the raster are non-premultiplied sRGB values packed into ints,
+     * with or without alpha.
+     */
+    private static boolean isIntRGB(ColorModel colorModel, Raster raster)
+    {
+        if (!(colorModel instanceof DirectColorModel) || colorModel.isAlphaPremultiplied() ||
+            !colorModel.getColorSpace().isCS_sRGB())
+        {
+            return false;
+        }
+        DirectColorModel directColorModel = (DirectColorModel) colorModel;
+        if (directColorModel.getRedMask() != 0xff0000 ||
+            directColorModel.getGreenMask() != 0xff00 ||
+            directColorModel.getBlueMask() != 0xff ||
+            (directColorModel.hasAlpha() && directColorModel.getAlphaMask() != 0xff000000))
+        {
+            return false;
+        }
+        SampleModel sampleModel = raster.getSampleModel();
+        if (!(sampleModel instanceof SinglePixelPackedSampleModel) ||
+            !(raster.getDataBuffer() instanceof DataBufferInt) ||
+            raster.getDataBuffer().getNumBanks() != 1)
+        {
+            return false;
+        }
+        int[] masks = ((SinglePixelPackedSampleModel) sampleModel).getBitMasks();
+        return masks.length == colorModel.getNumComponents() && masks[0] == 0xff0000 &&
+                masks[1] == 0xff00 && masks[2] == 0xff &&
+                (masks.length == 3 || masks[3] == 0xff000000);
+    }
+
+    /**
+     * Returns the index of a pixel in the data array of a raster that is checked by
+     * {@link #isIntRGB(ColorModel, Raster)}.
+     */
+    private static int getIndex(Raster raster, int x, int y)
+    {
+        SinglePixelPackedSampleModel sampleModel =
+                (SinglePixelPackedSampleModel) raster.getSampleModel();
+        return raster.getDataBuffer().getOffset() +
+                sampleModel.getOffset(x - raster.getSampleModelTranslateX(),
+                        y - raster.getSampleModelTranslateY());
+    }
+
+    /**
+     * Converts a normalized component to 8 bits like {@link ColorModel#getDataElements(float[],
+     * int, Object)} does.
+     */
+    private static int toByte(float value)
+    {
+        return (int) (value * 255 + 0.5f) & 0xff;
+    }
+
     @Override
     public CompositeContext createContext(ColorModel srcColorModel, ColorModel dstColorModel,
             RenderingHints hints)
@@ -110,6 +168,13 @@ public final class BlendComposite implements Composite
         @Override
         public void compose(Raster src, Raster dstIn, WritableRaster dstOut)
         {
+            if (isIntRGB(srcColorModel, src) && isIntRGB(dstColorModel, dstIn) &&
+                isIntRGB(dstColorModel, dstOut))
+            {
+                composeIntRGB(src, dstIn, dstOut);
+                return;
+            }
+
             int x0 = src.getMinX();
             int y0 = src.getMinY();
             int width = Math.min(Math.min(src.getWidth(), dstIn.getWidth()), dstOut.getWidth());
@@ -267,5 +332,90 @@ public final class BlendComposite implements Composite
                 }
             }
         }
+
+        /**
+         * Same as the generic composition above, for the common case that source and destination
+         * are sRGB pixels packed into ints, like in TYPE_INT_ARGB and TYPE_INT_RGB images. The
+         * pixels are read and written directly in the data arrays, with the same arithmetic as the
+         * color models use for the conversion to and from normalized components.
+         */
+        private void composeIntRGB(Raster src, Raster dstIn, WritableRaster dstOut)
+        {
+            int width = Math.min(Math.min(src.getWidth(), dstIn.getWidth()), dstOut.getWidth());
+            int height = Math.min(Math.min(src.getHeight(), dstIn.getHeight()), dstOut.getHeight());
+
+            boolean srcHasAlpha = srcColorModel.hasAlpha();
+            boolean dstHasAlpha = dstColorModel.hasAlpha();
+            boolean blendModeIsSeparable = blendMode.isSeparableBlendMode();
+            BlendMode.BlendChannelFunction blendChannelFunction =
+                    blendMode.getBlendChannelFunction();
+            BlendMode.BlendFunction blendFunction = blendMode.getBlendFunction();
+
+            int[] srcData = ((DataBufferInt) src.getDataBuffer()).getData();
+            int[] dstInData = ((DataBufferInt) dstIn.getDataBuffer()).getData();
+            int[] dstOutData = ((DataBufferInt) dstOut.getDataBuffer()).getData();
+
+            float[] srcRGB = new float[3];
+            float[] dstRGB = new float[3];
+            float[] rgbResult = new float[3];
+
+            for (int y = 0; y < height; y++)
+            {
+                int srcIndex = getIndex(src, src.getMinX(), src.getMinY() + y);
+                int dstInIndex = getIndex(dstIn, dstIn.getMinX(), dstIn.getMinY() + y);
+                int dstOutIndex = getIndex(dstOut, dstOut.getMinX(), dstOut.getMinY() + y);
+                for (int x = 0; x < width; x++)
+                {
+                    int srcPixel = srcData[srcIndex + x];
+                    int dstPixel = dstInData[dstInIndex + x];
+
+                    float srcAlpha = srcHasAlpha ? (srcPixel >>> 24) / 255f : 1.0f;
+                    float dstAlpha = dstHasAlpha ? (dstPixel >>> 24) / 255f : 1.0f;
+
+                    srcAlpha = srcAlpha * constantAlpha;
+
+                    float resultAlpha = dstAlpha + srcAlpha - srcAlpha * dstAlpha;
+                    float srcAlphaRatio = (resultAlpha > 0) ? srcAlpha / resultAlpha : 0;
+
+                    for (int k = 0; k < 3; k++)
+                    {
+                        int shift = 16 - 8 * k;
+                        srcRGB[k] = (srcPixel >> shift & 0xff) / 255f;
+                        dstRGB[k] = (dstPixel >> shift & 0xff) / 255f;
+                    }
+
+                    if (blendModeIsSeparable)
+                    {
+                        for (int k = 0; k < 3; k++)
+                        {
+                            float srcValue = srcRGB[k];
+                            float dstValue = dstRGB[k];
+                            float value = blendChannelFunction.blendChannel(srcValue, dstValue);
+                            value = srcValue + dstAlpha * (value - srcValue);
+                            rgbResult[k] = dstValue + srcAlphaRatio * (value - dstValue);
+                        }
+                    }
+                    else
+                    {
+                        blendFunction.blend(srcRGB, dstRGB, rgbResult);
+                        for (int k = 0; k < 3; k++)
+                        {
+                            float srcValue = srcRGB[k];
+                            float dstValue = dstRGB[k];
+                            float value = Math.max(Math.min(rgbResult[k], 1.0f), 0.0f);
+                            value = srcValue + dstAlpha * (value - srcValue);
+                            rgbResult[k] = dstValue + srcAlphaRatio * (value - dstValue);
+                        }
+                    }
+
+                    int resultPixel = dstHasAlpha ? toByte(resultAlpha) << 24 : 0;
+                    resultPixel |= toByte(rgbResult[0]) << 16;
+                    resultPixel |= toByte(rgbResult[1]) << 8;
+                    resultPixel |= toByte(rgbResult[2]);
+                    dstOutData[dstOutIndex + x] = resultPixel;
+                }
+            }
+        }
     }
+
 }
@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
+import java.awt.color.ICC_ProfileRGB;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A lookup table for the conversion of 8 bit CMYK images with an ICC profile to sRGB. The
+ * conversion of the profile is sampled once on a regular 4D grid, and the pixels are interpolated
+ * between the five grid points of the simplex that contains them (the 4D generalization of
+ * tetrahedral interpolation), with integer arithmetic directly on the raster data. The grid
+ * contains unclipped linear RGB values, so that colours outside of the sRGB gamut are clipped
+ * after the interpolation, and the sRGB transfer function is applied with a table.
+ *
+ * <p>This is much faster than {@link ColorConvertOp} for large images and gives the same result
+ * within one level for almost all colours of smooth profiles. The table can be disabled with the system property
+ * {@code pdfbox.cmyklut=false}. Images with at least {@code pdfbox.cmyklut.parallel} pixels
+ * (default 0, i.e. never) are converted by several threads of the common fork-join pool.
+ *
+ * <p>Instances are immutable and thread safe. There is one table for each ICC color space, the
+ * color spaces themselves are shared by documents with the same profile, see
+ * {@link ICCProfileCache}.
+ */
+final class CMYKColorLUT
+{
+    private static final Log LOG = LogFactory.getLog(CMYKColorLUT.class);
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("pdfbox.cmyklut", "true"));
+
+    private static final long PARALLEL_THRESHOLD = getParallelThreshold();
+
+    // number of grid points in each dimension
+    private static final int GRID_SIZE = 21;
+
+    // the grid is only created for images with at least as many pixels as grid points
+    private static final int MIN_PIXELS = GRID_SIZE * GRID_SIZE * GRID_SIZE * GRID_SIZE;
+
+    // fixed point precision of the interpolation weights and of the linear RGB values
+    private static final int WEIGHT_BITS = 11;
+    private static final int WEIGHT_ONE = 1 << WEIGHT_BITS;
+    private static final int ROUNDING = 1 << (WEIGHT_BITS - 1);
+    private static final int LINEAR_BITS = 14;
+    private static final int LINEAR_ONE = 1 << LINEAR_BITS;
+
+    private static final float[][] XYZ_TO_LINEAR_RGB = getXYZToLinearRGBMatrix();
+    private static final byte[] GAMMA = createGammaTable();
+
+    // number of rows that are converted by one task of a parallel conversion
+    private static final int ROWS_PER_TASK = 64;
+
+    private static final Map<ColorSpace, CMYKColorLUT> TABLES = new WeakHashMap<>();
+
+    // linear RGB values of the grid points, K changes fastest
+    private final int[] table;
+
+    // grid cell and position in the cell for each sample value
+    private static final int[] CELL_OFFSETS = new int[256];
+    private static final int[] CELL_WEIGHTS = new int[256];
+
+    // offsets of the grid points for each dimension
+    private static final int STRIDE_K = 3;
+    private static final int STRIDE_Y = STRIDE_K * GRID_SIZE;
+    private static final int STRIDE_M = STRIDE_Y * GRID_SIZE;
+    private static final int STRIDE_C = STRIDE_M * GRID_SIZE;
+
+    static
+    {
+        for (int sample = 0; sample < 256; sample++)
+        {
+            float position = sample * (GRID_SIZE - 1) / 255f;
+            int cell = Math.min((int) position, GRID_SIZE - 2);
+            CELL_OFFSETS[sample] = cell;
+            CELL_WEIGHTS[sample] = Math.round((position - cell) * WEIGHT_ONE);
+        }
+    }
+
+    private CMYKColorLUT(ICC_ColorSpace colorSpace)
+    {
+        // convert all grid points to XYZ with a single color conversion of a 16 bit raster
+        int count = GRID_SIZE * GRID_SIZE * GRID_SIZE * GRID_SIZE;
+        short[] cmyk = new short[count * 4];
+        int i = 0;
+        for (int c = 0; c < GRID_SIZE; c++)
+        {
+            for (int m = 0; m < GRID_SIZE; m++)
+            {
+                for (int y = 0; y < GRID_SIZE; y++)
+                {
+                    for (int k = 0; k < GRID_SIZE; k++)
+                    {
+                        cmyk[i++] = (short) (c * 65535 / (GRID_SIZE - 1));
+                        cmyk[i++] = (short) (m * 65535 / (GRID_SIZE - 1));
+                        cmyk[i++] = (short) (y * 65535 / (GRID_SIZE - 1));
+                        cmyk[i++] = (short) (k * 65535 / (GRID_SIZE - 1));
+                    }
+                }
+            }
+        }
+        WritableRaster src = Raster.createInterleavedRaster(
+                new DataBufferUShort(cmyk, cmyk.length), count, 1, count * 4, 4,
+                new int[] { 0, 1, 2, 3 }, null);
+        WritableRaster dest = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, count, 1, 3,
+                null);
+        ColorSpace xyzColorSpace = ColorSpace.getInstance(ColorSpace.CS_CIEXYZ);
+        new ColorConvertOp(colorSpace, xyzColorSpace, null).filter(src, dest);
+        short[] xyz = ((DataBufferUShort) dest.getDataBuffer()).getData();
+
+        // the table contains linear RGB values, which are clipped after the interpolation,
+        // interpolating clipped values gives large errors at the border of the sRGB gamut
+        float[][] matrix = XYZ_TO_LINEAR_RGB;
+        float xyzScale = xyzColorSpace.getMaxValue(0) / 65535;
+        table = new int[xyz.length];
+        for (int j = 0; j < xyz.length; j += 3)
+        {
+            float x = (xyz[j] & 0xffff) * xyzScale;
+            float y = (xyz[j + 1] & 0xffff) * xyzScale;
+            float z = (xyz[j + 2] & 0xffff) * xyzScale;
+            for (int c = 0; c < 3; c++)
+            {
+                float linear = matrix[c][0] * x + matrix[c][1] * y + matrix[c][2] * z;
+                table[j + c] = Math.round(linear * LINEAR_ONE);
+            }
+        }
+    }
+
+    /**
+     * Returns the matrix for the conversion of XYZ (D50) to linear sRGB, the inverse of the
+     * colorant matrix of the sRGB profile.
+     */
+    private static float[][] getXYZToLinearRGBMatrix()
+    {
+        ICC_ProfileRGB profile = (ICC_ProfileRGB) ((ICC_ColorSpace) ColorSpace
+                .getInstance(ColorSpace.CS_sRGB)).getProfile();
+        float[][] m = profile.getMatrix();
+        double det = m[0][0] * ((double) m[1][1] * m[2][2] - (double) m[1][2] * m[2][1]) -
+                m[0][1] * ((double) m[1][0] * m[2][2] - (double) m[1][2] * m[2][0]) +
+                m[0][2] * ((double) m[1][0] * m[2][1] - (double) m[1][1] * m[2][0]);
+        float[][] inverse = new float[3][3];
+        for (int row = 0; row < 3; row++)
+        {
+            for (int col = 0; col < 3; col++)
+            {
+                // cofactor of the transposed matrix
+                int r1 = (col + 1) % 3;
+                int r2 = (col + 2) % 3;
+                int c1 = (row + 1) % 3;
+                int c2 = (row + 2) % 3;
+                inverse[row][col] = (float) (((double) m[r1][c1] * m[r2][c2] -
+                        (double) m[r1][c2] * m[r2][c1]) / det);
+            }
+        }
+        return inverse;
+    }
+
+    /**
+     * Returns the sRGB transfer function for linear values with {@link #LINEAR_BITS} bits.
+     */
+    private static byte[] createGammaTable()
+    {
+        byte[] gamma = new byte[LINEAR_ONE + 1];
+        for (int i = 0; i <= LINEAR_ONE; i++)
+        {
+            double linear = (double) i / LINEAR_ONE;
+            double value = linear <= 0.0031308 ? 12.92 * linear :
+                    1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+            gamma[i] = (byte) Math.round(value * 255);
+        }
+        return gamma;
+    }
+
+    private static long getParallelThreshold()
+    {
+        String s = System.getProperty("pdfbox.cmyklut.parallel");
+        if (s != null)
+        {
+            try
+            {
+                return Long.parseLong(s);
+            }
+            catch (NumberFormatException ex)
+            {
+                LOG.error("Default will be used", ex);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the lookup table of a CMYK color space, and creates it if the raster is large enough
+     * to make up for the creation of the table.
+     *
+     * @param colorSpace the ICC color space
+     * @param raster the raster that will be converted
+     * @return the lookup table, or null if the table can't be used for the raster
+     */
+    static CMYKColorLUT get(ColorSpace colorSpace, Raster raster)
+    {
+        if (!ENABLED || !(colorSpace instanceof ICC_ColorSpace) ||
+            colorSpace.getType() != ColorSpace.TYPE_CMYK || colorSpace.getNumComponents() != 4 ||
+            raster.getNumBands() != 4 || raster.getTransferType() != DataBuffer.TYPE_BYTE)
+        {
+            return null;
+        }
+        for (int c = 0; c < 4; c++)
+        {
+            if (colorSpace.getMinValue(c) != 0 || colorSpace.getMaxValue(c) != 1)
+            {
+                return null;
+            }
+        }
+        CMYKColorLUT lut;
+        synchronized (TABLES)
+        {
+            lut = TABLES.get(colorSpace);
+        }
+        if (lut == null && (long) raster.getWidth() * raster.getHeight() >= MIN_PIXELS)
+        {
+            // a duplicate table created by a concurrent call is harmless
+            lut = new CMYKColorLUT((ICC_ColorSpace) colorSpace);
+            synchronized (TABLES)
+            {
+                TABLES.put(colorSpace, lut);
+            }
+        }
+        return lut;
+    }
+
+    /**
+     * Converts a CMYK raster with 8 bit samples to an RGB image.
+     *
+     * @param raster the CMYK raster
+     * @return the RGB image
+     */
+    BufferedImage toRGBImage(Raster raster)
+    {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        if (PARALLEL_THRESHOLD > 0 && (long) width * height >= PARALLEL_THRESHOLD)
+        {
+            int tasks = (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+            IntStream.range(0, tasks).parallel().forEach(task ->
+            {
+                int y0 = task * ROWS_PER_TASK;
+                toRGB(raster, rgb, y0, Math.min(y0 + ROWS_PER_TASK, height));
+            });
+        }
+        else
+        {
+            toRGB(raster, rgb, 0, height);
+        }
+        return image;
+    }
+
+    private void toRGB(Raster raster, int[] rgb, int y0, int y1)
+    {
+        int width = raster.getWidth();
+        if (raster.getSampleModel() instanceof PixelInterleavedSampleModel &&
+            raster.getDataBuffer().getNumBanks() == 1)
+        {
+            // read the samples directly from the data buffer
+            PixelInterleavedSampleModel sampleModel =
+                    (PixelInterleavedSampleModel) raster.getSampleModel();
+            byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+            int pixelStride = sampleModel.getPixelStride();
+            int scanlineStride = sampleModel.getScanlineStride();
+            int[] bandOffsets = sampleModel.getBandOffsets();
+            int offset = raster.getDataBuffer().getOffset() + sampleModel.getOffset(
+                    raster.getMinX() - raster.getSampleModelTranslateX(),
+                    raster.getMinY() - raster.getSampleModelTranslateY());
+            for (int y = y0; y < y1; y++)
+            {
+                int s = offset + y * scanlineStride;
+                int d = y * width;
+                for (int x = 0; x < width; x++, s += pixelStride)
+                {
+                    rgb[d + x] = interpolate(data[s + bandOffsets[0]] & 0xff,
+                            data[s + bandOffsets[1]] & 0xff, data[s + bandOffsets[2]] & 0xff,
+                            data[s + bandOffsets[3]] & 0xff);
+                }
+            }
+        }
+        else
+        {
+            int[] samples = new int[width * 4];
+            for (int y = y0; y < y1; y++)
+            {
+                raster.getPixels(raster.getMinX(), raster.getMinY() + y, width, 1, samples);
+                int d = y * width;
+                for (int x = 0, s = 0; x < width; x++, s += 4)
+                {
+                    rgb[d + x] = interpolate(samples[s], samples[s + 1], samples[s + 2],
+                            samples[s + 3]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Interpolates the packed RGB value of 8 bit CMYK samples.
+     */
+    int interpolate(int c, int m, int y, int k)
+    {
+        int base = CELL_OFFSETS[c] * STRIDE_C + CELL_OFFSETS[m] * STRIDE_M +
+                CELL_OFFSETS[y] * STRIDE_Y + CELL_OFFSETS[k] * STRIDE_K;
+        int wc = CELL_WEIGHTS[c];
+        int wm = CELL_WEIGHTS[m];
+        int wy = CELL_WEIGHTS[y];
+        int wk = CELL_WEIGHTS[k];
+
+        // sort the dimensions by descending weight, the simplex goes from the base corner to the
+        // opposite corner by adding one dimension after the other
+        int s1;
+        int s2;
+        int s3;
+        int s4;
+        int w1;
+        int w2;
+        int w3;
+        int w4;
+        if (wc >= wm)
+        {
+            s1 = STRIDE_C;
+            w1 = wc;
+            s2 = STRIDE_M;
+            w2 = wm;
+        }
+        else
+        {
+            s1 = STRIDE_M;
+            w1 = wm;
+            s2 = STRIDE_C;
+            w2 = wc;
+        }
+        if (wy >= wk)
+        {
+            s3 = STRIDE_Y;
+            w3 = wy;
+            s4 = STRIDE_K;
+            w4 = wk;
+        }
+        else
+        {
+            s3 = STRIDE_K;
+            w3 = wk;
+            s4 = STRIDE_Y;
+            w4 = wy;
+        }
+        // merge the two sorted pairs
+        int t;
+        if (w3 > w1)
+        {
+            t = s1;
+            s1 = s3;
+            s3 = t;
+            t = w1;
+            w1 = w3;
+            w3 = t;
+        }
+        if (w4 > w2)
+        {
+            t = s2;
+            s2 = s4;
+            s4 = t;
+            t = w2;
+            w2 = w4;
+            w4 = t;
+        }
+        if (w3 > w2)
+        {
+            t = s2;
+            s2 = s3;
+            s3 = t;
+            t = w2;
+            w2 = w3;
+            w3 = t;
+        }
+
+        int p0 = base;
+        int p1 = p0 + s1;
+        int p2 = p1 + s2;
+        int p3 = p2 + s3;
+        int p4 = p3 + s4;
+        int v0 = WEIGHT_ONE - w1;
+        int v1 = w1 - w2;
+        int v2 = w2 - w3;
+        int v3 = w3 - w4;
+        int[] lut = table;
+        int r = v0 * lut[p0] + v1 * lut[p1] + v2 * lut[p2] + v3 * lut[p3] + w4 * lut[p4];
+        int g = v0 * lut[p0 + 1] + v1 * lut[p1 + 1] + v2 * lut[p2 + 1] + v3 * lut[p3 + 1] +
+                w4 * lut[p4 + 1];
+        int b = v0 * lut[p0 + 2] + v1 * lut[p1 + 2] + v2 * lut[p2 + 2] + v3 * lut[p3 + 2] +
+                w4 * lut[p4 + 2];
+        return toSRGB(r) << 16 | toSRGB(g) << 8 | toSRGB(b);
+    }
+
+    /**
+     * Clips an interpolated linear value and applies the sRGB transfer function.
+     */
+    private static int toSRGB(int value)
+    {
+        int linear = (value + ROUNDING) >> WEIGHT_BITS;
+        linear = linear < 0 ? 0 : (linear > LINEAR_ONE ? LINEAR_ONE : linear);
+        return GAMMA[linear] & 0xff;
+    }
+}
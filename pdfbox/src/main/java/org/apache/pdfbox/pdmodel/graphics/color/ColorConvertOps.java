@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The color conversions of a color space, which keep their color transforms so that these are
+ * created only once. A {@link ColorConvertOp} isn't thread safe, so each op is taken while it is
+ * used and concurrent conversions create their own op; the op of the last finished conversion is
+ * kept. The ops of an ICC profile are kept in the {@link ICCProfileCache} and shared by all
+ * documents which use the profile.
+ */
+final class ColorConvertOps
+{
+    // conversion of images, the op derives its transform from the color models of the images
+    private final AtomicReference<ColorConvertOp> imageOp = new AtomicReference<>();
+
+    // conversion of rasters to sRGB
+    private final AtomicReference<RGBConvertOp> rgbOp = new AtomicReference<>();
+
+    /**
+     * Converts an image.
+     *
+     * @param src the source image
+     * @param dest the destination image
+     */
+    void filter(BufferedImage src, BufferedImage dest)
+    {
+        ColorConvertOp op = imageOp.getAndSet(null);
+        if (op == null)
+        {
+            op = new ColorConvertOp(null);
+        }
+        op.filter(src, dest);
+        imageOp.set(op);
+    }
+
+    /**
+     * Converts a raster to sRGB.
+     *
+     * @param colorSpace the color space of the source raster
+     * @param src the source raster
+     * @param dest the destination raster with 3 bands
+     */
+    void filterToRGB(ColorSpace colorSpace, Raster src, WritableRaster dest)
+    {
+        RGBConvertOp op = rgbOp.getAndSet(null);
+        if (op == null || op.colorSpace != colorSpace)
+        {
+            op = new RGBConvertOp(colorSpace);
+        }
+        op.op.filter(src, dest);
+        rgbOp.set(op);
+    }
+
+    /**
+     * A conversion to sRGB, the op caches the color transform of its source color space.
+     */
+    private static final class RGBConvertOp
+    {
+        private final ColorSpace colorSpace;
+        private final ColorConvertOp op;
+
+        RGBConvertOp(ColorSpace colorSpace)
+        {
+            this.colorSpace = colorSpace;
+            op = new ColorConvertOp(colorSpace, ColorSpace.getInstance(ColorSpace.CS_sRGB), null);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import java.awt.color.ICC_ColorSpace;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.pdfbox.util.BoundedCache;
+import org.apache.pdfbox.util.Hex;
+
+/**
+ * A bounded cache of parsed ICC profiles, shared by all documents. The profiles are keyed by the
+ * SHA-256 digest of their data, so that documents which embed the same profile, e.g. the same
+ * CMYK output intent in many PDF/X files, parse it only once. Together with the color space of a
+ * profile, its color conversions are shared, so that the color transforms, e.g. to sRGB, are
+ * created only once, see {@link ColorConvertOps}.
+ *
+ * <p>The cache accounts the size of the profile data and of the color transforms, and removes the
+ * least recently used profiles when its maximum size is exceeded. The default maximum size is
+ * 32 MB and can be changed with the system property {@code pdfbox.iccprofilecache.maxsize} (in
+ * bytes); 0 disables the cache.
+ *
+ * <p>This class is thread safe.
+ */
+final class ICCProfileCache
+{
+    private static final ICCProfileCache INSTANCE = new ICCProfileCache(
+            BoundedCache.getMaxSize("pdfbox.iccprofilecache.maxsize", 32L * 1024 * 1024));
+
+    // the estimated minimum memory of a color transform, see Entry.getSize()
+    private static final int MIN_TRANSFORM_SIZE = 64 * 1024;
+
+    private final BoundedCache<String, Entry> entries;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum size of all cached profiles, in bytes.
+     */
+    ICCProfileCache(long maxSize)
+    {
+        entries = new BoundedCache<>(maxSize, Entry::getSize);
+    }
+
+    /**
+     * Returns the cache that is shared by all documents.
+     *
+     * @return the shared ICC profile cache.
+     */
+    static ICCProfileCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the key of profile data.
+     *
+     * @param data the ICC profile data.
+     * @return the hex encoded SHA-256 digest of the data.
+     */
+    static String getKey(byte[] data)
+    {
+        try
+        {
+            return Hex.getString(MessageDigest.getInstance("SHA-256").digest(data));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // should never happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns a cached profile.
+     *
+     * @param key the key of the profile data, see {@link #getKey(byte[])}.
+     * @return the cached profile, or null if there is none.
+     */
+    synchronized Entry get(String key)
+    {
+        return entries.get(key);
+    }
+
+    /**
+     * Adds a profile to the cache. Profiles that are larger than a quarter of the maximum size are
+     * not cached. If another thread has added a profile with the same key in the meantime, that
+     * profile is kept and returned, so that all users share the same color space.
+     *
+     * @param key the key of the profile data, see {@link #getKey(byte[])}.
+     * @param colorSpace the color space of the parsed and checked profile.
+     * @param isSRGB true if the profile is sRGB and the color space is the built-in sRGB.
+     * @param profileSize the size of the profile data, in bytes.
+     * @return the cached profile, or a profile that isn't cached if it is too large.
+     */
+    synchronized Entry put(String key, ICC_ColorSpace colorSpace, boolean isSRGB,
+            int profileSize)
+    {
+        Entry existing = entries.get(key);
+        if (existing != null)
+        {
+            return existing;
+        }
+        Entry entry = new Entry(colorSpace, isSRGB, profileSize);
+        entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Returns the total size of the cached profiles and their color transforms.
+     *
+     * @return the size in bytes.
+     */
+    synchronized long getSize()
+    {
+        return entries.getSize();
+    }
+
+    /**
+     * A parsed ICC profile.
+     */
+    static final class Entry
+    {
+        private final ICC_ColorSpace colorSpace;
+        private final boolean isSRGB;
+        private final int profileSize;
+        private final ColorConvertOps colorConvertOps = new ColorConvertOps();
+
+        private Entry(ICC_ColorSpace colorSpace, boolean isSRGB, int profileSize)
+        {
+            this.colorSpace = colorSpace;
+            this.isSRGB = isSRGB;
+            this.profileSize = profileSize;
+        }
+
+        /**
+         * Returns the estimated memory of the entry: the profile data and the two color transforms
+         * of its conversions. A transform holds the parsed profiles and their lookup tables, it is
+         * estimated to be as large as the profile data, but at least 64 KB.
+         *
+         * @return the size in bytes.
+         */
+        long getSize()
+        {
+            return profileSize + 2L * Math.max(profileSize, MIN_TRANSFORM_SIZE);
+        }
+
+        ColorConvertOps getColorConvertOps()
+        {
+            return colorConvertOps;
+        }
+
+        ICC_ColorSpace getColorSpace()
+        {
+            return colorSpace;
+        }
+
+        boolean isSRGB()
+        {
+            return isSRGB;
+        }
+    }
+}
@@ -105,6 +105,27 @@ public abstract class PDCIEDictionaryBasedColorSpace extends PDCIEBasedColorSpac
         });
     }
 
+    /**
+     * Converts several XYZ values to packed RGB values, see
+     * {@link #toRGB(float[], int, int[], int, int)}. Negative values are replaced by 0.
+     *
+     * @param xyz the XYZ values, three for each colour
+     * @param rgb the array for the packed RGB values
+     * @param rgbOffset the index of the first RGB value
+     * @param count the number of colours
+     */
+    protected void convXYZtoRGB(float[] xyz, int[] rgb, int rgbOffset, int count)
+    {
+        for (int i = 0, n = count * 3; i < n; i++)
+        {
+            if (xyz[i] < 0)
+            {
+                xyz[i] = 0;
+            }
+        }
+        toRGBAWT(CIEXYZ, xyz, 0, rgb, rgbOffset, count);
+    }
+
     /**
      * This will return the whitepoint tristimulus. As this is a required field
      * this will never return null. A default of 1,1,1 will be returned if the
@@ -19,8 +19,11 @@ package org.apache.pdfbox.pdmodel.graphics.color;
 import java.awt.Graphics;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorConvertOp;
 import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.awt.color.ColorSpace;
 import java.awt.image.ColorModel;
@@ -44,7 +47,8 @@ import org.apache.pdfbox.pdmodel.ResourceCache;
  */
 public abstract class PDColorSpace implements COSObjectable
 {
-    private final ColorConvertOp colorConvertOp = new ColorConvertOp(null);
+    // the color conversions of this color space, which keep their color transforms
+    private final ColorConvertOps colorConvertOps = new ColorConvertOps();
 
     /**
      * Creates a color space given a name or array.
@@ -299,6 +303,141 @@ public abstract class PDColorSpace implements COSObjectable
      */
     public abstract float[] toRGB(float[] value) throws IOException;
 
+    /**
+     * Converts several colours to RGB. The result is the same as calling {@link #toRGB(float[])}
+     * for each colour, but the implementations avoid creating objects for each colour, and colour
+     * spaces with ICC profiles convert all colours at once.
+     *
+     * @param values the colour values, {@link #getNumberOfComponents()} consecutive values for
+     * each colour, with the same ranges as for {@link #toRGB(float[])}
+     * @param valuesOffset the index of the first value
+     * @param rgb the array for the RGB values, packed like in
+     * {@link BufferedImage#TYPE_INT_RGB}, each component is scaled to 0..255, truncated and
+     * clamped
+     * @param rgbOffset the index of the first RGB value
+     * @param count the number of colours
+     * @throws IOException if the color conversion fails
+     */
+    public void toRGB(float[] values, int valuesOffset, int[] rgb, int rgbOffset, int count)
+            throws IOException
+    {
+        int n = getNumberOfComponents();
+        float[] value = new float[n];
+        for (int i = 0; i < count; i++)
+        {
+            System.arraycopy(values, valuesOffset + i * n, value, 0, n);
+            float[] result = toRGB(value);
+            rgb[rgbOffset + i] = toPackedRGB(result[0], result[1], result[2]);
+        }
+    }
+
+    /**
+     * Converts several colours with 8 bit components to RGB. The samples have the same meaning as
+     * the samples of the rasters that are passed to {@link #toRGBImage(WritableRaster)}, and the
+     * result is the same as that of this method.
+     *
+     * @param samples the samples, {@link #getNumberOfComponents()} consecutive samples for each
+     * colour
+     * @param samplesOffset the index of the first sample
+     * @param rgb the array for the RGB values, packed like in {@link BufferedImage#TYPE_INT_RGB}
+     * @param rgbOffset the index of the first RGB value
+     * @param count the number of colours
+     * @throws IOException if the color conversion fails
+     */
+    public void toRGB(byte[] samples, int samplesOffset, int[] rgb, int rgbOffset, int count)
+            throws IOException
+    {
+        if (count == 0)
+        {
+            return;
+        }
+        int n = getNumberOfComponents();
+        int[] bandOffsets = new int[n];
+        for (int c = 0; c < n; c++)
+        {
+            bandOffsets[c] = c;
+        }
+        DataBuffer buffer = new DataBufferByte(samples, count * n, samplesOffset);
+        WritableRaster raster = Raster.createInterleavedRaster(buffer, count, 1, count * n, n,
+                bandOffsets, null);
+        BufferedImage image = toRGBImage(raster);
+        image.getRGB(0, 0, count, 1, rgb, rgbOffset, count);
+        for (int i = rgbOffset, end = rgbOffset + count; i < end; i++)
+        {
+            rgb[i] &= 0xffffff;
+        }
+    }
+
+    /**
+     * Converts several colours with the given AWT colour space, which is usually an ICC colour
+     * space, to RGB. The values are converted like {@link ColorSpace#toRGB(float[])} does it, but
+     * with a single color conversion of a raster with 16 bit components.
+     *
+     * @param colorSpace the AWT color space
+     * @param values the colour values
+     * @param valuesOffset the index of the first value
+     * @param rgb the array for the packed RGB values
+     * @param rgbOffset the index of the first RGB value
+     * @param count the number of colours
+     */
+    protected final void toRGBAWT(ColorSpace colorSpace, float[] values, int valuesOffset,
+            int[] rgb, int rgbOffset, int count)
+    {
+        if (count == 0)
+        {
+            return;
+        }
+        int n = colorSpace.getNumComponents();
+        short[] data = new short[count * n];
+        for (int c = 0; c < n; c++)
+        {
+            // same scaling and clamping as in ICC_ColorSpace.toRGB() and PDICCBased.toRGB()
+            float min = colorSpace.getMinValue(c);
+            float max = colorSpace.getMaxValue(c);
+            float scale = 65535f / (max - min);
+            for (int i = c, v = valuesOffset + c; i < data.length; i += n, v += n)
+            {
+                float value = values[v] < min ? min : (values[v] > max ? max : values[v]);
+                data[i] = (short) ((value - min) * scale + 0.5f);
+            }
+        }
+        int[] bandOffsets = new int[n];
+        for (int c = 0; c < n; c++)
+        {
+            bandOffsets[c] = c;
+        }
+        WritableRaster src = Raster.createInterleavedRaster(
+                new DataBufferUShort(data, data.length), count, 1, count * n, n, bandOffsets, null);
+        WritableRaster dest = Raster.createInterleavedRaster(DataBuffer.TYPE_USHORT, count, 1, 3,
+                null);
+        getColorConvertOps().filterToRGB(colorSpace, src, dest);
+        short[] rgbData = ((DataBufferUShort) dest.getDataBuffer()).getData();
+        for (int i = 0, j = rgbOffset; i < rgbData.length; i += 3, j++)
+        {
+            rgb[j] = toPackedRGB((rgbData[i] & 0xffff) / 65535f,
+                    (rgbData[i + 1] & 0xffff) / 65535f, (rgbData[i + 2] & 0xffff) / 65535f);
+        }
+    }
+
+    /**
+     * Packs RGB components in the range 0..1 like in {@link BufferedImage#TYPE_INT_RGB}.
+     *
+     * @param r the red component
+     * @param g the green component
+     * @param b the blue component
+     * @return the packed RGB value
+     */
+    protected static int toPackedRGB(float r, float g, float b)
+    {
+        return toByte(r) << 16 | toByte(g) << 8 | toByte(b);
+    }
+
+    private static int toByte(float value)
+    {
+        int i = (int) (value * 255);
+        return i < 0 ? 0 : (i > 255 ? 255 : i);
+    }
+
     /**
      * Returns the (A)RGB equivalent of the given raster.
      * @param raster the source raster
@@ -350,6 +489,13 @@ public abstract class PDColorSpace implements COSObjectable
         // WARNING: this method is performance sensitive, modify with care!
         //
 
+        // large CMYK images are converted with a lookup table, which is much faster
+        CMYKColorLUT cmykLUT = CMYKColorLUT.get(colorSpace, raster);
+        if (cmykLUT != null)
+        {
+            return cmykLUT.toRGBImage(raster);
+        }
+
         // ICC Profile color transforms are only fast when performed using ColorConvertOp
         ColorModel colorModel = new ComponentColorModel(colorSpace,
             false, false, Transparency.OPAQUE, raster.getDataBuffer().getDataType());
@@ -372,10 +518,22 @@ public abstract class PDColorSpace implements COSObjectable
             g2d.dispose();
             return dest;
         }
-        colorConvertOp.filter(src, dest);
+        getColorConvertOps().filter(src, dest);
         return dest;
     }
 
+    /**
+     * Returns the color conversions which are used by {@link #toRGBImageAWT(WritableRaster,
+     * ColorSpace)} and {@link #toRGBAWT(ColorSpace, float[], int, int[], int, int)}. Color spaces
+     * with a cached ICC profile return the conversions of the profile, which are shared.
+     *
+     * @return the color conversions
+     */
+    ColorConvertOps getColorConvertOps()
+    {
+        return colorConvertOps;
+    }
+
     @Override
     public COSBase getCOSObject()
     {
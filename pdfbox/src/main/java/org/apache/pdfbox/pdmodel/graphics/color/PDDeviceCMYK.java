@@ -48,6 +48,8 @@ public class PDDeviceCMYK extends PDDeviceColorSpace
 
     private final PDColor initialColor = new PDColor(new float[] { 0, 0, 0, 1 }, this);
     private ICC_ColorSpace awtColorSpace;
+    // the shared conversions of the profile
+    private ColorConvertOps profileConvertOps;
     private volatile boolean initDone = false;
     private boolean usePureJavaCMYKConversion = false;
 
@@ -80,12 +82,24 @@ public class PDDeviceCMYK extends PDDeviceColorSpace
             {
                 throw new IOException("Default CMYK color profile could not be loaded");
             }
-            awtColorSpace = new ICC_ColorSpace(iccProfile);
-
-            // there is a JVM bug which results in a CMMException which appears to be a race
-            // condition caused by lazy initialization of the color transform, so we perform
-            // an initial color conversion while we're still in a static context, see PDFBOX-2184
-            awtColorSpace.toRGB(new float[] { 0, 0, 0, 0 });
+            // subclasses with the same profile share the color space
+            byte[] data = iccProfile.getData();
+            ICCProfileCache cache = ICCProfileCache.getInstance();
+            String key = ICCProfileCache.getKey(data);
+            ICCProfileCache.Entry entry = cache.get(key);
+            if (entry == null)
+            {
+                ICC_ColorSpace colorSpace = new ICC_ColorSpace(iccProfile);
+
+                // there is a JVM bug which results in a CMMException which appears to be a race
+                // condition caused by lazy initialization of the color transform, so we perform
+                // an initial color conversion while we're still in a static context, see
+                // PDFBOX-2184
+                colorSpace.toRGB(new float[] { 0, 0, 0, 0 });
+                entry = cache.put(key, colorSpace, false, data.length);
+            }
+            awtColorSpace = entry.getColorSpace();
+            profileConvertOps = entry.getColorConvertOps();
             usePureJavaCMYKConversion = System
                     .getProperty("org.apache.pdfbox.rendering.UsePureJavaCMYKConversion") != null;
 
@@ -94,6 +108,12 @@ public class PDDeviceCMYK extends PDDeviceColorSpace
         }
     }
 
+    @Override
+    ColorConvertOps getColorConvertOps()
+    {
+        return profileConvertOps != null ? profileConvertOps : super.getColorConvertOps();
+    }
+
     protected ICC_Profile getICCProfile() throws IOException
     {
         // Adobe Acrobat uses "U.S. Web Coated (SWOP) v2" as the default
@@ -144,6 +164,14 @@ public class PDDeviceCMYK extends PDDeviceColorSpace
         return awtColorSpace.toRGB(value);
     }
 
+    @Override
+    public void toRGB(float[] values, int valuesOffset, int[] rgb, int rgbOffset, int count)
+            throws IOException
+    {
+        init();
+        toRGBAWT(awtColorSpace, values, valuesOffset, rgb, rgbOffset, count);
+    }
+
     @Override
     public BufferedImage toRawImage(WritableRaster raster) throws IOException
     {
@@ -69,6 +69,26 @@ public final class PDDeviceGray extends PDDeviceColorSpace
         return new float[] { value[0], value[0], value[0] };
     }
 
+    @Override
+    public void toRGB(float[] values, int valuesOffset, int[] rgb, int rgbOffset, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            float gray = values[valuesOffset + i];
+            rgb[rgbOffset + i] = toPackedRGB(gray, gray, gray);
+        }
+    }
+
+    @Override
+    public void toRGB(byte[] samples, int samplesOffset, int[] rgb, int rgbOffset, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            int gray = samples[samplesOffset + i] & 0xff;
+            rgb[rgbOffset + i] = gray << 16 | gray << 8 | gray;
+        }
+    }
+
     @Override
     public BufferedImage toRawImage(WritableRaster raster) throws IOException
     {
@@ -21,6 +21,7 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
@@ -34,6 +35,7 @@ import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNull;
 import org.apache.pdfbox.pdmodel.common.function.PDFunction;
+import org.apache.pdfbox.pdmodel.common.function.type4.OperandStack;
 
 /**
  * DeviceN colour spaces may contain an arbitrary number of colour components.
@@ -64,6 +66,10 @@ public class PDDeviceN extends PDSpecialColorSpace
     private PDColorSpace processColorSpace;
     private PDSeparation[] spotColorSpaces;
 
+    // lookup table for the tint transform, created on first use
+    private TintTransformLUT tintTransformLUT;
+    private boolean tintTransformLUTCreated;
+
     /**
      * Creates a new DeviceN color space.
      */
@@ -282,6 +288,12 @@ public class PDDeviceN extends PDSpecialColorSpace
     //
     private BufferedImage toRGBWithTintTransform(WritableRaster raster) throws IOException
     {
+        TintTransformLUT lut = getTintTransformLUT(raster);
+        if (lut != null)
+        {
+            return toRGBWithLUT(raster, lut);
+        }
+
         // cache color mappings
         Map<String, int[]> map1 = new HashMap<>();
         String key;
@@ -297,6 +309,8 @@ public class PDDeviceN extends PDSpecialColorSpace
         int[] rgb = new int[3];
         int numSrcComponents = getColorantNames().size();
         float[] src = new float[numSrcComponents];
+        float[] altValue = new float[alternateColorSpace.getNumberOfComponents()];
+        OperandStack stack = new OperandStack();
         for (int y = 0; y < height; y++)
         {
             for (int x = 0; x < width; x++)
@@ -323,7 +337,7 @@ public class PDDeviceN extends PDSpecialColorSpace
                 }
 
                 // convert to alternate color space via tint transform
-                float[] result = tintTransform.eval(src);
+                float[] result = tintTransform.eval(src, altValue, stack);
                 
                 // convert from alternate color space to RGB
                 float[] rgbFloat = alternateColorSpace.toRGB(result);
@@ -342,6 +356,49 @@ public class PDDeviceN extends PDSpecialColorSpace
         return rgbImage;
     }
 
+    /**
+     * Returns the lookup table for the conversion of the given raster, or null if the raster
+     * should be converted with the tint transform. The table is only created for 8 bit rasters that
+     * have more pixels than the table has grid points.
+     */
+    private TintTransformLUT getTintTransformLUT(Raster raster) throws IOException
+    {
+        if (raster.getTransferType() != DataBuffer.TYPE_BYTE)
+        {
+            return null;
+        }
+        if (!tintTransformLUTCreated)
+        {
+            long pixels = (long) raster.getWidth() * raster.getHeight();
+            int numSrcComponents = getColorantNames().size();
+            if (pixels < Math.pow(TintTransformLUT.getGridSize(numSrcComponents), numSrcComponents))
+            {
+                return null;
+            }
+            float[] altValue = new float[alternateColorSpace.getNumberOfComponents()];
+            OperandStack stack = new OperandStack();
+            tintTransformLUT = TintTransformLUT.create(numSrcComponents, value ->
+                    alternateColorSpace.toRGB(tintTransform.eval(value, altValue, stack)));
+            tintTransformLUTCreated = true;
+        }
+        return tintTransformLUT;
+    }
+
+    private static BufferedImage toRGBWithLUT(WritableRaster raster, TintTransformLUT lut)
+    {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] rgb = ((DataBufferInt) rgbImage.getRaster().getDataBuffer()).getData();
+        int[] samples = new int[width * raster.getNumBands()];
+        for (int y = 0; y < height; y++)
+        {
+            raster.getPixels(0, y, width, 1, samples);
+            lut.toRGB(samples, rgb, y * width, width);
+        }
+        return rgbImage;
+    }
+
     @Override
     public float[] toRGB(float[] value) throws IOException
     {
@@ -355,6 +412,31 @@ public class PDDeviceN extends PDSpecialColorSpace
         }
     }
 
+    @Override
+    public void toRGB(float[] values, int valuesOffset, int[] rgb, int rgbOffset, int count)
+            throws IOException
+    {
+        if (attributes != null)
+        {
+            super.toRGB(values, valuesOffset, rgb, rgbOffset, count);
+            return;
+        }
+        // evaluate the tint transform for all colours and convert them to RGB at once
+        int n = getNumberOfComponents();
+        int numAltComponents = alternateColorSpace.getNumberOfComponents();
+        float[] value = new float[n];
+        float[] altValues = new float[count * numAltComponents];
+        float[] altValueBuffer = new float[numAltComponents];
+        OperandStack stack = new OperandStack();
+        for (int i = 0; i < count; i++)
+        {
+            System.arraycopy(values, valuesOffset + i * n, value, 0, n);
+            float[] altValue = tintTransform.eval(value, altValueBuffer, stack);
+            System.arraycopy(altValue, 0, altValues, i * numAltComponents, numAltComponents);
+        }
+        alternateColorSpace.toRGB(altValues, 0, rgb, rgbOffset, count);
+    }
+
     private float[] toRGBWithAttributes(float[] value) throws IOException
     {
         float[] rgbValue = new float[] { 1, 1, 1 };
@@ -492,6 +574,7 @@ public class PDDeviceN extends PDSpecialColorSpace
     {
         COSArray namesArray = COSArray.ofCOSNames(names);
         array.set(COLORANT_NAMES, namesArray);
+        clearTintTransformLUT();
     }
 
     /**
@@ -542,6 +625,7 @@ public class PDDeviceN extends PDSpecialColorSpace
     public void setAlternateColorSpace(PDColorSpace cs)
     {
         alternateColorSpace = cs;
+        clearTintTransformLUT();
         COSBase space = null;
         if (cs != null)
         {
@@ -575,6 +659,13 @@ public class PDDeviceN extends PDSpecialColorSpace
     {
         tintTransform = tint;
         array.set(TINT_TRANSFORM, tint);
+        clearTintTransformLUT();
+    }
+
+    private void clearTintTransformLUT()
+    {
+        tintTransformLUT = null;
+        tintTransformLUTCreated = false;
     }
 
 
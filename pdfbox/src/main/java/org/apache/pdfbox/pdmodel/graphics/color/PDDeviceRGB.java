@@ -73,6 +73,25 @@ public final class PDDeviceRGB extends PDDeviceColorSpace
         return value;
     }
 
+    @Override
+    public void toRGB(float[] values, int valuesOffset, int[] rgb, int rgbOffset, int count)
+    {
+        for (int i = 0, v = valuesOffset; i < count; i++, v += 3)
+        {
+            rgb[rgbOffset + i] = toPackedRGB(values[v], values[v + 1], values[v + 2]);
+        }
+    }
+
+    @Override
+    public void toRGB(byte[] samples, int samplesOffset, int[] rgb, int rgbOffset, int count)
+    {
+        for (int i = 0, s = samplesOffset; i < count; i++, s += 3)
+        {
+            rgb[rgbOffset + i] = (samples[s] & 0xff) << 16 | (samples[s + 1] & 0xff) << 8 |
+                    (samples[s + 2] & 0xff);
+        }
+    }
+
     @Override
     public BufferedImage toRGBImage(WritableRaster raster) throws IOException
     {
@@ -39,6 +39,7 @@ import org.apache.pdfbox.cos.COSFloat;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRange;
@@ -60,6 +61,8 @@ public final class PDICCBased extends PDCIEBasedColorSpace
     private ICC_Profile iccProfile;
     private PDColorSpace alternateColorSpace;
     private ICC_ColorSpace awtColorSpace;
+    // the shared conversions of a cached profile, null if the profile isn't used
+    private ColorConvertOps profileConvertOps;
     private PDColor initialColor;
     private boolean isRGB = false;
     // allows to force using alternate color space instead of ICC color space for performance
@@ -196,12 +199,25 @@ public final class PDICCBased extends PDCIEBasedColorSpace
         }
         try (InputStream input = this.stream.createInputStream())
         {
+            byte[] data = IOUtils.toByteArray(input);
+
+            // profiles that have been parsed and checked before, e.g. in other documents with the
+            // same output intent, are shared
+            ICCProfileCache cache = ICCProfileCache.getInstance();
+            String key = ICCProfileCache.getKey(data);
+            ICCProfileCache.Entry entry = cache.get(key);
+            if (entry != null)
+            {
+                setCachedProfile(entry);
+                return;
+            }
+
             // if the embedded profile is sRGB then we can use Java's built-in profile, which
             // results in a large performance gain as it's our native color space, see PDFBOX-2587
             ICC_Profile profile;
             synchronized (LOG)
             {
-                profile = ICC_Profile.getInstance(input);
+                profile = ICC_Profile.getInstance(data);
                 if (is_sRGB(profile))
                 {
                     isRGB = true;
@@ -215,13 +231,7 @@ public final class PDICCBased extends PDCIEBasedColorSpace
                     iccProfile = profile;
                 }
 
-                // set initial colour
-                float[] initial = new float[getNumberOfComponents()];
-                for (int c = 0; c < initial.length; c++)
-                {
-                    initial[c] = Math.max(0, getRangeForComponent(c).getMin());
-                }
-                initialColor = new PDColor(initial, this);
+                setInitialColor();
 
                 // do things that trigger a ProfileDataException
                 // or CMMException due to invalid profiles, see PDFBOX-1295 and PDFBOX-1740 (ü-file)
@@ -238,6 +248,7 @@ public final class PDICCBased extends PDCIEBasedColorSpace
                             Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
                 }
             }
+            setCachedProfile(cache.put(key, awtColorSpace, isRGB, data.length));
         }
         catch (ProfileDataException | CMMException | IllegalArgumentException |
                ArrayIndexOutOfBoundsException | IOException e)
@@ -246,9 +257,35 @@ public final class PDICCBased extends PDCIEBasedColorSpace
         }
     }
 
+    private void setCachedProfile(ICCProfileCache.Entry entry)
+    {
+        isRGB = entry.isSRGB();
+        awtColorSpace = entry.getColorSpace();
+        profileConvertOps = entry.getColorConvertOps();
+        iccProfile = awtColorSpace.getProfile();
+        setInitialColor();
+    }
+
+    @Override
+    ColorConvertOps getColorConvertOps()
+    {
+        return profileConvertOps != null ? profileConvertOps : super.getColorConvertOps();
+    }
+
+    private void setInitialColor()
+    {
+        float[] initial = new float[getNumberOfComponents()];
+        for (int c = 0; c < initial.length; c++)
+        {
+            initial[c] = Math.max(0, getRangeForComponent(c).getMin());
+        }
+        initialColor = new PDColor(initial, this);
+    }
+
     private void fallbackToAlternateColorSpace(Exception e) throws IOException
     {
         awtColorSpace = null;
+        profileConvertOps = null;
         alternateColorSpace = getAlternateColorSpace();
         if (alternateColorSpace.equals(PDDeviceRGB.INSTANCE))
         {
@@ -319,6 +356,27 @@ public final class PDICCBased extends PDCIEBasedColorSpace
         }
     }
 
+    @Override
+    public void toRGB(float[] values, int valuesOffset, int[] rgb, int rgbOffset, int count)
+            throws IOException
+    {
+        if (isRGB)
+        {
+            for (int i = 0, v = valuesOffset; i < count; i++, v += 3)
+            {
+                rgb[rgbOffset + i] = toPackedRGB(values[v], values[v + 1], values[v + 2]);
+            }
+        }
+        else if (awtColorSpace != null)
+        {
+            toRGBAWT(awtColorSpace, values, valuesOffset, rgb, rgbOffset, count);
+        }
+        else
+        {
+            alternateColorSpace.toRGB(values, valuesOffset, rgb, rgbOffset, count);
+        }
+    }
+
     private float[] clampColors(ICC_ColorSpace cs, float[] value)
     {
         float[] result = new float[value.length];
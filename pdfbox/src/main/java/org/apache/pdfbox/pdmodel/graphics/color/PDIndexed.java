@@ -185,6 +185,34 @@ public final class PDIndexed extends PDSpecialColorSpace
         return new float[] { rgb[0] / 255f, rgb[1] / 255f, rgb[2] / 255f };
     }
 
+    @Override
+    public void toRGB(float[] values, int valuesOffset, int[] rgb, int rgbOffset, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            // same rounding and clamping as in toRGB(float[])
+            int index = Math.round(values[valuesOffset + i]);
+            index = Math.max(index, 0);
+            index = Math.min(index, actualMaxIndex);
+            rgb[rgbOffset + i] = toPackedRGB(rgbColorTable[index]);
+        }
+    }
+
+    @Override
+    public void toRGB(byte[] samples, int samplesOffset, int[] rgb, int rgbOffset, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            int index = Math.min(samples[samplesOffset + i] & 0xff, actualMaxIndex);
+            rgb[rgbOffset + i] = toPackedRGB(rgbColorTable[index]);
+        }
+    }
+
+    private static int toPackedRGB(int[] rgb)
+    {
+        return (rgb[0] & 0xff) << 16 | (rgb[1] & 0xff) << 8 | (rgb[2] & 0xff);
+    }
+
     //
     // WARNING: this method is performance sensitive, modify with care!
     //
@@ -136,6 +136,21 @@ public final class PDLab extends PDCIEDictionaryBasedColorSpace
         return convXYZtoRGB(x, y, z);
     }
 
+    @Override
+    public void toRGB(float[] values, int valuesOffset, int[] rgb, int rgbOffset, int count)
+    {
+        // same as toRGB(float[]), but with a single conversion of all XYZ values
+        float[] xyz = new float[count * 3];
+        for (int i = 0, v = valuesOffset; i < xyz.length; i += 3, v += 3)
+        {
+            float lstar = (values[v] + 16f) * (1f / 116f);
+            xyz[i] = wpX * inverse(lstar + values[v + 1] * (1f / 500f));
+            xyz[i + 1] = wpY * inverse(lstar);
+            xyz[i + 2] = wpZ * inverse(lstar - values[v + 2] * (1f / 200f));
+        }
+        convXYZtoRGB(xyz, rgb, rgbOffset, count);
+    }
+
     // reverse transformation (f^-1)
     private float inverse(float x)
     {
@@ -20,6 +20,7 @@ import java.awt.Point;
 import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
@@ -31,6 +32,7 @@ import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNull;
 import org.apache.pdfbox.pdmodel.common.function.PDFunction;
+import org.apache.pdfbox.pdmodel.common.function.type4.OperandStack;
 
 /**
  * A Separation color space used to specify either additional colorants or for isolating the
@@ -55,12 +57,20 @@ public class PDSeparation extends PDSpecialColorSpace
     private PDFunction tintTransform = null;
 
     /**
-     * Map used to speed up {@link #toRGB(float[])}. Note that this class contains three maps (this
-     * and the two in {@link #toRGBImage(java.awt.image.WritableRaster) } and {@link #toRGBImage2(java.awt.image.WritableRaster)
-     * }. The maps use different key intervals. This map here is needed for shading, which produce
-     * more than 256 different float values, which we cast to int so that the map can work.
+     * Cache used to speed up {@link #toRGB(float[])}, indexed by the tint value scaled to 0..255.
+     * This is needed for shadings, which produce more than 256 different float values, which we
+     * cast to int so that the cache can work.
      */
-    private Map<Integer, float[]> toRGBMap = null;
+    private float[][] toRGBCache = null;
+
+    /**
+     * Tables with the converted values of all 256 samples of 8 bit images, used by
+     * {@link #toRGBImage(java.awt.image.WritableRaster)} and
+     * {@link #toRGBImage2(java.awt.image.WritableRaster)}. They are created for the first image
+     * with at least 256 pixels and reused for all further images.
+     */
+    private int[][] alternateTable = null;
+    private int[] rgbTable = null;
 
     /**
      * Creates a new Separation color space.
@@ -122,22 +132,40 @@ public class PDSeparation extends PDSpecialColorSpace
     @Override
     public float[] toRGB(float[] value) throws IOException
     {
-        if (toRGBMap == null)
+        int key = (int) (value[0] * 255);
+        if (key < 0 || key > 255)
         {
-            toRGBMap = new HashMap<>();
+            return alternateColorSpace.toRGB(tintTransform.eval(value));
         }
-        int key = (int) (value[0] * 255);
-        float[] retval = toRGBMap.get(key);
+        if (toRGBCache == null)
+        {
+            toRGBCache = new float[256][];
+        }
+        float[] retval = toRGBCache[key];
         if (retval != null)
         {
             return retval;
         }
         float[] altColor = tintTransform.eval(value);
         retval = alternateColorSpace.toRGB(altColor);
-        toRGBMap.put(key, retval);
+        toRGBCache[key] = retval;
         return retval;
     }
 
+    @Override
+    public void toRGB(float[] values, int valuesOffset, int[] rgb, int rgbOffset, int count)
+            throws IOException
+    {
+        // most tint values are found in the cache of toRGB(float[])
+        float[] value = new float[1];
+        for (int i = 0; i < count; i++)
+        {
+            value[0] = values[valuesOffset + i];
+            float[] result = toRGB(value);
+            rgb[rgbOffset + i] = toPackedRGB(result[0], result[1], result[2]);
+        }
+    }
+
     //
     // WARNING: this method is performance sensitive, modify with care!
     //
@@ -160,7 +188,43 @@ public class PDSeparation extends PDSpecialColorSpace
         int numAltComponents = alternateColorSpace.getNumberOfComponents();
         int width = raster.getWidth();
         int height = raster.getHeight();
+
+        if (useTables(raster))
+        {
+            if (alternateTable == null)
+            {
+                int[][] table = new int[256][numAltComponents];
+                float[] sample = new float[1];
+                float[] altValue = new float[numAltComponents];
+                OperandStack stack = new OperandStack();
+                for (int i = 0; i < 256; i++)
+                {
+                    sample[0] = i;
+                    tintTransform(sample, table[i], altValue, stack);
+                }
+                alternateTable = table;
+            }
+            int[] row = new int[width];
+            int[] altRow = new int[width * numAltComponents];
+            for (int y = 0; y < height; y++)
+            {
+                raster.getSamples(0, y, width, 1, 0, row);
+                for (int x = 0, i = 0; x < width; x++)
+                {
+                    int[] alt = alternateTable[row[x] & 0xff];
+                    for (int c = 0; c < numAltComponents; c++)
+                    {
+                        altRow[i++] = alt[c];
+                    }
+                }
+                altRaster.setPixels(0, y, width, 1, altRow);
+            }
+            return alternateColorSpace.toRGBImage(altRaster);
+        }
+
         float[] samples = new float[1];
+        float[] altValue = new float[numAltComponents];
+        OperandStack stack = new OperandStack();
 
         Map<Integer, int[]> calculatedValues = new HashMap<>();
         Integer hash;
@@ -174,7 +238,7 @@ public class PDSeparation extends PDSpecialColorSpace
                 if (alt == null)
                 {
                     alt = new int[numAltComponents];
-                    tintTransform(samples, alt);
+                    tintTransform(samples, alt, altValue, stack);
                     calculatedValues.put(hash, alt);
                 }                
                 altRaster.setPixel(x, y, alt);
@@ -192,6 +256,39 @@ public class PDSeparation extends PDSpecialColorSpace
         int height = raster.getHeight();
         BufferedImage rgbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
         WritableRaster rgbRaster = rgbImage.getRaster();
+        float[] altValue = new float[alternateColorSpace.getNumberOfComponents()];
+        OperandStack stack = new OperandStack();
+
+        if (useTables(raster))
+        {
+            if (rgbTable == null)
+            {
+                int[] table = new int[256];
+                float[] sample = new float[1];
+                for (int i = 0; i < 256; i++)
+                {
+                    sample[0] = i / 255f;
+                    float[] fltab = alternateColorSpace.toRGB(
+                            tintTransform.eval(sample, altValue, stack));
+                    table[i] = ((int) (fltab[0] * 255) & 0xff) << 16 |
+                               ((int) (fltab[1] * 255) & 0xff) << 8 |
+                               ((int) (fltab[2] * 255) & 0xff);
+                }
+                rgbTable = table;
+            }
+            int[] rgb = ((DataBufferInt) rgbRaster.getDataBuffer()).getData();
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++)
+            {
+                raster.getSamples(0, y, width, 1, 0, row);
+                for (int x = 0; x < width; x++)
+                {
+                    rgb[y * width + x] = rgbTable[row[x] & 0xff];
+                }
+            }
+            return rgbImage;
+        }
+
         float[] samples = new float[1];
 
         Map<Integer, int[]> calculatedValues = new HashMap<>();
@@ -206,7 +303,7 @@ public class PDSeparation extends PDSpecialColorSpace
                 if (rgb == null)
                 {
                     samples[0] /= 255;
-                    float[] altColor = tintTransform.eval(samples);
+                    float[] altColor = tintTransform.eval(samples, altValue, stack);
                     float[] fltab = alternateColorSpace.toRGB(altColor);
                     rgb = new int[3];
                     rgb[0] = (int) (fltab[0] * 255);
@@ -220,10 +317,27 @@ public class PDSeparation extends PDSpecialColorSpace
         return rgbImage;
     }
 
+    /**
+     * Returns true if the samples of the given raster can be converted with the tables of all
+     * 8 bit values, i.e. if the tables exist or if the raster is large enough to create them.
+     */
+    private boolean useTables(Raster raster)
+    {
+        return raster.getTransferType() == DataBuffer.TYPE_BYTE &&
+               (alternateTable != null || rgbTable != null ||
+                (long) raster.getWidth() * raster.getHeight() >= 256);
+    }
+
     protected void tintTransform(float[] samples, int[] alt) throws IOException
+    {
+        tintTransform(samples, alt, null, null);
+    }
+
+    private void tintTransform(float[] samples, int[] alt, float[] altValue, OperandStack stack)
+            throws IOException
     {
         samples[0] /= 255; // 0..1
-        float[] result = tintTransform.eval(samples);
+        float[] result = tintTransform.eval(samples, altValue, stack);
         for (int s = 0; s < alt.length; s++)
         {
             // scale to 0..255
@@ -272,6 +386,7 @@ public class PDSeparation extends PDSpecialColorSpace
     public void setAlternateColorSpace(PDColorSpace colorSpace)
     {
         alternateColorSpace = colorSpace;
+        clearCaches();
         COSBase space = null;
         if (colorSpace != null)
         {
@@ -288,6 +403,14 @@ public class PDSeparation extends PDSpecialColorSpace
     {
         tintTransform = tint;
         array.set(TINT_TRANSFORM, tint);
+        clearCaches();
+    }
+
+    private void clearCaches()
+    {
+        toRGBCache = null;
+        alternateTable = null;
+        rgbTable = null;
     }
 
     @Override
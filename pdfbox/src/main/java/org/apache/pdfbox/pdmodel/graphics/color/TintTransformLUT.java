@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import java.io.IOException;
+
+/**
+ * A lookup table for the conversion of 8 bit samples of a colour space with a tint transform to
+ * RGB. The conversion is sampled on a regular grid and interpolated multilinearly between the
+ * grid points, so that converting an image needs only a fixed number of evaluations of the tint
+ * transform, independent of the number of different colours in the image.
+ *
+ * <p>For one component the grid contains all 256 sample values and the table is exact. For two
+ * to four components the interpolation is checked against the exact conversion at the center of
+ * every grid cell when the table is created; if the error exceeds {@link #MAX_ERROR}, no table is
+ * created. This is a heuristic: the center is where the interpolation of a smooth transform is
+ * worst, but a transform with sharp changes within a cell, e.g. a sampled function with a finer
+ * grid, can have larger errors elsewhere. The tables can be disabled with the system property
+ * {@code pdfbox.tintlut=false} if the exact colours are needed.
+ */
+final class TintTransformLUT
+{
+    /**
+     * The maximum allowed error of an interpolated RGB component at the cell centers, as fraction
+     * of the full range.
+     */
+    static final float MAX_ERROR = 2f / 255;
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("pdfbox.tintlut", "true"));
+
+    // number of grid points in each dimension, indexed by the number of components
+    private static final int[] GRID_SIZES = { 0, 256, 33, 17, 9 };
+
+    /**
+     * Conversion from the colour space to RGB, the values are in the range 0..1.
+     */
+    @FunctionalInterface
+    interface Transform
+    {
+        float[] toRGB(float[] value) throws IOException;
+    }
+
+    private final int numberOfComponents;
+    private final int gridSize;
+    private final float[] table;
+
+    // grid cell and position in the cell for each sample value
+    private final int[] cellOffsets = new int[256];
+    private final float[] cellFractions = new float[256];
+
+    // offsets of the grid points for each dimension and of the corners of a cell in the table
+    private final int[] strides;
+    private final int[] cornerOffsets;
+
+    private TintTransformLUT(int numberOfComponents, Transform transform) throws IOException
+    {
+        this.numberOfComponents = numberOfComponents;
+        gridSize = GRID_SIZES[numberOfComponents];
+        strides = new int[numberOfComponents];
+        int stride = 3;
+        for (int c = numberOfComponents - 1; c >= 0; c--)
+        {
+            strides[c] = stride;
+            stride *= gridSize;
+        }
+        table = new float[stride];
+
+        cornerOffsets = new int[1 << numberOfComponents];
+        for (int corner = 0; corner < cornerOffsets.length; corner++)
+        {
+            for (int c = 0; c < numberOfComponents; c++)
+            {
+                if ((corner & (1 << c)) != 0)
+                {
+                    cornerOffsets[corner] += strides[c];
+                }
+            }
+        }
+
+        for (int sample = 0; sample < 256; sample++)
+        {
+            float position = sample * (gridSize - 1) / 255f;
+            int cell = Math.min((int) position, gridSize - 2);
+            cellOffsets[sample] = cell;
+            cellFractions[sample] = position - cell;
+        }
+
+        // sample the transform on the grid
+        float[] value = new float[numberOfComponents];
+        int[] index = new int[numberOfComponents];
+        for (int i = 0; i < table.length; i += 3)
+        {
+            for (int c = 0; c < numberOfComponents; c++)
+            {
+                value[c] = gridSize == 256 ? index[c] / 255f : index[c] / (gridSize - 1f);
+            }
+            float[] rgb = transform.toRGB(value);
+            table[i] = rgb[0];
+            table[i + 1] = rgb[1];
+            table[i + 2] = rgb[2];
+
+            // next grid point, the last component changes fastest
+            for (int c = numberOfComponents - 1; c >= 0 && ++index[c] == gridSize; c--)
+            {
+                index[c] = 0;
+            }
+        }
+    }
+
+    /**
+     * Creates a lookup table.
+     *
+     * @param numberOfComponents the number of components of the colour space
+     * @param transform the exact conversion to RGB
+     * @return the lookup table, or null if the table is disabled, if there are more than four
+     * components or if the interpolation isn't accurate enough.
+     * @throws IOException if the conversion fails
+     */
+    static TintTransformLUT create(int numberOfComponents, Transform transform)
+            throws IOException
+    {
+        if (!ENABLED || numberOfComponents < 1 || numberOfComponents >= GRID_SIZES.length)
+        {
+            return null;
+        }
+        TintTransformLUT lut = new TintTransformLUT(numberOfComponents, transform);
+        return lut.isAccurate(transform) ? lut : null;
+    }
+
+    /**
+     * Returns the number of grid points in each dimension of a table.
+     *
+     * @param numberOfComponents the number of components of the colour space
+     * @return the number of grid points, or 0 if no table can be created
+     */
+    static int getGridSize(int numberOfComponents)
+    {
+        return numberOfComponents >= 1 && numberOfComponents < GRID_SIZES.length ?
+                GRID_SIZES[numberOfComponents] : 0;
+    }
+
+    private boolean isAccurate(Transform transform) throws IOException
+    {
+        if (numberOfComponents == 1)
+        {
+            // all sample values are grid points
+            return true;
+        }
+        int cellsPerDimension = gridSize - 1;
+        int numberOfCells = 1;
+        for (int c = 0; c < numberOfComponents; c++)
+        {
+            numberOfCells *= cellsPerDimension;
+        }
+        float[] value = new float[numberOfComponents];
+        float[] rgb = new float[3];
+        for (int i = 0; i < numberOfCells; i++)
+        {
+            int cell = i;
+            for (int c = numberOfComponents - 1; c >= 0; c--)
+            {
+                value[c] = (cell % cellsPerDimension + 0.5f) / cellsPerDimension;
+                cell /= cellsPerDimension;
+            }
+            // interpolate first, the transform may change its input array
+            interpolate(value, rgb);
+            float[] expected = transform.toRGB(value);
+            for (int j = 0; j < 3; j++)
+            {
+                if (Math.abs(expected[j] - rgb[j]) > MAX_ERROR)
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Interpolates the RGB value for values in the range 0..1 that aren't 8 bit samples.
+     */
+    private void interpolate(float[] value, float[] rgb)
+    {
+        int base = 0;
+        float[] fractions = new float[numberOfComponents];
+        for (int c = 0; c < numberOfComponents; c++)
+        {
+            float position = Math.max(0, Math.min(1, value[c])) * (gridSize - 1);
+            int cell = Math.min((int) position, gridSize - 2);
+            base += cell * strides[c];
+            fractions[c] = position - cell;
+        }
+        interpolate(base, fractions, rgb);
+    }
+
+    private void interpolate(int base, float[] fractions, float[] rgb)
+    {
+        float r = 0;
+        float g = 0;
+        float b = 0;
+        for (int corner = 0; corner < cornerOffsets.length; corner++)
+        {
+            float weight = 1;
+            for (int c = 0; c < numberOfComponents; c++)
+            {
+                weight *= (corner & (1 << c)) != 0 ? fractions[c] : 1 - fractions[c];
+            }
+            int offset = base + cornerOffsets[corner];
+            r += weight * table[offset];
+            g += weight * table[offset + 1];
+            b += weight * table[offset + 2];
+        }
+        rgb[0] = r;
+        rgb[1] = g;
+        rgb[2] = b;
+    }
+
+    /**
+     * Converts a row of 8 bit samples to packed RGB values.
+     *
+     * @param samples the samples, with the components of each pixel next to each other
+     * @param rgb the array for the packed RGB values, as used by
+     * {@link java.awt.image.BufferedImage#TYPE_INT_RGB}
+     * @param rgbOffset the index of the first RGB value
+     * @param width the number of pixels
+     */
+    void toRGB(int[] samples, int[] rgb, int rgbOffset, int width)
+    {
+        float[] fractions = new float[numberOfComponents];
+        float[] value = new float[3];
+        int s = 0;
+        for (int x = 0; x < width; x++)
+        {
+            int base = 0;
+            for (int c = 0; c < numberOfComponents; c++)
+            {
+                int sample = samples[s++] & 0xff;
+                base += cellOffsets[sample] * strides[c];
+                fractions[c] = cellFractions[sample];
+            }
+            interpolate(base, fractions, value);
+            rgb[rgbOffset + x] = toByte(value[0]) << 16 | toByte(value[1]) << 8 | toByte(value[2]);
+        }
+    }
+
+    private static int toByte(float value)
+    {
+        int i = (int) (value * 255f);
+        return i < 0 ? 0 : i > 255 ? 255 : i;
+    }
+}
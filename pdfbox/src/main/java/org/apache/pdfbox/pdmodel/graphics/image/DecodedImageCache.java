@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.util.BoundedCache;
+
+/**
+ * A bounded cache of decoded images, shared by all documents. The images are keyed by their image
+ * stream, the subsampling and the decoded region, so that an image that is used on several pages,
+ * or a page that is rendered several times at the same resolution, is decoded only once.
+ *
+ * <p>The cache accounts the memory of the pixel data of the images and removes the least recently
+ * used images when its maximum size is exceeded. The default maximum size is 1/16 of the maximum
+ * heap size and can be changed with the system property {@code pdfbox.imagecache.maxsize} (in
+ * bytes) or with {@link #setMaxSize(long)}; 0 disables the cache. The image streams are weakly
+ * referenced, the entries of a document are dropped once the document has been garbage collected.
+ *
+ * <p>The cached images are shared and must not be modified. The cache doesn't notice changes of
+ * the image stream or of its dictionary that weren't done through the setters of
+ * {@link PDImageXObject}, call {@link #remove(COSStream)} after such changes.
+ *
+ * <p>This class is thread safe.
+ */
+public final class DecodedImageCache
+{
+    private static final DecodedImageCache INSTANCE = new DecodedImageCache(BoundedCache.getMaxSize(
+            "pdfbox.imagecache.maxsize", Runtime.getRuntime().maxMemory() / 16));
+
+    private final BoundedCache<Key, BufferedImage> images;
+    private final ReferenceQueue<COSStream> queue = new ReferenceQueue<>();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum size of the pixel data of all cached images, in bytes.
+     */
+    public DecodedImageCache(long maxSize)
+    {
+        images = new BoundedCache<>(maxSize, BoundedCache::getSize);
+    }
+
+    /**
+     * Returns the cache that is used by {@link PDImageXObject#getImage(Rectangle, int)}.
+     *
+     * @return the shared decoded image cache.
+     */
+    public static DecodedImageCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a cached image.
+     *
+     * @param stream the image stream.
+     * @param region the decoded region, or null for the whole image.
+     * @param subsampling the subsampling of the image.
+     * @return the cached image, or null if there is none.
+     */
+    public synchronized BufferedImage get(COSStream stream, Rectangle region, int subsampling)
+    {
+        expungeStaleEntries();
+        return images.get(new Key(stream, region, subsampling, null));
+    }
+
+    /**
+     * Adds an image to the cache. Images that are larger than a quarter of the maximum size are not
+     * cached, to avoid that a single huge image displaces all other images.
+     *
+     * @param stream the image stream.
+     * @param region the decoded region, or null for the whole image.
+     * @param subsampling the subsampling of the image.
+     * @param image the decoded image.
+     */
+    public synchronized void put(COSStream stream, Rectangle region, int subsampling,
+            BufferedImage image)
+    {
+        expungeStaleEntries();
+        Key key = new Key(stream, region != null ? new Rectangle(region) : null, subsampling,
+                queue);
+        images.put(key, image);
+    }
+
+    /**
+     * Removes all images of an image stream from the cache.
+     *
+     * @param stream the image stream.
+     */
+    public synchronized void remove(COSStream stream)
+    {
+        images.removeIf(key -> key.get() == null || key.get() == stream);
+    }
+
+    /**
+     * Removes all images from the cache.
+     */
+    public synchronized void clear()
+    {
+        images.clear();
+        while (queue.poll() != null)
+        {
+            // nothing to do, the entries are already gone
+        }
+    }
+
+    /**
+     * Returns the size of the pixel data of all cached images.
+     *
+     * @return the current size in bytes.
+     */
+    public synchronized long getSize()
+    {
+        expungeStaleEntries();
+        return images.getSize();
+    }
+
+    /**
+     * Returns the maximum size of the pixel data of all cached images.
+     *
+     * @return the maximum size in bytes.
+     */
+    public synchronized long getMaxSize()
+    {
+        return images.getMaxSize();
+    }
+
+    /**
+     * Sets the maximum size of the pixel data of all cached images. Images are removed if the cache
+     * is larger than the new size.
+     *
+     * @param maxSize the maximum size in bytes, 0 disables the cache.
+     */
+    public synchronized void setMaxSize(long maxSize)
+    {
+        images.setMaxSize(maxSize);
+    }
+
+    private void expungeStaleEntries()
+    {
+        Reference<? extends COSStream> ref;
+        while ((ref = queue.poll()) != null)
+        {
+            images.remove(ref);
+        }
+    }
+
+    /**
+     * Cache key which references the image stream weakly and compares it by identity.
+     */
+    private static final class Key extends WeakReference<COSStream>
+    {
+        private final Rectangle region;
+        private final int subsampling;
+        private final int hash;
+
+        Key(COSStream stream, Rectangle region, int subsampling, ReferenceQueue<COSStream> queue)
+        {
+            super(stream, queue);
+            this.region = region;
+            this.subsampling = subsampling;
+            int h = System.identityHashCode(stream);
+            h = 31 * h + subsampling;
+            h = 31 * h + (region != null ? region.hashCode() : 0);
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            COSStream stream = get();
+            return stream != null && stream == other.get() && subsampling == other.subsampling &&
+                    (region == null ? other.region == null : region.equals(other.region));
+        }
+    }
+}
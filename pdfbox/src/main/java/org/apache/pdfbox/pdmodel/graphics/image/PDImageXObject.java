@@ -74,6 +74,11 @@ public final class PDImageXObject extends PDXObject implements PDImage
      */
     private static final Log LOG = LogFactory.getLog(PDImageXObject.class);
 
+    /**
+     * Subsampling used to decode JPEG 2000 images when only their parameters are needed.
+     */
+    private static final int JPX_PARAMETERS_SUBSAMPLING = 32;
+
     private SoftReference<BufferedImage> cachedImage;
     private PDColorSpace colorSpace;
 
@@ -142,7 +147,10 @@ public final class PDImageXObject extends PDXObject implements PDImage
         List<COSName> filters = stream.getFilters();
         if (!filters.isEmpty() && COSName.JPX_DECODE.equals(filters.get(filters.size() - 1)))
         {
-            try (COSInputStream is = stream.createInputStream())
+            // only the parameters of the JPEG 2000 image are needed here, decoding at a low
+            // resolution level gives them without decoding the full image
+            try (COSInputStream is = stream.createInputStream(
+                    new DecodeOptions(JPX_PARAMETERS_SUBSAMPLING)))
             {
                 DecodeResult decodeResult = is.getDecodeResult();
                 stream.getCOSObject().addAll(decodeResult.getParameters());
@@ -431,7 +439,7 @@ public final class PDImageXObject extends PDXObject implements PDImage
 
     /**
      * {@inheritDoc}
-     * The returned images are cached via a SoftReference.
+     * The returned images are cached in the {@link DecodedImageCache} and must not be modified.
      */
     @Override
     public BufferedImage getImage() throws IOException
@@ -441,11 +449,21 @@ public final class PDImageXObject extends PDXObject implements PDImage
     
     /**
      * {@inheritDoc}
+     * The returned images are cached in the {@link DecodedImageCache} and must not be modified.
      */
     @Override
     public BufferedImage getImage(Rectangle region, int subsampling) throws IOException
     {
-        if (region == null && subsampling == cachedImageSubsampling && cachedImage != null)
+        DecodedImageCache imageCache = isSharedCacheable() ? DecodedImageCache.getInstance() : null;
+        if (imageCache != null)
+        {
+            BufferedImage cached = imageCache.get(getCOSObject(), region, subsampling);
+            if (cached != null)
+            {
+                return cached;
+            }
+        }
+        else if (region == null && subsampling == cachedImageSubsampling && cachedImage != null)
         {
             BufferedImage cached = cachedImage.get();
             if (cached != null)
@@ -476,7 +494,11 @@ public final class PDImageXObject extends PDXObject implements PDImage
             image = SampledImageReader.getRGBImage(this, region, subsampling, getColorKeyMask());
         }
 
-        if (region == null && subsampling <= cachedImageSubsampling)
+        if (imageCache != null)
+        {
+            imageCache.put(getCOSObject(), region, subsampling, image);
+        }
+        else if (region == null && subsampling <= cachedImageSubsampling)
         {
             // only cache full-image renders, and prefer lower subsampling frequency, as lower
             // subsampling means higher quality and longer render times.
@@ -487,6 +509,35 @@ public final class PDImageXObject extends PDXObject implements PDImage
         return image;
     }
 
+    /**
+     * Tells whether the decoded image depends only on the image stream, so that it can be shared
+     * with other users of the same stream. This isn't the case if the color space comes from the
+     * resources, i.e. if it is a named resource or if the resources have a default color space.
+     */
+    private boolean isSharedCacheable()
+    {
+        if (resources == null)
+        {
+            return true;
+        }
+        if (resources.hasColorSpace(COSName.DEFAULT_GRAY) ||
+            resources.hasColorSpace(COSName.DEFAULT_RGB) ||
+            resources.hasColorSpace(COSName.DEFAULT_CMYK))
+        {
+            return false;
+        }
+        COSBase cosBase = getCOSObject().getDictionaryObject(COSName.COLORSPACE, COSName.CS);
+        return !(cosBase instanceof COSName) || cosBase == COSName.DEVICEGRAY ||
+               cosBase == COSName.DEVICERGB || cosBase == COSName.DEVICECMYK;
+    }
+
+    private void clearCache()
+    {
+        cachedImage = null;
+        cachedImageSubsampling = Integer.MAX_VALUE;
+        DecodedImageCache.getInstance().remove(getCOSObject());
+    }
+
     @Override
     public BufferedImage getRawImage() throws IOException
     {
@@ -806,6 +857,7 @@ public final class PDImageXObject extends PDXObject implements PDImage
     public void setBitsPerComponent(int bpc)
     {
         getCOSObject().setInt(COSName.BITS_PER_COMPONENT, bpc);
+        clearCache();
     }
 
     @Override
@@ -878,7 +930,7 @@ public final class PDImageXObject extends PDXObject implements PDImage
     {
         getCOSObject().setItem(COSName.COLORSPACE, cs != null ? cs.getCOSObject() : null);
         colorSpace = null;
-        cachedImage = null;
+        clearCache();
     }
 
     @Override
@@ -891,6 +943,7 @@ public final class PDImageXObject extends PDXObject implements PDImage
     public void setHeight(int h)
     {
         getCOSObject().setInt(COSName.HEIGHT, h);
+        clearCache();
     }
 
     @Override
@@ -903,6 +956,7 @@ public final class PDImageXObject extends PDXObject implements PDImage
     public void setWidth(int w)
     {
         getCOSObject().setInt(COSName.WIDTH, w);
+        clearCache();
     }
 
     @Override
@@ -921,6 +975,7 @@ public final class PDImageXObject extends PDXObject implements PDImage
     public void setDecode(COSArray decode)
     {
         getCOSObject().setItem(COSName.DECODE, decode);
+        clearCache();
     }
 
     @Override
@@ -939,6 +994,7 @@ public final class PDImageXObject extends PDXObject implements PDImage
     public void setStencil(boolean isStencil)
     {
         getCOSObject().setBoolean(COSName.IMAGE_MASK, isStencil);
+        clearCache();
     }
 
     /**
@@ -23,8 +23,10 @@ import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
@@ -77,10 +79,8 @@ final class SampledImageReader
         g.fillRect(0, 0, width, height);
         g.dispose();
 
-        // set the alpha
-        WritableRaster raster = masked.getRaster();
-
-        final int[] transparent = new int[4];
+        // set the alpha, transparent pixels are 0 in TYPE_INT_ARGB
+        final int[] pixels = ((DataBufferInt) masked.getRaster().getDataBuffer()).getData();
 
         // avoid getting a BufferedImage for the mask to lessen memory footprint.
         // Such masks are always bpc=1 and have no colorspace, but have a decode.
@@ -88,7 +88,8 @@ final class SampledImageReader
         try (InputStream iis = pdImage.createInputStream())
         {
             final float[] decode = getDecodeArray(pdImage);
-            int value = decode[0] < decode[1] ? 1 : 0;
+            // invert the bits so that transparent pixels are always 1
+            final int invert = decode[0] < decode[1] ? 0 : 0xFF;
             int rowLen = width / 8;
             if (width % 8 > 0)
             {
@@ -97,26 +98,23 @@ final class SampledImageReader
             byte[] buff = new byte[rowLen];
             for (int y = 0; y < height; y++)
             {
-                int x = 0;
+                int offset = y * width;
                 int readLen = (int) IOUtils.populateBuffer(iis, buff);
                 for (int r = 0; r < rowLen && r < readLen; r++)
                 {
-                    int byteValue = buff[r];
-                    int mask = 128;
-                    int shift = 7;
-                    for (int i = 0; i < 8; i++)
+                    int byteValue = (buff[r] ^ invert) & 0xFF;
+                    if (byteValue == 0)
                     {
-                        int bit = (byteValue & mask) >> shift;
-                        mask >>= 1;
-                        --shift;
-                        if (bit == value)
-                        {
-                            raster.setPixel(x, y, transparent);
-                        }
-                        x++;
-                        if (x == width)
+                        // all 8 pixels are opaque
+                        continue;
+                    }
+                    int x = r * 8;
+                    int end = Math.min(x + 8, width);
+                    for (int mask = 0x80; x < end; x++, mask >>= 1)
+                    {
+                        if ((byteValue & mask) != 0)
                         {
-                            break;
+                            pixels[offset + x] = 0;
                         }
                     }
                 }
@@ -422,7 +420,36 @@ final class SampledImageReader
             for (int y = 0; y < starty + scanHeight; y++)
             {
                 int read = (int) IOUtils.populateBuffer(iis, buff);
-                if (y >= starty && y % currentSubsampling == 0)
+                if (y >= starty && nosubsampling && (startx & 7) == 0)
+                {
+                    // fast path: whole bytes are unpacked without testing every bit
+                    int x = startx;
+                    for (int r = x / 8; r < stride && r < read && x < endX; r++)
+                    {
+                        int value = buff[r] ^ invert;
+                        if (endX - x >= 8)
+                        {
+                            output[idx] = (byte) -((value >> 7) & 1);
+                            output[idx + 1] = (byte) -((value >> 6) & 1);
+                            output[idx + 2] = (byte) -((value >> 5) & 1);
+                            output[idx + 3] = (byte) -((value >> 4) & 1);
+                            output[idx + 4] = (byte) -((value >> 3) & 1);
+                            output[idx + 5] = (byte) -((value >> 2) & 1);
+                            output[idx + 6] = (byte) -((value >> 1) & 1);
+                            output[idx + 7] = (byte) -(value & 1);
+                            idx += 8;
+                            x += 8;
+                        }
+                        else
+                        {
+                            for (int shift = 7; x < endX; x++, shift--)
+                            {
+                                output[idx++] = (byte) -((value >> shift) & 1);
+                            }
+                        }
+                    }
+                }
+                else if (y >= starty && y % currentSubsampling == 0)
                 {
                     int x = startx;
                     for (int r = x / 8; r < stride && r < read; r++)
@@ -531,7 +558,25 @@ final class SampledImageReader
                 {
                     // Not the entire region was requested, but if no subsampling should
                     // be performed, we can still copy the entire part of this row
-                    System.arraycopy(tempBytes, startx * numComponents, bank, y * inputWidth * numComponents, scanWidth * numComponents);
+                    System.arraycopy(tempBytes, startx * numComponents, bank, (y - starty) * width * numComponents, scanWidth * numComponents);
+                }
+                else if (numComponents == 1)
+                {
+                    for (int x = startx; x < startx + scanWidth; x += currentSubsampling)
+                    {
+                        bank[i++] = tempBytes[x];
+                    }
+                }
+                else if (numComponents == 3)
+                {
+                    for (int x = startx; x < startx + scanWidth; x += currentSubsampling)
+                    {
+                        int pos = x * 3;
+                        bank[i] = tempBytes[pos];
+                        bank[i + 1] = tempBytes[pos + 1];
+                        bank[i + 2] = tempBytes[pos + 2];
+                        i += 3;
+                    }
                 }
                 else
                 {
@@ -564,7 +609,7 @@ final class SampledImageReader
         DecodeOptions options = new DecodeOptions(currentSubsampling);
         options.setSourceRegion(clipped);
         // read bit stream
-        try (ImageInputStream iis = new MemoryCacheImageInputStream(pdImage.createInputStream(options)))
+        try (InputStream iis = pdImage.createInputStream(options))
         {
             final int inputWidth;
             final int startx;
@@ -590,7 +635,6 @@ final class SampledImageReader
                 scanWidth = clipped.width;
                 scanHeight = clipped.height;
             }
-            final float sampleMax = (float) Math.pow(2, bitsPerComponent) - 1f;
             final boolean isIndexed = colorSpace instanceof PDIndexed;
 
             // init color key mask
@@ -617,64 +661,17 @@ final class SampledImageReader
                 padding = 8 - (inputWidth * numComponents * bitsPerComponent % 8);
             }
 
-            // read stream
-            byte[] srcColorValues = new byte[numComponents];
-            byte[] alpha = new byte[1];
-            for (int y = 0; y < starty + scanHeight; y++)
+            if (bitsPerComponent <= 8)
             {
-                for (int x = 0; x < startx + scanWidth; x++)
-                {
-                    boolean isMasked = true;
-                    for (int c = 0; c < numComponents; c++)
-                    {
-                        int value = (int)iis.readBits(bitsPerComponent);
-
-                        // color key mask requires values before they are decoded
-                        if (colorKeyRanges != null)
-                        {
-                            isMasked &= value >= colorKeyRanges[c * 2] &&
-                                        value <= colorKeyRanges[c * 2 + 1];
-                        }
-
-                        // decode array
-                        final float dMin = decode[c * 2];
-                        final float dMax = decode[(c * 2) + 1];
-
-                        // interpolate to domain
-                        float output = dMin + (value * ((dMax - dMin) / sampleMax));
-
-                        if (isIndexed)
-                        {
-                            // indexed color spaces get the raw value, because the TYPE_BYTE
-                            // below cannot be reversed by the color space without it having
-                            // knowledge of the number of bits per component
-                            srcColorValues[c] = (byte)Math.round(output);
-                        }
-                        else
-                        {
-                            // interpolate to TYPE_BYTE
-                            int outputByte = Math.round(((output - Math.min(dMin, dMax)) /
-                                    Math.abs(dMax - dMin)) * 255f);
-
-                            srcColorValues[c] = (byte)outputByte;
-                        }
-                    }
-                    // only write to output if within requested region and subsample.
-                    if (x >= startx && y >= starty && x % currentSubsampling == 0 && y % currentSubsampling == 0)
-                    {
-                        raster.setDataElements((x - startx) / currentSubsampling, (y - starty) / currentSubsampling, srcColorValues);
-
-                        // set alpha channel in color key mask, if any
-                        if (colorKeyMask != null)
-                        {
-                            alpha[0] = (byte)(isMasked ? 255 : 0);
-                            colorKeyMask.getRaster().setDataElements((x - startx) / currentSubsampling, (y - starty) / currentSubsampling, alpha);
-                        }
-                    }
-                }
-
-                // rows are padded to the nearest byte
-                iis.readBits(padding);
+                readPackedSamples(iis, raster, colorKeyMask, colorKeyRanges, decode, isIndexed,
+                        numComponents, bitsPerComponent, inputWidth, startx, starty, scanWidth,
+                        scanHeight, currentSubsampling);
+            }
+            else
+            {
+                readSamples(iis, raster, colorKeyMask, colorKeyRanges, decode, isIndexed,
+                        numComponents, bitsPerComponent, padding, startx, starty, scanWidth,
+                        scanHeight, currentSubsampling);
             }
 
             // use the color space to convert the image to RGB
@@ -692,6 +689,163 @@ final class SampledImageReader
         }
     }
 
+    /**
+     * Reads samples with up to 8 bits per component. The samples are read row by row and the
+     * decoded value of every possible sample is looked up in a table, which is much faster than
+     * reading and decoding every sample on its own.
+     */
+    private static void readPackedSamples(InputStream input, WritableRaster raster,
+            BufferedImage colorKeyMask, float[] colorKeyRanges, float[] decode, boolean isIndexed,
+            int numComponents, int bitsPerComponent, int inputWidth, int startx, int starty,
+            int scanWidth, int scanHeight, int subsampling) throws IOException
+    {
+        final int numValues = 1 << bitsPerComponent;
+        final float sampleMax = numValues - 1f;
+
+        // decoded value and color key match of every possible sample value
+        final byte[][] lookup = new byte[numComponents][numValues];
+        final boolean[][] colorKeyMatch = colorKeyRanges != null ? new boolean[numComponents][numValues] : null;
+        for (int c = 0; c < numComponents; c++)
+        {
+            for (int value = 0; value < numValues; value++)
+            {
+                lookup[c][value] = decodeSample(value, decode[c * 2], decode[c * 2 + 1],
+                        sampleMax, isIndexed);
+                if (colorKeyMatch != null)
+                {
+                    colorKeyMatch[c][value] = value >= colorKeyRanges[c * 2] &&
+                                              value <= colorKeyRanges[c * 2 + 1];
+                }
+            }
+        }
+
+        // the raster was created by getRGBImage() and is interleaved without gaps
+        final byte[] bank = ((DataBufferByte) raster.getDataBuffer()).getData();
+        final byte[] alpha = colorKeyMask != null ?
+                ((DataBufferByte) colorKeyMask.getRaster().getDataBuffer()).getData() : null;
+        final int width = raster.getWidth();
+        final int sampleMask = numValues - 1;
+        final int firstX = (startx + subsampling - 1) / subsampling * subsampling;
+        final int endX = startx + scanWidth;
+
+        // rows are padded to the nearest byte
+        final byte[] row = new byte[(int) (((long) inputWidth * numComponents * bitsPerComponent + 7) / 8)];
+        for (int y = 0; y < starty + scanHeight; y++)
+        {
+            if (IOUtils.populateBuffer(input, row) != row.length)
+            {
+                throw new EOFException();
+            }
+            if (y < starty || y % subsampling != 0)
+            {
+                continue;
+            }
+            int outputY = (y - starty) / subsampling;
+            for (int x = firstX; x < endX; x += subsampling)
+            {
+                int outputX = (x - startx) / subsampling;
+                int out = (outputY * width + outputX) * numComponents;
+                int sample = x * numComponents;
+                boolean isMasked = true;
+                for (int c = 0; c < numComponents; c++, sample++)
+                {
+                    int value;
+                    if (bitsPerComponent == 8)
+                    {
+                        value = row[sample] & 0xFF;
+                    }
+                    else
+                    {
+                        int bit = sample * bitsPerComponent;
+                        int shift = 8 - bitsPerComponent - (bit & 7);
+                        value = (row[bit >> 3] >> shift) & sampleMask;
+                    }
+                    bank[out + c] = lookup[c][value];
+                    if (colorKeyMatch != null)
+                    {
+                        isMasked &= colorKeyMatch[c][value];
+                    }
+                }
+                if (alpha != null)
+                {
+                    alpha[outputY * width + outputX] = (byte) (isMasked ? 255 : 0);
+                }
+            }
+        }
+    }
+
+    // general-purpose sample reading, e.g. for 16 bits per component
+    private static void readSamples(InputStream input, WritableRaster raster,
+            BufferedImage colorKeyMask, float[] colorKeyRanges, float[] decode, boolean isIndexed,
+            int numComponents, int bitsPerComponent, int padding, int startx, int starty,
+            int scanWidth, int scanHeight, int currentSubsampling) throws IOException
+    {
+        final float sampleMax = (float) Math.pow(2, bitsPerComponent) - 1f;
+        ImageInputStream iis = new MemoryCacheImageInputStream(input);
+        byte[] srcColorValues = new byte[numComponents];
+        byte[] alpha = new byte[1];
+        for (int y = 0; y < starty + scanHeight; y++)
+        {
+            for (int x = 0; x < startx + scanWidth; x++)
+            {
+                boolean isMasked = true;
+                for (int c = 0; c < numComponents; c++)
+                {
+                    int value = (int)iis.readBits(bitsPerComponent);
+
+                    // color key mask requires values before they are decoded
+                    if (colorKeyRanges != null)
+                    {
+                        isMasked &= value >= colorKeyRanges[c * 2] &&
+                                    value <= colorKeyRanges[c * 2 + 1];
+                    }
+
+                    srcColorValues[c] = decodeSample(value, decode[c * 2], decode[(c * 2) + 1],
+                            sampleMax, isIndexed);
+                }
+                // only write to output if within requested region and subsample.
+                if (x >= startx && y >= starty && x % currentSubsampling == 0 && y % currentSubsampling == 0)
+                {
+                    raster.setDataElements((x - startx) / currentSubsampling, (y - starty) / currentSubsampling, srcColorValues);
+
+                    // set alpha channel in color key mask, if any
+                    if (colorKeyMask != null)
+                    {
+                        alpha[0] = (byte)(isMasked ? 255 : 0);
+                        colorKeyMask.getRaster().setDataElements((x - startx) / currentSubsampling, (y - starty) / currentSubsampling, alpha);
+                    }
+                }
+            }
+
+            // rows are padded to the nearest byte
+            iis.readBits(padding);
+        }
+    }
+
+    // maps a sample value through the decode array to a byte of the raster
+    private static byte decodeSample(int value, float dMin, float dMax, float sampleMax,
+            boolean isIndexed)
+    {
+        // interpolate to domain
+        float output = dMin + (value * ((dMax - dMin) / sampleMax));
+
+        if (isIndexed)
+        {
+            // indexed color spaces get the raw value, because the TYPE_BYTE
+            // below cannot be reversed by the color space without it having
+            // knowledge of the number of bits per component
+            return (byte)Math.round(output);
+        }
+        else
+        {
+            // interpolate to TYPE_BYTE
+            int outputByte = Math.round(((output - Math.min(dMin, dMax)) /
+                    Math.abs(dMax - dMin)) * 255f);
+
+            return (byte)outputByte;
+        }
+    }
+
     // color key mask: RGB + Binary -> ARGB
     private static BufferedImage applyColorKeyMask(BufferedImage image, BufferedImage mask)
     {
@@ -702,25 +856,21 @@ final class SampledImageReader
         BufferedImage masked = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
 
         WritableRaster src = image.getRaster();
-        WritableRaster dest = masked.getRaster();
         WritableRaster alpha = mask.getRaster();
+        int[] dest = ((DataBufferInt) masked.getRaster().getDataBuffer()).getData();
 
-        float[] rgb = new float[3];
-        float[] rgba = new float[4];
-        float[] alphaPixel = null;
+        int numBands = src.getNumBands();
+        int[] rgb = new int[width * numBands];
+        int[] alphaPixels = new int[width];
         for (int y = 0; y < height; y++)
         {
-            for (int x = 0; x < width; x++)
+            src.getPixels(0, y, width, 1, rgb);
+            alpha.getPixels(0, y, width, 1, alphaPixels);
+            int offset = y * width;
+            for (int x = 0, i = 0; x < width; x++, i += numBands)
             {
-                src.getPixel(x, y, rgb);
-
-                rgba[0] = rgb[0];
-                rgba[1] = rgb[1];
-                rgba[2] = rgb[2];
-                alphaPixel = alpha.getPixel(x, y, alphaPixel);
-                rgba[3] = 255 - alphaPixel[0];
-
-                dest.setPixel(x, y, rgba);
+                dest[offset + x] = (255 - alphaPixels[x]) << 24 | rgb[i] << 16 |
+                        rgb[i + 1] << 8 | rgb[i + 2];
             }
         }
 
@@ -16,15 +16,10 @@
  */
 package org.apache.pdfbox.pdmodel.graphics.shading;
 
-import java.awt.Point;
-import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.image.ColorModel;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.pdfbox.util.Matrix;
 
@@ -36,11 +31,6 @@ import org.apache.pdfbox.util.Matrix;
  */
 abstract class GouraudShadingContext extends TriangleBasedShadingContext
 {
-    /**
-     * triangle list.
-     */
-    private List<ShadedTriangle> triangleList = new ArrayList<>();
-
     /**
      * Constructor creates an instance to be used for fill operations.
      *
@@ -56,29 +46,9 @@ abstract class GouraudShadingContext extends TriangleBasedShadingContext
         super(shading, colorModel, xform, matrix);
     }
 
-    final void setTriangleList(List<ShadedTriangle> triangleList)
-    {
-        this.triangleList = triangleList;
-    }
-
-    @Override
-    protected Map<Point, Integer> calcPixelTable(Rectangle deviceBounds) throws IOException
-    {
-        Map<Point, Integer> map = new HashMap<>();
-        super.calcPixelTable(triangleList, map, deviceBounds);
-        return map;
-    }
-
-    @Override
-    public void dispose()
-    {
-        triangleList = null;
-        super.dispose();
-    }
-
     @Override
-    protected boolean isDataEmpty()
+    List<ShadedTriangle> collectTriangles(AffineTransform xform, Matrix matrix) throws IOException
     {
-        return triangleList.isEmpty();
+        return ((PDTriangleBasedShadingType) getShading()).collectTriangles(xform, matrix);
     }
 }
@@ -27,6 +27,7 @@ import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.common.COSObjectable;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.common.function.PDFunction;
+import org.apache.pdfbox.pdmodel.common.function.type4.OperandStack;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
 import org.apache.pdfbox.util.Matrix;
 
@@ -401,20 +402,39 @@ public abstract class PDShading implements COSObjectable
      * @throws IOException thrown if something went wrong
      */
     public float[] evalFunction(float[] input) throws IOException
+    {
+        return evalFunction(input, null, null);
+    }
+
+    /**
+     * Convert the input values using the functions of the shading dictionary, with state that the
+     * caller reuses for many evaluations, see {@link PDFunction#eval(float[], float[],
+     * OperandStack)}.
+     *
+     * @param input the input values
+     * @param output the array for the output values, which is used if it has the length of the
+     * result, or null
+     * @param stack the operand stack for Type 4 functions, or null
+     * @return the output values, either in the given array or in a new array
+     * @throws IOException thrown if something went wrong
+     */
+    public float[] evalFunction(float[] input, float[] output, OperandStack stack)
+            throws IOException
     {
         PDFunction[] functions = getFunctionsArray();
         int numberOfFunctions = functions.length;
         float[] returnValues;
         if (numberOfFunctions == 1)
         {
-            returnValues = functions[0].eval(input);
+            returnValues = functions[0].eval(input, output, stack);
         }
         else
         {
-            returnValues = new float[numberOfFunctions];
+            returnValues = output != null && output.length == numberOfFunctions ?
+                    output : new float[numberOfFunctions];
             for (int i = 0; i < numberOfFunctions; i++)
             {
-                float[] newValue = functions[i].eval(input);
+                float[] newValue = functions[i].eval(input, null, stack);
                 returnValues[i] = newValue[0];
             }
         }
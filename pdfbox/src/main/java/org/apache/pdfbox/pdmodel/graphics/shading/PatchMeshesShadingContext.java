@@ -15,14 +15,12 @@
  */
 package org.apache.pdfbox.pdmodel.graphics.shading;
 
-import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.image.ColorModel;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.pdfbox.util.Matrix;
 
@@ -35,9 +33,9 @@ import org.apache.pdfbox.util.Matrix;
 abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext
 {
     /**
-     * patch list
+     * number of control points, 12 for type 6 shading and 16 for type 7 shading
      */
-    private List<Patch> patchList;
+    private final int controlPoints;
     
     /**
      * Constructor creates an instance to be used for fill operations.
@@ -55,31 +53,19 @@ abstract class PatchMeshesShadingContext extends TriangleBasedShadingContext
             int controlPoints) throws IOException
     {
         super(shading, colorModel, xform, matrix);
-        patchList = shading.collectPatches(xform, matrix, controlPoints);
-        createPixelTable(deviceBounds);
+        this.controlPoints = controlPoints;
+        createPixelTable(deviceBounds, xform, matrix);
     }
 
     @Override
-    protected Map<Point, Integer> calcPixelTable(Rectangle deviceBounds)  throws IOException
+    List<ShadedTriangle> collectTriangles(AffineTransform xform, Matrix matrix) throws IOException
     {
-        Map<Point, Integer> map = new HashMap<>();
-        for (Patch it : patchList)
+        List<ShadedTriangle> triangles = new ArrayList<>();
+        for (Patch it : ((PDMeshBasedShadingType) getShading()).collectPatches(xform, matrix,
+                controlPoints))
         {
-            super.calcPixelTable(it.listOfTriangles, map, deviceBounds);
+            triangles.addAll(it.listOfTriangles);
         }
-        return map;
+        return triangles;
     }
-
-    @Override
-    public void dispose()
-    {
-        patchList = null;
-        super.dispose();
-    }
-
-    @Override
-    protected boolean isDataEmpty()
-    {
-        return patchList.isEmpty();
-    }    
 }
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.shading;
+
+import java.awt.Rectangle;
+
+/**
+ * The rasterized pixels of a mesh shading within the device bounds, with their RGB colors encoded
+ * like in {@link ShadingContext#convertToRGB(float[])}. Pixels that aren't covered by the mesh
+ * have no color.
+ *
+ * <p>The bounds include the right and bottom edges of the device bounds, like the rasterization
+ * of the triangles does.
+ */
+final class PixelTable
+{
+    // marks the pixels that have a color
+    private static final int SET = 0xff000000;
+
+    private final int minX;
+    private final int minY;
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    /**
+     * Creates an empty pixel table.
+     *
+     * @param deviceBounds the device bounds
+     */
+    PixelTable(Rectangle deviceBounds)
+    {
+        minX = deviceBounds.x;
+        minY = deviceBounds.y;
+        width = Math.max(0, deviceBounds.width + 1);
+        height = Math.max(0, deviceBounds.height + 1);
+        pixels = new int[width * height];
+    }
+
+    int getMinY()
+    {
+        return minY;
+    }
+
+    int getMaxY()
+    {
+        return minY + height - 1;
+    }
+
+    /**
+     * Sets the color of a pixel, pixels outside of the bounds are ignored.
+     *
+     * @param x the x coordinate in device space
+     * @param y the y coordinate in device space
+     * @param rgb the encoded RGB color
+     */
+    void set(int x, int y, int rgb)
+    {
+        int col = x - minX;
+        int row = y - minY;
+        if (col >= 0 && col < width && row >= 0 && row < height)
+        {
+            pixels[row * width + col] = rgb | SET;
+        }
+    }
+
+    /**
+     * Returns true if the pixel is inside of the bounds.
+     */
+    boolean contains(int x, int y)
+    {
+        int col = x - minX;
+        int row = y - minY;
+        return col >= 0 && col < width && row >= 0 && row < height;
+    }
+
+    /**
+     * Returns the encoded RGB color of a pixel with the highest byte set, or 0 if the pixel has no
+     * color.
+     *
+     * @param x the x coordinate in device space
+     * @param y the y coordinate in device space
+     * @return the color, or 0
+     */
+    int get(int x, int y)
+    {
+        int col = x - minX;
+        int row = y - minY;
+        if (col >= 0 && col < width && row >= 0 && row < height)
+        {
+            return pixels[row * width + col];
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the size of the table.
+     *
+     * @return the size in bytes
+     */
+    long getSize()
+    {
+        return pixels.length * 4L;
+    }
+}
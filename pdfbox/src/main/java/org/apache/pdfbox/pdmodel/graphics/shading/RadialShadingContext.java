@@ -28,6 +28,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBoolean;
 import org.apache.pdfbox.pdmodel.common.function.PDFunction;
+import org.apache.pdfbox.pdmodel.common.function.type4.OperandStack;
 import org.apache.pdfbox.util.Matrix;
 
 /**
@@ -131,7 +132,16 @@ public class RadialShadingContext extends ShadingContext
         factor = (int) Math.ceil(dist);
 
         // build the color table for the given number of steps
-        colorTable = calcColorTable();
+        // the color table only depends on the shading and the number of steps, it is shared by
+        // the contexts that paint the same shading at the same size
+        ShadingCache cache = ShadingCache.getInstance();
+        int[] table = cache.getColorTable(shading.getCOSObject(), factor);
+        if (table == null)
+        {
+            table = calcColorTable();
+            cache.putColorTable(shading.getCOSObject(), table, factor);
+        }
+        colorTable = table;
     }
 
     /**
@@ -150,12 +160,19 @@ public class RadialShadingContext extends ShadingContext
         }
         else
         {
+            // evaluate the function for all steps and convert the colors at once
+            int n = getShadingColorSpace().getNumberOfComponents();
+            float[] colors = new float[(factor + 1) * n];
+            float[] input = new float[1];
+            float[] output = new float[n];
+            OperandStack stack = new OperandStack();
             for (int i = 0; i <= factor; i++)
             {
-                float t = domain[0] + d1d0 * i / factor;
-                float[] values = radialShadingType.evalFunction(t);
-                map[i] = convertToRGB(values);
+                input[0] = domain[0] + d1d0 * i / factor;
+                float[] values = radialShadingType.evalFunction(input, output, stack);
+                System.arraycopy(values, 0, colors, i * n, Math.min(n, values.length));
             }
+            convertToRGB(colors, map, factor + 1);
         }
         return map;
     }
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.shading;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.util.BoundedCache;
+
+/**
+ * A bounded cache of the data that the shading contexts precompute, shared by all documents: the
+ * colour ramps of axial and radial shadings and the rasterized meshes of shading types 4 to 7.
+ * A shading is painted by a new context each time, e.g. when a page is rendered again or when a
+ * pattern is used several times, and the contexts with the same shading and the same parameters
+ * (like the transformation to device space) reuse the cached data.
+ *
+ * <p>The data is keyed by the COS object of the shading, which is weakly referenced, and by the
+ * parameters of the computation. The cache accounts the size of the data and removes the least
+ * recently used entries when its maximum size is exceeded. The default maximum size is 1/32 of the
+ * maximum heap size and can be changed with the system property
+ * {@code pdfbox.shadingcache.maxsize} (in bytes); 0 disables the cache. Changes of a shading
+ * dictionary after it has been painted are not noticed.
+ *
+ * <p>This class is thread safe.
+ */
+final class ShadingCache
+{
+    private static final ShadingCache INSTANCE = new ShadingCache(BoundedCache.getMaxSize(
+            "pdfbox.shadingcache.maxsize", Runtime.getRuntime().maxMemory() / 32));
+
+    private final BoundedCache<Key, Object> entries;
+    private final ReferenceQueue<COSBase> queue = new ReferenceQueue<>();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum size of all cached data, in bytes.
+     */
+    ShadingCache(long maxSize)
+    {
+        entries = new BoundedCache<>(maxSize, ShadingCache::getSize);
+    }
+
+    /**
+     * Returns the cache that is used by the shading contexts.
+     *
+     * @return the shared shading cache.
+     */
+    static ShadingCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a cached colour ramp.
+     *
+     * @param shading the COS object of the shading.
+     * @param parameters the parameters of the computation.
+     * @return the cached colour ramp, or null if there is none.
+     */
+    synchronized int[] getColorTable(COSBase shading, double... parameters)
+    {
+        Object value = get(shading, parameters);
+        return value instanceof int[] ? (int[]) value : null;
+    }
+
+    /**
+     * Returns a cached rasterized mesh.
+     *
+     * @param shading the COS object of the shading.
+     * @param parameters the parameters of the computation.
+     * @return the cached rasterized mesh, or null if there is none.
+     */
+    synchronized PixelTable getPixelTable(COSBase shading, double... parameters)
+    {
+        Object value = get(shading, parameters);
+        return value instanceof PixelTable ? (PixelTable) value : null;
+    }
+
+    /**
+     * Adds a colour ramp to the cache. The array must not be modified afterwards.
+     *
+     * @param shading the COS object of the shading.
+     * @param colorTable the colour ramp.
+     * @param parameters the parameters of the computation.
+     */
+    synchronized void putColorTable(COSBase shading, int[] colorTable, double... parameters)
+    {
+        put(shading, colorTable, parameters);
+    }
+
+    /**
+     * Adds a rasterized mesh to the cache.
+     *
+     * @param shading the COS object of the shading.
+     * @param pixelTable the rasterized mesh.
+     * @param parameters the parameters of the computation.
+     */
+    synchronized void putPixelTable(COSBase shading, PixelTable pixelTable, double... parameters)
+    {
+        put(shading, pixelTable, parameters);
+    }
+
+    /**
+     * Returns the size of all cached data.
+     *
+     * @return the current size in bytes.
+     */
+    synchronized long getSize()
+    {
+        expungeStaleEntries();
+        return entries.getSize();
+    }
+
+    private Object get(COSBase shading, double[] parameters)
+    {
+        expungeStaleEntries();
+        return entries.get(new Key(shading, parameters, null));
+    }
+
+    private void put(COSBase shading, Object value, double[] parameters)
+    {
+        expungeStaleEntries();
+        entries.put(new Key(shading, parameters.clone(), queue), value);
+    }
+
+    private void expungeStaleEntries()
+    {
+        Reference<? extends COSBase> ref;
+        while ((ref = queue.poll()) != null)
+        {
+            entries.remove(ref);
+        }
+    }
+
+    private static long getSize(Object value)
+    {
+        return value instanceof int[] ? ((int[]) value).length * 4L : ((PixelTable) value).getSize();
+    }
+
+    /**
+     * Cache key which references the shading weakly and compares it by identity.
+     */
+    private static final class Key extends WeakReference<COSBase>
+    {
+        private final double[] parameters;
+        private final int hash;
+
+        Key(COSBase shading, double[] parameters, ReferenceQueue<COSBase> queue)
+        {
+            super(shading, queue);
+            this.parameters = parameters;
+            this.hash = 31 * System.identityHashCode(shading) + Arrays.hashCode(parameters);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            COSBase shading = get();
+            return shading != null && shading == other.get() &&
+                    Arrays.equals(parameters, other.parameters);
+        }
+    }
+}
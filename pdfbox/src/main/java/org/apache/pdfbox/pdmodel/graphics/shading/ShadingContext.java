@@ -110,6 +110,27 @@ public abstract class ShadingContext implements PaintContext
 
         return normRGBValues;
     }
+
+    /**
+     * Convert several colors from shading colorspace to RGB color values encoded into integers
+     * like in {@link #convertToRGB(float[])}, with a single call of the bulk conversion of the
+     * colorspace.
+     *
+     * @param values color values in shading colorspace, one color after the other.
+     * @param rgb the array for the RGB values.
+     * @param count the number of colors.
+     * @throws java.io.IOException if the color conversion fails.
+     */
+    final void convertToRGB(float[] values, int[] rgb, int count) throws IOException
+    {
+        shadingColorSpace.toRGB(values, 0, rgb, 0, count);
+        for (int i = 0; i < count; i++)
+        {
+            // the bulk conversion puts red in the high byte
+            int packed = rgb[i];
+            rgb[i] = (packed >> 16) & 0xff | packed & 0xff00 | (packed & 0xff) << 16;
+        }
+    }
     
     @Override
     public ColorModel getColorModel()
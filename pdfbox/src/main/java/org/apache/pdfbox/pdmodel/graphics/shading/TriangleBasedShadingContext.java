@@ -22,22 +22,41 @@ import java.awt.image.ColorModel;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.IntStream;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.pdmodel.common.function.type4.OperandStack;
 import org.apache.pdfbox.util.Matrix;
 
 /**
  * Intermediate class extended by the shading types 4,5,6 and 7 that contains the common methods
  * used by these classes.
  *
+ * <p>The rasterized mesh is cached in the {@link ShadingCache}, so that painting the same shading
+ * with the same transformation and device bounds again doesn't read and rasterize the mesh again.
+ * Large meshes, with at least {@code pdfbox.shading.parallel} pixels in the device bounds (default
+ * 0, i.e. never), can be rasterized in bands of rows by several threads of the common fork-join
+ * pool. This evaluates the function and the color space of the shading concurrently, which is only
+ * safe if they are thread safe, so it is disabled by default.
+ *
  * @author Shaola Ren
  * @author Tilman Hausherr
  */
 abstract class TriangleBasedShadingContext extends ShadingContext
 {
-    // map of pixels within triangles to their RGB color
-    private Map<Point, Integer> pixelTable;
+    private static final Log LOG = LogFactory.getLog(TriangleBasedShadingContext.class);
+
+    private static final long PARALLEL_THRESHOLD = getParallelThreshold();
+
+    // number of rows that are rasterized by one task of a parallel rasterization
+    private static final int ROWS_PER_TASK = 32;
+
+    // pixels within triangles with their RGB color
+    private PixelTable pixelTable;
 
     /**
      * Constructor.
@@ -54,45 +73,140 @@ abstract class TriangleBasedShadingContext extends ShadingContext
         super(shading, cm, xform, matrix);
     }
 
+    private static long getParallelThreshold()
+    {
+        String s = System.getProperty("pdfbox.shading.parallel");
+        if (s != null)
+        {
+            try
+            {
+                return Long.parseLong(s);
+            }
+            catch (NumberFormatException ex)
+            {
+                LOG.error("Default will be used", ex);
+            }
+        }
+        return 0;
+    }
+
     /**
-     * Creates the pixel table.
+     * Creates the pixel table, or gets it from the cache.
+     *
+     * @param deviceBounds device bounds
+     * @param xform transformation for user to device space
+     * @param matrix the pattern matrix concatenated with that of the parent content stream
+     * @throws IOException if the mesh can't be read or the color conversion fails
      */
-    protected final void createPixelTable(Rectangle deviceBounds) throws IOException
+    protected final void createPixelTable(Rectangle deviceBounds, AffineTransform xform,
+            Matrix matrix) throws IOException
     {
-        pixelTable = calcPixelTable(deviceBounds);
+        COSBase shading = getShading().getCOSObject();
+        // the mesh depends on both transformations, the rasterization on the bounds
+        double[] parameters = new double[16];
+        double[] patternMatrix = new double[6];
+        xform.getMatrix(parameters);
+        matrix.createAffineTransform().getMatrix(patternMatrix);
+        System.arraycopy(patternMatrix, 0, parameters, 6, 6);
+        parameters[12] = deviceBounds.x;
+        parameters[13] = deviceBounds.y;
+        parameters[14] = deviceBounds.width;
+        parameters[15] = deviceBounds.height;
+
+        ShadingCache cache = ShadingCache.getInstance();
+        pixelTable = cache.getPixelTable(shading, parameters);
+        if (pixelTable == null)
+        {
+            pixelTable = new PixelTable(deviceBounds);
+            calcPixelTable(collectTriangles(xform, matrix), pixelTable, deviceBounds);
+            cache.putPixelTable(shading, pixelTable, parameters);
+        }
     }
 
     /**
-     * Calculate every point and its color and store them in a Hash table.
+     * Reads the mesh and creates the triangles in device space.
      *
-     * @return a Hash table which contains all the points' positions and colors of one image
+     * @param xform transformation for user to device space
+     * @param matrix the pattern matrix concatenated with that of the parent content stream
+     * @return the triangles
+     * @throws IOException if the mesh can't be read
      */
-    abstract Map<Point, Integer> calcPixelTable(Rectangle deviceBounds) throws IOException;
+    abstract List<ShadedTriangle> collectTriangles(AffineTransform xform, Matrix matrix)
+            throws IOException;
 
     /**
-     * Get the points from the triangles, calculate their color and add point-color mappings.
+     * Get the points from the triangles, calculate their color and add them to the pixel table.
+     * The triangles are painted in their order, later triangles paint over earlier ones.
      */
-    protected void calcPixelTable(List<ShadedTriangle> triangleList, Map<Point, Integer> map,
+    private void calcPixelTable(List<ShadedTriangle> triangleList, PixelTable table,
             Rectangle deviceBounds) throws IOException
     {
+        int minY = table.getMinY();
+        int maxY = table.getMaxY();
+        if (PARALLEL_THRESHOLD > 0 && table.getSize() / 4 >= PARALLEL_THRESHOLD &&
+            triangleList.size() > 1)
+        {
+            // the function and the color space may initialize their caches lazily, this doesn't
+            // make them thread safe but avoids that each task initializes them
+            evalFunctionAndConvertToRGB(triangleList.get(0).color[0], new FunctionState());
+
+            // each task paints all triangles in its own rows, so the order is kept
+            int tasks = (maxY - minY) / ROWS_PER_TASK + 1;
+            try
+            {
+                IntStream.range(0, tasks).parallel().forEach(task ->
+                {
+                    int y0 = minY + task * ROWS_PER_TASK;
+                    int y1 = Math.min(y0 + ROWS_PER_TASK - 1, maxY);
+                    try
+                    {
+                        calcPixelTable(triangleList, table, deviceBounds, y0, y1);
+                    }
+                    catch (IOException ex)
+                    {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+            catch (UncheckedIOException ex)
+            {
+                throw ex.getCause();
+            }
+        }
+        else
+        {
+            calcPixelTable(triangleList, table, deviceBounds, minY, maxY);
+        }
+    }
+
+    /**
+     * Paints the rows y0 to y1 (inclusive) of the triangles.
+     */
+    private void calcPixelTable(List<ShadedTriangle> triangleList, PixelTable table,
+            Rectangle deviceBounds, int y0, int y1) throws IOException
+    {
+        // the rows may be painted concurrently with others, so they need their own state
+        FunctionState state = new FunctionState();
         for (ShadedTriangle tri : triangleList)
         {
+            int[] boundary = tri.getBoundary();
+            if (boundary[3] < y0 || boundary[2] > y1)
+            {
+                continue;
+            }
             int degree = tri.getDeg();
             if (degree == 2)
             {
                 Line line = tri.getLine();
-                for (Point p : line.linePoints)
-                {
-                    map.put(p, evalFunctionAndConvertToRGB(line.calcColor(p)));
-                }
+                calcLine(line, table, y0, y1, state);
             }
             else
             {
-                int[] boundary = tri.getBoundary();
                 boundary[0] = Math.max(boundary[0], deviceBounds.x);
                 boundary[1] = Math.min(boundary[1], deviceBounds.x + deviceBounds.width);
-                boundary[2] = Math.max(boundary[2], deviceBounds.y);
-                boundary[3] = Math.min(boundary[3], deviceBounds.y + deviceBounds.height);
+                boundary[2] = Math.max(boundary[2], Math.max(deviceBounds.y, y0));
+                boundary[3] = Math.min(boundary[3],
+                        Math.min(deviceBounds.y + deviceBounds.height, y1));
 
                 for (int x = boundary[0]; x <= boundary[1]; x++)
                 {
@@ -101,7 +215,8 @@ abstract class TriangleBasedShadingContext extends ShadingContext
                         Point p = new IntPoint(x, y);
                         if (tri.contains(p))
                         {
-                            map.put(p, evalFunctionAndConvertToRGB(tri.calcColor(p)));
+                            table.set(x, y,
+                                    evalFunctionAndConvertToRGB(tri.calcColor(p), state));
                         }
                     }
                 }
@@ -114,21 +229,21 @@ abstract class TriangleBasedShadingContext extends ShadingContext
                                      (int) Math.round(tri.corner[1].getY()));
                 Point p2 = new IntPoint((int) Math.round(tri.corner[2].getX()),
                                      (int) Math.round(tri.corner[2].getY()));
-                Line l1 = new Line(p0, p1, tri.color[0], tri.color[1]);
-                Line l2 = new Line(p1, p2, tri.color[1], tri.color[2]);
-                Line l3 = new Line(p2, p0, tri.color[2], tri.color[0]);
-                for (Point p : l1.linePoints)
-                {
-                    map.put(p, evalFunctionAndConvertToRGB(l1.calcColor(p)));
-                }
-                for (Point p : l2.linePoints)
-                {
-                    map.put(p, evalFunctionAndConvertToRGB(l2.calcColor(p)));
-                }
-                for (Point p : l3.linePoints)
-                {
-                    map.put(p, evalFunctionAndConvertToRGB(l3.calcColor(p)));
-                }
+                calcLine(new Line(p0, p1, tri.color[0], tri.color[1]), table, y0, y1, state);
+                calcLine(new Line(p1, p2, tri.color[1], tri.color[2]), table, y0, y1, state);
+                calcLine(new Line(p2, p0, tri.color[2], tri.color[0]), table, y0, y1, state);
+            }
+        }
+    }
+
+    private void calcLine(Line line, PixelTable table, int y0, int y1, FunctionState state)
+            throws IOException
+    {
+        for (Point p : line.linePoints)
+        {
+            if (p.y >= y0 && p.y <= y1 && table.contains(p.x, p.y))
+            {
+                table.set(p.x, p.y, evalFunctionAndConvertToRGB(line.calcColor(p), state));
             }
         }
     }
@@ -137,54 +252,57 @@ abstract class TriangleBasedShadingContext extends ShadingContext
      * Convert color to RGB color value, using function if required, then convert from the shading
      * color space to an RGB value, which is encoded into an integer.
      */
-    private int evalFunctionAndConvertToRGB(float[] values) throws IOException
+    private int evalFunctionAndConvertToRGB(float[] values, FunctionState state)
+            throws IOException
     {
         if (getShading().getFunction() != null)
         {
-            values = getShading().evalFunction(values);
+            values = getShading().evalFunction(values, state.output, state.stack);
         }
         return convertToRGB(values);
     }
 
     /**
-     * Returns true if the shading has an empty data stream.
+     * The reused state of the function evaluations of one thread.
      */
-    abstract boolean isDataEmpty();
+    private final class FunctionState
+    {
+        private final float[] output = new float[getShadingColorSpace().getNumberOfComponents()];
+        private final OperandStack stack = new OperandStack();
+    }
+
+    @Override
+    public void dispose()
+    {
+        pixelTable = null;
+        super.dispose();
+    }
 
     @Override
     public final Raster getRaster(int x, int y, int w, int h)
     {
         WritableRaster raster = getColorModel().createCompatibleWritableRaster(w, h);
         int[] data = new int[w * h * 4];
-        if (!isDataEmpty() || getBackground() != null)
+        for (int row = 0; row < h; row++)
         {
-            for (int row = 0; row < h; row++)
+            for (int col = 0; col < w; col++)
             {
-                for (int col = 0; col < w; col++)
+                int value = pixelTable.get(x + col, y + row);
+                if (value == 0)
                 {
-                    Point p = new IntPoint(x + col, y + row);
-                    int value;
-                    Integer v = pixelTable.get(p);
-                    if (v != null)
+                    if (getBackground() == null)
                     {
-                        value = v;
-                    }
-                    else
-                    {
-                        if (getBackground() == null)
-                        {
-                            continue;
-                        }
-                        value = getRgbBackground();
+                        continue;
                     }
-                    int index = (row * w + col) * 4;
-                    data[index] = value & 255;
-                    value >>= 8;
-                    data[index + 1] = value & 255;
-                    value >>= 8;
-                    data[index + 2] = value & 255;
-                    data[index + 3] = 255;
+                    value = getRgbBackground();
                 }
+                int index = (row * w + col) * 4;
+                data[index] = value & 255;
+                value >>= 8;
+                data[index + 1] = value & 255;
+                value >>= 8;
+                data[index + 2] = value & 255;
+                data[index + 3] = 255;
             }
         }
         raster.setPixels(0, 0, w, h, data);
@@ -23,6 +23,7 @@ import java.awt.image.WritableRaster;
 import java.io.IOException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.pdfbox.pdmodel.common.function.type4.OperandStack;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
 import org.apache.pdfbox.util.Matrix;
 
@@ -39,6 +40,10 @@ class Type1ShadingContext extends ShadingContext
     private AffineTransform rat;
     private final float[] domain;
 
+    // reused by the function evaluations of getRaster(), a paint context is used by one thread
+    private final float[] functionOutput;
+    private final OperandStack functionStack = new OperandStack();
+
     /**
      * Constructor creates an instance to be used for fill operations.
      *
@@ -52,6 +57,9 @@ class Type1ShadingContext extends ShadingContext
     {
         super(shading, colorModel, xform, matrix);
         this.type1ShadingType = shading;
+        PDColorSpace shadingColorSpace = getShadingColorSpace();
+        functionOutput = shadingColorSpace != null ?
+                new float[shadingColorSpace.getNumberOfComponents()] : null;
 
         // (Optional) An array of four numbers [ xmin xmax ymin ymax ] 
         // specifying the rectangular domain of coordinates over which the 
@@ -123,7 +131,8 @@ class Type1ShadingContext extends ShadingContext
                 {
                     try
                     {
-                        tmpValues = type1ShadingType.evalFunction(values);
+                        tmpValues = type1ShadingType.evalFunction(values, functionOutput,
+                                functionStack);
                     }
                     catch (IOException e)
                     {
@@ -53,7 +53,6 @@ class Type4ShadingContext extends GouraudShadingContext
         bitsPerFlag = shading.getBitsPerFlag();
         //TODO handle cases where bitperflag isn't 8
         LOG.debug("bitsPerFlag: " + bitsPerFlag);
-        setTriangleList(shading.collectTriangles(xform, matrix));
-        createPixelTable(deviceBounds);
+        createPixelTable(deviceBounds, xform, matrix);
     }
 }
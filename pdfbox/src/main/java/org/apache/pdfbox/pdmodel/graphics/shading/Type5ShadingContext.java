@@ -51,7 +51,6 @@ class Type5ShadingContext extends GouraudShadingContext
 
         LOG.debug("Type5ShadingContext");
 
-        setTriangleList(shading.collectTriangles(xform, matrix));
-        createPixelTable(deviceBounds);
+        createPixelTable(deviceBounds, xform, matrix);
     }
 }
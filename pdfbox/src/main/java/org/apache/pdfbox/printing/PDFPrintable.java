@@ -33,6 +33,7 @@ import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageTree;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.rendering.RenderDestination;
 
@@ -52,6 +53,7 @@ public final class PDFPrintable implements Printable
     private final boolean center;
     private boolean subsamplingAllowed = false;
     private RenderingHints renderingHints = null;
+    private int bandHeight = 0;
 
     /**
      * Creates a new PDFPrintable.
@@ -187,6 +189,33 @@ public final class PDFPrintable implements Printable
         this.renderingHints = renderingHints;
     }
 
+    /**
+     * Get the height of the bands in which the page is rasterized.
+     *
+     * @return the band height in pixels, or 0 if the page is rasterized as a whole.
+     */
+    public int getBandHeight()
+    {
+        return bandHeight;
+    }
+
+    /**
+     * Set the height of the bands in which the page is rasterized. This is only used if a DPI has
+     * been set. When rasterizing at print resolution, the page image can be very large; with a
+     * band height set, the page is rendered and sent to the printer in horizontal strips so that
+     * the memory needed is proportional to the band height only.
+     *
+     * @param bandHeight the band height in pixels, or 0 to rasterize the page as a whole.
+     */
+    public void setBandHeight(int bandHeight)
+    {
+        if (bandHeight < 0)
+        {
+            throw new IllegalArgumentException("Band height must not be negative: " + bandHeight);
+        }
+        this.bandHeight = bandHeight;
+    }
+
     @Override
     public int print(Graphics graphics, PageFormat pageFormat, int pageIndex)
             throws PrinterException
@@ -237,6 +266,12 @@ public final class PDFPrintable implements Printable
                                      (imageableHeight - cropBox.getHeight() * scale) / 2);
             }
 
+            if (dpi > 0 && bandHeight > 0)
+            {
+                printBanded(graphics2D, pageIndex, cropBox, imageableWidth, imageableHeight, scale);
+                return PAGE_EXISTS;
+            }
+
             // rasterize to bitmap (optional)
             Graphics2D printerGraphics = null;
             BufferedImage image = null;
@@ -290,6 +325,39 @@ public final class PDFPrintable implements Printable
         }
     }
 
+    // rasterizes the page in bands and draws them one after the other
+    private void printBanded(Graphics2D graphics2D, int pageIndex, PDRectangle cropBox,
+            double imageableWidth, double imageableHeight, double scale) throws IOException
+    {
+        float dpiScale = dpi / 72;
+        AffineTransform transform = graphics2D.getTransform();
+        graphics2D.scale(scale / dpiScale, scale / dpiScale);
+        graphics2D.setBackground(Color.WHITE);
+        graphics2D.clearRect(0, 0, (int) (imageableWidth * dpiScale / scale),
+                (int) (imageableHeight * dpiScale / scale));
+
+        renderer.setSubsamplingAllowed(subsamplingAllowed);
+        renderer.setRenderingHints(renderingHints);
+        int pageHeightPx = (int) Math.max(Math.floor(cropBox.getHeight() * dpiScale), 1);
+        for (int y = 0; y < pageHeightPx; y += bandHeight)
+        {
+            BufferedImage band = renderer.renderImageBand(pageIndex, dpiScale, ImageType.RGB,
+                    RenderDestination.PRINT, y, bandHeight);
+            graphics2D.drawImage(band, 0, y, null);
+        }
+
+        // draw crop box
+        if (showPageBorder)
+        {
+            graphics2D.setTransform(transform);
+            graphics2D.setClip(0, 0, (int) imageableWidth, (int) imageableHeight);
+            graphics2D.scale(scale, scale);
+            graphics2D.setColor(Color.GRAY);
+            graphics2D.setStroke(new BasicStroke(0.5f));
+            graphics2D.drawRect(0, 0, (int) cropBox.getWidth(), (int) cropBox.getHeight());
+        }
+    }
+
     /**
      * This will find the CropBox with rotation applied, for this page by looking up the hierarchy
      * until it finds them.
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Vector;
+
+/**
+ * A page image that is rendered lazily in horizontal bands. Each band is a tile of this image, so
+ * consumers that fetch the image tile by tile or row by row, like most ImageIO writers, only need
+ * the memory for one band. The last rendered band is kept so that sequential access renders every
+ * band only once.
+ */
+final class BandedPageImage implements RenderedImage
+{
+    private final PDFRenderer renderer;
+    private final int pageIndex;
+    private final float scale;
+    private final ImageType imageType;
+    private final RenderDestination destination;
+    private final int width;
+    private final int height;
+    private final int bandHeight;
+    private final ColorModel colorModel;
+    private final SampleModel sampleModel;
+
+    private int currentBandIndex = -1;
+    private Raster currentBand;
+
+    BandedPageImage(PDFRenderer renderer, int pageIndex, float scale, ImageType imageType,
+            RenderDestination destination, int width, int height, int bandHeight)
+    {
+        this.renderer = renderer;
+        this.pageIndex = pageIndex;
+        this.scale = scale;
+        this.imageType = imageType;
+        this.destination = destination;
+        this.width = width;
+        this.height = height;
+        this.bandHeight = bandHeight;
+        BufferedImage prototype = new BufferedImage(1, 1, imageType.toBufferedImageType());
+        this.colorModel = prototype.getColorModel();
+        this.sampleModel = prototype.getSampleModel().createCompatibleSampleModel(width, bandHeight);
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources()
+    {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name)
+    {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames()
+    {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel()
+    {
+        return colorModel;
+    }
+
+    @Override
+    public SampleModel getSampleModel()
+    {
+        return sampleModel;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return height;
+    }
+
+    @Override
+    public int getMinX()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getMinY()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles()
+    {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles()
+    {
+        return (height + bandHeight - 1) / bandHeight;
+    }
+
+    @Override
+    public int getMinTileX()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth()
+    {
+        return width;
+    }
+
+    @Override
+    public int getTileHeight()
+    {
+        return bandHeight;
+    }
+
+    @Override
+    public int getTileGridXOffset()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset()
+    {
+        return 0;
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY)
+    {
+        if (tileX != 0 || tileY < 0 || tileY >= getNumYTiles())
+        {
+            throw new ArrayIndexOutOfBoundsException("Invalid tile (" + tileX + ", " + tileY + ")");
+        }
+        if (tileY != currentBandIndex)
+        {
+            // release the previous band before rendering the next one
+            currentBand = null;
+            int y = tileY * bandHeight;
+            try
+            {
+                BufferedImage band = renderer.renderImageBand(pageIndex, scale, imageType,
+                        destination, y, bandHeight);
+                currentBand = band.getRaster().createTranslatedChild(0, y);
+            }
+            catch (IOException ex)
+            {
+                throw new UncheckedIOException(ex);
+            }
+            currentBandIndex = tileY;
+        }
+        return currentBand;
+    }
+
+    @Override
+    public Raster getData()
+    {
+        return copyData(null);
+    }
+
+    @Override
+    public Raster getData(Rectangle rect)
+    {
+        WritableRaster raster = colorModel.createCompatibleWritableRaster(rect.width, rect.height);
+        return copyData(raster.createWritableTranslatedChild(rect.x, rect.y));
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster)
+    {
+        if (raster == null)
+        {
+            raster = colorModel.createCompatibleWritableRaster(width, height);
+        }
+        Rectangle bounds = raster.getBounds().intersection(new Rectangle(0, 0, width, height));
+        if (bounds.isEmpty())
+        {
+            return raster;
+        }
+        int firstBand = bounds.y / bandHeight;
+        int lastBand = (bounds.y + bounds.height - 1) / bandHeight;
+        for (int band = firstBand; band <= lastBand; band++)
+        {
+            raster.setRect(getTile(0, band));
+        }
+        return raster;
+    }
+}
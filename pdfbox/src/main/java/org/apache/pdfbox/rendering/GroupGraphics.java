@@ -69,12 +69,16 @@ class GroupGraphics extends Graphics2D
     private final Graphics2D groupG2D;
     private final Graphics2D alphaG2D;
 
-    GroupGraphics(BufferedImage groupImage, Graphics2D groupGraphics)
+    /**
+     * Creates the graphics. The image for the alpha must be a transparent TYPE_INT_ARGB image of
+     * the same size as the group image.
+     */
+    GroupGraphics(BufferedImage groupImage, Graphics2D groupGraphics,
+        BufferedImage groupAlphaImage)
     {
         this.groupImage = groupImage;
         this.groupG2D = groupGraphics;
-        this.groupAlphaImage = new BufferedImage(groupImage.getWidth(), groupImage.getHeight(),
-            BufferedImage.TYPE_INT_ARGB);
+        this.groupAlphaImage = groupAlphaImage;
         this.alphaG2D = groupAlphaImage.createGraphics();
     }
 
@@ -716,6 +720,14 @@ class GroupGraphics extends Graphics2D
         }
     }
 
+    /**
+     * Returns the image in which the total alpha of the group contents is accumulated.
+     */
+    BufferedImage getGroupAlphaImage()
+    {
+        return groupAlphaImage;
+    }
+
     /**
      * Computes the backdrop removal equation.
      * <code>C = Cn + (Cn - C0) * (alpha0 / alphagn - alpha0)</code>
@@ -17,12 +17,14 @@
 package org.apache.pdfbox.rendering;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.DisplayMode;
 import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
 import java.awt.GraphicsDevice;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -60,18 +62,27 @@ public class PDFRenderer
 
     private boolean subsamplingAllowed = false;
 
+    private boolean cullingEnabled = false;
+
     private RenderDestination defaultDestination;
 
     private RenderingHints renderingHints = null;
 
     private BufferedImage pageImage;
 
+    private int pageImageBottomOffset;
+
     private static boolean kcmsLogged = false;
 
     private float imageDownscalingOptimizationThreshold = 0.5f;
 
     private final PDPageTree pageTree;
 
+    // rendered tiles of tiling patterns, shared by all pages
+    private final TilingPatternCache tilingPatternCache = new TilingPatternCache();
+
+    private RasterBufferPool rasterBufferPool;
+
     /**
      * Creates a new PDFRenderer.
      * @param document the document to render
@@ -138,6 +149,36 @@ public class PDFRenderer
         this.subsamplingAllowed = subsamplingAllowed;
     }
 
+    /**
+     * Value indicating if the renderer skips painting operations that are entirely outside of the
+     * current clipping path or of the visible area of the device.
+     *
+     * @return true if culling is enabled, false otherwise.
+     */
+    public boolean isCullingEnabled()
+    {
+        return cullingEnabled;
+    }
+
+    /**
+     * Sets a value instructing the renderer whether to skip paths, glyphs, images, forms,
+     * shadings and annotations whose bounds don't intersect the current clipping path or the
+     * visible area of the device (the image, band or initial clip of the Graphics2D object).
+     * Invisible images are then not even decoded and transparency groups are only rendered as far
+     * as they are visible. This is especially useful when rendering only a part of a page, e.g. a
+     * map tile or a band.
+     *
+     * The bounds used are conservative, so the rendering result does not change. Culling is disabled
+     * by default because the bounds calculations are useless overhead when rendering whole pages
+     * with little invisible content.
+     *
+     * @param cullingEnabled The new value indicating if culling is enabled.
+     */
+    public void setCullingEnabled(boolean cullingEnabled)
+    {
+        this.cullingEnabled = cullingEnabled;
+    }
+
     /**
      * @return the defaultDestination
      */
@@ -197,6 +238,32 @@ public class PDFRenderer
         this.imageDownscalingOptimizationThreshold = imageDownscalingOptimizationThreshold;
     }
 
+    /**
+     * Returns the pool of images that is used for rendering.
+     *
+     * @return the pool, or null if none is set
+     */
+    public RasterBufferPool getRasterBufferPool()
+    {
+        return rasterBufferPool;
+    }
+
+    /**
+     * Sets a pool of images that is used for rendering into images. The page images are then taken
+     * from the pool and can be given back with {@link RasterBufferPool#release(BufferedImage)} when
+     * they aren't needed anymore, and the intermediate images of transparency groups, soft masks
+     * and stenciled patterns are taken from the pool and given back after they have been drawn.
+     * This avoids the allocation of large pixel buffers for each page when many pages of the same
+     * size are rendered. The pool isn't used by the {@link #renderPageToGraphics(int, Graphics2D)
+     * renderPageToGraphics} methods.
+     *
+     * @param rasterBufferPool the pool, or null to allocate new images
+     */
+    public void setRasterBufferPool(RasterBufferPool rasterBufferPool)
+    {
+        this.rasterBufferPool = rasterBufferPool;
+    }
+
     /**
      * Returns the given page as an RGB image at 72 DPI
      * @param pageIndex the zero-based index of the page to be converted.
@@ -276,23 +343,131 @@ public class PDFRenderer
     {
         PDPage page = pageTree.get(pageIndex);
 
-        PDRectangle cropBox = page.getCropBox();
-        float widthPt = cropBox.getWidth();
-        float heightPt = cropBox.getHeight();
-
-        // PDFBOX-4306 avoid single blank pixel line on the right or on the bottom
-        int widthPx = (int) Math.max(Math.floor(widthPt * scale), 1);
-        int heightPx = (int) Math.max(Math.floor(heightPt * scale), 1);
+        Dimension size = getImageSize(page, scale);
 
         // PDFBOX-4518 the maximum size (w*h) of a buffered image is limited to Integer.MAX_VALUE
-        if ((long) widthPx * (long) heightPx > Integer.MAX_VALUE)
+        if ((long) size.width * (long) size.height > Integer.MAX_VALUE)
         {
+            PDRectangle cropBox = page.getCropBox();
             throw new IOException("Maximum size of image exceeded (w * h * scale ^ 2) = "//
-                    + widthPt + " * " + heightPt + " * " + scale + " ^ 2 > " + Integer.MAX_VALUE);
+                    + cropBox.getWidth() + " * " + cropBox.getHeight() + " * " + scale + " ^ 2 > "
+                    + Integer.MAX_VALUE);
+        }
+
+        return renderBand(page, scale, imageType, destination, size, 0, size.height);
+    }
+
+    /**
+     * Renders a horizontal band of the given page. The band consists of the rows {@code y} to
+     * {@code y + height - 1} of the image that
+     * {@link #renderImage(int, float, ImageType, RenderDestination) renderImage} would return for
+     * the same parameters, but only the memory for the band itself is needed. Content outside of
+     * the band is clipped away early.
+     *
+     * @param pageIndex the zero-based index of the page to be converted
+     * @param scale the scaling factor, where 1 = 72 DPI
+     * @param imageType the type of image to return
+     * @param destination controlling visibility of optional content groups
+     * @param y the first row of the band
+     * @param height the height of the band in pixels
+     * @return the rendered band, the band height is reduced if it extends below the page
+     * @throws IOException if the PDF cannot be read
+     * @throws IllegalArgumentException if the band is not within the page image
+     */
+    public BufferedImage renderImageBand(int pageIndex, float scale, ImageType imageType,
+            RenderDestination destination, int y, int height) throws IOException
+    {
+        PDPage page = pageTree.get(pageIndex);
+        Dimension size = getImageSize(page, scale);
+        if (y < 0 || y >= size.height || height <= 0)
+        {
+            throw new IllegalArgumentException("Band at row " + y + " with height " + height
+                    + " is outside of the page image of height " + size.height);
+        }
+        return renderBand(page, scale, imageType, destination, size, y,
+                Math.min(height, size.height - y));
+    }
+
+    /**
+     * Returns the given page as an image which is rendered lazily in horizontal bands of the given
+     * height. Only the band that is currently accessed is kept in memory, so the image can be
+     * passed to an {@link javax.imageio.ImageWriter} which reads the image row by row or strip by
+     * strip (e.g. PNG or TIFF with a RowsPerStrip value equal to the band height) to produce print
+     * resolution output with a memory footprint proportional to the band height. Writers that need
+     * the whole raster at once (e.g. JPEG) will still work but will not benefit.
+     *
+     * <p>The returned image is only valid as long as the document is open and must not be used
+     * concurrently with other calls to this renderer. As the methods of {@link RenderedImage}
+     * can't throw checked exceptions, an {@link IOException} during the rendering of a band is
+     * wrapped into an {@link java.io.UncheckedIOException}.
+     *
+     * @param pageIndex the zero-based index of the page to be converted
+     * @param scale the scaling factor, where 1 = 72 DPI
+     * @param imageType the type of image to return
+     * @param destination controlling visibility of optional content groups
+     * @param bandHeight the height of the bands in pixels
+     * @return the lazily rendered page image
+     * @throws IOException if the PDF cannot be read
+     */
+    public RenderedImage renderImageBanded(int pageIndex, float scale, ImageType imageType,
+            RenderDestination destination, int bandHeight) throws IOException
+    {
+        if (bandHeight <= 0)
+        {
+            throw new IllegalArgumentException("Band height must be positive: " + bandHeight);
         }
+        PDPage page = pageTree.get(pageIndex);
+        Dimension size = getImageSize(page, scale);
+        if ((long) size.width * (long) Math.min(bandHeight, size.height) > Integer.MAX_VALUE)
+        {
+            throw new IOException("Maximum size of image band exceeded (w * h) = " + size.width
+                    + " * " + bandHeight + " > " + Integer.MAX_VALUE);
+        }
+        return new BandedPageImage(this, pageIndex, scale, imageType, destination, size.width,
+                size.height, Math.min(bandHeight, size.height));
+    }
+
+    /**
+     * Returns the given page as an image which is rendered lazily in horizontal bands of the given
+     * height, see
+     * {@link #renderImageBanded(int, float, ImageType, RenderDestination, int) renderImageBanded}
+     * for details.
+     *
+     * @param pageIndex the zero-based index of the page to be converted
+     * @param scale the scaling factor, where 1 = 72 DPI
+     * @param imageType the type of image to return
+     * @param bandHeight the height of the bands in pixels
+     * @return the lazily rendered page image
+     * @throws IOException if the PDF cannot be read
+     */
+    public RenderedImage renderImageBanded(int pageIndex, float scale, ImageType imageType,
+            int bandHeight) throws IOException
+    {
+        return renderImageBanded(pageIndex, scale, imageType,
+                defaultDestination == null ? RenderDestination.EXPORT : defaultDestination,
+                bandHeight);
+    }
+
+    // computes the size of the image of the whole page, with width and height swapped if rotated
+    private static Dimension getImageSize(PDPage page, float scale)
+    {
+        PDRectangle cropBox = page.getCropBox();
+
+        // PDFBOX-4306 avoid single blank pixel line on the right or on the bottom
+        int widthPx = (int) Math.max(Math.floor(cropBox.getWidth() * scale), 1);
+        int heightPx = (int) Math.max(Math.floor(cropBox.getHeight() * scale), 1);
 
         int rotationAngle = page.getRotation();
+        if (rotationAngle == 90 || rotationAngle == 270)
+        {
+            return new Dimension(heightPx, widthPx);
+        }
+        return new Dimension(widthPx, heightPx);
+    }
 
+    private BufferedImage renderBand(PDPage page, float scale, ImageType imageType,
+            RenderDestination destination, Dimension size, int y, int height) throws IOException
+    {
         int bimType;
         if (imageType != ImageType.ARGB && hasBlendMode(page))
         {
@@ -307,22 +482,102 @@ public class PDFRenderer
             bimType = imageType.toBufferedImageType();
         }
 
-        // swap width and height
-        BufferedImage image;
-        if (rotationAngle == 90 || rotationAngle == 270)
+        BufferedImage image = createImage(size.width, height, bimType);
+
+        drawBand(page, scale, destination, image, size, y);
+
+        if (image.getType() != imageType.toBufferedImageType())
         {
-            image = new BufferedImage(heightPx, widthPx, bimType);
+            // PDFBOX-4095: draw temporary transparent image on white background
+            BufferedImage newImage = createImage(image.getWidth(), image.getHeight(),
+                    imageType.toBufferedImageType());
+            drawOnWhite(image, newImage);
+            releaseImage(image);
+            image = newImage;
+        }
+
+        return image;
+    }
+
+    /**
+     * Renders the given page into the given image at 72 DPI, see
+     * {@link #renderPageToImage(int, BufferedImage, float, RenderDestination) renderPageToImage}
+     * for details.
+     *
+     * @param pageIndex the zero-based index of the page to be converted
+     * @param image the image on which to draw the page
+     * @throws IOException if the PDF cannot be read
+     */
+    public void renderPageToImage(int pageIndex, BufferedImage image) throws IOException
+    {
+        renderPageToImage(pageIndex, image, 1);
+    }
+
+    /**
+     * Renders the given page into the given image, see
+     * {@link #renderPageToImage(int, BufferedImage, float, RenderDestination) renderPageToImage}
+     * for details.
+     *
+     * @param pageIndex the zero-based index of the page to be converted
+     * @param image the image on which to draw the page
+     * @param scale the scaling factor, where 1 = 72 DPI
+     * @throws IOException if the PDF cannot be read
+     */
+    public void renderPageToImage(int pageIndex, BufferedImage image, float scale)
+            throws IOException
+    {
+        renderPageToImage(pageIndex, image, scale,
+                defaultDestination == null ? RenderDestination.EXPORT : defaultDestination);
+    }
+
+    /**
+     * Renders the given page into the given image, which can be reused by the caller for several
+     * pages instead of getting a new image from {@link #renderImage(int) renderImage} each time.
+     * The image is cleared first, with a transparent background if it has an alpha channel and
+     * with a white background otherwise, and the page is drawn at the top left corner like it is
+     * drawn in the images of {@code renderImage}. If the image is smaller than the page, the page
+     * is cut off at the right and at the bottom.
+     *
+     * @param pageIndex the zero-based index of the page to be converted
+     * @param image the image on which to draw the page
+     * @param scale the scaling factor, where 1 = 72 DPI
+     * @param destination controlling visibility of optional content groups
+     * @throws IOException if the PDF cannot be read
+     */
+    public void renderPageToImage(int pageIndex, BufferedImage image, float scale,
+            RenderDestination destination) throws IOException
+    {
+        PDPage page = pageTree.get(pageIndex);
+        Dimension size = getImageSize(page, scale);
+
+        if (!image.getColorModel().hasAlpha() && hasBlendMode(page))
+        {
+            // PDFBOX-4095: draw on transparent background, see renderBand()
+            BufferedImage argbImage = createImage(image.getWidth(), image.getHeight(),
+                    BufferedImage.TYPE_INT_ARGB);
+            drawBand(page, scale, destination, argbImage, size, 0);
+            drawOnWhite(argbImage, image);
+            releaseImage(argbImage);
         }
         else
         {
-            image = new BufferedImage(widthPx, heightPx, bimType);
+            drawBand(page, scale, destination, image, size, 0);
         }
+    }
+
+    // draws the rows y to y + image height - 1 of the page image into the image
+    private void drawBand(PDPage page, float scale, RenderDestination destination,
+            BufferedImage image, Dimension size, int y) throws IOException
+    {
+        PDRectangle cropBox = page.getCropBox();
+        int height = image.getHeight();
 
         pageImage = image;
+        pageImageBottomOffset = size.height - y - height;
 
         // use a transparent background if the image type supports alpha
         Graphics2D g = image.createGraphics();
-        if (image.getType() == BufferedImage.TYPE_INT_ARGB)
+        if (image.getColorModel().hasAlpha())
         {
             g.setBackground(new Color(0, 0, 0, 0));
         }
@@ -331,7 +586,14 @@ public class PDFRenderer
             g.setBackground(Color.WHITE);
         }
         g.clearRect(0, 0, image.getWidth(), image.getHeight());
-        
+
+        if (height != size.height)
+        {
+            // move the band into view and clip everything else so that it is skipped early
+            g.translate(0, -y);
+            g.clipRect(0, y, size.width, height);
+        }
+
         transform(g, page.getRotation(), cropBox, scale, scale);
 
         // the end-user may provide a custom PageDrawer
@@ -339,26 +601,44 @@ public class PDFRenderer
                 renderingHints == null ? createDefaultRenderingHints(g) : renderingHints;
         PageDrawerParameters parameters =
                 new PageDrawerParameters(this, page, subsamplingAllowed, destination,
-                        actualRenderingHints, imageDownscalingOptimizationThreshold);
+                        actualRenderingHints, imageDownscalingOptimizationThreshold,
+                        cullingEnabled, rasterBufferPool);
         PageDrawer drawer = createPageDrawer(parameters);
         drawer.drawPage(g, cropBox);
         
         g.dispose();
+    }
 
-        if (image.getType() != imageType.toBufferedImageType())
+    // draws a transparent image on a white background
+    private static void drawOnWhite(BufferedImage image, BufferedImage target)
+    {
+        Graphics2D dstGraphics = target.createGraphics();
+        dstGraphics.setBackground(Color.WHITE);
+        dstGraphics.clearRect(0, 0, target.getWidth(), target.getHeight());
+        dstGraphics.drawImage(image, 0, 0, null);
+        dstGraphics.dispose();
+    }
+
+    private BufferedImage createImage(int width, int height, int imageType)
+    {
+        if (rasterBufferPool != null)
         {
-            // PDFBOX-4095: draw temporary transparent image on white background
-            BufferedImage newImage = 
-                    new BufferedImage(image.getWidth(), image.getHeight(), imageType.toBufferedImageType());
-            Graphics2D dstGraphics = newImage.createGraphics();
-            dstGraphics.setBackground(Color.WHITE);
-            dstGraphics.clearRect(0, 0, image.getWidth(), image.getHeight());
-            dstGraphics.drawImage(image, 0, 0, null);
-            dstGraphics.dispose();
-            image = newImage;
+            return rasterBufferPool.acquire(width, height, imageType);
         }
+        return new BufferedImage(width, height, imageType);
+    }
 
-        return image;
+    // gives back a temporary image, which may also be the backdrop of the page
+    private void releaseImage(BufferedImage image)
+    {
+        if (rasterBufferPool != null)
+        {
+            if (pageImage == image)
+            {
+                pageImage = null;
+            }
+            rasterBufferPool.release(image);
+        }
     }
 
     /**
@@ -449,7 +729,8 @@ public class PDFRenderer
                 renderingHints == null ? createDefaultRenderingHints(graphics) : renderingHints;
         PageDrawerParameters parameters =
                 new PageDrawerParameters(this, page, subsamplingAllowed, destination,
-                        actualRenderingHints, imageDownscalingOptimizationThreshold);
+                        actualRenderingHints, imageDownscalingOptimizationThreshold,
+                        cullingEnabled);
         PageDrawer drawer = createPageDrawer(parameters);
         drawer.drawPage(graphics, cropBox);
     }
@@ -579,6 +860,24 @@ public class PDFRenderer
         return pageImage;
     }
 
+    /**
+     * Returns the number of device rows between the bottom of the image returned by
+     * {@link #getPageImage()} and the bottom of the whole page. This is 0 unless the page is
+     * rendered in bands.
+     */
+    int getPageImageBottomOffset()
+    {
+        return pageImageBottomOffset;
+    }
+
+    /**
+     * Returns the cache of the rendered tiles of tiling patterns, which is shared by all pages.
+     */
+    TilingPatternCache getTilingPatternCache()
+    {
+        return tilingPatternCache;
+    }
+
     private static void suggestKCMS()
     {
         String cmmProperty = System.getProperty("sun.java2d.cmm");
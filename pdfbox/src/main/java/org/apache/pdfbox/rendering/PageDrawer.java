@@ -35,6 +35,7 @@ import java.awt.color.ColorSpace;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
@@ -168,6 +169,20 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     private final float imageDownscalingOptimizationThreshold;
     private LookupTable invTable = null;
 
+    // whether painting operations outside of the clipping path and the device are skipped
+    private final boolean cullingEnabled;
+
+    // pool for the intermediate images, null if they are allocated
+    private final RasterBufferPool rasterBufferPool;
+
+    // visible area of the device in the default user space, null if unknown
+    private Rectangle2D deviceBounds;
+
+    // bounds of the clipping paths intersected with the device bounds, cached for cullingClips
+    private List<Path2D> cullingClips;
+    private int cullingClipCount;
+    private Rectangle2D cullingBounds;
+
     /**
     * Default annotations filter, returns all annotations
     */
@@ -188,6 +203,8 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         this.renderingHints = parameters.getRenderingHints();
         this.imageDownscalingOptimizationThreshold =
                 parameters.getImageDownscalingOptimizationThreshold();
+        this.cullingEnabled = parameters.isCullingEnabled();
+        this.rasterBufferPool = parameters.getRasterBufferPool();
     }
 
     /**
@@ -222,6 +239,26 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         return renderer;
     }
 
+    RenderDestination getDestination()
+    {
+        return destination;
+    }
+
+    boolean isSubsamplingAllowed()
+    {
+        return subsamplingAllowed;
+    }
+
+    RenderingHints getRenderingHints()
+    {
+        return renderingHints;
+    }
+
+    float getImageDownscalingOptimizationThreshold()
+    {
+        return imageDownscalingOptimizationThreshold;
+    }
+
     /**
      * Returns the underlying Graphics2D. May be null if drawPage has not yet been called.
      * 
@@ -275,6 +312,12 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         // adjust for non-(0,0) crop box
         graphics.translate(-pageSize.getLowerLeftX(), -pageSize.getLowerLeftY());
 
+        if (cullingEnabled)
+        {
+            deviceBounds = getDeviceBounds();
+            cullingClips = null;
+        }
+
         processPage(getPage());
 
         for (PDAnnotation annotation : getPage().getAnnotations(annotationFilter))
@@ -314,9 +357,16 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         boolean savedFlipTG = flipTG;
         flipTG = true;
 
+        // the pattern cell is not drawn in the default user space of the page
+        Rectangle2D savedDeviceBounds = deviceBounds;
+        deviceBounds = null;
+        cullingClips = null;
+
         setRenderingHints();
         processTilingPattern(pattern, color, colorSpace, patternMatrix);
         
+        deviceBounds = savedDeviceBounds;
+        cullingClips = null;
         flipTG = savedFlipTG;
         graphics = savedGraphics;
         linePath = savedLinePath;
@@ -388,6 +438,136 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         }
     }
 
+    /**
+     * Returns the visible area of the graphics device in the default user space of the page, i.e.
+     * the bounds of the initial clip and, when rendering into an image, of the image itself.
+     *
+     * @return the visible area, or null if it is unknown.
+     */
+    private Rectangle2D getDeviceBounds()
+    {
+        Rectangle2D bounds = null;
+        GraphicsConfiguration graphicsConfiguration = graphics.getDeviceConfiguration();
+        if (graphicsConfiguration != null && graphicsConfiguration.getDevice() != null &&
+            graphicsConfiguration.getDevice().getType() == GraphicsDevice.TYPE_IMAGE_BUFFER)
+        {
+            bounds = graphicsConfiguration.getBounds();
+        }
+        if (initialClip != null)
+        {
+            Rectangle2D clipBounds = xform.createTransformedShape(initialClip).getBounds2D();
+            bounds = bounds == null ? clipBounds : bounds.createIntersection(clipBounds);
+        }
+        if (bounds == null)
+        {
+            return null;
+        }
+        // one pixel more because of antialiasing
+        bounds = new Rectangle2D.Double(bounds.getX() - 1, bounds.getY() - 1,
+                bounds.getWidth() + 2, bounds.getHeight() + 2);
+        try
+        {
+            return graphics.getTransform().createInverse().createTransformedShape(bounds)
+                    .getBounds2D();
+        }
+        catch (NoninvertibleTransformException ex)
+        {
+            LOG.debug("Culling against the device bounds is not possible", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether something with the given bounds is invisible because it is entirely outside
+     * of the current clipping path or of the device. This is only done if culling has been enabled
+     * with {@link PDFRenderer#setCullingEnabled(boolean)}. Subclasses may use this to skip costly
+     * painting operations.
+     *
+     * @param bounds bounds in the default user space of the page, e.g. of a transformed path.
+     * @return true if culling is enabled and the bounds are not visible.
+     */
+    protected final boolean isCulled(Rectangle2D bounds)
+    {
+        if (!cullingEnabled)
+        {
+            return false;
+        }
+        List<Path2D> clippingPaths = getGraphicsState().getCurrentClippingPaths();
+        if (clippingPaths != cullingClips || clippingPaths.size() != cullingClipCount)
+        {
+            // intersecting the bounds is conservative and much cheaper than intersecting the paths
+            Rectangle2D clipBounds = deviceBounds;
+            // one device pixel more because of antialiasing, like the device bounds
+            double pixel = 1 / Math.min(xformScalingFactorX, xformScalingFactorY);
+            for (Path2D path : clippingPaths)
+            {
+                Rectangle2D pathBounds = path.getBounds2D();
+                pathBounds = new Rectangle2D.Double(pathBounds.getX() - pixel,
+                        pathBounds.getY() - pixel, pathBounds.getWidth() + 2 * pixel,
+                        pathBounds.getHeight() + 2 * pixel);
+                clipBounds = clipBounds == null ? pathBounds : clipBounds.createIntersection(pathBounds);
+            }
+            // no culling if the size of a device pixel is unknown
+            cullingBounds = Double.isInfinite(pixel) || Double.isNaN(pixel) ? null : clipBounds;
+            cullingClips = clippingPaths;
+            cullingClipCount = clippingPaths.size();
+        }
+        if (cullingBounds == null)
+        {
+            return false;
+        }
+        // an empty intersection has a negative width or height, zero width bounds are still valid
+        return cullingBounds.getWidth() < 0 || cullingBounds.getHeight() < 0 ||
+               bounds.getMaxX() < cullingBounds.getMinX() ||
+               bounds.getMinX() > cullingBounds.getMaxX() ||
+               bounds.getMaxY() < cullingBounds.getMinY() ||
+               bounds.getMinY() > cullingBounds.getMaxY();
+    }
+
+    // crops the bounds of a transparency group to the device bounds by whole device pixels only,
+    // so that the pixel grid of the group image and thus the rendering result don't change
+    private Rectangle2D cropToDeviceBounds(Rectangle2D rect)
+    {
+        double minX = rect.getMinX() + Math.max(0,
+                Math.floor((deviceBounds.getMinX() - rect.getMinX()) * xformScalingFactorX))
+                / xformScalingFactorX;
+        double minY = rect.getMinY() + Math.max(0,
+                Math.floor((deviceBounds.getMinY() - rect.getMinY()) * xformScalingFactorY))
+                / xformScalingFactorY;
+        double maxX = rect.getMaxX() - Math.max(0,
+                Math.floor((rect.getMaxX() - deviceBounds.getMaxX()) * xformScalingFactorX))
+                / xformScalingFactorX;
+        double maxY = rect.getMaxY() - Math.max(0,
+                Math.floor((rect.getMaxY() - deviceBounds.getMaxY()) * xformScalingFactorY))
+                / xformScalingFactorY;
+        return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    // enlarges the bounds of a path by the extent of the current stroke
+    private Rectangle2D getStrokeBounds(Rectangle2D bounds)
+    {
+        PDGraphicsState state = getGraphicsState();
+        Matrix ctm = state.getCurrentTransformationMatrix();
+        // the largest factor by which the CTM stretches a length, i.e. its spectral norm
+        double a = ctm.getScaleX();
+        double b = ctm.getShearY();
+        double c = ctm.getShearX();
+        double d = ctm.getScaleY();
+        double sum = a * a + b * b + c * c + d * d;
+        double det = a * d - b * c;
+        double scale = Math.sqrt((sum + Math.sqrt(Math.max(0, sum * sum - 4 * det * det))) / 2);
+        // minimum line width as in getStroke()
+        double extent = Math.max(state.getLineWidth() * scale, 0.25) / 2;
+        // projecting square caps extend by sqrt(2) in the diagonal, miter joins by the miter limit
+        extent *= Math.sqrt(2);
+        if (state.getLineJoin() == BasicStroke.JOIN_MITER)
+        {
+            extent = Math.max(extent, extent / Math.sqrt(2) * state.getMiterLimit());
+        }
+        return new Rectangle2D.Double(bounds.getX() - extent, bounds.getY() - extent,
+                bounds.getWidth() + 2 * extent, bounds.getHeight() + 2 * extent);
+    }
+
     /**
      * Sets the clipping path using caching for performance. We track lastClip manually because
      * {@link Graphics2D#getClip()} returns a new object instead of the same one passed to
@@ -533,6 +713,15 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 }
             }
 
+            if (!renderingMode.isClip() && cullingEnabled)
+            {
+                Rectangle2D bounds = at.createTransformedShape(path.getBounds2D()).getBounds2D();
+                if (isCulled(renderingMode.isStroke() ? getStrokeBounds(bounds) : bounds))
+                {
+                    return;
+                }
+            }
+
             // render glyph
             Shape glyph = at.createTransformedShape(path);
 
@@ -619,7 +808,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             // sample file: PDFJS-6967_reduced_outside_softmask.pdf
             return parentPaint;
         }
-        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage gray = createImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
         if (COSName.ALPHA.equals(softMask.getSubType()))
         {
             gray.setData(image.getAlphaRaster());
@@ -634,6 +823,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         {
             throw new IOException("Invalid soft mask subtype.");
         }
+        releaseImage(image);
         gray = adjustImage(gray);
         
         Rectangle2D tpgBounds = transparencyGroup.getBounds();
@@ -659,10 +849,11 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             return gray;
         }
 
-        BufferedImage transformedGray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage transformedGray = createImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
         Graphics2D g2 = (Graphics2D) transformedGray.getGraphics();
         g2.drawImage(gray, at, null);
         g2.dispose();
+        releaseImage(gray);
         return transformedGray;
     }
 
@@ -782,7 +973,8 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     @Override
     public void strokePath() throws IOException
     {
-        if (isContentRendered())
+        if (isContentRendered() &&
+            !(cullingEnabled && isCulled(getStrokeBounds(linePath.getBounds2D()))))
         {
             graphics.setComposite(getGraphicsState().getStrokingJavaComposite());
             graphics.setPaint(getStrokingPaint());
@@ -796,6 +988,12 @@ public class PageDrawer extends PDFGraphicsStreamEngine
     @Override
     public void fillPath(int windingRule) throws IOException
     {
+        Rectangle2D bounds = linePath.getBounds2D();
+        if (isCulled(bounds))
+        {
+            linePath.reset();
+            return;
+        }
         PDGraphicsState graphicsState = getGraphicsState();
         graphics.setComposite(graphicsState.getNonStrokingJavaComposite());
         setClip();
@@ -805,7 +1003,6 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         // which occur when solid fills are used to simulate piecewise gradients, see PDFBOX-2302
         // note that we ignore paths with a width/height under 1 as these are fills used as strokes,
         // see PDFBOX-1658 for an example
-        Rectangle2D bounds = linePath.getBounds2D();
         boolean noAntiAlias = isRectangular(linePath) && bounds.getWidth() > 1 &&
                                                          bounds.getHeight() > 1;
         if (noAntiAlias)
@@ -1018,6 +1215,13 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
         AffineTransform at = ctm.createAffineTransform();
 
+        // don't even decode images that are not visible
+        if (cullingEnabled &&
+            isCulled(at.createTransformedShape(new Rectangle2D.Float(0, 0, 1, 1)).getBounds2D()))
+        {
+            return;
+        }
+
         if (!pdImage.getInterpolate())
         {
             // if the image is scaled down, we use smooth interpolation, eg PDFBOX-2364
@@ -1067,7 +1271,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 Rectangle2D bounds = at.createTransformedShape(unitRect).getBounds2D();
                 int w = (int) Math.ceil(bounds.getWidth());
                 int h = (int) Math.ceil(bounds.getHeight());
-                BufferedImage renderedPaint = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+                BufferedImage renderedPaint = createImage(w, h, BufferedImage.TYPE_INT_ARGB);
                 Graphics2D g = (Graphics2D) renderedPaint.getGraphics();
                 g.translate(-bounds.getMinX(), -bounds.getMinY());
                 g.setPaint(paint);
@@ -1105,7 +1309,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                     mask = new LookupOp(getInvLookupTable(), graphics.getRenderingHints()).filter(mask, tmp);
                 }
 
-                BufferedImage renderedMask = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+                BufferedImage renderedMask = createImage(w, h, BufferedImage.TYPE_INT_RGB);
                 g = (Graphics2D) renderedMask.getGraphics();
                 g.translate(-bounds.getMinX(), -bounds.getMinY());
                 g.setRenderingHints(graphics.getRenderingHints());
@@ -1149,10 +1353,13 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                     }
                 }
 
+                releaseImage(renderedMask);
+
                 // draw the image
                 graphics.drawImage(renderedPaint,
                         AffineTransform.getTranslateInstance(bounds.getMinX(), bounds.getMinY()),
                         null);
+                releaseImage(renderedPaint);
             }
             else
             {
@@ -1423,7 +1630,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 area = getGraphicsState().getCurrentClippingPath();
             }
         }
-        if (!area.isEmpty())
+        if (!area.isEmpty() && !isCulled(area.getBounds2D()))
         {
             // creating Paint is sometimes a costly operation, so avoid if possible
             Paint paint = shading.toPaint(ctm);
@@ -1472,6 +1679,14 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         {
             return;
         }
+        if (cullingEnabled && !annotation.isNoRotate())
+        {
+            PDRectangle rect = annotation.getRectangle();
+            if (rect != null && isCulled(rect.toGeneralPath().getBounds2D()))
+            {
+                return;
+            }
+        }
 
         PDAppearanceDictionary appearance = annotation.getAppearance();
         if (appearance == null || appearance.getNormalAppearance() == null)
@@ -1505,6 +1720,15 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         {
             return;
         }
+        if (cullingEnabled && form.getBBox() != null)
+        {
+            Matrix m = Matrix.concatenate(getGraphicsState().getCurrentTransformationMatrix(),
+                    form.getMatrix());
+            if (isCulled(form.getBBox().transform(m).getBounds2D()))
+            {
+                return;
+            }
+        }
         if (isContentRendered())
         {
             GeneralPath savedLinePath = linePath;
@@ -1596,6 +1820,30 @@ public class PageDrawer extends PDFGraphicsStreamEngine
         }
 
         graphics.setTransform(savedTransform);
+        // a Graphics2D of a subclass might still use the image after drawImage() returns
+        if (graphics == this.graphics)
+        {
+            releaseImage(image);
+        }
+    }
+
+    // returns a new image or an image from the pool
+    private BufferedImage createImage(int width, int height, int imageType)
+    {
+        if (rasterBufferPool != null)
+        {
+            return rasterBufferPool.acquire(width, height, imageType);
+        }
+        return new BufferedImage(width, height, imageType);
+    }
+
+    // gives back an intermediate image that has been drawn
+    private void releaseImage(BufferedImage image)
+    {
+        if (rasterBufferPool != null)
+        {
+            rasterBufferPool.release(image);
+        }
     }
 
     /**
@@ -1650,6 +1898,11 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             Area transformed = new Area(transformedBox);
             transformed.intersect(getGraphicsState().getCurrentClippingPath());
             Rectangle2D clipRect = transformed.getBounds2D();
+            if (cullingEnabled && deviceBounds != null && !clipRect.isEmpty())
+            {
+                // only the visible part of the group is needed
+                clipRect = cropToDeviceBounds(clipRect);
+            }
             if (clipRect.isEmpty())
             {
                 image = null;
@@ -1685,7 +1938,7 @@ public class PageDrawer extends PDFGraphicsStreamEngine
             }
             else
             {
-                image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                image = createImage(width, height, BufferedImage.TYPE_INT_ARGB);
             }
 
             boolean needsBackdrop = !isSoftMask && !form.getGroup().isIsolated() &&
@@ -1707,7 +1960,8 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                     else
                     {
                         backdropX = minX;
-                        backdropY = backdropImage.getHeight() - maxY;
+                        backdropY = backdropImage.getHeight()
+                                + renderer.getPageImageBottomOffset() - maxY;
                     }
                 }
                 else
@@ -1725,7 +1979,8 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 // backdropImage must be included in group image but not in group alpha.
                 g.drawImage(backdropImage, 0, 0, width, height,
                     backdropX, backdropY, backdropX + width, backdropY + height, null);
-                g = new GroupGraphics(image, g);
+                g = new GroupGraphics(image, g,
+                        createImage(width, height, BufferedImage.TYPE_INT_ARGB));
             }
             if (isSoftMask && backdropColor != null)
             {
@@ -1788,6 +2043,10 @@ public class PageDrawer extends PDFGraphicsStreamEngine
                 flipTG = savedFlipTG;
                 lastClips = savedLastClips;
                 graphics.dispose();
+                if (graphics instanceof GroupGraphics)
+                {
+                    releaseImage(((GroupGraphics) graphics).getGroupAlphaImage());
+                }
                 graphics = savedGraphics;
                 initialClip = savedInitialClip;
                 clipWindingRule = clipWindingRuleOriginal;
@@ -36,13 +36,27 @@ public final class PageDrawerParameters
     private final RenderDestination destination; 
     private final RenderingHints renderingHints;
     private final float imageDownscalingOptimizationThreshold;
+    private final boolean cullingEnabled;
+    private final RasterBufferPool rasterBufferPool;
 
     /**
      * Package-private constructor.
      */
     PageDrawerParameters(PDFRenderer renderer, PDPage page, boolean subsamplingAllowed,
                          RenderDestination destination, RenderingHints renderingHints,
-                         float imageDownscalingOptimizationThreshold)
+                         float imageDownscalingOptimizationThreshold, boolean cullingEnabled)
+    {
+        this(renderer, page, subsamplingAllowed, destination, renderingHints,
+                imageDownscalingOptimizationThreshold, cullingEnabled, null);
+    }
+
+    /**
+     * Package-private constructor.
+     */
+    PageDrawerParameters(PDFRenderer renderer, PDPage page, boolean subsamplingAllowed,
+                         RenderDestination destination, RenderingHints renderingHints,
+                         float imageDownscalingOptimizationThreshold, boolean cullingEnabled,
+                         RasterBufferPool rasterBufferPool)
     {
         this.renderer = renderer;
         this.page = page;
@@ -50,6 +64,8 @@ public final class PageDrawerParameters
         this.destination = destination;
         this.renderingHints = renderingHints;
         this.imageDownscalingOptimizationThreshold = imageDownscalingOptimizationThreshold;
+        this.cullingEnabled = cullingEnabled;
+        this.rasterBufferPool = rasterBufferPool;
     }
 
     /**
@@ -107,4 +123,25 @@ public final class PageDrawerParameters
     {
         return imageDownscalingOptimizationThreshold;
     }
+
+    /**
+     * Returns whether painting operations outside of the visible area are skipped.
+     *
+     * @return true if culling is enabled
+     */
+    public boolean isCullingEnabled()
+    {
+        return cullingEnabled;
+    }
+
+    /**
+     * Returns the pool for the intermediate images. This is only set when rendering into an
+     * image.
+     *
+     * @return the pool, or null
+     */
+    RasterBufferPool getRasterBufferPool()
+    {
+        return rasterBufferPool;
+    }
 }
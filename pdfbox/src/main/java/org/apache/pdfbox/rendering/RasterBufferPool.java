@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.util.BoundedCache;
+
+/**
+ * A bounded pool of images that are reused for rendering, to avoid the allocation of large
+ * pixel buffers for each page. Applications that render many pages, e.g. thumbnailers, can set a
+ * pool with {@link PDFRenderer#setRasterBufferPool(RasterBufferPool)}; the renderer then takes
+ * the page images and the intermediate images of transparency groups, soft masks and stenciled
+ * patterns from the pool and returns the intermediate images when they aren't needed anymore. The
+ * page images returned by the renderer can be given back with {@link #release(BufferedImage)}
+ * when the application is done with them.
+ *
+ * <p>The images are kept by their size and type. The pool accounts the memory of the kept images
+ * and drops the images of the least recently used sizes when its maximum size is exceeded. The
+ * default maximum size is 1/16 of the maximum heap size and can be changed with the system
+ * property {@code pdfbox.rendering.rasterpool.maxsize} (in bytes).
+ *
+ * <p>This class is thread safe, so a pool can be shared by several renderers.
+ */
+public final class RasterBufferPool
+{
+    private final Map<Key, Deque<BufferedImage>> images = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, ColorModel> colorModels = new HashMap<>();
+    private final long maxSize;
+    private long size;
+
+    /**
+     * Creates a new pool with the default maximum size.
+     */
+    public RasterBufferPool()
+    {
+        this(BoundedCache.getMaxSize("pdfbox.rendering.rasterpool.maxsize",
+                Runtime.getRuntime().maxMemory() / 16));
+    }
+
+    /**
+     * Creates a new pool.
+     *
+     * @param maxSize the maximum size of the pixel data of all kept images, in bytes.
+     */
+    public RasterBufferPool(long maxSize)
+    {
+        this.maxSize = Math.max(0, maxSize);
+    }
+
+    /**
+     * Returns an image from the pool, or a new image if there is none with the given size and type.
+     * Like a new image, the returned image has all pixel data set to 0.
+     *
+     * @param width the width of the image.
+     * @param height the height of the image.
+     * @param imageType the type of the image, one of the predefined types of {@link BufferedImage}
+     * except {@link BufferedImage#TYPE_CUSTOM}.
+     * @return an image.
+     */
+    public BufferedImage acquire(int width, int height, int imageType)
+    {
+        BufferedImage image = null;
+        synchronized (this)
+        {
+            Deque<BufferedImage> deque = images.get(new Key(width, height, imageType));
+            if (deque != null && !deque.isEmpty())
+            {
+                image = deque.pollFirst();
+                size -= BoundedCache.getSize(image);
+                if (deque.isEmpty())
+                {
+                    images.remove(new Key(width, height, imageType));
+                }
+            }
+        }
+        if (image == null)
+        {
+            return new BufferedImage(width, height, imageType);
+        }
+        clear(image.getRaster());
+        return image;
+    }
+
+    /**
+     * Returns an image to the pool. The image must not be used anymore by the caller. Images that
+     * are larger than a quarter of the maximum size, subimages, images of custom types and images
+     * that are already in the pool are ignored.
+     *
+     * @param image the image, may be null.
+     */
+    public void release(BufferedImage image)
+    {
+        if (image == null || !isPoolable(image))
+        {
+            return;
+        }
+        long imageSize = BoundedCache.getSize(image);
+        synchronized (this)
+        {
+            if (imageSize > maxSize / 4)
+            {
+                return;
+            }
+            Key key = new Key(image.getWidth(), image.getHeight(), image.getType());
+            Deque<BufferedImage> deque = images.computeIfAbsent(key, k -> new ArrayDeque<>());
+            for (BufferedImage pooled : deque)
+            {
+                if (pooled == image)
+                {
+                    return;
+                }
+            }
+            deque.addFirst(image);
+            size += imageSize;
+            Iterator<Deque<BufferedImage>> it = images.values().iterator();
+            while (size > maxSize && it.hasNext())
+            {
+                // the iteration order of the map is from the least to the most recently used
+                Deque<BufferedImage> eldest = it.next();
+                while (size > maxSize && !eldest.isEmpty())
+                {
+                    size -= BoundedCache.getSize(eldest.pollLast());
+                }
+                if (eldest.isEmpty())
+                {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all images from the pool.
+     */
+    public synchronized void clear()
+    {
+        images.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the size of the pixel data of all kept images.
+     *
+     * @return the current size in bytes.
+     */
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    // only images that are exactly like the images created by acquire() can be reused
+    private boolean isPoolable(BufferedImage image)
+    {
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_CUSTOM)
+        {
+            return false;
+        }
+        WritableRaster raster = image.getRaster();
+        if (raster.getParent() != null || raster.getMinX() != 0 || raster.getMinY() != 0 ||
+            raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0)
+        {
+            return false;
+        }
+        ColorModel colorModel;
+        synchronized (this)
+        {
+            colorModel = colorModels.computeIfAbsent(type,
+                    t -> new BufferedImage(1, 1, t).getColorModel());
+        }
+        return colorModel.equals(image.getColorModel()) &&
+               image.getPropertyNames() == null;
+    }
+
+    // clears through the raster instead of the data arrays, because getting the arrays of a data
+    // buffer prevents Java2D from accelerating the image
+    private static void clear(WritableRaster raster)
+    {
+        int width = raster.getWidth();
+        int[] zeros = new int[width];
+        for (int y = 0; y < raster.getHeight(); y++)
+        {
+            for (int band = 0; band < raster.getNumBands(); band++)
+            {
+                raster.setSamples(0, y, width, 1, band, zeros);
+            }
+        }
+    }
+
+    private static final class Key
+    {
+        private final int width;
+        private final int height;
+        private final int type;
+
+        Key(int width, int height, int type)
+        {
+            this.width = width;
+            this.height = height;
+            this.type = type;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (31 * width + height) * 31 + type;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return width == other.width && height == other.height && type == other.type;
+        }
+    }
+}
@@ -26,7 +26,12 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
 import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
 
@@ -57,13 +62,17 @@ class SoftMask implements Paint
     private final BufferedImage mask;
     private final Rectangle2D bboxDevice;
     private int bc = 0;
-    private final PDFunction transferFunction;
+
+    // the factors for the alpha values of the paint for each gray value of the mask, with the
+    // transfer function applied, and the factor outside of the mask
+    private final float[] alphaFactors = new float[256];
+    private final float outsideFactor;
 
     /**
      * Creates a new soft mask paint.
      *
      * @param paint underlying paint.
-     * @param mask soft mask
+     * @param mask soft mask, a TYPE_BYTE_GRAY image
      * @param bboxDevice bbox of the soft mask in the underlying Graphics2D device space
      * @param backdropColor the color to be used outside the transparency group’s bounding box; if
      * null, black will be used.
@@ -76,11 +85,7 @@ class SoftMask implements Paint
         this.bboxDevice = bboxDevice;
         if (transferFunction instanceof PDFunctionTypeIdentity)
         {
-            this.transferFunction = null;
-        }
-        else
-        {
-            this.transferFunction = transferFunction;
+            transferFunction = null;
         }
         if (backdropColor != null)
         {
@@ -96,6 +101,28 @@ class SoftMask implements Paint
                 LOG.debug("Couldn't convert backdropColor to RGB - keeping default", ex);
             }
         }
+        outsideFactor = bc / 255f;
+        float[] input = new float[1];
+        for (int g = 0; g < 256; g++)
+        {
+            if (transferFunction == null)
+            {
+                alphaFactors[g] = g / 255f;
+                continue;
+            }
+            // apply transfer function
+            try
+            {
+                input[0] = g / 255f;
+                alphaFactors[g] = transferFunction.eval(input)[0];
+            }
+            catch (IOException ex)
+            {
+                // ignore exception, treat as outside
+                LOG.debug("Couldn't apply transferFunction - treating as outside", ex);
+                alphaFactors[g] = outsideFactor;
+            }
+        }
     }
 
     @Override
@@ -116,6 +143,7 @@ class SoftMask implements Paint
     private class SoftPaintContext implements PaintContext
     {
         private final PaintContext context;
+        private WritableRaster output;
 
         SoftPaintContext(PaintContext context)
         {
@@ -133,82 +161,106 @@ class SoftMask implements Paint
         {
             Raster raster = context.getRaster(x1, y1, w, h);
             ColorModel rasterCM = context.getColorModel();
-            float[] input = null;
-            Float[] map = null;
 
-            if (transferFunction != null)
+            // buffer, reused for the following calls like in the paint contexts of the JDK
+            if (output == null || output.getWidth() < w || output.getHeight() < h)
             {
-                map = new Float[256];
-                input = new float[1];
+                output = getColorModel().createCompatibleWritableRaster(w, h);
             }
-
-            // buffer
-            WritableRaster output = getColorModel().createCompatibleWritableRaster(w, h);
+            int[] outputData = ((DataBufferInt) output.getDataBuffer()).getData();
+            int outputStride = output.getWidth();
 
             // the soft mask has its own bbox
-            x1 = x1 - (int)bboxDevice.getX();
-            y1 = y1 - (int)bboxDevice.getY();
+            // floor and not cast, the bbox may start left of or above the device
+            x1 = x1 - (int) Math.floor(bboxDevice.getX());
+            y1 = y1 - (int) Math.floor(bboxDevice.getY());
+
+            boolean intRGB = isIntRGB(rasterCM, raster);
+            boolean hasAlpha = rasterCM.hasAlpha();
+            int[] rasterData = null;
+            int rasterStride = 0;
+            int rasterOffset = 0;
+            if (intRGB)
+            {
+                SinglePixelPackedSampleModel sampleModel =
+                        (SinglePixelPackedSampleModel) raster.getSampleModel();
+                rasterData = ((DataBufferInt) raster.getDataBuffer()).getData();
+                rasterStride = sampleModel.getScanlineStride();
+                rasterOffset = raster.getDataBuffer().getOffset() +
+                        sampleModel.getOffset(raster.getMinX() - raster.getSampleModelTranslateX(),
+                                raster.getMinY() - raster.getSampleModelTranslateY());
+            }
 
-            int[] gray = new int[4];
+            Raster maskRaster = mask.getRaster();
+            int maskWidth = mask.getWidth();
+            int maskHeight = mask.getHeight();
+            int[] gray = new int[1];
             Object pixelInput = null;
-            int[] pixelOutput = new int[4];
             for (int y = 0; y < h; y++)
             {
+                int my = y1 + y;
+                boolean rowInMask = my >= 0 && my < maskHeight;
+                byte[] maskData = null;
+                int maskIndex = 0;
+                int maskPixelStride = 0;
+                if (rowInMask && maskRaster.getSampleModel() instanceof ComponentSampleModel &&
+                    maskRaster.getDataBuffer() instanceof DataBufferByte)
+                {
+                    ComponentSampleModel sampleModel =
+                            (ComponentSampleModel) maskRaster.getSampleModel();
+                    maskData = ((DataBufferByte) maskRaster.getDataBuffer()).getData();
+                    maskPixelStride = sampleModel.getPixelStride();
+                    maskIndex = maskRaster.getDataBuffer().getOffset() +
+                            sampleModel.getOffset(x1 - maskRaster.getSampleModelTranslateX(),
+                                    my - maskRaster.getSampleModelTranslateY());
+                }
                 for (int x = 0; x < w; x++)
                 {
-                    pixelInput = raster.getDataElements(x, y, pixelInput);
+                    int argb;
+                    if (intRGB)
+                    {
+                        int pixel = rasterData[rasterOffset + y * rasterStride + x];
+                        argb = hasAlpha ? pixel : pixel | 0xff000000;
+                    }
+                    else
+                    {
+                        pixelInput = raster.getDataElements(x, y, pixelInput);
+                        argb = rasterCM.getAlpha(pixelInput) << 24 |
+                                rasterCM.getRed(pixelInput) << 16 |
+                                rasterCM.getGreen(pixelInput) << 8 |
+                                rasterCM.getBlue(pixelInput);
+                    }
 
-                    pixelOutput[0] = rasterCM.getRed(pixelInput);
-                    pixelOutput[1] = rasterCM.getGreen(pixelInput);
-                    pixelOutput[2] = rasterCM.getBlue(pixelInput);
-                    pixelOutput[3] = rasterCM.getAlpha(pixelInput);
-                    
                     // get the alpha value from the gray mask, if within mask bounds
-                    gray[0] = 0;
-                    if (x1 + x >= 0 && y1 + y >= 0 && x1 + x < mask.getWidth() && y1 + y < mask.getHeight())
+                    float factor;
+                    int mx = x1 + x;
+                    if (rowInMask && mx >= 0 && mx < maskWidth)
                     {
-                        mask.getRaster().getPixel(x1 + x, y1 + y, gray);
-                        int g = gray[0];
-                        if (transferFunction != null)
+                        int g;
+                        if (maskData != null)
                         {
-                            // apply transfer function
-                            try
-                            {
-                                if (map[g] != null)
-                                {
-                                    // was calculated before
-                                    pixelOutput[3] = Math.round(pixelOutput[3] * map[g]);
-                                }
-                                else
-                                {
-                                    // calculate and store in map
-                                    input[0] = g / 255f;
-                                    float f = transferFunction.eval(input)[0];
-                                    map[g] = f;
-                                    pixelOutput[3] = Math.round(pixelOutput[3] * f);
-                                }
-                            }
-                            catch (IOException ex)
-                            {
-                                // ignore exception, treat as outside
-                                LOG.debug("Couldn't apply transferFunction - treating as outside", ex);
-                                pixelOutput[3] = Math.round(pixelOutput[3] * (bc / 255f));
-                            }
+                            g = maskData[maskIndex + x * maskPixelStride] & 0xff;
                         }
                         else
                         {
-                            pixelOutput[3] = Math.round(pixelOutput[3] * (g / 255f));
+                            g = maskRaster.getPixel(mx, my, gray)[0];
                         }
+                        factor = alphaFactors[g];
                     }
                     else
                     {
-                        pixelOutput[3] = Math.round(pixelOutput[3] * (bc / 255f));
+                        factor = outsideFactor;
                     }
-                    output.setPixel(x, y, pixelOutput);
+                    int alpha = Math.round((argb >>> 24) * factor);
+                    outputData[y * outputStride + x] = alpha << 24 | argb & 0xffffff;
                 }
             }
 
-            return output;
+            if (output.getWidth() == w && output.getHeight() == h)
+            {
+                return output;
+            }
+            return output.createChild(0, 0, w, h, 0, 0, null);
         }
 
         @Override
@@ -217,4 +269,28 @@ class SoftMask implements Paint
             context.dispose();
         }
     }
+
+    /**
+     * Returns true if the pixels of the raster are non-premultiplied 8 bit sRGB values packed into
+     * ints, like in TYPE_INT_ARGB and TYPE_INT_RGB images.
+     */
+    private static boolean isIntRGB(ColorModel colorModel, Raster raster)
+    {
+        if (!(colorModel instanceof DirectColorModel) || colorModel.isAlphaPremultiplied() ||
+            !colorModel.getColorSpace().isCS_sRGB() ||
+            !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel) ||
+            !(raster.getDataBuffer() instanceof DataBufferInt))
+        {
+            return false;
+        }
+        DirectColorModel directColorModel = (DirectColorModel) colorModel;
+        int[] masks = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getBitMasks();
+        return directColorModel.getRedMask() == 0xff0000 &&
+                directColorModel.getGreenMask() == 0xff00 &&
+                directColorModel.getBlueMask() == 0xff &&
+                (!directColorModel.hasAlpha() || directColorModel.getAlphaMask() == 0xff000000) &&
+                masks.length == colorModel.getNumComponents() && masks[0] == 0xff0000 &&
+                masks[1] == 0xff00 && masks[2] == 0xff &&
+                (masks.length == 3 || masks[3] == 0xff000000);
+    }
 }
@@ -137,6 +137,16 @@ class TilingPaint implements Paint
         width *= xScale;
         height *= yScale;
 
+        // the tile doesn't depend on the page, reuse it if it has been rendered before
+        TilingPatternCache cache = drawer.getRenderer().getTilingPatternCache();
+        TilingPatternCache.Key key = new TilingPatternCache.Key(drawer, pattern.getCOSObject(),
+                colorSpace, color, xScale, yScale);
+        BufferedImage cachedImage = cache.get(key);
+        if (cachedImage != null)
+        {
+            return cachedImage;
+        }
+
         int rasterWidth = Math.max(1, ceiling(width));
         int rasterHeight = Math.max(1, ceiling(height));
 
@@ -175,6 +185,7 @@ class TilingPaint implements Paint
         drawer.drawTilingPattern(graphics, pattern, colorSpace, color, newPatternMatrix);
         graphics.dispose();
 
+        cache.put(key, image);
         return image;
     }
 
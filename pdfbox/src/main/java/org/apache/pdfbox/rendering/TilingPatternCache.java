@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.util.BoundedCache;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * A bounded cache of the rendered tiles of tiling patterns, kept by a {@link PDFRenderer} for all
+ * pages of its document. {@link TilingPaintFactory} only reuses paints within a page, so without
+ * this cache a pattern that is used on every page, e.g. a hatching or a background texture, would
+ * be rendered again for each page.
+ *
+ * <p>The tiles are keyed by the pattern dictionary, the initial matrix of the page, the scaling of
+ * the device transform, the color of uncolored patterns and the settings of the page drawer. The
+ * translation of the device transform doesn't change the tile, so the tiles are also shared by
+ * the bands of a page and by pages with a different position of the pattern.
+ *
+ * <p>The cache accounts the memory of the tiles and removes the least recently used tiles when its
+ * maximum size is exceeded. The default maximum size is 1/32 of the maximum heap size and can be
+ * changed with the system property {@code pdfbox.rendering.tilecache.maxsize} (in bytes); 0
+ * disables the cache.
+ */
+final class TilingPatternCache
+{
+    private static final long DEFAULT_MAX_SIZE = BoundedCache.getMaxSize(
+            "pdfbox.rendering.tilecache.maxsize", Runtime.getRuntime().maxMemory() / 32);
+
+    private final BoundedCache<Key, BufferedImage> tiles;
+
+    /**
+     * Creates a new cache with the default maximum size.
+     */
+    TilingPatternCache()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum size of the pixel data of all cached tiles, in bytes.
+     */
+    TilingPatternCache(long maxSize)
+    {
+        tiles = new BoundedCache<>(maxSize, BoundedCache::getSize);
+    }
+
+    /**
+     * Returns a cached tile.
+     *
+     * @param key the key of the tile.
+     * @return the cached tile, or null if there is none.
+     */
+    synchronized BufferedImage get(Key key)
+    {
+        return tiles.get(key);
+    }
+
+    /**
+     * Adds a tile to the cache. Tiles that are larger than a quarter of the maximum size are not
+     * cached. The tile must not be modified afterwards.
+     *
+     * @param key the key of the tile.
+     * @param tile the rendered tile.
+     */
+    synchronized void put(Key key, BufferedImage tile)
+    {
+        tiles.put(key, tile);
+    }
+
+    /**
+     * Returns the size of the pixel data of all cached tiles.
+     *
+     * @return the current size in bytes.
+     */
+    synchronized long getSize()
+    {
+        return tiles.getSize();
+    }
+
+    /**
+     * Everything that the rendered tile of a tiling pattern depends on.
+     */
+    static final class Key
+    {
+        private final COSDictionary patternDict;
+        private final Matrix initialMatrix;
+        private final float xScale;
+        private final float yScale;
+        private final COSBase colorSpace;
+        private final float[] components;
+        private final RenderDestination destination;
+        private final boolean subsamplingAllowed;
+        private final float imageDownscalingOptimizationThreshold;
+        private final RenderingHints renderingHints;
+        private final int hash;
+
+        /**
+         * Creates a key.
+         *
+         * @param drawer the page drawer that renders the tile.
+         * @param patternDict the pattern dictionary.
+         * @param colorSpace the color space of an uncolored pattern, or null.
+         * @param color the color of an uncolored pattern, or null.
+         * @param xScale the horizontal scaling of the device transform.
+         * @param yScale the vertical scaling of the device transform.
+         */
+        Key(PageDrawer drawer, COSDictionary patternDict, PDColorSpace colorSpace, PDColor color,
+                float xScale, float yScale)
+        {
+            this.patternDict = patternDict;
+            Matrix matrix = drawer.getInitialMatrix();
+            this.initialMatrix = matrix != null ? matrix.clone() : null;
+            this.xScale = xScale;
+            this.yScale = yScale;
+            this.colorSpace = colorSpace != null ? colorSpace.getCOSObject() : null;
+            this.components = color != null ? color.getComponents() : null;
+            this.destination = drawer.getDestination();
+            this.subsamplingAllowed = drawer.isSubsamplingAllowed();
+            this.imageDownscalingOptimizationThreshold =
+                    drawer.getImageDownscalingOptimizationThreshold();
+            RenderingHints hints = drawer.getRenderingHints();
+            this.renderingHints = hints != null ? (RenderingHints) hints.clone() : null;
+            int h = System.identityHashCode(patternDict);
+            h = 31 * h + Objects.hashCode(initialMatrix);
+            h = 31 * h + Float.hashCode(xScale);
+            h = 31 * h + Float.hashCode(yScale);
+            h = 31 * h + Arrays.hashCode(components);
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return patternDict == other.patternDict &&
+                    Objects.equals(initialMatrix, other.initialMatrix) &&
+                    Float.compare(xScale, other.xScale) == 0 &&
+                    Float.compare(yScale, other.yScale) == 0 &&
+                    Objects.equals(colorSpace, other.colorSpace) &&
+                    Arrays.equals(components, other.components) &&
+                    destination == other.destination &&
+                    subsamplingAllowed == other.subsamplingAllowed &&
+                    Float.compare(imageDownscalingOptimizationThreshold,
+                            other.imageDownscalingOptimizationThreshold) == 0 &&
+                    Objects.equals(renderingHints, other.renderingHints);
+        }
+    }
+}
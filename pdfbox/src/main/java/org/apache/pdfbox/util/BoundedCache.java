@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A map which is bounded by the total size of its values, e.g. the memory of cached images. When
+ * the maximum size is exceeded, the least recently used entries are removed. Values that are
+ * larger than a quarter of the maximum size are not added, to avoid that a single huge value
+ * displaces all other values.
+ *
+ * <p>This class is not thread safe, the caches which use it synchronize the access.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class BoundedCache<K, V>
+{
+    private static final Log LOG = LogFactory.getLog(BoundedCache.class);
+
+    // the iteration order of the map is from the least to the most recently used
+    private final Map<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ToLongFunction<? super V> sizeFunction;
+    private long maxSize;
+    private long size;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum size of all values, 0 disables the cache.
+     * @param sizeFunction returns the size of a value, which must not change while it is cached.
+     */
+    public BoundedCache(long maxSize, ToLongFunction<? super V> sizeFunction)
+    {
+        this.maxSize = Math.max(0, maxSize);
+        this.sizeFunction = sizeFunction;
+    }
+
+    /**
+     * Returns the maximum size that is set with a system property, in bytes.
+     *
+     * @param property the name of the system property.
+     * @param defaultMaxSize the maximum size if the property isn't set or isn't a number.
+     * @return the maximum size.
+     */
+    public static long getMaxSize(String property, long defaultMaxSize)
+    {
+        String s = System.getProperty(property);
+        if (s != null)
+        {
+            try
+            {
+                return Long.parseLong(s);
+            }
+            catch (NumberFormatException ex)
+            {
+                LOG.error("Default will be used", ex);
+            }
+        }
+        return defaultMaxSize;
+    }
+
+    /**
+     * Returns the size of the pixel data of an image.
+     *
+     * @param image the image.
+     * @return the size in bytes.
+     */
+    public static long getSize(BufferedImage image)
+    {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() *
+                DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+    }
+
+    /**
+     * Returns a value and marks it as recently used.
+     *
+     * @param key the key.
+     * @return the value, or null if there is none.
+     */
+    public V get(Object key)
+    {
+        return entries.get(key);
+    }
+
+    /**
+     * Adds a value and removes the least recently used values if the maximum size is exceeded.
+     *
+     * @param key the key.
+     * @param value the value.
+     * @return true if the value was added, false if it is too large.
+     */
+    public boolean put(K key, V value)
+    {
+        long valueSize = sizeFunction.applyAsLong(value);
+        if (maxSize == 0 || valueSize > maxSize / 4)
+        {
+            return false;
+        }
+        V previous = entries.put(key, value);
+        if (previous != null)
+        {
+            size -= sizeFunction.applyAsLong(previous);
+        }
+        size += valueSize;
+        trimToSize();
+        return true;
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param key the key.
+     * @return the removed value, or null if there was none.
+     */
+    public V remove(Object key)
+    {
+        V value = entries.remove(key);
+        if (value != null)
+        {
+            size -= sizeFunction.applyAsLong(value);
+        }
+        return value;
+    }
+
+    /**
+     * Removes the values whose keys match a filter.
+     *
+     * @param filter the filter of the keys.
+     */
+    public void removeIf(Predicate<? super K> filter)
+    {
+        Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+        while (it.hasNext())
+        {
+            Map.Entry<K, V> entry = it.next();
+            if (filter.test(entry.getKey()))
+            {
+                size -= sizeFunction.applyAsLong(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear()
+    {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the total size of the values.
+     *
+     * @return the current size.
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the maximum size of the values.
+     *
+     * @return the maximum size.
+     */
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum size of the values. Values are removed if the cache is larger than the new
+     * size.
+     *
+     * @param maxSize the maximum size, 0 disables the cache.
+     */
+    public void setMaxSize(long maxSize)
+    {
+        this.maxSize = Math.max(0, maxSize);
+        trimToSize();
+    }
+
+    private void trimToSize()
+    {
+        Iterator<V> it = entries.values().iterator();
+        while (size > maxSize && it.hasNext())
+        {
+            size -= sizeFunction.applyAsLong(it.next());
+            it.remove();
+        }
+    }
+}
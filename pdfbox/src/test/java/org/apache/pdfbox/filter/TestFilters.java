@@ -17,7 +17,13 @@
 package org.apache.pdfbox.filter;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -25,6 +31,8 @@ import java.io.IOException;
 
 import java.util.Random;
 
+import javax.imageio.ImageIO;
+
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
@@ -176,6 +184,60 @@ class TestFilters
         checkEncodeDecode(rleFilter, input8);
     }
 
+    /**
+     * Test that JPEG 2000 images that are decoded with subsampling, which may be done by decoding
+     * a lower resolution level, have the expected size and content.
+     *
+     * @throws IOException
+     */
+    @Test
+    void testJPXSubsampling() throws IOException
+    {
+        BufferedImage image = new BufferedImage(301, 203, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.RED, 301, 203, Color.BLUE));
+        g.fillRect(0, 0, 301, 203);
+        g.dispose();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, "JPEG2000", baos));
+        byte[] encoded = baos.toByteArray();
+
+        Filter jpxFilter = FilterFactory.INSTANCE.getFilter(COSName.JPX_DECODE);
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        jpxFilter.decode(new ByteArrayInputStream(encoded), full, new COSDictionary(), 0);
+        byte[] fullData = full.toByteArray();
+        assertEquals(301 * 203 * 3, fullData.length);
+
+        for (int subsampling : new int[] { 2, 3, 4, 6, 8 })
+        {
+            DecodeOptions options = new DecodeOptions(subsampling);
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            jpxFilter.decode(new ByteArrayInputStream(encoded), decoded, new COSDictionary(), 0,
+                    options);
+            assertTrue(options.isFilterSubsampled());
+            int width = (301 + subsampling - 1) / subsampling;
+            int height = (203 + subsampling - 1) / subsampling;
+            byte[] data = decoded.toByteArray();
+            assertEquals(width * height * 3, data.length, "subsampling " + subsampling);
+
+            // a lower resolution level is smoothed, but must be close to the subsampled image
+            for (int y = 0; y < height; y += 7)
+            {
+                for (int x = 0; x < width; x += 7)
+                {
+                    for (int c = 0; c < 3; c++)
+                    {
+                        int expected = fullData[((y * subsampling) * 301 + x * subsampling) * 3 + c] & 0xFF;
+                        int actual = data[(y * width + x) * 3 + c] & 0xFF;
+                        assertTrue(Math.abs(expected - actual) <= 16,
+                                "subsampling " + subsampling + " at " + x + "," + y + ": " +
+                                expected + " != " + actual);
+                    }
+                }
+            }
+        }
+    }
+
     private void checkEncodeDecode(Filter filter, byte[] original) throws IOException
     {
         ByteArrayOutputStream encoded = new ByteArrayOutputStream();
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link PDFunctionType0} class.
+ */
+class TestPDFunctionType0
+{
+
+    private PDFunctionType0 createFunction(float[] domain, float[] range, int[] size,
+            int bitsPerSample, byte[] samples) throws IOException
+    {
+        COSStream stream = new COSStream();
+        stream.setInt(COSName.FUNCTION_TYPE, 0);
+        COSArray domainArray = new COSArray();
+        domainArray.setFloatArray(domain);
+        stream.setItem(COSName.DOMAIN, domainArray);
+        COSArray rangeArray = new COSArray();
+        rangeArray.setFloatArray(range);
+        stream.setItem(COSName.RANGE, rangeArray);
+        COSArray sizeArray = new COSArray();
+        for (int value : size)
+        {
+            sizeArray.add(COSInteger.get(value));
+        }
+        stream.setItem(COSName.SIZE, sizeArray);
+        stream.setInt(COSName.BITS_PER_SAMPLE, bitsPerSample);
+
+        try (OutputStream out = stream.createOutputStream())
+        {
+            out.write(samples);
+        }
+
+        return new PDFunctionType0(stream);
+    }
+
+    /**
+     * Checks a function with one input and two outputs.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testOneInput() throws Exception
+    {
+        PDFunctionType0 function = createFunction(new float[] { 0, 1 },
+                new float[] { 0, 1, 0, 1 }, new int[] { 3 }, 8,
+                new byte[] { 0, (byte) 255, (byte) 200, 100, 50, 0 });
+
+        assertArrayEquals(new float[] { 0, 1 }, function.eval(new float[] { 0 }), 1e-6f);
+        assertArrayEquals(new float[] { 200 / 255f, 100 / 255f },
+                function.eval(new float[] { 0.5f }), 1e-6f);
+        assertArrayEquals(new float[] { 100 / 255f, 177.5f / 255f },
+                function.eval(new float[] { 0.25f }), 1e-6f);
+        assertArrayEquals(new float[] { 50 / 255f, 0 }, function.eval(new float[] { 1 }),
+                1e-6f);
+        // clipped to the domain
+        assertArrayEquals(new float[] { 50 / 255f, 0 }, function.eval(new float[] { 2 }),
+                1e-6f);
+        assertArrayEquals(new float[] { 0, 1 }, function.eval(new float[] { -1 }), 1e-6f);
+    }
+
+    /**
+     * Checks a bilinear interpolation with 4 bit samples, with Decode and Encode entries.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testTwoInputs() throws Exception
+    {
+        // samples 0 15 / 5 10, first input varies fastest
+        PDFunctionType0 function = createFunction(new float[] { 0, 1, 0, 1 },
+                new float[] { 0, 30 }, new int[] { 2, 2 }, 4,
+                new byte[] { 0x0f, 0x5a });
+
+        // the default decode values are the range values
+        assertArrayEquals(new float[] { 0 }, function.eval(new float[] { 0, 0 }), 1e-5f);
+        assertArrayEquals(new float[] { 30 }, function.eval(new float[] { 1, 0 }), 1e-5f);
+        assertArrayEquals(new float[] { 10 }, function.eval(new float[] { 0, 1 }), 1e-5f);
+        assertArrayEquals(new float[] { 15 }, function.eval(new float[] { 0.5f, 0.5f }), 1e-5f);
+        assertArrayEquals(new float[] { 21.25f }, function.eval(new float[] { 0.75f, 0.25f }),
+                1e-5f);
+
+        COSArray decode = new COSArray();
+        decode.setFloatArray(new float[] { 0, 15 });
+        function.setDecodeValues(decode);
+        assertArrayEquals(new float[] { 7.5f }, function.eval(new float[] { 0.5f, 0.5f }),
+                1e-5f);
+
+        // the inputs are reversed
+        COSArray encode = new COSArray();
+        encode.setFloatArray(new float[] { 1, 0, 1, 0 });
+        function.setEncodeValues(encode);
+        assertArrayEquals(new float[] { 5 }, function.eval(new float[] { 1, 0 }), 1e-5f);
+    }
+
+    /**
+     * Checks a trilinear interpolation.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testThreeInputs() throws Exception
+    {
+        // the sample value is the sum of the coordinates times 10
+        byte[] samples = new byte[8];
+        for (int i = 0; i < 8; i++)
+        {
+            samples[i] = (byte) (10 * ((i & 1) + (i >> 1 & 1) + (i >> 2 & 1)));
+        }
+        PDFunctionType0 function = createFunction(new float[] { 0, 1, 0, 1, 0, 1 },
+                new float[] { 0, 255 }, new int[] { 2, 2, 2 }, 8, samples);
+        COSArray decode = new COSArray();
+        decode.setFloatArray(new float[] { 0, 255 });
+        function.setDecodeValues(decode);
+
+        assertArrayEquals(new float[] { 30 }, function.eval(new float[] { 1, 1, 1 }), 1e-4f);
+        assertArrayEquals(new float[] { 15 }, function.eval(new float[] { 0.5f, 0.5f, 0.5f }),
+                1e-4f);
+        assertArrayEquals(new float[] { 16 }, function.eval(new float[] { 0.1f, 0.6f, 0.9f }),
+                1e-4f);
+    }
+
+    /**
+     * Checks that missing decode values are reported.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testMissingDecode() throws Exception
+    {
+        PDFunctionType0 function = createFunction(new float[] { 0, 1 }, new float[] { 0, 1 },
+                new int[] { 2 }, 8, new byte[] { 0, 1 });
+        function.setDecodeValues(new COSArray());
+        assertThrows(IOException.class, () -> function.eval(new float[] { 0.5f }));
+    }
+}
@@ -16,13 +16,16 @@
  */
 package org.apache.pdfbox.pdmodel.common.function;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.common.function.type4.OperandStack;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -106,4 +109,35 @@ class TestPDFunctionType4
         assertEquals(-0.7f, output[0], 0.0001f);
     }
 
+    /**
+     * Checks that the output array and the operand stack of the caller are reused.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testFunctionWithReusedState() throws Exception
+    {
+        String functionText = "{ 2 copy add 3 1 roll sub }";
+        // returns the sum and the difference of the arguments
+
+        PDFunctionType4 function = createFunction(functionText,
+                new float[] {-1.0f, 1.0f, -1.0f, 1.0f},
+                new float[] {-1.0f, 1.0f, -1.0f, 1.0f});
+
+        float[] output = new float[2];
+        OperandStack stack = new OperandStack();
+        assertSame(output, function.eval(new float[] {0.2f, 0.5f}, output, stack));
+        assertEquals(0.7f, output[0], 0.0001f);
+        assertEquals(-0.3f, output[1], 0.0001f);
+
+        // the stack is cleared, the values of the previous evaluation don't remain on it
+        assertSame(output, function.eval(new float[] {0.8f, 0.1f}, output, stack));
+        assertEquals(0.9f, output[0], 0.0001f);
+        assertEquals(0.7f, output[1], 0.0001f);
+
+        // an array of the wrong size isn't used
+        float[] result = function.eval(new float[] {0.8f, 0.1f}, new float[1], stack);
+        assertEquals(2, result.length);
+        assertArrayEquals(output, result);
+    }
+
 }
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.common.function.type4;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Stack;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that compiled instruction sequences give the same results as the interpreter.
+ */
+class TestCompiledInstructionSequence
+{
+    private static final String[] PROGRAMS = {
+            // the programs of TestOperators
+            "5 6 add", "5 0.23 add", "-3 abs 2.1 abs -2.1 abs -7.5 abs",
+            "true true and true false and", "99 1 and 52 7 and", "0 1 atan", "1 0 atan",
+            "-100 0 atan", "4 4 atan", "3.2 ceiling -4.8 ceiling 99 ceiling", "0 cos", "90 cos",
+            "-47.8 cvi", "520.9 cvi", "-47.8 cvr", "520.9 cvr", "77 cvr", "77 77 cvr", "3 2 div",
+            "4 2 div", "9 0.5 exp", "-9 -1 exp", "3.2 floor -4.8 floor 99 floor", "3 2 idiv",
+            "4 2 idiv", "-5 2 idiv", "4.4 2 idiv", "10 ln", "100 ln", "10 log", "100 log",
+            "5 3 mod", "5 2 mod", "-5 3 mod", "4.4 2 mod", "1 2 mul", "1.5 2 mul", "1.5 2.1 mul",
+            "4.5 neg", "-3 neg", "3.2 round", "6.5 round", "-4.8 round", "-6.5 round", "99 round",
+            "0 sin", "90 sin", "-90.0 sin", "0 sqrt", "1 sqrt", "4 sqrt", "4.4 sqrt", "-4.1 sqrt",
+            "5 2 sub -7.5 1 sub", "3.2 truncate", "-4.8 truncate", "99 truncate",
+            "7 3 bitshift 142 -3 bitshift",
+            "7 7 eq 7 6 eq 7 -7 eq true true eq false true eq 7.7 7.7 eq",
+            "5 7 ge 7 5 ge 7 7 ge -1 2 ge", "5 7 gt 7 5 gt 7 7 gt -1 2 gt",
+            "5 7 le 7 5 le 7 7 le -1 2 le", "5 7 lt 7 5 lt 7 7 lt -1 2 lt",
+            "7 7 ne 7 6 ne 7 -7 ne true true ne false true ne 7.7 7.7 ne", "true not false not",
+            "52 not -37 not", "true true or true false or false false or", "17 5 or 1 1 or",
+            "true true xor true false xor false false xor", "7 3 xor 12 3 or",
+            "true { 2 1 add } if", "false { 2 1 add } if", "0 { 2 1 add } if",
+            "true { 2 1 add } { 2 1 sub } ifelse", "false { 2 1 add } { 2 1 sub } ifelse",
+            "true 1 2 3 3 copy", "true 1 2 dup", "true dup", "true 1 exch", "1 2.5 exch",
+            "1 2 3 4 0 index", "1 2 3 4 3 index", "1 pop 7 2 pop", "1 2 3 pop pop",
+            "1 2 3 4 5 5 -2 roll", "1 2 3 4 5 5 2 roll", "1 2 3 3 0 roll",
+            // integer overflow, errors and edge cases
+            "2147483647 1 add -2147483648 1 sub 65536 65536 mul -2147483648 neg",
+            "-2147483648 abs 1.5 cvi -1.5 cvi 3 cvr 2.5 3 exp 2 0.5 mul",
+            "1 0 idiv", "1 0 mod", "1 true add", "true cvi", "1 2.5 and", "1 true eq",
+            "true 1 eq 1 1.0 eq 1.0 1 ne", "pop", "1 add", "dup", "1 exch",
+            "1 2 3 4 5 3 1 roll", "1 2 3 4 5 3 -1 roll", "1 2 3 4 5 3 3 roll",
+            "1 2 3 4 5 2 7 roll", "1 2 3 2 -5 roll", "1 2 3 -1 1 roll", "1 2 3 4 5 4.5 2.5 roll",
+            "1 2 3 4 copy", "1 2 3 0 copy", "1 2 3 5 index", "1 2 3 -1 index",
+            "{ 1 2 add }", "{ 1 { 2 { 3 } } }", "2 { 3 true { 1 add } { 1 sub } ifelse } if",
+            "true { false { 1 } if 2 } { 3 } ifelse" };
+
+    @Test
+    void testSameResults()
+    {
+        for (String program : PROGRAMS)
+        {
+            InstructionSequence sequence = InstructionSequenceBuilder.parse(program);
+            CompiledInstructionSequence compiled = CompiledInstructionSequence.compile(sequence);
+            assertNotNull(compiled, program);
+
+            ExecutionContext context = new ExecutionContext(new Operators());
+            Class<?> expectedException = null;
+            try
+            {
+                sequence.execute(context);
+            }
+            catch (RuntimeException ex)
+            {
+                expectedException = ex.getClass();
+            }
+
+            OperandStack stack = new OperandStack();
+            Class<?> actualException = null;
+            try
+            {
+                compiled.execute(stack);
+            }
+            catch (RuntimeException ex)
+            {
+                actualException = ex.getClass();
+            }
+            assertEquals(expectedException, actualException, program);
+            if (expectedException == null)
+            {
+                assertSameStack(program, context.getStack(), stack);
+            }
+        }
+    }
+
+    @Test
+    void testNotCompilable()
+    {
+        // these must be interpreted
+        assertNull(CompiledInstructionSequence.compile(InstructionSequenceBuilder.parse("1 foo")));
+        assertNull(CompiledInstructionSequence.compile(
+                InstructionSequenceBuilder.parse("true { 1 } { 2 } exch ifelse")));
+        assertNull(CompiledInstructionSequence.compile(
+                InstructionSequenceBuilder.parse("{ 1 } pop 2")));
+    }
+
+    @Test
+    void testExecuteWithInputs()
+    {
+        CompiledInstructionSequence compiled = CompiledInstructionSequence.compile(
+                InstructionSequenceBuilder.parse("{ 2 copy add 3 1 roll }"));
+        float[] output = new float[2];
+        assertEquals(3, compiled.execute(new float[] { 0.25f, 2 }, new float[] { 0, 1, 0, 1 },
+                output));
+        // the second input is clipped to the domain: 1.25 0.25 1
+        assertEquals(0.25f, output[0]);
+        assertEquals(1, output[1]);
+
+        // not enough values on the stack
+        output = new float[4];
+        assertEquals(3, compiled.execute(new float[] { 0.25f, 2 }, new float[] { 0, 1, 0, 1 },
+                output));
+    }
+
+    private static void assertSameStack(String program, Stack<Object> expected, OperandStack actual)
+    {
+        assertEquals(expected.size(), actual.size(), program);
+        for (int i = 0; i < expected.size(); i++)
+        {
+            Object value = expected.get(i);
+            if (value instanceof Integer)
+            {
+                assertEquals(OperandStack.INT, actual.getType(i), program);
+                assertEquals((Integer) value, (int) actual.getValue(i), program);
+            }
+            else if (value instanceof Float)
+            {
+                assertEquals(OperandStack.REAL, actual.getType(i), program);
+                assertEquals((Float) value, (float) actual.getValue(i), program);
+            }
+            else
+            {
+                assertEquals(OperandStack.BOOLEAN, actual.getType(i), program);
+                assertEquals(value, actual.getValue(i) != 0, program);
+            }
+        }
+    }
+}
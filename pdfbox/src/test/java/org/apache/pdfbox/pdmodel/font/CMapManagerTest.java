@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.fontbox.cmap.CMap;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the cache of the embedded CMaps.
+ */
+class CMapManagerTest
+{
+    @Test
+    void testEmbeddedCMapCache() throws IOException
+    {
+        CMap cmap = parse("<0041> <0042>");
+        assertEquals("B", cmap.toUnicode(0x41, 2));
+        // a CMap with the same data is only parsed once
+        assertSame(cmap, parse("<0041> <0042>"));
+
+        CMap other = parse("<0041> <0043>");
+        assertNotSame(cmap, other);
+        assertEquals("C", other.toUnicode(0x41, 2));
+
+        assertNull(CMapManager.parseCMap(null));
+    }
+
+    private static CMap parse(String bfchar) throws IOException
+    {
+        String source = "/CIDInit /ProcSet findresource begin\n"
+                + "12 dict begin\n"
+                + "begincmap\n"
+                + "/CMapName /CMapManagerTest def\n"
+                + "1 begincodespacerange <0000> <FFFF> endcodespacerange\n"
+                + "1 beginbfchar " + bfchar + " endbfchar\n"
+                + "endcmap\n";
+        return CMapManager.parseCMap(
+                new RandomAccessReadBuffer(source.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
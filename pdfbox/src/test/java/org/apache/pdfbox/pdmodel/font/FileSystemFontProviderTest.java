@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the disk cache of the file system font provider.
+ */
+class FileSystemFontProviderTest
+{
+    private static final File OUT_DIR = new File("target/test-output/fontprovider");
+    private static final String LIBERATION_SANS = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+    private static final String LOHIT_BENGALI = "/org/apache/pdfbox/ttf/Lohit-Bengali.ttf";
+
+    private File cacheFile;
+    private File fontFile1;
+    private File fontFile2;
+    private File brokenFile;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        OUT_DIR.mkdirs();
+        cacheFile = new File(OUT_DIR, ".pdfbox.cache.bin");
+        Files.deleteIfExists(cacheFile.toPath());
+        fontFile1 = copy(LIBERATION_SANS, "font1.ttf");
+        fontFile2 = copy(LOHIT_BENGALI, "font2.ttf");
+        brokenFile = new File(OUT_DIR, "broken.ttf");
+        Files.write(brokenFile.toPath(), new byte[] { 0, 1, 0, 0, 0, 42 });
+    }
+
+    @Test
+    void testDiskCache() throws IOException
+    {
+        List<File> files = Arrays.asList(fontFile1, brokenFile, fontFile2);
+        FileSystemFontProvider provider = new FileSystemFontProvider(new FontCache(), files,
+                cacheFile);
+        assertEquals(Arrays.asList("LiberationSans", "Lohit-Bengali"), getNames(provider));
+        assertTrue(cacheFile.exists());
+        long cacheModified = cacheFile.lastModified();
+
+        // the fonts are read from the cache, with the same details
+        FileSystemFontProvider cachedProvider = new FileSystemFontProvider(new FontCache(), files,
+                cacheFile);
+        assertEquals(getNames(provider), getNames(cachedProvider));
+        for (int i = 0; i < provider.getFontInfo().size(); i++)
+        {
+            assertSameInfo(provider.getFontInfo().get(i), cachedProvider.getFontInfo().get(i));
+        }
+        TrueTypeFont font = (TrueTypeFont) cachedProvider.getFontInfo().get(0).getFont();
+        assertNotNull(font);
+        assertEquals("LiberationSans", font.getName());
+        // nothing has changed, so the cache isn't written again
+        assertEquals(cacheModified, cacheFile.lastModified());
+    }
+
+    @Test
+    void testIncrementalUpdate() throws IOException
+    {
+        List<File> files = new ArrayList<>(Arrays.asList(fontFile1, brokenFile, fontFile2));
+        new FileSystemFontProvider(new FontCache(), files, cacheFile);
+
+        // a changed font file, a removed file and a new file
+        copy(LIBERATION_SANS, "font2.ttf");
+        assertTrue(fontFile2.setLastModified(fontFile2.lastModified() + 10000));
+        files.remove(brokenFile);
+        files.add(copy(LOHIT_BENGALI, "font3.ttf"));
+
+        FileSystemFontProvider provider = new FileSystemFontProvider(new FontCache(), files,
+                cacheFile);
+        assertEquals(Arrays.asList("LiberationSans", "LiberationSans", "Lohit-Bengali"),
+                getNames(provider));
+
+        FileSystemFontProvider cachedProvider = new FileSystemFontProvider(new FontCache(), files,
+                cacheFile);
+        assertEquals(getNames(provider), getNames(cachedProvider));
+        assertSameInfo(provider.getFontInfo().get(2), cachedProvider.getFontInfo().get(2));
+    }
+
+    @Test
+    void testBrokenCache() throws IOException
+    {
+        List<File> files = Arrays.asList(fontFile1, fontFile2);
+        FileSystemFontProvider provider = new FileSystemFontProvider(new FontCache(), files,
+                cacheFile);
+
+        // a truncated cache is re-built
+        byte[] cache = Files.readAllBytes(cacheFile.toPath());
+        Files.write(cacheFile.toPath(), Arrays.copyOf(cache, cache.length - 20));
+        FileSystemFontProvider rebuiltProvider = new FileSystemFontProvider(new FontCache(),
+                files, cacheFile);
+        assertEquals(getNames(provider), getNames(rebuiltProvider));
+        assertArrayEquals(cache, Files.readAllBytes(cacheFile.toPath()));
+    }
+
+    private static void assertSameInfo(FontInfo expected, FontInfo actual)
+    {
+        assertEquals(expected.getPostScriptName(), actual.getPostScriptName());
+        assertEquals(expected.getFormat(), actual.getFormat());
+        assertEquals(expected.getCIDSystemInfo(), actual.getCIDSystemInfo());
+        assertEquals(expected.getWeightClass(), actual.getWeightClass());
+        assertEquals(expected.getFamilyClass(), actual.getFamilyClass());
+        assertEquals(expected.getCodePageRange1(), actual.getCodePageRange1());
+        assertEquals(expected.getCodePageRange2(), actual.getCodePageRange2());
+        assertEquals(expected.getMacStyle(), actual.getMacStyle());
+        assertArrayEquals(expected.getPanose().getBytes(), actual.getPanose().getBytes());
+    }
+
+    private static List<String> getNames(FileSystemFontProvider provider)
+    {
+        List<String> names = new ArrayList<>();
+        for (FontInfo info : provider.getFontInfo())
+        {
+            names.add(info.getPostScriptName());
+        }
+        return names;
+    }
+
+    private static File copy(String resource, String name) throws IOException
+    {
+        File file = new File(OUT_DIR, name);
+        try (InputStream is = FileSystemFontProviderTest.class.getResourceAsStream(resource))
+        {
+            Files.copy(is, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.font;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.fontbox.FontBoxFont;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the lookups of the font mapper and their cache.
+ */
+class FontMapperImplTest
+{
+    private static final long JIS_JAPAN = 1 << 17;
+    private static final long KOREAN_WANSUNG = 1 << 19;
+
+    private FontMapperImpl fontMapper;
+    private TestFontInfo arial;
+    private TestFontInfo gothic;
+    private TestFontInfo mincho;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        TrueTypeFont ttf = new TTFParser().parse(new RandomAccessReadBuffer(
+                FontMapperImplTest.class.getResourceAsStream(
+                        "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf")));
+        arial = new TestFontInfo("ArialMT", 400, 0, ttf);
+        gothic = new TestFontInfo("MS-Gothic", 400, JIS_JAPAN, ttf);
+        mincho = new TestFontInfo("MS-Mincho", 700, JIS_JAPAN, ttf);
+        TestFontInfo batang = new TestFontInfo("Batang", 700, KOREAN_WANSUNG, ttf);
+        List<FontInfo> infos = Arrays.asList(arial, gothic, mincho, batang);
+
+        fontMapper = new FontMapperImpl();
+        fontMapper.setProvider(new FontProvider()
+        {
+            @Override
+            public String toDebugString()
+            {
+                return infos.toString();
+            }
+
+            @Override
+            public List<? extends FontInfo> getFontInfo()
+            {
+                return infos;
+            }
+        });
+    }
+
+    @Test
+    void testLookupByName()
+    {
+        FontMapping<TrueTypeFont> mapping = fontMapper.getTrueTypeFont("Helvetica", null);
+        assertFalse(mapping.isFallback());
+        assertEquals(1, arial.fontCount);
+        assertEquals(1, fontMapper.getLookupCount());
+        assertEquals(0, fontMapper.getCacheHitCount());
+
+        // the substitute is taken from the cache
+        fontMapper.getTrueTypeFont("Helvetica", null);
+        assertEquals(2, arial.fontCount);
+        assertEquals(2, fontMapper.getLookupCount());
+        assertEquals(1, fontMapper.getCacheHitCount());
+
+        // unknown fonts are cached too, with 3 formats for the name and for the fallback
+        assertTrue(fontMapper.getFontBoxFont("Unknown", null).isFallback());
+        assertEquals(1, fontMapper.getCacheHitCount());
+        assertTrue(fontMapper.getFontBoxFont("Unknown", null).isFallback());
+        assertEquals(7, fontMapper.getCacheHitCount());
+
+        // a new substitute clears the cache
+        fontMapper.addSubstitute("Unknown", "MS-Gothic");
+        assertFalse(fontMapper.getFontBoxFont("Unknown", null).isFallback());
+        assertEquals(1, gothic.fontCount);
+    }
+
+    @Test
+    void testLookupByCollection()
+    {
+        PDCIDSystemInfo japan1 = new PDCIDSystemInfo("Adobe", "Japan1", 6);
+        PDFontDescriptor boldDescriptor = new PDFontDescriptor();
+        boldDescriptor.setFontWeight(700);
+        CIDFontMapping mapping = fontMapper.getCIDFont("Unknown", boldDescriptor, japan1);
+        assertTrue(mapping.isFallback());
+        assertEquals(1, mincho.fontCount);
+        assertEquals(0, gothic.fontCount);
+
+        long hits = fontMapper.getCacheHitCount();
+        fontMapper.getCIDFont("Unknown-Bold", boldDescriptor, japan1);
+        assertEquals(2, mincho.fontCount);
+        // the best match is cached, only the names are new
+        assertEquals(hits + 1, fontMapper.getCacheHitCount());
+
+        PDFontDescriptor regularDescriptor = new PDFontDescriptor();
+        regularDescriptor.setFontWeight(400);
+        fontMapper.getCIDFont("Unknown", regularDescriptor, japan1);
+        assertEquals(1, gothic.fontCount);
+        assertTrue(fontMapper.getLookupTime() > 0);
+    }
+
+    private static final class TestFontInfo extends FontInfo
+    {
+        private final String postScriptName;
+        private final int weightClass;
+        private final long codePageRange;
+        private final FontBoxFont font;
+        private int fontCount;
+
+        TestFontInfo(String postScriptName, int weightClass, long codePageRange, FontBoxFont font)
+        {
+            this.postScriptName = postScriptName;
+            this.weightClass = weightClass;
+            this.codePageRange = codePageRange;
+            this.font = font;
+        }
+
+        @Override
+        public String getPostScriptName()
+        {
+            return postScriptName;
+        }
+
+        @Override
+        public FontFormat getFormat()
+        {
+            return FontFormat.TTF;
+        }
+
+        @Override
+        public CIDSystemInfo getCIDSystemInfo()
+        {
+            return null;
+        }
+
+        @Override
+        public FontBoxFont getFont()
+        {
+            fontCount++;
+            return font;
+        }
+
+        @Override
+        public int getFamilyClass()
+        {
+            return -1;
+        }
+
+        @Override
+        public int getWeightClass()
+        {
+            return weightClass;
+        }
+
+        @Override
+        public int getCodePageRange1()
+        {
+            return (int) codePageRange;
+        }
+
+        @Override
+        public int getCodePageRange2()
+        {
+            return 0;
+        }
+
+        @Override
+        public int getMacStyle()
+        {
+            return 0;
+        }
+
+        @Override
+        public PDPanoseClassification getPanose()
+        {
+            return null;
+        }
+    }
+}
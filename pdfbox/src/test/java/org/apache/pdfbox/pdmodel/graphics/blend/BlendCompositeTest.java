@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.blend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Composite;
+import java.awt.CompositeContext;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test that the composition of int ARGB pixels gives the same result as the generic composition.
+ */
+class BlendCompositeTest
+{
+    // NORMAL is done with an AlphaComposite
+    private static final BlendMode[] BLEND_MODES = { BlendMode.MULTIPLY, BlendMode.SCREEN,
+            BlendMode.OVERLAY, BlendMode.DARKEN, BlendMode.LIGHTEN, BlendMode.COLOR_DODGE,
+            BlendMode.COLOR_BURN, BlendMode.HARD_LIGHT, BlendMode.SOFT_LIGHT,
+            BlendMode.DIFFERENCE, BlendMode.EXCLUSION, BlendMode.HUE, BlendMode.SATURATION,
+            BlendMode.COLOR, BlendMode.LUMINOSITY };
+
+    @Test
+    void testIntARGB()
+    {
+        for (BlendMode blendMode : BLEND_MODES)
+        {
+            compare(blendMode, 1f, BufferedImage.TYPE_INT_ARGB);
+            compare(blendMode, 0.4f, BufferedImage.TYPE_INT_ARGB);
+        }
+    }
+
+    @Test
+    void testIntRGB()
+    {
+        for (BlendMode blendMode : BLEND_MODES)
+        {
+            compare(blendMode, 0.7f, BufferedImage.TYPE_INT_RGB);
+        }
+    }
+
+    private static void compare(BlendMode blendMode, float constantAlpha, int type)
+    {
+        Random random = new Random(blendMode.hashCode());
+        BufferedImage src = createImage(random, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage dst = createImage(random, type);
+
+        // 4 byte images go through the generic composition
+        int genericType = type == BufferedImage.TYPE_INT_ARGB ?
+                BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR;
+        BufferedImage genericSrc = copy(src, BufferedImage.TYPE_4BYTE_ABGR);
+        BufferedImage genericDst = copy(dst, genericType);
+
+        Composite composite = BlendComposite.getInstance(blendMode, constantAlpha);
+        CompositeContext context = composite.createContext(src.getColorModel(),
+                dst.getColorModel(), null);
+        context.compose(src.getRaster(), dst.getRaster(), dst.getRaster());
+        CompositeContext genericContext = composite.createContext(genericSrc.getColorModel(),
+                genericDst.getColorModel(), null);
+        genericContext.compose(genericSrc.getRaster(), genericDst.getRaster(),
+                genericDst.getRaster());
+
+        for (int y = 0; y < dst.getHeight(); y++)
+        {
+            for (int x = 0; x < dst.getWidth(); x++)
+            {
+                assertEquals(genericDst.getRGB(x, y), dst.getRGB(x, y),
+                        blendMode + " at " + x + "," + y);
+            }
+        }
+    }
+
+    private static BufferedImage createImage(Random random, int type)
+    {
+        BufferedImage image = new BufferedImage(40, 30, type);
+        for (int y = 0; y < image.getHeight(); y++)
+        {
+            for (int x = 0; x < image.getWidth(); x++)
+            {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage copy(BufferedImage image, int type)
+    {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        for (int y = 0; y < image.getHeight(); y++)
+        {
+            for (int x = 0; x < image.getWidth(); x++)
+            {
+                copy.setRGB(x, y, image.getRGB(x, y));
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSString;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the conversion of several colours at once to RGB.
+ */
+class BulkColorConversionTest
+{
+    private static final int COUNT = 100;
+
+    @Test
+    void testDeviceColorSpaces() throws IOException
+    {
+        checkFloat(PDDeviceGray.INSTANCE, 0);
+        checkFloat(PDDeviceRGB.INSTANCE, 0);
+        checkByte(PDDeviceGray.INSTANCE);
+        checkByte(PDDeviceRGB.INSTANCE);
+        // the bulk conversion uses 16 bit samples, the single conversion floats
+        checkFloat(PDDeviceCMYK.INSTANCE, 2);
+    }
+
+    @Test
+    void testLab() throws IOException
+    {
+        PDLab lab = new PDLab();
+        lab.setWhitePoint(new PDTristimulus(new float[] { 0.9505f, 1, 1.089f }));
+        float[] values = new float[COUNT * 3];
+        Random random = new Random(1);
+        // ColorSpace.toRGB() doesn't clamp XYZ values above 2, keep them in range
+        for (int i = 0; i < values.length; i += 3)
+        {
+            values[i] = random.nextFloat() * 80;
+            values[i + 1] = random.nextFloat() * 100 - 50;
+            values[i + 2] = random.nextFloat() * 100 - 50;
+        }
+        check(lab, values, 2);
+    }
+
+    @Test
+    void testIndexed() throws IOException
+    {
+        byte[] lookup = new byte[6 * 3];
+        for (int i = 0; i < lookup.length; i++)
+        {
+            lookup[i] = (byte) (i * 15);
+        }
+        COSArray array = new COSArray();
+        array.add(COSName.INDEXED);
+        array.add(COSName.DEVICERGB);
+        array.add(COSInteger.get(5));
+        array.add(new COSString(lookup));
+        PDIndexed indexed = new PDIndexed(array);
+
+        // includes indexes outside of the palette
+        float[] values = new float[COUNT];
+        byte[] samples = new byte[COUNT];
+        for (int i = 0; i < COUNT; i++)
+        {
+            values[i] = i % 8 - 1;
+            samples[i] = (byte) (i % 8);
+        }
+        check(indexed, values, 0);
+
+        int[] rgb = new int[COUNT];
+        indexed.toRGB(samples, 0, rgb, 0, COUNT);
+        for (int i = 0; i < COUNT; i++)
+        {
+            assertEquals(toPackedRGB(indexed.toRGB(new float[] { Math.min(i % 8, 5) })), rgb[i]);
+        }
+    }
+
+    @Test
+    void testSeparation() throws IOException
+    {
+        COSArray array = new COSArray();
+        array.add(COSName.SEPARATION);
+        array.add(COSName.getPDFName("Spot"));
+        array.add(COSName.DEVICEGRAY);
+        // exponential interpolation from white to black
+        COSDictionary function = new COSDictionary();
+        function.setInt(COSName.FUNCTION_TYPE, 2);
+        function.setItem(COSName.DOMAIN, toCOSArray(0, 1));
+        function.setItem(COSName.C0, toCOSArray(1));
+        function.setItem(COSName.C1, toCOSArray(0));
+        function.setInt(COSName.N, 2);
+        array.add(function);
+        checkFloat(new PDSeparation(array), 0);
+    }
+
+    private static void checkFloat(PDColorSpace colorSpace, int tolerance) throws IOException
+    {
+        float[] values = new float[COUNT * colorSpace.getNumberOfComponents()];
+        Random random = new Random(1);
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = random.nextFloat();
+        }
+        check(colorSpace, values, tolerance);
+    }
+
+    private static void check(PDColorSpace colorSpace, float[] values, int tolerance)
+            throws IOException
+    {
+        int n = colorSpace.getNumberOfComponents();
+        // with offsets, to check that they are used
+        float[] shifted = new float[values.length + n];
+        System.arraycopy(values, 0, shifted, n, values.length);
+        int[] rgb = new int[COUNT + 1];
+        colorSpace.toRGB(shifted, n, rgb, 1, COUNT);
+        for (int i = 0; i < COUNT; i++)
+        {
+            float[] value = new float[n];
+            System.arraycopy(values, i * n, value, 0, n);
+            assertColor(toPackedRGB(colorSpace.toRGB(value)), rgb[i + 1], tolerance);
+        }
+    }
+
+    private static void checkByte(PDColorSpace colorSpace) throws IOException
+    {
+        int n = colorSpace.getNumberOfComponents();
+        byte[] samples = new byte[COUNT * n];
+        new Random(1).nextBytes(samples);
+        int[] rgb = new int[COUNT];
+        colorSpace.toRGB(samples, 0, rgb, 0, COUNT);
+
+        // same result as toRGBImage()
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, COUNT, 1, n,
+                new Point(0, 0));
+        raster.setDataElements(0, 0, COUNT, 1, samples);
+        BufferedImage image = colorSpace.toRGBImage(raster);
+        for (int i = 0; i < COUNT; i++)
+        {
+            assertEquals(image.getRGB(i, 0) & 0xffffff, rgb[i]);
+        }
+    }
+
+    private static void assertColor(int expected, int actual, int tolerance)
+    {
+        for (int shift = 0; shift <= 16; shift += 8)
+        {
+            int difference = (expected >> shift & 0xff) - (actual >> shift & 0xff);
+            assertTrue(Math.abs(difference) <= tolerance,
+                    "expected " + Integer.toHexString(expected) + " but was " +
+                    Integer.toHexString(actual));
+        }
+    }
+
+    private static COSArray toCOSArray(float... values)
+    {
+        COSArray array = new COSArray();
+        array.setFloatArray(values);
+        return array;
+    }
+
+    private static int toPackedRGB(float[] rgb)
+    {
+        return PDColorSpace.toPackedRGB(rgb[0], rgb[1], rgb[2]);
+    }
+}
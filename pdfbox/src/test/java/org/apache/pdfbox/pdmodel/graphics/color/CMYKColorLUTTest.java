@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the lookup table for the conversion of CMYK images.
+ */
+class CMYKColorLUTTest
+{
+    @Test
+    void testConversion() throws IOException
+    {
+        ColorSpace colorSpace = new ICC_ColorSpace(PDDeviceCMYK.INSTANCE.getICCProfile());
+
+        // smaller images don't create the table
+        WritableRaster small = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, 10, 10, 4,
+                new Point(0, 0));
+        assertNull(CMYKColorLUT.get(ColorSpace.getInstance(ColorSpace.CS_sRGB), small));
+
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, 450, 450, 4,
+                new Point(0, 0));
+        Random random = new Random(1);
+        int[] pixel = new int[4];
+        for (int y = 0; y < 450; y++)
+        {
+            for (int x = 0; x < 450; x++)
+            {
+                if (y < 225)
+                {
+                    for (int c = 0; c < 4; c++)
+                    {
+                        pixel[c] = random.nextInt(256);
+                    }
+                }
+                else
+                {
+                    // gradients
+                    pixel[0] = x * 255 / 449;
+                    pixel[1] = (y - 225) * 255 / 224;
+                    pixel[2] = 255 - pixel[0];
+                    pixel[3] = (x + y) % 256;
+                }
+                raster.setPixel(x, y, pixel);
+            }
+        }
+        CMYKColorLUT lut = CMYKColorLUT.get(colorSpace, raster);
+        assertNotNull(lut);
+        assertSame(lut, CMYKColorLUT.get(colorSpace, small));
+        BufferedImage image = lut.toRGBImage(raster);
+
+        // the same conversion as in PDColorSpace.toRGBImageAWT()
+        BufferedImage src = new BufferedImage(new ComponentColorModel(colorSpace, false, false,
+                Transparency.OPAQUE, DataBuffer.TYPE_BYTE), raster, false, null);
+        BufferedImage expected = new BufferedImage(450, 450, BufferedImage.TYPE_INT_RGB);
+        new ColorConvertOp(null).filter(src, expected);
+
+        // a few colours at kinks of the profile have larger errors
+        int maxError = 0;
+        int largeErrors = 0;
+        for (int y = 0; y < 450; y++)
+        {
+            for (int x = 0; x < 450; x++)
+            {
+                int rgb1 = expected.getRGB(x, y);
+                int rgb2 = image.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8)
+                {
+                    int error = Math.abs((rgb1 >> shift & 0xff) - (rgb2 >> shift & 0xff));
+                    maxError = Math.max(maxError, error);
+                    if (error > 2)
+                    {
+                        largeErrors++;
+                    }
+                }
+            }
+        }
+        assertTrue(maxError <= 10, "maximum error " + maxError);
+        assertTrue(largeErrors < 450 * 450 * 3 / 500, "errors above 2: " + largeErrors);
+
+        // a child raster
+        Raster child = raster.createChild(100, 200, 50, 20, 0, 0, null);
+        BufferedImage childImage = lut.toRGBImage(child);
+        assertEquals(image.getRGB(110, 205), childImage.getRGB(10, 5));
+    }
+}
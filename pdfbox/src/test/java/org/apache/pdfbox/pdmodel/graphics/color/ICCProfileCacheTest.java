@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the ICC profile cache.
+ */
+class ICCProfileCacheTest
+{
+    @Test
+    void testKeysAndEviction()
+    {
+        // each entry accounts its profile data and two color transforms of the same size
+        ICCProfileCache cache = new ICCProfileCache(1200000);
+        ICC_ColorSpace colorSpace1 = (ICC_ColorSpace) ColorSpace.getInstance(ColorSpace.CS_sRGB);
+        ICC_ColorSpace colorSpace2 = (ICC_ColorSpace) ColorSpace.getInstance(ColorSpace.CS_GRAY);
+        String key1 = ICCProfileCache.getKey(new byte[] { 1, 2, 3 });
+        String key2 = ICCProfileCache.getKey(new byte[] { 1, 2, 4 });
+        assertEquals(key1, ICCProfileCache.getKey(new byte[] { 1, 2, 3 }));
+        assertNotEquals(key1, key2);
+
+        ICCProfileCache.Entry entry1 = cache.put(key1, colorSpace1, true, 100000);
+        assertSame(entry1, cache.get(key1));
+        assertSame(colorSpace1, entry1.getColorSpace());
+        assertNull(cache.get(key2));
+
+        // the first profile is kept when the same profile is added again
+        assertSame(entry1, cache.put(key1, colorSpace2, false, 100000));
+        assertEquals(300000, cache.getSize());
+
+        // the least recently used profile is removed
+        cache.put(key2, colorSpace2, false, 100000);
+        String key3 = ICCProfileCache.getKey(new byte[] { 5 });
+        cache.put(key3, colorSpace2, false, 100000);
+        cache.get(key1);
+        cache.put(ICCProfileCache.getKey(new byte[] { 6 }), colorSpace2, false, 100000);
+        cache.put(ICCProfileCache.getKey(new byte[] { 7 }), colorSpace2, false, 100000);
+        assertEquals(1200000, cache.getSize());
+        assertNull(cache.get(key2));
+        assertSame(entry1, cache.get(key1));
+
+        // too large for the cache
+        String key4 = ICCProfileCache.getKey(new byte[] { 8 });
+        assertNotNull(cache.put(key4, colorSpace2, false, 100001));
+        assertNull(cache.get(key4));
+
+        // small profiles account at least the minimum size of the transforms
+        cache = new ICCProfileCache(Long.MAX_VALUE);
+        cache.put(key1, colorSpace1, true, 200);
+        assertEquals(200 + 2 * 64 * 1024, cache.getSize());
+    }
+
+    @Test
+    void testSharedBetweenColorSpaces() throws IOException
+    {
+        byte[] data;
+        try (InputStream is = PDDeviceCMYK.class.getResourceAsStream(
+                "/org/apache/pdfbox/resources/icc/CGATS001Compat-v2-micro.icc"))
+        {
+            data = IOUtils.toByteArray(is);
+        }
+        PDICCBased iccBased1 = PDICCBased.create(createICCBasedArray(data), null);
+        ICCProfileCache.Entry entry = ICCProfileCache.getInstance()
+                .get(ICCProfileCache.getKey(data));
+        assertNotNull(entry);
+
+        // another document with the same profile
+        PDICCBased iccBased2 = PDICCBased.create(createICCBasedArray(data), null);
+        assertSame(entry, ICCProfileCache.getInstance().get(ICCProfileCache.getKey(data)));
+        // the color transforms are shared too
+        assertSame(entry.getColorConvertOps(), iccBased1.getColorConvertOps());
+        assertSame(entry.getColorConvertOps(), iccBased2.getColorConvertOps());
+        assertEquals(4, iccBased2.getNumberOfComponents());
+        float[] cmyk = { 0.1f, 0.2f, 0.3f, 0.4f };
+        assertArrayEquals(iccBased1.toRGB(cmyk.clone()), iccBased2.toRGB(cmyk.clone()));
+        assertArrayEquals(entry.getColorSpace().toRGB(cmyk.clone()),
+                iccBased2.toRGB(cmyk.clone()));
+    }
+
+    private static COSArray createICCBasedArray(byte[] data) throws IOException
+    {
+        COSStream stream = new COSStream();
+        stream.setInt(COSName.N, 4);
+        try (OutputStream os = stream.createOutputStream())
+        {
+            os.write(data);
+        }
+        COSArray array = new COSArray();
+        array.add(COSName.ICCBASED);
+        array.add(stream);
+        return array;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.color;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the lookup tables for the tint transforms of Separation and DeviceN colour spaces.
+ */
+class TintTransformLUTTest
+{
+    @Test
+    void testSeparation() throws IOException
+    {
+        COSArray array = new COSArray();
+        array.add(COSName.SEPARATION);
+        array.add(COSName.getPDFName("Spot"));
+        array.add(COSName.DEVICERGB);
+        array.add(createFunction("{ dup dup mul exch dup 0.5 mul exch }", 1, 3));
+        PDSeparation separation = new PDSeparation(array);
+
+        WritableRaster raster = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, 16, 16, 1,
+                new Point(0, 0));
+        for (int i = 0; i < 256; i++)
+        {
+            raster.setSample(i % 16, i / 16, 0, i);
+        }
+        BufferedImage image = separation.toRGBImage(raster);
+
+        // the table must give the same result as the conversion of single pixels
+        WritableRaster pixel = Raster.createBandedRaster(DataBuffer.TYPE_BYTE, 1, 1, 1,
+                new Point(0, 0));
+        for (int i = 0; i < 256; i++)
+        {
+            pixel.setSample(0, 0, 0, i);
+            assertEquals(separation.toRGBImage(pixel).getRGB(0, 0), image.getRGB(i % 16, i / 16));
+        }
+    }
+
+    @Test
+    void testDeviceN() throws IOException
+    {
+        COSArray array = new COSArray();
+        array.add(COSName.DEVICEN);
+        array.add(COSArray.ofCOSNames(Arrays.asList("Spot1", "Spot2")));
+        array.add(COSName.DEVICERGB);
+        array.add(createFunction("{ 2 copy mul 3 1 roll 1 exch sub exch 1 exch sub }", 2, 3));
+        PDDeviceN deviceN = new PDDeviceN(array);
+
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, 64, 64, 2,
+                new Point(0, 0));
+        for (int y = 0; y < 64; y++)
+        {
+            for (int x = 0; x < 64; x++)
+            {
+                raster.setPixel(x, y, new int[] { x * 4, (y * 37 + x) % 256 });
+            }
+        }
+        BufferedImage image = deviceN.toRGBImage(raster);
+
+        int maxError = Math.round(TintTransformLUT.MAX_ERROR * 255) + 1;
+        for (int y = 0; y < 64; y++)
+        {
+            for (int x = 0; x < 64; x++)
+            {
+                int[] samples = raster.getPixel(x, y, (int[]) null);
+                float[] rgb = deviceN.toRGB(new float[] { samples[0] / 255f, samples[1] / 255f });
+                int actual = image.getRGB(x, y);
+                assertTrue(Math.abs((int) (rgb[0] * 255) - (actual >> 16 & 0xff)) <= maxError);
+                assertTrue(Math.abs((int) (rgb[1] * 255) - (actual >> 8 & 0xff)) <= maxError);
+                assertTrue(Math.abs((int) (rgb[2] * 255) - (actual & 0xff)) <= maxError);
+            }
+        }
+    }
+
+    @Test
+    void testAccuracy() throws IOException
+    {
+        // a smooth transform can be interpolated, a step function can't
+        assertNotNull(TintTransformLUT.create(3,
+                value -> new float[] { value[0], value[1] * value[2], 1 - value[2] }));
+        assertNull(TintTransformLUT.create(3,
+                value -> new float[] { value[0] > 0.51f ? 1 : 0, value[1], value[2] }));
+        // too many components
+        assertNull(TintTransformLUT.create(5, value -> new float[3]));
+    }
+
+    private static COSStream createFunction(String program, int inputs, int outputs)
+            throws IOException
+    {
+        COSStream stream = new COSStream();
+        stream.setInt(COSName.FUNCTION_TYPE, 4);
+        float[] domain = new float[inputs * 2];
+        float[] range = new float[outputs * 2];
+        for (int i = 1; i < domain.length; i += 2)
+        {
+            domain[i] = 1;
+        }
+        for (int i = 1; i < range.length; i += 2)
+        {
+            range[i] = 1;
+        }
+        COSArray domainArray = new COSArray();
+        domainArray.setFloatArray(domain);
+        stream.setItem(COSName.DOMAIN, domainArray);
+        COSArray rangeArray = new COSArray();
+        rangeArray.setFloatArray(range);
+        stream.setItem(COSName.RANGE, rangeArray);
+        try (OutputStream out = stream.createOutputStream())
+        {
+            out.write(program.getBytes(StandardCharsets.US_ASCII));
+        }
+        return stream;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the decoded image cache.
+ */
+class DecodedImageCacheTest
+{
+    @Test
+    void testKeysAndEviction()
+    {
+        // 10x10 ARGB images have 400 bytes
+        DecodedImageCache cache = new DecodedImageCache(1600);
+        COSStream stream1 = new COSStream();
+        COSStream stream2 = new COSStream();
+        BufferedImage image1 = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage image2 = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage image3 = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+
+        cache.put(stream1, null, 1, image1);
+        cache.put(stream1, new Rectangle(0, 0, 5, 5), 1, image2);
+        assertEquals(800, cache.getSize());
+        assertSame(image1, cache.get(stream1, null, 1));
+        assertSame(image2, cache.get(stream1, new Rectangle(0, 0, 5, 5), 1));
+        assertNull(cache.get(stream1, null, 2));
+        assertNull(cache.get(stream2, null, 1));
+
+        // the least recently used image is removed
+        cache.put(stream2, null, 1, image3);
+        assertEquals(1200, cache.getSize());
+        cache.setMaxSize(1000);
+        assertEquals(800, cache.getSize());
+        assertNull(cache.get(stream1, null, 1));
+        assertSame(image3, cache.get(stream2, null, 1));
+
+        cache.remove(stream2);
+        assertNull(cache.get(stream2, null, 1));
+        assertEquals(400, cache.getSize());
+
+        // too large for the cache
+        cache.put(stream2, null, 1, new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB));
+        assertNull(cache.get(stream2, null, 1));
+
+        cache.setMaxSize(0);
+        assertEquals(0, cache.getSize());
+        cache.put(stream2, null, 1, image3);
+        assertNull(cache.get(stream2, null, 1));
+    }
+
+    @Test
+    void testSharedBetweenImageObjects() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            BufferedImage bim = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+            bim.setRGB(3, 4, Color.RED.getRGB());
+            PDImageXObject image = LosslessFactory.createFromImage(document, bim);
+            BufferedImage decoded = image.getImage();
+
+            // another wrapper of the same stream, e.g. on another page
+            PDImageXObject image2 = new PDImageXObject(new PDStream(image.getCOSObject()), null);
+            assertSame(decoded, image2.getImage());
+            assertNotSame(decoded, image2.getImage(null, 2));
+            assertSame(image2.getImage(null, 2), image.getImage(null, 2));
+
+            // changes through the setters discard the cached images
+            COSArray decode = new COSArray();
+            for (int i = 0; i < 3; i++)
+            {
+                decode.add(COSInteger.ONE);
+                decode.add(COSInteger.ZERO);
+            }
+            image.setDecode(decode);
+            BufferedImage inverted = image2.getImage();
+            assertNotSame(decoded, inverted);
+            assertEquals(Color.CYAN.getRGB(), inverted.getRGB(3, 4));
+        }
+    }
+}
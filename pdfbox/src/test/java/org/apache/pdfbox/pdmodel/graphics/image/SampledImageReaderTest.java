@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.image;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the unpacking of image samples.
+ */
+class SampledImageReaderTest
+{
+    @Test
+    void test1BitGray() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            // 10 pixels per row, padded to 2 bytes
+            byte[] data = { (byte) 0b10110000, (byte) 0b01000000, (byte) 0b00000001, (byte) 0b11000000 };
+            PDImageXObject image = new PDImageXObject(document, new ByteArrayInputStream(data),
+                    null, 10, 2, 1, PDDeviceGray.INSTANCE);
+            BufferedImage bim = image.getImage();
+            int[] expected0 = { 1, 0, 1, 1, 0, 0, 0, 0, 0, 1 };
+            int[] expected1 = { 0, 0, 0, 0, 0, 0, 0, 1, 1, 1 };
+            for (int x = 0; x < 10; x++)
+            {
+                assertEquals(expected0[x] * 255, bim.getRaster().getSample(x, 0, 0));
+                assertEquals(expected1[x] * 255, bim.getRaster().getSample(x, 1, 0));
+            }
+
+            image.setStencil(true);
+            BufferedImage stencil = image.getStencilImage(Color.RED);
+            for (int x = 0; x < 10; x++)
+            {
+                // set bits are transparent with the default decode array
+                assertEquals(expected0[x] == 1 ? 0 : Color.RED.getRGB(), stencil.getRGB(x, 0));
+            }
+        }
+    }
+
+    @Test
+    void test2BitRGBWithDecodeAndColorKey() throws IOException
+    {
+        try (PDDocument document = new PDDocument())
+        {
+            // 3 pixels with 3 components of 2 bits, 18 bits padded to 3 bytes
+            // samples: (0,1,2) (3,3,3) (1,1,1)
+            byte[] data = { (byte) 0b00011011, (byte) 0b11110101, (byte) 0b01000000 };
+            PDImageXObject image = new PDImageXObject(document, new ByteArrayInputStream(data),
+                    null, 3, 1, 2, PDDeviceRGB.INSTANCE);
+            COSArray decode = new COSArray();
+            COSArray colorKey = new COSArray();
+            for (int i = 0; i < 3; i++)
+            {
+                decode.add(COSInteger.ONE);
+                decode.add(COSInteger.ZERO);
+                colorKey.add(COSInteger.ONE);
+                colorKey.add(COSInteger.ONE);
+            }
+            image.setDecode(decode);
+            image.getCOSObject().setItem(COSName.MASK, colorKey);
+
+            BufferedImage bim = image.getImage();
+            assertEquals(new Color(255, 170, 85).getRGB(), bim.getRGB(0, 0));
+            assertEquals(new Color(0, 0, 0).getRGB(), bim.getRGB(1, 0));
+            // masked by the color key
+            assertEquals(0, bim.getRGB(2, 0) >>> 24);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.shading;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.util.Matrix;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the cache of colour ramps and rasterized meshes.
+ */
+class ShadingCacheTest
+{
+    @Test
+    void testKeysAndEviction()
+    {
+        ShadingCache cache = new ShadingCache(1000);
+        COSDictionary shading1 = new COSDictionary();
+        COSDictionary shading2 = new COSDictionary();
+        int[] table1 = new int[50];
+        int[] table2 = new int[50];
+
+        cache.putColorTable(shading1, table1, 49);
+        cache.putColorTable(shading2, table2, 49);
+        assertSame(table1, cache.getColorTable(shading1, 49));
+        assertSame(table2, cache.getColorTable(shading2, 49));
+        assertNull(cache.getColorTable(shading1, 50));
+        assertNull(cache.getPixelTable(shading1, 49));
+        assertEquals(400, cache.getSize());
+
+        // the least recently used data is removed
+        cache.getColorTable(shading1, 49);
+        cache.putColorTable(shading1, new int[60], 59);
+        cache.putColorTable(shading2, new int[60], 59);
+        assertEquals(880, cache.getSize());
+        cache.putColorTable(shading2, new int[60], 60);
+        assertNull(cache.getColorTable(shading2, 49));
+        assertSame(table1, cache.getColorTable(shading1, 49));
+
+        // too large for the cache
+        cache.putColorTable(shading1, new int[63], 62);
+        assertNull(cache.getColorTable(shading1, 62));
+    }
+
+    @Test
+    void testMeshShading() throws IOException
+    {
+        PDShadingType4 shading = new PDShadingType4(createTriangleMesh());
+        AffineTransform xform = AffineTransform.getScaleInstance(2, 2);
+        Matrix matrix = new Matrix();
+        Rectangle deviceBounds = new Rectangle(0, 0, 200, 200);
+        ColorModel cm = ColorModel.getRGBdefault();
+
+        Type4ShadingContext context = new Type4ShadingContext(shading, cm, xform, matrix,
+                deviceBounds);
+        Raster raster = context.getRaster(0, 0, 200, 200);
+        int[] pixel = new int[4];
+
+        // the corners have the colors of the vertices
+        assertArrayEquals(new int[] { 255, 0, 0, 255 }, raster.getPixel(20, 20, pixel));
+        assertArrayEquals(new int[] { 0, 255, 0, 255 }, raster.getPixel(180, 20, pixel));
+        assertArrayEquals(new int[] { 0, 0, 255, 255 }, raster.getPixel(20, 180, pixel));
+        // outside of the triangle
+        assertEquals(0, raster.getPixel(150, 150, pixel)[3]);
+        assertEquals(0, raster.getPixel(5, 5, pixel)[3]);
+        // inside
+        assertEquals(255, raster.getPixel(60, 60, pixel)[3]);
+
+        // another context for the same shading uses the cached mesh
+        PixelTable cached = ShadingCache.getInstance().getPixelTable(shading.getCOSObject(),
+                getParameters(xform, deviceBounds));
+        assertNotNull(cached);
+        Raster raster2 = new Type4ShadingContext(shading, cm, xform, matrix, deviceBounds)
+                .getRaster(50, 40, 20, 30);
+        for (int y = 0; y < 30; y++)
+        {
+            for (int x = 0; x < 20; x++)
+            {
+                assertArrayEquals(raster.getPixel(50 + x, 40 + y, (int[]) null),
+                        raster2.getPixel(x, y, (int[]) null));
+            }
+        }
+        assertSame(cached, ShadingCache.getInstance().getPixelTable(shading.getCOSObject(),
+                getParameters(xform, deviceBounds)));
+    }
+
+    private static double[] getParameters(AffineTransform xform, Rectangle deviceBounds)
+    {
+        double[] parameters = new double[16];
+        xform.getMatrix(parameters);
+        // identity pattern matrix
+        parameters[6] = 1;
+        parameters[9] = 1;
+        parameters[12] = deviceBounds.x;
+        parameters[13] = deviceBounds.y;
+        parameters[14] = deviceBounds.width;
+        parameters[15] = deviceBounds.height;
+        return parameters;
+    }
+
+    /**
+     * Creates a free-form triangle mesh with one triangle with red, green and blue vertices.
+     */
+    private static COSStream createTriangleMesh() throws IOException
+    {
+        COSStream stream = new COSStream();
+        stream.setInt(COSName.SHADING_TYPE, 4);
+        stream.setItem(COSName.COLORSPACE, COSName.DEVICERGB);
+        stream.setInt(COSName.BITS_PER_COORDINATE, 16);
+        stream.setInt(COSName.BITS_PER_COMPONENT, 8);
+        stream.setInt(COSName.BITS_PER_FLAG, 8);
+        COSArray decode = new COSArray();
+        decode.setFloatArray(new float[] { 0, 100, 0, 100, 0, 1, 0, 1, 0, 1 });
+        stream.setItem(COSName.DECODE, decode);
+        int[][] vertices = { { 10, 10, 255, 0, 0 }, { 90, 10, 0, 255, 0 }, { 10, 90, 0, 0, 255 } };
+        try (DataOutputStream out = new DataOutputStream(stream.createOutputStream()))
+        {
+            for (int[] vertex : vertices)
+            {
+                out.writeByte(0);
+                out.writeShort(vertex[0] * 65535 / 100);
+                out.writeShort(vertex[1] * 65535 / 100);
+                out.writeByte(vertex[2]);
+                out.writeByte(vertex[3]);
+                out.writeByte(vertex[4]);
+            }
+        }
+        return stream;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts.FontName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test that rendering a page in bands gives the same result as rendering it as a whole.
+ */
+class BandedRenderingTest
+{
+    @Test
+    void testRenderImageBand() throws IOException
+    {
+        try (PDDocument document = createDocument(0))
+        {
+            PDFRenderer renderer = new PDFRenderer(document);
+            BufferedImage expected = renderer.renderImage(0, 2);
+            int y = 100;
+            BufferedImage band = renderer.renderImageBand(0, 2, ImageType.RGB,
+                    RenderDestination.EXPORT, y, 50);
+            assertEquals(expected.getWidth(), band.getWidth());
+            assertEquals(50, band.getHeight());
+            assertSameImage(expected.getSubimage(0, y, band.getWidth(), band.getHeight()), band);
+
+            // the last band is cut at the bottom of the page
+            band = renderer.renderImageBand(0, 2, ImageType.RGB, RenderDestination.EXPORT,
+                    expected.getHeight() - 10, 50);
+            assertEquals(10, band.getHeight());
+
+            assertThrows(IllegalArgumentException.class, () -> renderer.renderImageBand(0, 2,
+                    ImageType.RGB, RenderDestination.EXPORT, expected.getHeight(), 50));
+        }
+    }
+
+    @Test
+    void testRenderImageBanded() throws IOException
+    {
+        for (int rotation : new int[] { 0, 90 })
+        {
+            try (PDDocument document = createDocument(rotation))
+            {
+                PDFRenderer renderer = new PDFRenderer(document);
+                BufferedImage expected = renderer.renderImage(0, 1.5f, ImageType.RGB);
+                RenderedImage banded = renderer.renderImageBanded(0, 1.5f, ImageType.RGB, 64);
+                assertEquals(expected.getWidth(), banded.getWidth());
+                assertEquals(expected.getHeight(), banded.getHeight());
+                assertEquals((expected.getHeight() + 63) / 64, banded.getNumYTiles());
+
+                BufferedImage copy = new BufferedImage(expected.getColorModel(),
+                        banded.copyData(null), false, null);
+                assertSameImage(expected, copy);
+            }
+        }
+    }
+
+    @Test
+    void testWriteBandedImage() throws IOException
+    {
+        try (PDDocument document = createDocument(0))
+        {
+            PDFRenderer renderer = new PDFRenderer(document);
+            BufferedImage expected = renderer.renderImage(0, 1, ImageType.RGB);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ImageIO.write(renderer.renderImageBanded(0, 1, ImageType.RGB, 100), "PNG", baos);
+            BufferedImage actual = ImageIO.read(new ByteArrayInputStream(baos.toByteArray()));
+            assertSameImage(expected, actual);
+        }
+    }
+
+    private static PDDocument createDocument(int rotation) throws IOException
+    {
+        PDDocument document = new PDDocument();
+        PDPage page = new PDPage(PDRectangle.A5);
+        page.setRotation(rotation);
+        document.addPage(page);
+        try (PDPageContentStream cs = new PDPageContentStream(document, page))
+        {
+            cs.setNonStrokingColor(Color.BLUE);
+            cs.addRect(50, 50, 200, 300);
+            cs.fill();
+            cs.setStrokingColor(Color.RED);
+            cs.setLineWidth(3);
+            cs.moveTo(20, 20);
+            cs.lineTo(400, 550);
+            cs.stroke();
+            cs.beginText();
+            cs.setFont(new PDType1Font(FontName.HELVETICA), 24);
+            cs.newLineAtOffset(60, 500);
+            cs.showText("Banded rendering");
+            cs.endText();
+        }
+        return document;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y),
+                        "pixel at " + x + "," + y + " differs");
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDFormContentStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts.FontName;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test that culling of invisible content doesn't change the rendering result.
+ */
+class CullingTest
+{
+    @Test
+    void testCulling() throws IOException
+    {
+        try (PDDocument document = createDocument())
+        {
+            PDFRenderer renderer = new PDFRenderer(document);
+            BufferedImage expected = renderer.renderImage(0, 1.5f);
+            BufferedImage expectedBand = renderer.renderImageBand(0, 1.5f, ImageType.RGB,
+                    RenderDestination.EXPORT, 200, 100);
+
+            renderer.setCullingEnabled(true);
+            assertSameImage(expected, renderer.renderImage(0, 1.5f));
+            assertSameImage(expectedBand, renderer.renderImageBand(0, 1.5f, ImageType.RGB,
+                    RenderDestination.EXPORT, 200, 100));
+        }
+    }
+
+    private static PDDocument createDocument() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        PDPage page = new PDPage(PDRectangle.A6);
+        // only a part of the media box is visible
+        page.setCropBox(new PDRectangle(50, 50, 200, 300));
+        document.addPage(page);
+
+        BufferedImage bim = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = bim.createGraphics();
+        g.setPaint(Color.ORANGE);
+        g.fillRect(0, 0, 40, 30);
+        g.setPaint(Color.GREEN);
+        g.fillOval(5, 5, 30, 20);
+        g.dispose();
+        PDImageXObject image = LosslessFactory.createFromImage(document, bim);
+
+        PDFormXObject form = new PDFormXObject(document);
+        form.setBBox(new PDRectangle(0, 0, 50, 50));
+        try (PDFormContentStream cs = new PDFormContentStream(form))
+        {
+            cs.setNonStrokingColor(Color.MAGENTA);
+            cs.addRect(5, 5, 40, 40);
+            cs.fill();
+        }
+
+        try (PDPageContentStream cs = new PDPageContentStream(document, page))
+        {
+            for (int i = 0; i < 6; i++)
+            {
+                // partly outside, inside and completely outside of the crop box
+                float pos = i * 50f;
+                cs.setNonStrokingColor(new Color(i * 40, 0, 255 - i * 40));
+                cs.addRect(pos, pos, 60, 30);
+                cs.fill();
+                cs.drawImage(image, pos + 10, 380 - pos, 40, 30);
+                cs.saveGraphicsState();
+                cs.transform(Matrix.getTranslateInstance(220 - pos, pos));
+                cs.drawForm(form);
+                cs.restoreGraphicsState();
+            }
+            cs.saveGraphicsState();
+            cs.addRect(100, 100, 50, 50);
+            cs.clip();
+            cs.setStrokingColor(Color.RED);
+            cs.setLineWidth(4);
+            cs.moveTo(0, 0);
+            cs.lineTo(120, 95);
+            cs.stroke();
+            cs.moveTo(90, 90);
+            cs.lineTo(160, 160);
+            cs.stroke();
+            cs.restoreGraphicsState();
+            cs.beginText();
+            cs.setFont(new PDType1Font(FontName.TIMES_ROMAN), 20);
+            cs.newLineAtOffset(10, 200);
+            cs.showText("Some text that is partly outside");
+            cs.endText();
+        }
+        return document;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y),
+                        "pixel at " + x + "," + y + " differs");
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDFormContentStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.blend.BlendMode;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the pool of images for rendering.
+ */
+class RasterBufferPoolTest
+{
+    @Test
+    void testAcquireAndRelease()
+    {
+        RasterBufferPool pool = new RasterBufferPool(10000);
+        BufferedImage image = pool.acquire(20, 10, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(5, 5, 0x123456);
+        pool.release(image);
+        pool.release(image);
+        assertEquals(800, pool.getSize());
+
+        // other size or type
+        assertNotSame(image, pool.acquire(10, 20, BufferedImage.TYPE_INT_RGB));
+        assertNotSame(image, pool.acquire(20, 10, BufferedImage.TYPE_INT_ARGB));
+
+        // the pooled image is cleared
+        assertSame(image, pool.acquire(20, 10, BufferedImage.TYPE_INT_RGB));
+        assertEquals(0, image.getRGB(5, 5) & 0xffffff);
+        assertEquals(0, pool.getSize());
+        assertNotSame(image, pool.acquire(20, 10, BufferedImage.TYPE_INT_RGB));
+
+        // subimages and images that are too large are ignored
+        pool.release(image.getSubimage(0, 0, 10, 10));
+        pool.release(new BufferedImage(30, 30, BufferedImage.TYPE_INT_RGB));
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    void testEviction()
+    {
+        RasterBufferPool pool = new RasterBufferPool(1000);
+        BufferedImage[] images = new BufferedImage[6];
+        for (int i = 0; i < images.length; i++)
+        {
+            images[i] = new BufferedImage(10, 5 + i % 2, BufferedImage.TYPE_BYTE_GRAY);
+            pool.release(images[i]);
+        }
+        // 3 images of 50 bytes and 3 images of 60 bytes
+        assertEquals(330, pool.getSize());
+
+        // the images of the least recently used size are removed first
+        pool.release(new BufferedImage(25, 10, BufferedImage.TYPE_BYTE_GRAY));
+        pool.release(new BufferedImage(25, 10, BufferedImage.TYPE_BYTE_GRAY));
+        pool.release(new BufferedImage(25, 10, BufferedImage.TYPE_BYTE_GRAY));
+        assertEquals(980, pool.getSize());
+        assertSame(images[4], pool.acquire(10, 5, BufferedImage.TYPE_BYTE_GRAY));
+        assertEquals(930, pool.getSize());
+        pool.release(new BufferedImage(25, 10, BufferedImage.TYPE_BYTE_GRAY));
+        assertEquals(1000, pool.getSize());
+        assertNotSame(images[5], pool.acquire(10, 6, BufferedImage.TYPE_BYTE_GRAY));
+
+        pool.clear();
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    void testRendering() throws IOException
+    {
+        try (PDDocument document = createDocument())
+        {
+            BufferedImage expected = new PDFRenderer(document).renderImage(0, 2);
+
+            PDFRenderer renderer = new PDFRenderer(document);
+            RasterBufferPool pool = new RasterBufferPool(10000000);
+            renderer.setRasterBufferPool(pool);
+            BufferedImage image = renderer.renderImage(0, 2);
+            assertSameImage(expected, image);
+            // the intermediate images have been returned
+            assertTrue(pool.getSize() > 0);
+
+            // the page image is reused when it is given back
+            pool.release(image);
+            BufferedImage image2 = renderer.renderImage(0, 2);
+            assertSame(image, image2);
+            assertSameImage(expected, image2);
+
+            // rendering into an image of the caller
+            BufferedImage target = new BufferedImage(250, 220, BufferedImage.TYPE_INT_RGB);
+            renderer.renderPageToImage(0, target, 2);
+            assertSameImage(expected, target.getSubimage(0, 0, 200, 200));
+            assertEquals(Color.WHITE.getRGB(), target.getRGB(220, 100));
+            assertEquals(Color.WHITE.getRGB(), target.getRGB(100, 210));
+
+            BufferedImage argbTarget = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+            new PDFRenderer(document).renderPageToImage(0, argbTarget, 2);
+            assertSameImage(new PDFRenderer(document).renderImage(0, 2, ImageType.ARGB),
+                    argbTarget);
+        }
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "at " + x + "," + y);
+            }
+        }
+    }
+
+    /**
+     * Creates a page with a blend mode on the page level, a non-isolated transparency group with
+     * a blend mode and a luminosity soft mask.
+     */
+    private static PDDocument createDocument() throws IOException
+    {
+        PDDocument document = new PDDocument();
+        PDPage page = new PDPage(new PDRectangle(100, 100));
+        document.addPage(page);
+
+        PDExtendedGraphicsState multiply = new PDExtendedGraphicsState();
+        multiply.setBlendMode(BlendMode.MULTIPLY);
+
+        PDFormXObject group = createGroup(document, new PDRectangle(10, 10, 60, 60));
+        try (PDFormContentStream cs = new PDFormContentStream(group))
+        {
+            cs.setGraphicsStateParameters(multiply);
+            cs.setNonStrokingColor(Color.CYAN);
+            cs.addRect(10, 10, 40, 40);
+            cs.fill();
+            cs.setNonStrokingColor(Color.MAGENTA);
+            cs.addRect(30, 30, 40, 40);
+            cs.fill();
+        }
+
+        PDFormXObject maskGroup = createGroup(document, new PDRectangle(0, 0, 100, 100));
+        try (PDFormContentStream cs = new PDFormContentStream(maskGroup))
+        {
+            cs.setNonStrokingColor(Color.WHITE);
+            cs.addRect(0, 0, 100, 50);
+            cs.fill();
+            cs.setNonStrokingColor(Color.GRAY);
+            cs.addRect(0, 50, 50, 50);
+            cs.fill();
+        }
+        COSDictionary softMask = new COSDictionary();
+        softMask.setItem(COSName.TYPE, COSName.MASK);
+        softMask.setItem(COSName.S, COSName.LUMINOSITY);
+        softMask.setItem(COSName.G, maskGroup);
+        PDExtendedGraphicsState masked = new PDExtendedGraphicsState();
+        masked.getCOSObject().setItem(COSName.SMASK, softMask);
+
+        try (PDPageContentStream cs = new PDPageContentStream(document, page))
+        {
+            cs.setNonStrokingColor(Color.YELLOW);
+            cs.addRect(0, 0, 100, 100);
+            cs.fill();
+            cs.saveGraphicsState();
+            cs.setGraphicsStateParameters(multiply);
+            cs.setNonStrokingColor(Color.LIGHT_GRAY);
+            cs.addRect(60, 0, 40, 100);
+            cs.fill();
+            cs.restoreGraphicsState();
+            cs.drawForm(group);
+            cs.saveGraphicsState();
+            cs.setGraphicsStateParameters(masked);
+            cs.setNonStrokingColor(Color.BLUE);
+            cs.addRect(20, 20, 70, 70);
+            cs.fill();
+            cs.restoreGraphicsState();
+        }
+        return document;
+    }
+
+    private static PDFormXObject createGroup(PDDocument document, PDRectangle bbox)
+    {
+        PDFormXObject form = new PDFormXObject(document);
+        form.setBBox(bbox);
+        form.setResources(new PDResources());
+        COSDictionary group = new COSDictionary();
+        group.setItem(COSName.S, COSName.TRANSPARENCY);
+        form.getCOSObject().setItem(COSName.GROUP, group);
+        return form;
+    }
+}
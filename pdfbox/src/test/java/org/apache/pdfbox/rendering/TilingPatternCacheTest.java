@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.rendering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDPatternContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDPattern;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDTilingPattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test that the tiles of tiling patterns are rendered once for all pages of a document.
+ */
+class TilingPatternCacheTest
+{
+    @Test
+    void testTilesSharedByPages() throws IOException
+    {
+        try (PDDocument document = createDocument())
+        {
+            PDFRenderer renderer = new PDFRenderer(document);
+            TilingPatternCache cache = renderer.getTilingPatternCache();
+            BufferedImage image0 = renderer.renderImage(0, 2);
+            // one colored tile and two uncolored tiles of 20 x 20 pixels
+            assertEquals(3 * 20 * 20 * 4, cache.getSize());
+
+            BufferedImage image1 = renderer.renderImage(1, 2);
+            assertEquals(3 * 20 * 20 * 4, cache.getSize());
+            assertSameImage(image0, image1);
+
+            // another resolution
+            renderer.renderImage(1, 1);
+            assertEquals(3 * 20 * 20 * 4 + 3 * 10 * 10 * 4, cache.getSize());
+
+            // the result is the same as without the cache
+            PDFRenderer renderer2 = new PDFRenderer(document);
+            assertSameImage(renderer2.renderImage(1, 2), image1);
+        }
+    }
+
+    @Test
+    void testEviction() throws IOException
+    {
+        TilingPatternCache cache = new TilingPatternCache(1000);
+        PageDrawer drawer = new PageDrawer(new PageDrawerParameters(
+                new PDFRenderer(new PDDocument()), new PDPage(), false, RenderDestination.VIEW,
+                null, 0.5f, false));
+        BufferedImage tile = new BufferedImage(10, 5, BufferedImage.TYPE_INT_ARGB);
+        TilingPatternCache.Key[] keys = new TilingPatternCache.Key[6];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = new TilingPatternCache.Key(drawer, new PDTilingPattern().getCOSObject(), null,
+                    null, 1, 1);
+            cache.put(keys[i], tile);
+        }
+        // 200 bytes per tile
+        assertEquals(1000, cache.getSize());
+        assertEquals(null, cache.get(keys[0]));
+        assertEquals(tile, cache.get(keys[1]));
+
+        // too large
+        cache.put(keys[0], new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(null, cache.get(keys[0]));
+    }
+
+    private static PDDocument createDocument() throws IOException
+    {
+        PDDocument document = new PDDocument();
+
+        PDTilingPattern colored = createPattern(PDTilingPattern.PAINT_COLORED);
+        try (PDPatternContentStream cs = new PDPatternContentStream(colored))
+        {
+            cs.setNonStrokingColor(Color.GREEN);
+            cs.addRect(0, 0, 5, 5);
+            cs.fill();
+            cs.setNonStrokingColor(Color.BLUE);
+            cs.addRect(5, 5, 5, 5);
+            cs.fill();
+        }
+        PDTilingPattern uncolored = createPattern(PDTilingPattern.PAINT_UNCOLORED);
+        try (PDPatternContentStream cs = new PDPatternContentStream(uncolored))
+        {
+            cs.addRect(2, 2, 6, 6);
+            cs.fill();
+        }
+
+        for (int i = 0; i < 2; i++)
+        {
+            PDPage page = new PDPage(new PDRectangle(100, 100));
+            document.addPage(page);
+            PDResources resources = new PDResources();
+            page.setResources(resources);
+            COSName coloredName = resources.add(colored);
+            COSName uncoloredName = resources.add(uncolored);
+            PDPattern coloredSpace = new PDPattern(resources);
+            PDPattern uncoloredSpace = new PDPattern(resources, PDDeviceRGB.INSTANCE);
+            try (PDPageContentStream cs = new PDPageContentStream(document, page))
+            {
+                cs.setNonStrokingColor(new PDColor(coloredName, coloredSpace));
+                cs.addRect(0, 0, 100, 40);
+                cs.fill();
+                cs.setNonStrokingColor(
+                        new PDColor(new float[] { 1, 0, 0 }, uncoloredName, uncoloredSpace));
+                cs.addRect(0, 40, 50, 60);
+                cs.fill();
+                cs.setNonStrokingColor(
+                        new PDColor(new float[] { 0, 0, 1 }, uncoloredName, uncoloredSpace));
+                cs.addRect(50, 40, 50, 60);
+                cs.fill();
+            }
+        }
+        return document;
+    }
+
+    private static PDTilingPattern createPattern(int paintType)
+    {
+        PDTilingPattern pattern = new PDTilingPattern();
+        pattern.setPaintType(paintType);
+        pattern.setTilingType(PDTilingPattern.TILING_CONSTANT_SPACING);
+        pattern.setBBox(new PDRectangle(10, 10));
+        pattern.setXStep(10);
+        pattern.setYStep(10);
+        return pattern;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++)
+        {
+            for (int x = 0; x < expected.getWidth(); x++)
+            {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y),
+                        "pixel " + x + "," + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the size bounded LRU cache.
+ */
+class BoundedCacheTest
+{
+    @Test
+    void testEviction()
+    {
+        BoundedCache<String, byte[]> cache = new BoundedCache<>(100, value -> value.length);
+        assertTrue(cache.put("a", new byte[20]));
+        assertTrue(cache.put("b", new byte[20]));
+        assertTrue(cache.put("c", new byte[20]));
+        assertEquals(60, cache.getSize());
+
+        // "a" is used, so "b" is the least recently used entry
+        assertNotNull(cache.get("a"));
+        assertTrue(cache.put("d", new byte[25]));
+        assertTrue(cache.put("e", new byte[25]));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(90, cache.getSize());
+
+        // too large
+        assertFalse(cache.put("f", new byte[26]));
+        assertNull(cache.get("f"));
+
+        // replacing a value updates the size
+        assertTrue(cache.put("a", new byte[10]));
+        assertEquals(80, cache.getSize());
+
+        cache.removeIf(key -> key.compareTo("d") < 0);
+        assertEquals(50, cache.getSize());
+        assertEquals(25, cache.remove("d").length);
+        assertEquals(25, cache.getSize());
+
+        cache.setMaxSize(0);
+        assertEquals(0, cache.getSize());
+        assertFalse(cache.put("a", new byte[1]));
+    }
+
+    @Test
+    void testImageSize()
+    {
+        assertEquals(10 * 20 * 4, BoundedCache.getSize(new BufferedImage(10, 20,
+                BufferedImage.TYPE_INT_ARGB)));
+        assertEquals(10 * 20 * 3, BoundedCache.getSize(new BufferedImage(10, 20,
+                BufferedImage.TYPE_3BYTE_BGR)));
+    }
+}
@@ -18,10 +18,11 @@ package org.apache.pdfbox.tools;
 
 import java.awt.HeadlessException;
 import java.awt.Toolkit;
-import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.concurrent.Callable;
 
 import javax.imageio.ImageIO;
@@ -89,6 +90,10 @@ public final class PDFToImage implements Callable<Integer>
     @Option(names = "-subsampling", description = "activate subsampling (for PDFs with huge images)")
     private boolean subsampling;
 
+    @Option(names = "-bandHeight", description = "render and write the pages in horizontal bands of the given height " +
+        "in pixels to reduce memory usage at high DPI (best with png and tif) (default: 0 = whole page)")
+    private int bandHeight;
+
     @Option(names = {"-i", "--input"}, description = "the PDF files to convert.", required = true)
     private File infile;
 
@@ -158,9 +163,25 @@ public final class PDFToImage implements Callable<Integer>
             renderer.setSubsamplingAllowed(subsampling);
             for (int i = startPage - 1; i < endPage; i++)
             {
-                BufferedImage image = renderer.renderImageWithDPI(i, dpi, imageType);
+                RenderedImage image;
+                if (bandHeight > 0)
+                {
+                    image = renderer.renderImageBanded(i, dpi / 72f, imageType, bandHeight);
+                }
+                else
+                {
+                    image = renderer.renderImageWithDPI(i, dpi, imageType);
+                }
                 String fileName = outputPrefix + "-" + (i + 1) + "." + imageFormat;
-                success &= ImageIOUtil.writeImage(image, fileName, dpi, quality);
+                try
+                {
+                    success &= ImageIOUtil.writeImage(image, fileName, dpi, quality);
+                }
+                catch (UncheckedIOException ex)
+                {
+                    // thrown by a banded image when the rendering of a band failed
+                    throw ex.getCause();
+                }
             }
 
             // performance stats
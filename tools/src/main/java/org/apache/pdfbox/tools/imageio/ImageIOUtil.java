@@ -20,6 +20,7 @@ import java.awt.color.ColorSpace;
 import java.awt.color.ICC_ColorSpace;
 import java.awt.color.ICC_Profile;
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
@@ -88,7 +89,7 @@ public final class ImageIOUtil
     }
 
     /**
-     * Writes a buffered image to a file using the given image format.
+     * Writes an image to a file using the given image format.
      * See {@link #writeImage(BufferedImage image, String formatName,
      * OutputStream output, int dpi, float compressionQuality)} for more details.
      *
@@ -102,13 +103,13 @@ public final class ImageIOUtil
      * @return true if the image file was produced, false if there was an error.
      * @throws IOException if an I/O error occurs
      */
-    public static boolean writeImage(BufferedImage image, String filename,
+    public static boolean writeImage(RenderedImage image, String filename,
             int dpi, float compressionQuality) throws IOException
     {
         try (OutputStream output = new BufferedOutputStream(new FileOutputStream(filename)))
         {
             String formatName = filename.substring(filename.lastIndexOf('.') + 1);
-            return writeImage(image, formatName, output, dpi, compressionQuality);
+            return writeImage(image, formatName, output, dpi, compressionQuality, "");
         }
     }
 
@@ -180,12 +181,15 @@ public final class ImageIOUtil
     }
 
     /**
-     * Writes a buffered image to a file using the given image format.
+     * Writes an image to a file using the given image format.
      * Compression is fixed for PNG, GIF, BMP and WBMP, dependent of the compressionQuality
      * parameter for JPG, and dependent of bit count for TIFF (a bitonal image
      * will be compressed with CCITT G4, a color image with LZW). Creating a
      * TIFF image is only supported if the jai_imageio library is in the class
-     * path.
+     * path. Images that are not a {@link BufferedImage}, e.g. the banded images from
+     * {@link org.apache.pdfbox.rendering.PDFRenderer#renderImageBanded(int, float,
+     * org.apache.pdfbox.rendering.ImageType, int) PDFRenderer.renderImageBanded()}, are fetched
+     * by the writer in parts; TIFF files are then written with one strip per tile.
      *
      * @param image the image to be written
      * @param formatName the target format (ex. "png")
@@ -201,7 +205,7 @@ public final class ImageIOUtil
      * @return true if the image file was produced, false if there was an error.
      * @throws IOException if an I/O error occurs
      */
-    public static boolean writeImage(BufferedImage image, String formatName, OutputStream output,
+    public static boolean writeImage(RenderedImage image, String formatName, OutputStream output,
             int dpi, float compressionQuality, String compressionType) throws IOException
     {
         ImageOutputStream imageOutput = null;
@@ -333,7 +337,7 @@ public final class ImageIOUtil
      * @param image the image to analyse
      * @return true if this image has an ICC profile, that is different from sRGB.
      */
-    private static boolean hasICCProfile(BufferedImage image)
+    private static boolean hasICCProfile(RenderedImage image)
     {
         ColorSpace colorSpace = image.getColorModel().getColorSpace();
         // We can only export ICC color spaces
@@ -23,7 +23,8 @@ import javax.imageio.ImageWriteParam;
 import javax.imageio.metadata.IIOInvalidTreeException;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
-import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.RenderedImage;
 import static org.apache.pdfbox.tools.imageio.MetaUtil.debugLogMetadata;
 import org.w3c.dom.NodeList;
 
@@ -41,15 +42,14 @@ final class TIFFUtil
 
     /**
      * Sets the ImageIO parameter compression type based on the given image.
-     * @param image buffered image used to decide compression type
+     * @param image image used to decide compression type
      * @param param ImageIO write parameter to update
      */
-    public static void setCompressionType(ImageWriteParam param, BufferedImage image)
+    public static void setCompressionType(ImageWriteParam param, RenderedImage image)
     {
         // avoid error: first compression type is RLE, not optimal and incorrect for color images
         // TODO expose this choice to the user?
-        if (image.getType() == BufferedImage.TYPE_BYTE_BINARY &&
-            image.getColorModel().getPixelSize() == 1)
+        if (isBitonal(image))
         {
             param.setCompressionType("CCITT T.6");
         }
@@ -68,12 +68,12 @@ final class TIFFUtil
      * and the <a href="http://partners.adobe.com/public/developer/tiff/index.html">TIFF
      * specification</a>.
      *
-     * @param image buffered image which will be written
+     * @param image image which will be written
      * @param metadata ImageIO metadata
      * @param dpi image dots per inch
      * @throws IIOInvalidTreeException if something goes wrong
      */
-    static void updateMetadata(IIOMetadata metadata, BufferedImage image, int dpi)
+    static void updateMetadata(IIOMetadata metadata, RenderedImage image, int dpi)
             throws IIOInvalidTreeException
     {
         String metaDataFormat = metadata.getNativeMetadataFormatName();
@@ -103,11 +103,12 @@ final class TIFFUtil
         ifd.appendChild(createRationalField(283, "YResolution", dpi, 1));
         ifd.appendChild(createShortField(296, "ResolutionUnit", 2)); // Inch
 
-        ifd.appendChild(createLongField(278, "RowsPerStrip", image.getHeight()));
+        // one strip per tile, for a BufferedImage this is the whole image; a banded image
+        // can then be written without fetching more than one band at a time
+        ifd.appendChild(createLongField(278, "RowsPerStrip", image.getTileHeight()));
         ifd.appendChild(createAsciiField(305, "Software", "PDFBOX"));
 
-        if (image.getType() == BufferedImage.TYPE_BYTE_BINARY && 
-                image.getColorModel().getPixelSize() == 1)
+        if (isBitonal(image))
         {
             // set PhotometricInterpretation WhiteIsZero
             // because of bug in Windows XP preview
@@ -119,6 +120,12 @@ final class TIFFUtil
         debugLogMetadata(metadata, metaDataFormat);
     }
 
+    private static boolean isBitonal(RenderedImage image)
+    {
+        return image.getColorModel() instanceof IndexColorModel &&
+               image.getColorModel().getPixelSize() == 1;
+    }
+
     private static IIOMetadataNode createShortField(int tiffTagNumber, String name, int val)
     {
         IIOMetadataNode field, arrayNode, valueNode;